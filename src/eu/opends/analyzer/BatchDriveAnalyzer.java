@@ -0,0 +1,411 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import com.jme3.math.Vector2f;
+
+import eu.opends.drivingTask.DrivingTaskDataQuery;
+import eu.opends.drivingTask.scenario.ScenarioLoader;
+import eu.opends.drivingTask.scene.SceneLoader;
+
+
+/**
+ * Analyzes all drive-data files (carData*.txt and carData*.bin) of a 
+ * directory and its sub-directories without starting the simulator. The 
+ * files are processed in parallel and the metrics of each drive (see 
+ * <code>DriveAnalysis</code>) are written to a CSV or JSON file.
+ * 
+ * Usage: BatchDriveAnalyzer &lt;recording directory&gt; [&lt;output file (*.csv or *.json)&gt;] [&lt;threads&gt;]
+ * 
+ * @author Rafael Math
+ */
+public class BatchDriveAnalyzer implements DriveAnalysis.IdealLineSource
+{
+	// same values as used by DriveAnalyzer
+	private static final float ROAD_WIDTH = 10.0f;
+	private static final float LANE_WIDTH = 3.5f;
+	
+	private int numberOfThreads;
+	
+	// ideal lines of all driving tasks read so far (or being read)
+	private ConcurrentMap<String, Future<List<Vector2f>>> idealLineMap = 
+		new ConcurrentHashMap<String, Future<List<Vector2f>>>();
+	
+	
+	public BatchDriveAnalyzer(int numberOfThreads)
+	{
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+	
+	
+	/**
+	 * Returns the ideal line of the given driving task. Every driving task 
+	 * will be parsed only once; workers requesting a driving task which is 
+	 * being parsed by another worker will wait for its result, whereas 
+	 * different driving tasks can be parsed at the same time.
+	 */
+	public List<Vector2f> getIdealLine(final String drivingTaskPath) throws Exception
+	{
+		Future<List<Vector2f>> idealLine = idealLineMap.get(drivingTaskPath);
+		
+		if(idealLine == null)
+		{
+			FutureTask<List<Vector2f>> task = new FutureTask<List<Vector2f>>(new Callable<List<Vector2f>>()
+			{
+				public List<Vector2f> call()
+				{
+					return readIdealLine(drivingTaskPath);
+				}
+			});
+			
+			idealLine = idealLineMap.putIfAbsent(drivingTaskPath, task);
+			if(idealLine == null)
+			{
+				// parse in the current thread
+				idealLine = task;
+				task.run();
+			}
+		}
+		
+		return idealLine.get();
+	}
+	
+	
+	private static List<Vector2f> readIdealLine(String drivingTaskPath)
+	{
+		try {
+			
+			DrivingTaskDataQuery dtData = new DrivingTaskDataQuery(drivingTaskPath);
+			if(!dtData.isValidDrivingTask())
+				throw new Exception("Invalid driving task " + drivingTaskPath);
+			
+			return ScenarioLoader.readIdealLine(dtData, SceneLoader.readPoints(dtData));
+			
+		} catch (Exception e) {
+			
+			System.err.println("Could not read ideal line of '" + drivingTaskPath + "': " + e.getMessage());
+			return new ArrayList<Vector2f>();
+		}
+	}
+	
+	
+	/**
+	 * Analyzes the given drive-data files in parallel.
+	 * 
+	 * @param analyzerFiles
+	 * 			Drive-data files to analyze.
+	 * 
+	 * @return
+	 * 			Analysis of every file (in the order of the given list).
+	 */
+	public List<DriveAnalysis> analyze(List<File> analyzerFiles) throws Exception
+	{
+		List<Callable<DriveAnalysis>> taskList = new ArrayList<Callable<DriveAnalysis>>();
+		for(final File analyzerFile : analyzerFiles)
+		{
+			taskList.add(new Callable<DriveAnalysis>()
+			{
+				public DriveAnalysis call()
+				{
+					DriveAnalysis analysis = new DriveAnalysis(analyzerFile);
+					analysis.analyze(BatchDriveAnalyzer.this, ROAD_WIDTH, LANE_WIDTH);
+					return analysis;
+				}
+			});
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory()
+		{
+			private int counter = 0;
+			
+			public Thread newThread(Runnable runnable) 
+			{
+				Thread thread = new Thread(runnable, "BatchDriveAnalyzer-" + (counter++));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		try {
+			
+			List<DriveAnalysis> resultList = new ArrayList<DriveAnalysis>();
+			for(Future<DriveAnalysis> future : executor.invokeAll(taskList))
+				resultList.add(future.get());
+			
+			return resultList;
+			
+		} finally {
+			
+			executor.shutdown();
+		}
+	}
+	
+	
+	/**
+	 * Collects all drive-data files of the given directory and its 
+	 * sub-directories (sorted by path).
+	 */
+	public static List<File> findAnalyzerFiles(File directory)
+	{
+		List<File> analyzerFiles = new ArrayList<File>();
+		addAnalyzerFiles(directory, analyzerFiles);
+		Collections.sort(analyzerFiles);
+		return analyzerFiles;
+	}
+	
+	
+	private static void addAnalyzerFiles(File directory, List<File> analyzerFiles)
+	{
+		File[] files = directory.listFiles();
+		if(files == null)
+			return;
+		
+		for(File file : files)
+		{
+			String fileName = file.getName();
+			
+			if(file.isDirectory())
+				addAnalyzerFiles(file, analyzerFiles);
+			else if(fileName.startsWith("carData") && 
+					(fileName.endsWith(".txt") || fileName.endsWith(BinaryDataFormat.FILE_EXTENSION)))
+				analyzerFiles.add(file);
+		}
+	}
+	
+	
+	/**
+	 * Writes the given results to a CSV file (one line per drive).
+	 */
+	public static void writeCSV(List<DriveAnalysis> resultList, File outputFile) throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
+		
+		try {
+			
+			writer.write("file,drivingTask,driver,date,records,duration,distance,meanSpeed,maxSpeed," +
+					"deviationArea,lengthOfIdealLine,meanDeviation,laneChanges,error");
+			writer.newLine();
+			
+			for(DriveAnalysis result : resultList)
+			{
+				String[] values = getValues(result);
+				for(int i = 0; i < values.length; i++)
+				{
+					if(i > 0)
+						writer.write(',');
+					
+					String value = values[i];
+					if(value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0)
+						value = "\"" + value.replace("\"", "\"\"") + "\"";
+					writer.write(value);
+				}
+				writer.newLine();
+			}
+			
+		} finally {
+			
+			writer.close();
+		}
+	}
+	
+	
+	/**
+	 * Writes the given results to a JSON file (array with one object per drive).
+	 */
+	public static void writeJSON(List<DriveAnalysis> resultList, File outputFile) throws IOException
+	{
+		String[] keys = {"file", "drivingTask", "driver", "date", "records", "duration", "distance", 
+				"meanSpeed", "maxSpeed", "deviationArea", "lengthOfIdealLine", "meanDeviation", 
+				"laneChanges", "error"};
+		
+		// values of these keys are written as strings
+		List<String> stringKeys = Arrays.asList("file", "drivingTask", "driver", "date", "error");
+		
+		// values of these keys are -1, if not available
+		List<String> optionalKeys = Arrays.asList("laneChanges");
+		
+		BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
+		
+		try {
+			
+			writer.write("[");
+			
+			for(int r = 0; r < resultList.size(); r++)
+			{
+				String[] values = getValues(resultList.get(r));
+				
+				writer.write(r > 0 ? ",\n  {" : "\n  {");
+				for(int i = 0; i < keys.length; i++)
+				{
+					if(i > 0)
+						writer.write(", ");
+					
+					writer.write("\"" + keys[i] + "\": ");
+					
+					if(stringKeys.contains(keys[i]))
+						writer.write(values[i].length() == 0 ? "null" : toJSONString(values[i]));
+					else if(!isFiniteNumber(values[i]) || (optionalKeys.contains(keys[i]) && values[i].equals("-1")))
+						writer.write("null");
+					else
+						writer.write(values[i]);
+				}
+				writer.write("}");
+			}
+			
+			writer.write("\n]\n");
+			
+		} finally {
+			
+			writer.close();
+		}
+	}
+	
+	
+	private static String[] getValues(DriveAnalysis result)
+	{
+		String date = "";
+		if(result.getFileDate() != null)
+			date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(result.getFileDate());
+		
+		String error = result.getError();
+		
+		return new String[] {
+			result.getAnalyzerFile().getPath(),
+			result.getDrivingTask(),
+			result.getDriver(),
+			date,
+			String.valueOf(result.getRecords()),
+			String.valueOf(result.getDuration()),
+			String.valueOf(result.getDistance()),
+			String.valueOf(result.getMeanSpeed()),
+			String.valueOf(result.getMaxSpeed()),
+			String.valueOf(result.getDeviationArea()),
+			String.valueOf(result.getLengthOfIdealLine()),
+			String.valueOf(result.getMeanDeviation()),
+			String.valueOf(result.getLaneChanges()),
+			(error != null) ? error : ""
+		};
+	}
+	
+	
+	/**
+	 * JSON does not support NaN and Infinity.
+	 */
+	private static boolean isFiniteNumber(String value)
+	{
+		try {
+			double number = Double.parseDouble(value);
+			return !Double.isNaN(number) && !Double.isInfinite(number);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+	
+	
+	private static String toJSONString(String value)
+	{
+		StringBuilder builder = new StringBuilder("\"");
+		
+		for(char c : value.toCharArray())
+		{
+			if(c == '"' || c == '\\')
+				builder.append('\\').append(c);
+			else if(c < 0x20)
+				builder.append(String.format("\\u%04x", (int) c));
+			else
+				builder.append(c);
+		}
+		
+		return builder.append('"').toString();
+	}
+	
+	
+	public static void main(String[] args)
+	{
+		if(args.length < 1)
+		{
+			System.err.println("Usage: BatchDriveAnalyzer <recording directory> " +
+					"[<output file (*.csv or *.json)>] [<threads>]");
+			return;
+		}
+		
+		File directory = new File(args[0]);
+		File outputFile = (args.length >= 2) ? new File(args[1]) : new File(directory, "analysis.csv");
+		int numberOfThreads = (args.length >= 3) ? Integer.parseInt(args[2]) : 
+			Runtime.getRuntime().availableProcessors();
+		
+		List<File> analyzerFiles = findAnalyzerFiles(directory);
+		if(analyzerFiles.isEmpty())
+		{
+			System.err.println("No drive-data files found in '" + directory.getPath() + "'");
+			return;
+		}
+		
+		try {
+			
+			long startTime = System.nanoTime();
+			
+			List<DriveAnalysis> resultList = new BatchDriveAnalyzer(numberOfThreads).analyze(analyzerFiles);
+			
+			float seconds = (System.nanoTime() - startTime) / 1e9f;
+			
+			if(outputFile.getName().toLowerCase().endsWith(".json"))
+				writeJSON(resultList, outputFile);
+			else
+				writeCSV(resultList, outputFile);
+			
+			long bytes = 0;
+			int failed = 0;
+			for(DriveAnalysis result : resultList)
+			{
+				bytes += result.getFileSize();
+				if(result.getError() != null)
+					failed++;
+			}
+			
+			System.out.println("Analyzed " + resultList.size() + " files (" + failed + " with errors) using " + 
+					numberOfThreads + " threads in " + seconds + " s");
+			System.out.println("Throughput: " + (resultList.size() / seconds) + " files/s, " + 
+					(bytes / 1048576f / seconds) + " MB/s");
+			System.out.println("Results written to '" + outputFile.getPath() + "'");
+			
+		} catch (Exception e) {
+			
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,244 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the binary drive-log format (carData.bin), an alternative to the
+ * colon-separated text format written to carData.txt.
+ *
+ * A file consists of a header followed by fixed-width records:
+ *
+ * <pre>
+ * header:
+ *   int    magic ("ODSD")
+ *   short  format version
+ *   short  record size in bytes
+ *   long   creation time (ms since epoch)
+ *   short  length + UTF-8 bytes of driving task file name
+ *   short  length + UTF-8 bytes of driver name
+ *   float  sample rate (Hz, 0 if unknown; since version 3)
+ *
+ * record (version 2, 120 bytes):
+ *   long   time stamp (ms)
+ *   double position x, y, z
+ *   double rotation x, y, z, w
+ *   double speed (km/h)
+ *   double steering wheel position [-1,1]
+ *   double gas pedal position
+ *   double brake pedal position
+ *   int    light intensity
+ *   byte   flags (engine on, turn signal left, turn signal right)
+ *   byte[3] padding
+ *   long   monotonic time since start of recording (ns)
+ *   long   simulation time, excluding pauses (ns)
+ * </pre>
+ *
+ * Version 1 records consist of the first 104 bytes only. Readers must use
+ * the record size given in the header to skip unknown trailing fields.
+ * Records of version 3 equal those of version 2.
+ *
+ * All values are stored in big-endian byte order.
+ *
+ * @author Rafael Math
+ */
+public final class BinaryDataFormat
+{
+	public static final int MAGIC = 0x4F445344;
+	public static final short VERSION = 3;
+	public static final int RECORD_SIZE = 120;
+
+	// size of version 1 records = offset of the time fields added in version 2
+	public static final int RECORD_SIZE_V1 = 104;
+	public static final String FILE_EXTENSION = ".bin";
+
+	public static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
+
+	public static final byte FLAG_ENGINE_ON = 0x01;
+	public static final byte FLAG_BLINKER_LEFT = 0x02;
+	public static final byte FLAG_BLINKER_RIGHT = 0x04;
+
+	private static final String CHARSET = "UTF-8";
+
+
+	private BinaryDataFormat()
+	{
+	}
+
+
+	/**
+	 * Checks the first four bytes of the given file for the magic number of
+	 * the binary drive-log format.
+	 *
+	 * @param file
+	 * 			File to check.
+	 *
+	 * @return
+	 * 			true, if the file starts with the binary magic number.
+	 */
+	public static boolean isBinaryDataFile(File file)
+	{
+		FileInputStream in = null;
+		try {
+
+			in = new FileInputStream(file);
+			byte[] bytes = new byte[4];
+			if(in.read(bytes) != 4)
+				return false;
+
+			return ByteBuffer.wrap(bytes).order(BYTE_ORDER).getInt() == MAGIC;
+
+		} catch (IOException e) {
+			return false;
+		} finally {
+			try {
+				if(in != null)
+					in.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of bytes the header will occupy for the given strings.
+	 */
+	public static int getHeaderSize(String drivingTaskFileName, String driverName)
+	{
+		return 16 + 2 + encode(drivingTaskFileName).length + 2 + encode(driverName).length + 4;
+	}
+
+
+	/**
+	 * Writes the header to the given buffer, which must provide at least
+	 * <code>getHeaderSize()</code> bytes of space.
+	 */
+	public static void putHeader(ByteBuffer buffer, long creationTime,
+			String drivingTaskFileName, String driverName, float sampleRate)
+	{
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putShort((short) RECORD_SIZE);
+		buffer.putLong(creationTime);
+		putString(buffer, drivingTaskFileName);
+		putString(buffer, driverName);
+		buffer.putFloat(sampleRate);
+	}
+
+
+	/**
+	 * Writes a single record to the given buffer (RECORD_SIZE bytes).
+	 */
+	public static void putRecord(ByteBuffer buffer, long timeStamp, double x, double y,
+			double z, double xRot, double yRot, double zRot, double wRot, double speed,
+			double steeringWheelPos, double gasPedalPos, double brakePedalPos,
+			boolean engineOn, int lightIntensity, boolean blinkerLeft, boolean blinkerRight,
+			long monotonicTime, long simulationTime)
+	{
+		byte flags = 0;
+		if(engineOn)
+			flags |= FLAG_ENGINE_ON;
+		if(blinkerLeft)
+			flags |= FLAG_BLINKER_LEFT;
+		if(blinkerRight)
+			flags |= FLAG_BLINKER_RIGHT;
+
+		buffer.putLong(timeStamp);
+		buffer.putDouble(x);
+		buffer.putDouble(y);
+		buffer.putDouble(z);
+		buffer.putDouble(xRot);
+		buffer.putDouble(yRot);
+		buffer.putDouble(zRot);
+		buffer.putDouble(wRot);
+		buffer.putDouble(speed);
+		buffer.putDouble(steeringWheelPos);
+		buffer.putDouble(gasPedalPos);
+		buffer.putDouble(brakePedalPos);
+		buffer.putInt(lightIntensity);
+		buffer.put(flags);
+		buffer.put((byte) 0);
+		buffer.put((byte) 0);
+		buffer.put((byte) 0);
+		buffer.putLong(monotonicTime);
+		buffer.putLong(simulationTime);
+	}
+
+
+	/**
+	 * Writes a data unit to the given buffer (RECORD_SIZE bytes).
+	 */
+	public static void putRecord(ByteBuffer buffer, DataUnit dataUnit)
+	{
+		putRecord(buffer, dataUnit.getDate().getTime(), dataUnit.getXpos(), dataUnit.getYpos(),
+				dataUnit.getZpos(), dataUnit.getXrot(), dataUnit.getYrot(), dataUnit.getZrot(),
+				dataUnit.getWrot(), dataUnit.getSpeed(), dataUnit.getSteeringWheelPos(),
+				dataUnit.getPedalPos(), dataUnit.isBreaking(), dataUnit.isEnginOn(),
+				dataUnit.getLightIntensity(), dataUnit.isBlinkerLeft(), dataUnit.isBlinkerRight(),
+				dataUnit.getMonotonicTime(), dataUnit.getSimulationTime());
+	}
+
+
+	public static String getString(ByteBuffer buffer)
+	{
+		int length = buffer.getShort() & 0xFFFF;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		try {
+			return new String(bytes, CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			return new String(bytes);
+		}
+	}
+
+
+	private static void putString(ByteBuffer buffer, String string)
+	{
+		byte[] bytes = encode(string);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+
+	private static byte[] encode(String string)
+	{
+		if(string == null)
+			string = "";
+
+		try {
+			byte[] bytes = string.getBytes(CHARSET);
+			if(bytes.length > 0xFFFF)
+			{
+				System.err.println("String too long for binary drive-log header: " + string);
+				return new byte[0];
+			}
+			return bytes;
+		} catch (UnsupportedEncodingException e) {
+			return string.getBytes();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes drive-data records in the binary drive-log format (see
+ * <code>BinaryDataFormat</code>) through a file channel. Records are
+ * collected in a direct byte buffer which is written to the channel
+ * whenever it is full or <code>flush()</code> is called.
+ *
+ * @author Rafael Math
+ */
+public class BinaryDataWriter
+{
+	private static final int RECORDS_PER_BUFFER = 512;
+
+	private FileOutputStream outputStream;
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+
+	public BinaryDataWriter(File outFile, long creationTime, String drivingTaskFileName,
+			String driverName, float sampleRate) throws IOException
+	{
+		outputStream = new FileOutputStream(outFile);
+		channel = outputStream.getChannel();
+
+		int headerSize = BinaryDataFormat.getHeaderSize(drivingTaskFileName, driverName);
+		int bufferSize = Math.max(headerSize, RECORDS_PER_BUFFER * BinaryDataFormat.RECORD_SIZE);
+		buffer = ByteBuffer.allocateDirect(bufferSize).order(BinaryDataFormat.BYTE_ORDER);
+
+		BinaryDataFormat.putHeader(buffer, creationTime, drivingTaskFileName, driverName, sampleRate);
+		flush();
+	}
+
+
+	public void write(long timeStamp, double x, double y, double z, double xRot,
+			double yRot, double zRot, double wRot, double speed, double steeringWheelPos,
+			double gasPedalPos, double brakePedalPos, boolean engineOn, int lightIntensity,
+			boolean blinkerLeft, boolean blinkerRight, long monotonicTime, long simulationTime) 
+			throws IOException
+	{
+		if(buffer.remaining() < BinaryDataFormat.RECORD_SIZE)
+			writeBuffer();
+
+		BinaryDataFormat.putRecord(buffer, timeStamp, x, y, z, xRot, yRot, zRot, wRot, speed,
+				steeringWheelPos, gasPedalPos, brakePedalPos, engineOn, lightIntensity,
+				blinkerLeft, blinkerRight, monotonicTime, simulationTime);
+	}
+
+
+	public void write(DataUnit dataUnit) throws IOException
+	{
+		if(buffer.remaining() < BinaryDataFormat.RECORD_SIZE)
+			writeBuffer();
+
+		BinaryDataFormat.putRecord(buffer, dataUnit);
+	}
+
+
+	/**
+	 * Writes all buffered records to the file.
+	 */
+	public void flush() throws IOException
+	{
+		writeBuffer();
+	}
+
+
+	/**
+	 * Forces all written data to the disk.
+	 */
+	public void sync() throws IOException
+	{
+		channel.force(false);
+	}
+
+
+	public void close() throws IOException
+	{
+		try {
+			writeBuffer();
+		} finally {
+			outputStream.close();
+		}
+	}
+
+
+	private void writeBuffer() throws IOException
+	{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
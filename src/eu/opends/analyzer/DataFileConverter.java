@@ -0,0 +1,179 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Converts drive-data files between the text format (carData.txt) and the
+ * binary format (carData.bin). The direction of the conversion is given by
+ * the format of the input file.
+ *
+ * Usage: DataFileConverter &lt;input file&gt; [&lt;output file&gt;]
+ *
+ * @author Rafael Math
+ */
+public class DataFileConverter
+{
+	private static final int TEXT_LINES_PER_WRITE = 1000;
+
+
+	/**
+	 * Converts the given input file to the other format.
+	 *
+	 * @param inputFile
+	 * 			Text or binary drive-data file.
+	 *
+	 * @param outputFile
+	 * 			File to write the converted data to.
+	 *
+	 * @return
+	 * 			Number of converted records.
+	 */
+	public static int convert(File inputFile, File outputFile) throws IOException
+	{
+		DataReader dataReader = new DataReader();
+		if(!dataReader.initReader(inputFile.getPath(), false))
+			throw new IOException("File is not a valid analyzer file: " + inputFile.getPath());
+
+		try {
+
+			if(dataReader.isBinaryFormat())
+				return convertToText(dataReader, outputFile);
+			else
+				return convertToBinary(dataReader, outputFile);
+
+		} finally {
+			dataReader.close();
+		}
+	}
+
+
+	private static int convertToBinary(DataReader dataReader, File outputFile) throws IOException
+	{
+		Date fileDate = dataReader.getFileDate();
+		long creationTime = (fileDate != null) ? fileDate.getTime() : 0;
+
+		BinaryDataWriter binaryWriter = new BinaryDataWriter(outputFile, creationTime,
+				dataReader.getNameOfDrivingTaskFile(), dataReader.getNameOfDriver(),
+				dataReader.getSampleRate());
+
+		int records = 0;
+		try {
+
+			while(dataReader.readInNextDataUnit())
+			{
+				binaryWriter.write(dataReader.getDataUnit());
+				records++;
+			}
+
+		} finally {
+			binaryWriter.close();
+		}
+
+		return records;
+	}
+
+
+	private static int convertToText(DataReader dataReader, File outputFile) throws IOException
+	{
+		String newLine = System.getProperty("line.separator");
+		Date fileDate = dataReader.getFileDate();
+
+		BufferedWriter out = new BufferedWriter(new FileWriter(outputFile));
+
+		int records = 0;
+		try {
+
+			DataWriter.writeTextHeader(out, dataReader.getNameOfDrivingTaskFile(),
+					(fileDate != null) ? fileDate : new Date(0), dataReader.getNameOfDriver(),
+					dataReader.getSampleRate(), newLine);
+
+			StringBuffer sb = new StringBuffer();
+			while(dataReader.readInNextDataUnit())
+			{
+				DataWriter.appendTextLine(sb, dataReader.getDataUnit(), newLine);
+				records++;
+
+				if(records % TEXT_LINES_PER_WRITE == 0)
+				{
+					out.write(sb.toString());
+					sb.setLength(0);
+				}
+			}
+			out.write(sb.toString());
+
+		} finally {
+			out.close();
+		}
+
+		return records;
+	}
+
+
+	public static void main(String[] args)
+	{
+		if(args.length < 1)
+		{
+			System.err.println("Usage: DataFileConverter <input file> [<output file>]");
+			return;
+		}
+
+		File inputFile = new File(args[0]);
+		File outputFile;
+
+		if(args.length >= 2)
+			outputFile = new File(args[1]);
+		else
+		{
+			String extension = BinaryDataFormat.isBinaryDataFile(inputFile) ?
+					".txt" : BinaryDataFormat.FILE_EXTENSION;
+
+			String inputPath = inputFile.getPath();
+			int dotIndex = inputPath.lastIndexOf('.');
+			if(dotIndex > inputPath.lastIndexOf(File.separatorChar))
+				inputPath = inputPath.substring(0, dotIndex);
+
+			outputFile = new File(inputPath + extension);
+		}
+
+		if(outputFile.exists())
+		{
+			System.err.println("Output file already exists: " + outputFile.getPath());
+			return;
+		}
+
+		try {
+
+			long startTime = System.currentTimeMillis();
+			int records = convert(inputFile, outputFile);
+			long duration = System.currentTimeMillis() - startTime;
+
+			System.out.println("Converted " + records + " records from '" + inputFile.getPath() +
+					"' to '" + outputFile.getPath() + "' in " + duration + " ms");
+
+		} catch (IOException e) {
+			System.err.println("Conversion failed: " + e.getMessage());
+		}
+	}
+}
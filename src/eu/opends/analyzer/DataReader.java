@@ -20,8 +20,11 @@ package eu.opends.analyzer;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -32,17 +35,41 @@ import com.jme3.math.Vector3f;
 import eu.opends.drivingTask.DrivingTask;
 
 /**
+ * Reads drive-data files in text format (carData.txt) or binary format 
+ * (carData.bin, see <code>BinaryDataFormat</code>). The format is detected
+ * by <code>initReader()</code>. The line-based methods (taking a data line 
+ * as parameter) are available for text files only, whereas the record-based
+ * methods (<code>readInNextDataUnit()</code> and the parameterless getters)
+ * work for both formats and parse each record only once.
  * 
  * @author Saied, Rafael Math
  */
 public class DataReader 
 {
+	private static final int BINARY_BUFFER_SIZE = 256 * 1024;
+	
 	private File inFile;
 	private BufferedReader inputReader;
 	private String nameOfDrivingTaskFile;
 	private String nameOfDriver;
 	private Date fileDate;
+	private float sampleRate = 0;
 	private String inputLineNext;
+	
+	private boolean binaryFormat = false;
+	private FileInputStream binaryInputStream;
+	private FileChannel binaryChannel;
+	private ByteBuffer binaryBuffer;
+	private int recordSize;
+	private short binaryVersion;
+	private boolean endOfChannel;
+	
+	// values of the current record
+	private long timeStamp, monotonicTime, simulationTime;
+	private double xpos, ypos, zpos, xrot, yrot, zrot, wrot;
+	private double speed, steeringWheelPos, gasPedalPos, brakePedalPos;
+	private int lightIntensity;
+	private boolean engineOn, blinkerLeft, blinkerRight;
 
 	
 	public boolean initReader(String filePath, boolean verbose) 
@@ -50,11 +77,18 @@ public class DataReader
 		String inputLine;
 		String[] splittedLineArray;
 
+		close();
+		
 		inFile = new File(filePath);
 		if (!inFile.isFile()) {
 			System.err.println("File " + inFile.toString()
 					+ " could not be found.");
 		}
+		
+		binaryFormat = BinaryDataFormat.isBinaryDataFile(inFile);
+		if(binaryFormat)
+			return initBinaryReader(verbose);
+		
 		try {
 			inputReader = new BufferedReader(new FileReader(inFile));
 
@@ -74,7 +108,7 @@ public class DataReader
 			splittedLineArray = inputLine.split(": ");
 			try {
 				// Save the date
-				fileDate = new SimpleDateFormat("yyyy_mm_dd-hh_mm_ss")
+				fileDate = new SimpleDateFormat("yyyy_MM_dd-HH_mm_ss")
 						.parse(splittedLineArray[1]);
 				if(verbose)
 					System.out.println("Creation Time: " + fileDate);
@@ -92,8 +126,17 @@ public class DataReader
 			if(verbose)
 				System.out.println("Driver: " + nameOfDriver);
 
-			// Read in the used format, so it can be skipped.
+			// Read in the sample rate (if available) and the used format, 
+			// so it can be skipped.
 			inputLine = inputReader.readLine();
+			if(inputLine != null && inputLine.startsWith(DataWriter.SAMPLE_RATE_PREFIX))
+			{
+				sampleRate = parseSampleRate(inputLine.substring(DataWriter.SAMPLE_RATE_PREFIX.length()));
+				if(verbose)
+					System.out.println("Sample Rate: " + sampleRate + " Hz");
+				
+				inputLine = inputReader.readLine();
+			}
 
 		} catch (IOException e) {
 			//e.printStackTrace();
@@ -102,10 +145,87 @@ public class DataReader
 		
 		return true;
 	}
+	
+	
+	private boolean initBinaryReader(boolean verbose)
+	{
+		try {
+			binaryInputStream = new FileInputStream(inFile);
+			binaryChannel = binaryInputStream.getChannel();
+			binaryBuffer = ByteBuffer.allocateDirect(BINARY_BUFFER_SIZE)
+					.order(BinaryDataFormat.BYTE_ORDER);
+			endOfChannel = false;
+			
+			// the header fits into the buffer completely
+			binaryBuffer.flip();
+			fillBuffer();
+			
+			if(binaryBuffer.remaining() < 16 || binaryBuffer.getInt() != BinaryDataFormat.MAGIC)
+				return false;
+			
+			binaryVersion = binaryBuffer.getShort();
+			if(binaryVersion < 1 || binaryVersion > BinaryDataFormat.VERSION)
+			{
+				System.err.println("Unsupported version of binary drive-log format: " + binaryVersion);
+				return false;
+			}
+			
+			recordSize = binaryBuffer.getShort() & 0xFFFF;
+			fileDate = new Date(binaryBuffer.getLong());
+			nameOfDrivingTaskFile = BinaryDataFormat.getString(binaryBuffer);
+			nameOfDriver = BinaryDataFormat.getString(binaryBuffer);
+			
+			if(binaryVersion >= 3)
+				sampleRate = binaryBuffer.getFloat();
+			
+			if(verbose)
+			{
+				System.out.println("Driving Task: " + nameOfDrivingTaskFile);
+				System.out.println("Creation Time: " + fileDate);
+				System.out.println("Driver: " + nameOfDriver);
+				if(sampleRate > 0)
+					System.out.println("Sample Rate: " + sampleRate + " Hz");
+			}
+			
+		} catch (Exception e) {
+			//e.printStackTrace();
+			return false;
+		}
+		
+		return true;
+	}
+	
+	
+	/**
+	 * Moves the unread bytes to the beginning of the buffer and fills up the 
+	 * rest from the file channel. The buffer is ready to be read afterwards.
+	 */
+	private void fillBuffer() throws IOException
+	{
+		binaryBuffer.compact();
+		
+		while(!endOfChannel && binaryBuffer.hasRemaining())
+		{
+			if(binaryChannel.read(binaryBuffer) < 0)
+				endOfChannel = true;
+		}
+		
+		binaryBuffer.flip();
+	}
 
 	
+	/**
+	 * Reads in the next line of a text file. Not available for binary files 
+	 * (use <code>readInNextDataUnit()</code> instead).
+	 * 
+	 * @return
+	 * 			The next data line or null, if no further line is available.
+	 */
 	public String readInNextDataLine() 
 	{
+		if(binaryFormat)
+			return null;
+		
 		try {
 			inputLineNext = inputReader.readLine();
 		} catch (IOException e) {
@@ -117,6 +237,238 @@ public class DataReader
 	}
 	
 	
+	/**
+	 * Reads in the next record of the file (text or binary). The values of 
+	 * the record can be accessed by the parameterless getters afterwards.
+	 * 
+	 * @return
+	 * 			true, if a further record was available.
+	 */
+	public boolean readInNextDataUnit()
+	{
+		if(binaryFormat)
+			return readInNextBinaryRecord();
+		
+		String inputLine = readInNextDataLine();
+		if(inputLine == null)
+			return false;
+		
+		String[] splittedLineArray = inputLine.split(":");
+		timeStamp = Long.parseLong(splittedLineArray[0]);
+		xpos = Double.parseDouble(splittedLineArray[1]);
+		ypos = Double.parseDouble(splittedLineArray[2]);
+		zpos = Double.parseDouble(splittedLineArray[3]);
+		xrot = Double.parseDouble(splittedLineArray[4]);
+		yrot = Double.parseDouble(splittedLineArray[5]);
+		zrot = Double.parseDouble(splittedLineArray[6]);
+		wrot = Double.parseDouble(splittedLineArray[7]);
+		speed = Double.parseDouble(splittedLineArray[8]);
+		steeringWheelPos = Double.parseDouble(splittedLineArray[9]);
+		gasPedalPos = Double.parseDouble(splittedLineArray[10]);
+		brakePedalPos = Double.parseDouble(splittedLineArray[11]);
+		
+		// time columns have been added later
+		if(splittedLineArray.length >= 14)
+		{
+			monotonicTime = Long.parseLong(splittedLineArray[12]);
+			simulationTime = Long.parseLong(splittedLineArray[13]);
+		}
+		else
+		{
+			monotonicTime = 0;
+			simulationTime = 0;
+		}
+		
+		// not contained in text format
+		engineOn = false;
+		lightIntensity = 0;
+		blinkerLeft = false;
+		blinkerRight = false;
+		
+		return true;
+	}
+	
+	
+	private boolean readInNextBinaryRecord()
+	{
+		try {
+			
+			if(binaryBuffer.remaining() < recordSize)
+				fillBuffer();
+			
+			if(binaryBuffer.remaining() < recordSize)
+				return false;
+			
+			int recordStart = binaryBuffer.position();
+			
+			timeStamp = binaryBuffer.getLong();
+			xpos = binaryBuffer.getDouble();
+			ypos = binaryBuffer.getDouble();
+			zpos = binaryBuffer.getDouble();
+			xrot = binaryBuffer.getDouble();
+			yrot = binaryBuffer.getDouble();
+			zrot = binaryBuffer.getDouble();
+			wrot = binaryBuffer.getDouble();
+			speed = binaryBuffer.getDouble();
+			steeringWheelPos = binaryBuffer.getDouble();
+			gasPedalPos = binaryBuffer.getDouble();
+			brakePedalPos = binaryBuffer.getDouble();
+			lightIntensity = binaryBuffer.getInt();
+			
+			byte flags = binaryBuffer.get();
+			engineOn = (flags & BinaryDataFormat.FLAG_ENGINE_ON) != 0;
+			blinkerLeft = (flags & BinaryDataFormat.FLAG_BLINKER_LEFT) != 0;
+			blinkerRight = (flags & BinaryDataFormat.FLAG_BLINKER_RIGHT) != 0;
+			
+			if(binaryVersion >= 2)
+			{
+				binaryBuffer.position(recordStart + BinaryDataFormat.RECORD_SIZE_V1);
+				monotonicTime = binaryBuffer.getLong();
+				simulationTime = binaryBuffer.getLong();
+			}
+			else
+			{
+				monotonicTime = 0;
+				simulationTime = 0;
+			}
+			
+			// skip padding and fields of newer minor revisions
+			binaryBuffer.position(recordStart + recordSize);
+			
+			return true;
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	
+	public long getTimeStamp()
+	{
+		return timeStamp;
+	}
+	
+	
+	/**
+	 * Monotonic time since start of recording (in ns) of the current record 
+	 * or 0 if not available.
+	 */
+	public long getMonotonicTime()
+	{
+		return monotonicTime;
+	}
+	
+	
+	/**
+	 * Simulation time excluding pauses (in ns) of the current record or 0 if
+	 * not available.
+	 */
+	public long getSimulationTime()
+	{
+		return simulationTime;
+	}
+	
+	
+	public Vector3f getCarPosition()
+	{
+		return new Vector3f((float) xpos, (float) ypos, (float) zpos);
+	}
+	
+	
+	public Quaternion getCarRotation()
+	{
+		return new Quaternion((float) xrot, (float) yrot, (float) zrot, (float) wrot);
+	}
+	
+	
+	public double getSpeed()
+	{
+		return speed;
+	}
+	
+	
+	public double getSteeringWheelPosition()
+	{
+		return steeringWheelPos;
+	}
+	
+	
+	public double getGasPedalPosition()
+	{
+		return gasPedalPos;
+	}
+	
+	
+	public double getBrakePedalPosition()
+	{
+		return brakePedalPos;
+	}
+	
+	
+	public boolean isEngineOn()
+	{
+		return engineOn;
+	}
+	
+	
+	public int getLightIntensity()
+	{
+		return lightIntensity;
+	}
+	
+	
+	public boolean isBlinkerLeft()
+	{
+		return blinkerLeft;
+	}
+	
+	
+	public boolean isBlinkerRight()
+	{
+		return blinkerRight;
+	}
+	
+	
+	/**
+	 * Returns a data unit containing the values of the current record.
+	 */
+	public DataUnit getDataUnit()
+	{
+		DataUnit dataUnit = new DataUnit(new Date(timeStamp), xpos, ypos, zpos, xrot, yrot, 
+				zrot, wrot, speed, steeringWheelPos, gasPedalPos, brakePedalPos, engineOn, 
+				lightIntensity, blinkerLeft, blinkerRight);
+		dataUnit.setMonotonicTime(monotonicTime);
+		dataUnit.setSimulationTime(simulationTime);
+		return dataUnit;
+	}
+	
+	
+	public boolean isBinaryFormat()
+	{
+		return binaryFormat;
+	}
+	
+	
+	public void close()
+	{
+		try {
+			if(inputReader != null)
+				inputReader.close();
+			
+			if(binaryInputStream != null)
+				binaryInputStream.close();
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		inputReader = null;
+		binaryInputStream = null;
+		binaryChannel = null;
+	}
+	
+	
 	public long getTimeStamp(String inputLine) 
 	{
 		String[] splittedLineArray = inputLine.split(":");
@@ -180,6 +532,27 @@ public class DataReader
 	}
 
 
+	/**
+	 * @return number of samples per second as given in the file header or 
+	 * 			0, if not available (files of older versions)
+	 */
+	public float getSampleRate() 
+	{
+		return sampleRate;
+	}
+	
+	
+	private static float parseSampleRate(String value)
+	{
+		try {
+			return Float.parseFloat(value.replace("Hz", "").trim());
+		} catch (NumberFormatException e) {
+			System.err.println("The sample rate could not be read: " + value);
+			return 0;
+		}
+	}
+
+
 	public Date getFileDate() 
 	{
 		return fileDate;
@@ -0,0 +1,313 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring buffer of drive-data
+ * samples. Every field of a sample is stored in a preallocated primitive
+ * array, hence offering a sample does not allocate any objects.
+ *
+ * The producer (render thread) calls <code>offer()</code> only; the consumer
+ * (writer thread) reads the samples between <code>getReadSequence()</code>
+ * and <code>getWriteSequence()</code> and releases them by calling
+ * <code>advanceReadSequence()</code>. If the buffer is full, new samples
+ * will be dropped and counted.
+ *
+ * @author Rafael Math
+ */
+public class DataRingBuffer
+{
+	private final int capacity;
+	private final int mask;
+
+	// next sequence to be written (owned by producer)
+	private final AtomicLong writeSequence = new AtomicLong(0);
+
+	// next sequence to be read (owned by consumer)
+	private final AtomicLong readSequence = new AtomicLong(0);
+
+	// producer-local copy of readSequence to avoid reading the volatile every time
+	private long cachedReadSequence = 0;
+
+	private volatile long droppedSamples = 0;
+	private volatile int maxFillLevel = 0;
+
+	private final long[] timeStamp, monotonicTime, simulationTime;
+	private final double[] xpos, ypos, zpos, xrot, yrot, zrot, wrot;
+	private final double[] speed, steeringWheelPos, gasPedalPos, brakePedalPos;
+	private final int[] lightIntensity;
+	private final boolean[] engineOn, blinkerLeft, blinkerRight;
+
+
+	/**
+	 * Creates a new ring buffer.
+	 *
+	 * @param minCapacity
+	 * 			Minimum number of samples the buffer can hold. Will be
+	 * 			rounded up to the next power of two.
+	 */
+	public DataRingBuffer(int minCapacity)
+	{
+		int size = 1;
+		while(size < minCapacity)
+			size <<= 1;
+
+		capacity = size;
+		mask = size - 1;
+
+		timeStamp = new long[size];
+		monotonicTime = new long[size];
+		simulationTime = new long[size];
+		xpos = new double[size];
+		ypos = new double[size];
+		zpos = new double[size];
+		xrot = new double[size];
+		yrot = new double[size];
+		zrot = new double[size];
+		wrot = new double[size];
+		speed = new double[size];
+		steeringWheelPos = new double[size];
+		gasPedalPos = new double[size];
+		brakePedalPos = new double[size];
+		lightIntensity = new int[size];
+		engineOn = new boolean[size];
+		blinkerLeft = new boolean[size];
+		blinkerRight = new boolean[size];
+	}
+
+
+	/**
+	 * Adds a sample to the buffer. Must be called by the producer thread only.
+	 *
+	 * @return
+	 * 			false, if the buffer was full and the sample has been dropped.
+	 */
+	public boolean offer(long timeStamp, double x, double y, double z, double xRot,
+			double yRot, double zRot, double wRot, double speed, double steeringWheelPos,
+			double gasPedalPos, double brakePedalPos, boolean engineOn, int lightIntensity,
+			boolean blinkerLeft, boolean blinkerRight, long monotonicTime, long simulationTime)
+	{
+		long sequence = writeSequence.get();
+
+		if(sequence - cachedReadSequence >= capacity)
+		{
+			cachedReadSequence = readSequence.get();
+			if(sequence - cachedReadSequence >= capacity)
+			{
+				droppedSamples++;
+				return false;
+			}
+		}
+
+		int i = (int) sequence & mask;
+		this.timeStamp[i] = timeStamp;
+		this.xpos[i] = x;
+		this.ypos[i] = y;
+		this.zpos[i] = z;
+		this.xrot[i] = xRot;
+		this.yrot[i] = yRot;
+		this.zrot[i] = zRot;
+		this.wrot[i] = wRot;
+		this.speed[i] = speed;
+		this.steeringWheelPos[i] = steeringWheelPos;
+		this.gasPedalPos[i] = gasPedalPos;
+		this.brakePedalPos[i] = brakePedalPos;
+		this.engineOn[i] = engineOn;
+		this.lightIntensity[i] = lightIntensity;
+		this.blinkerLeft[i] = blinkerLeft;
+		this.blinkerRight[i] = blinkerRight;
+		this.monotonicTime[i] = monotonicTime;
+		this.simulationTime[i] = simulationTime;
+
+		int fillLevel = (int) (sequence + 1 - cachedReadSequence);
+		if(fillLevel > maxFillLevel)
+			maxFillLevel = fillLevel;
+
+		// publish sample to consumer (ordered store)
+		writeSequence.lazySet(sequence + 1);
+
+		return true;
+	}
+
+
+	/**
+	 * Sequence of the next sample to be written. All samples below this
+	 * sequence are visible to the consumer.
+	 */
+	public long getWriteSequence()
+	{
+		return writeSequence.get();
+	}
+
+
+	/**
+	 * Sequence of the next sample to be read.
+	 */
+	public long getReadSequence()
+	{
+		return readSequence.get();
+	}
+
+
+	/**
+	 * Releases all samples below the given sequence to be overwritten by the
+	 * producer. Must be called by the consumer thread only.
+	 */
+	public void advanceReadSequence(long sequence)
+	{
+		readSequence.lazySet(sequence);
+	}
+
+
+	/**
+	 * Maps a sequence to the array index where the sample is stored.
+	 */
+	public int getIndex(long sequence)
+	{
+		return (int) sequence & mask;
+	}
+
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+
+	public long getDroppedSamples()
+	{
+		return droppedSamples;
+	}
+
+
+	public int getMaxFillLevel()
+	{
+		return maxFillLevel;
+	}
+
+
+	public long getTimeStamp(int i)
+	{
+		return timeStamp[i];
+	}
+
+
+	public long getMonotonicTime(int i)
+	{
+		return monotonicTime[i];
+	}
+
+
+	public long getSimulationTime(int i)
+	{
+		return simulationTime[i];
+	}
+
+
+	public double getXpos(int i)
+	{
+		return xpos[i];
+	}
+
+
+	public double getYpos(int i)
+	{
+		return ypos[i];
+	}
+
+
+	public double getZpos(int i)
+	{
+		return zpos[i];
+	}
+
+
+	public double getXrot(int i)
+	{
+		return xrot[i];
+	}
+
+
+	public double getYrot(int i)
+	{
+		return yrot[i];
+	}
+
+
+	public double getZrot(int i)
+	{
+		return zrot[i];
+	}
+
+
+	public double getWrot(int i)
+	{
+		return wrot[i];
+	}
+
+
+	public double getSpeed(int i)
+	{
+		return speed[i];
+	}
+
+
+	public double getSteeringWheelPos(int i)
+	{
+		return steeringWheelPos[i];
+	}
+
+
+	public double getGasPedalPos(int i)
+	{
+		return gasPedalPos[i];
+	}
+
+
+	public double getBrakePedalPos(int i)
+	{
+		return brakePedalPos[i];
+	}
+
+
+	public int getLightIntensity(int i)
+	{
+		return lightIntensity[i];
+	}
+
+
+	public boolean isEngineOn(int i)
+	{
+		return engineOn[i];
+	}
+
+
+	public boolean isBlinkerLeft(int i)
+	{
+		return blinkerLeft[i];
+	}
+
+
+	public boolean isBlinkerRight(int i)
+	{
+		return blinkerRight[i];
+	}
+}
@@ -36,6 +36,7 @@ public class DataUnit implements Serializable
 	private Date date;
 	private int lightIntensity;
 	private boolean enginOn, blinkerLeft, blinkerRight;
+	private long monotonicTime, simulationTime;
 	
 
 	/**
@@ -295,4 +296,32 @@ public class DataUnit implements Serializable
 	}
 
 
+	/**
+	 * 
+	 * @return Monotonic time since start of recording in nanoseconds.
+	 */
+	public long getMonotonicTime() {
+		return monotonicTime;
+	}
+
+
+	public void setMonotonicTime(long monotonicTime) {
+		this.monotonicTime = monotonicTime;
+	}
+
+
+	/**
+	 * 
+	 * @return Simulation time (excluding pauses) in nanoseconds.
+	 */
+	public long getSimulationTime() {
+		return simulationTime;
+	}
+
+
+	public void setSimulationTime(long simulationTime) {
+		this.simulationTime = simulationTime;
+	}
+
+
 }
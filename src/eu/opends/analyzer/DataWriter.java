@@ -20,14 +20,20 @@ package eu.opends.analyzer;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
 import eu.opends.car.Car;
 import eu.opends.car.LightTexturesContainer.TurnSignalState;
 import eu.opends.tools.Util;
@@ -37,43 +43,162 @@ import eu.opends.tools.Util;
  * That class is responsible for writing drive-data. At the moment it is a
  * ripped down version of similar classes used in CARS.
  * 
+ * Samples are collected in a ring buffer by the render thread and written
+ * to the file by a separate <code>DataWriterThread</code>. Each sample is 
+ * stamped with wall-clock time, monotonic time and simulation time. The 
+ * simulation time is advanced by the physics ticks and hence stops while 
+ * the simulation is paused. If recording on physics ticks is enabled, 
+ * exactly one sample per physics tick will be taken.
+ * 
  * @author Saied
  * 		   Anpassungen Martin Michael Kalbitz
  */
-public class DataWriter 
+public class DataWriter implements PhysicsTickListener
 {
+	public enum FileFormat
+	{
+		TEXT, BINARY;
+	}
+	
+	/**
+	 * Specifies when the analyzer file will be synced to the disk: never 
+	 * (left to the operating system), after every write interval or only 
+	 * when closing the file.
+	 */
+	public enum SyncPolicy
+	{
+		NONE, FLUSH, CLOSE;
+	}
+	
+	public static final int DEFAULT_RECORDING_RATE = 20;
+	public static final int DEFAULT_PHYSICS_RATE = 60;
+	
+	static final String SAMPLE_RATE_PREFIX = "Sample Rate: ";
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	public static final int DEFAULT_WRITE_INTERVAL = 500;
+	
 	private Calendar startTime = new GregorianCalendar();
 
 	/**
-	 * An array list for not having to write every row directly to file.
+	 * A ring buffer for not having to write every row directly to file.
 	 */
-	private ArrayList<DataUnit> arrayDataList;
+	private DataRingBuffer ringBuffer;
+	private DataWriterThread writerThread;
+	private int bufferSize;
+	private int writeInterval;
+	private SyncPolicy syncPolicy;
+	private FileOutputStream outputStream;
 	private BufferedWriter out;
+	private StringBuffer textBuffer = new StringBuffer();
 	private File outFile;
 	private String newLine = System.getProperty("line.separator");
-	private Date lastAnalyzerDataSave;
+	private long sampleIntervalNanos;
+	private float sampleRate;
+	private int ticksPerSample = 1;
+	private int physicsTickCounter = 0;
+	private long nextSampleTime;
+	private boolean recordOnPhysicsTick;
+	private volatile long simulationTime = 0;
+	private long startTimeStamp;
+	private long startNanoTime;
+	private Vector3f position = new Vector3f();
+	private Quaternion rotation = new Quaternion();
 	private String outputFolder;
 	private Car car;
 	private File analyzerDataFile;
 	private boolean dataWriterEnabled = true;
 	private String driverName = "";
-	private Date curDate;
 	private String drivingTaskFileName;
+	private FileFormat fileFormat;
+	private BinaryDataWriter binaryWriter;
 
 
 	public DataWriter(String outputFolder, Car car, String driverName, String drivingTaskFileName) 
+	{
+		this(outputFolder, car, driverName, drivingTaskFileName, FileFormat.TEXT, 
+				SyncPolicy.NONE, DEFAULT_BUFFER_SIZE, DEFAULT_WRITE_INTERVAL, 
+				DEFAULT_RECORDING_RATE, false, DEFAULT_PHYSICS_RATE);
+	}
+	
+	
+	/**
+	 * Creates a new data writer.
+	 * 
+	 * @param fileFormat
+	 * 			Format of the analyzer file (text or binary).
+	 * 
+	 * @param syncPolicy
+	 * 			Specifies when the analyzer file will be synced to the disk.
+	 * 
+	 * @param bufferSize
+	 * 			Number of samples the ring buffer can hold. If the writer thread
+	 * 			cannot keep up, further samples will be dropped.
+	 * 
+	 * @param writeInterval
+	 * 			Time (in ms) between two runs of the writer thread.
+	 * 
+	 * @param recordingRate
+	 * 			Number of samples per second (used if not recording on physics 
+	 * 			ticks).
+	 * 
+	 * @param recordOnPhysicsTick
+	 * 			If true, samples will be recorded on every n-th physics tick 
+	 * 			(n = physics rate / recording rate) instead of sampling at the 
+	 * 			given recording rate on frame updates. The data writer must be 
+	 * 			registered as tick listener of the physics space.
+	 * 
+	 * @param physicsRate
+	 * 			Number of physics ticks per second. If recording on physics 
+	 * 			ticks, the effective recording rate is the physics rate divided 
+	 * 			by a whole number.
+	 */
+	public DataWriter(String outputFolder, Car car, String driverName, String drivingTaskFileName,
+			FileFormat fileFormat, SyncPolicy syncPolicy, int bufferSize, int writeInterval,
+			int recordingRate, boolean recordOnPhysicsTick, int physicsRate) 
 	{	
 		this.outputFolder = outputFolder;
 		this.car = car;
 		this.driverName = driverName;
 		this.drivingTaskFileName = drivingTaskFileName;
+		this.fileFormat = fileFormat;
+		this.syncPolicy = syncPolicy;
+		this.bufferSize = bufferSize;
+		this.writeInterval = writeInterval;
+		this.sampleIntervalNanos = 1000000000L / Math.max(1, recordingRate);
+		this.recordOnPhysicsTick = recordOnPhysicsTick;
+		this.sampleRate = Math.max(1, recordingRate);
+		
+		if(recordOnPhysicsTick)
+		{
+			// number of physics ticks per sample (at least one)
+			physicsRate = Math.max(1, physicsRate);
+			ticksPerSample = Math.max(1, Math.round((float) physicsRate / sampleRate));
+			float effectiveRate = (float) physicsRate / ticksPerSample;
+			
+			if(effectiveRate != sampleRate)
+			{
+				System.err.println("Recording rate of " + sampleRate + " Hz not available at physics rate of " + 
+						physicsRate + " Hz. Recording at " + effectiveRate + " Hz instead (physics rate must " +
+						"be a multiple of the recording rate).");
+				sampleRate = effectiveRate;
+			}
+		}
 
 		Util.makeDirectory(outputFolder);
 
-		analyzerDataFile = new File(outputFolder + "/carData.txt");
+		analyzerDataFile = new File(outputFolder + "/carData" + getFileExtension());
 
 		initWriter();
 	}
+	
+	
+	private String getFileExtension()
+	{
+		if(fileFormat == FileFormat.BINARY)
+			return BinaryDataFormat.FILE_EXTENSION;
+		else
+			return ".txt";
+	}
 
 
 	public void initWriter() 
@@ -90,65 +215,138 @@ public class DataWriter
 		int i = 2;
 		while(outFile.exists()) 
 		{
-			analyzerDataFile = new File(outputFolder + "/carData(" + i + ").txt");
+			analyzerDataFile = new File(outputFolder + "/carData(" + i + ")" + getFileExtension());
 			outFile = new File(analyzerDataFile.getAbsolutePath());
 			i++;
 		}
 		
 		
 		try {
-			out = new BufferedWriter(new FileWriter(outFile));
-			out.write("Driving Task: " + drivingTaskFileName + newLine);
-			out.write("Date-Time: "
-					+ new SimpleDateFormat("yyyy_MM_dd-HH_mm_ss")
-							.format(new Date()) + newLine);
-			out.write("Driver: " + driverName + newLine);
-			out.write("Used Format = Time (ms): Position (x,y,z) : Rotation (x,y,z,w) :"
-					+ " Speed (km/h) : Steering Wheel Position [-1,1] : Gas Pedal Position :"
-					+ " Brake Pedal Position : Engine (On) : light Intensity : TurnSignalLeft :"
-					+ " TurnSignalRight" + newLine);
+			if(fileFormat == FileFormat.BINARY)
+			{
+				binaryWriter = new BinaryDataWriter(outFile, new Date().getTime(),
+						drivingTaskFileName, driverName, sampleRate);
+			}
+			else
+			{
+				outputStream = new FileOutputStream(outFile);
+				out = new BufferedWriter(new OutputStreamWriter(outputStream));
+				writeTextHeader(out, drivingTaskFileName, new Date(), driverName, sampleRate, newLine);
+			}
 
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		arrayDataList = new ArrayList<DataUnit>();
+		
+		ringBuffer = new DataRingBuffer(bufferSize);
+		writerThread = new DataWriterThread(this, ringBuffer, writeInterval, syncPolicy);
+		writerThread.start();
 
-		lastAnalyzerDataSave = new Date();
+		startTimeStamp = System.currentTimeMillis();
+		startNanoTime = System.nanoTime();
+		nextSampleTime = startNanoTime;
 	}
 
 
 	/**
-	 * Save the car data at a frequency of 20Hz. That class should be called in
-	 * the update-method <code>Simulator.java</code>.
+	 * Save the car data at the given recording rate (default: 20Hz). That 
+	 * class should be called in the update-method <code>Simulator.java</code>.
+	 * Samples are scheduled at fixed intervals, so frame jitter does not 
+	 * accumulate. Nothing will be done if recording on physics ticks.
+	 * 
+	 * The state of the car is read once per sample into preallocated objects
+	 * and stored in the ring buffer, so recording does not allocate any 
+	 * objects.
 	 */
 	public void saveAnalyzerData() 
 	{
-		curDate = new Date();
+		if(recordOnPhysicsTick)
+			return;
+		
+		long currentNanoTime = System.nanoTime();
 
-		if (curDate.getTime() - lastAnalyzerDataSave.getTime() >= 50) 
+		if (currentNanoTime - nextSampleTime >= 0) 
 		{
-			//boolean enginOn, int lightIntensity, boolean blinkerLeft, boolean blinkerRight
-			write(
-					curDate,
-					Math.round(car.getPosition().x * 1000) / 1000.,
-					Math.round(car.getPosition().y * 1000) / 1000.,
-					Math.round(car.getPosition().z * 1000) / 1000.,
-					Math.round(car.getRotation().getX() * 10000) / 10000.,
-					Math.round(car.getRotation().getY() * 10000) / 10000.,
-					Math.round(car.getRotation().getZ() * 10000) / 10000.,
-					Math.round(car.getRotation().getW() * 10000) / 10000.,
-					car.getCurrentSpeedKmhRounded(), Math.round(car
-							.getSteeringWheelState() * 100000) / 100000., 
-					car.getGasPedalPressIntensity(), car.getBrakePedalPressIntensity(),
-					car.isEngineOn(),
-					car.getLightIntensity(),
-					car.getTurnSignal() == TurnSignalState.BOTH || car.getTurnSignal() == TurnSignalState.LEFT ? true : false,
-					car.getTurnSignal() == TurnSignalState.BOTH || car.getTurnSignal() == TurnSignalState.RIGHT ? true : false	
-					);
-
-			lastAnalyzerDataSave = curDate;
+			captureSample(currentNanoTime);
+			
+			nextSampleTime += sampleIntervalNanos;
+			
+			// do not catch up on samples missed during a pause or a long frame
+			if(currentNanoTime - nextSampleTime >= 0)
+				nextSampleTime = currentNanoTime + sampleIntervalNanos;
 		}
+	}
+	
+	
+	public void prePhysicsTick(PhysicsSpace space, float tpf) 
+	{
+	}
+
 
+	/**
+	 * Advances the simulation time and records a sample on every n-th physics 
+	 * tick if enabled, so the physics step does not need to be changed in 
+	 * order to match the recording rate. Physics ticks do not occur while the 
+	 * simulation is paused.
+	 */
+	public void physicsTick(PhysicsSpace space, float tpf) 
+	{
+		long tickNanos = Math.round(tpf * 1000000000.0);
+		simulationTime += tickNanos;
+		
+		if(recordOnPhysicsTick && dataWriterEnabled)
+		{
+			if(physicsTickCounter % ticksPerSample == 0)
+				captureSample(System.nanoTime());
+			
+			physicsTickCounter++;
+		}
+	}
+	
+	
+	/**
+	 * Reads the current state of the car and stores it in the ring buffer.
+	 * 
+	 * @param nanoTime
+	 * 			Value of <code>System.nanoTime()</code> at the time of the sample.
+	 */
+	private void captureSample(long nanoTime)
+	{
+		car.getPosition(position);
+		car.getRotation(rotation);
+		TurnSignalState turnSignal = car.getTurnSignal();
+		
+		ringBuffer.offer(
+				toTimeStamp(nanoTime),
+				Math.round(position.x * 1000) / 1000.,
+				Math.round(position.y * 1000) / 1000.,
+				Math.round(position.z * 1000) / 1000.,
+				Math.round(rotation.getX() * 10000) / 10000.,
+				Math.round(rotation.getY() * 10000) / 10000.,
+				Math.round(rotation.getZ() * 10000) / 10000.,
+				Math.round(rotation.getW() * 10000) / 10000.,
+				car.getCurrentSpeedKmhRounded(), 
+				Math.round(car.getSteeringWheelState() * 100000) / 100000., 
+				car.getGasPedalPressIntensity(), 
+				car.getBrakePedalPressIntensity(),
+				car.isEngineOn(),
+				car.getLightIntensity(),
+				turnSignal == TurnSignalState.BOTH || turnSignal == TurnSignalState.LEFT,
+				turnSignal == TurnSignalState.BOTH || turnSignal == TurnSignalState.RIGHT,
+				nanoTime - startNanoTime,
+				simulationTime
+				);
+	}
+	
+	
+	/**
+	 * Converts a value of <code>System.nanoTime()</code> to a time stamp in ms 
+	 * since epoch (as written to the analyzer file) without reading the wall 
+	 * clock again.
+	 */
+	private long toTimeStamp(long nanoTime)
+	{
+		return startTimeStamp + (nanoTime - startNanoTime) / 1000000L;
 	}
 
 	
@@ -162,66 +360,216 @@ public class DataWriter
 			double steeringWheelState, double gasPedalState, double brakePedalState,
 			boolean enginOn, int lightIntensity, boolean blinkerLeft, boolean blinkerRight) 
 	{
-		DataUnit row = new DataUnit(curDate, x, y, z, xRot, yRot, zRot, wRot,
+		ringBuffer.offer(curDate.getTime(), x, y, z, xRot, yRot, zRot, wRot,
 				linearSpeed, steeringWheelState, gasPedalState, brakePedalState,
-				enginOn, lightIntensity, blinkerLeft, blinkerRight);
-		this.write(row);
-
+				enginOn, lightIntensity, blinkerLeft, blinkerRight, 
+				System.nanoTime() - startNanoTime, simulationTime);
 	}
 	
 
 	/**
-	 * Write data to the data pool. After 50 data sets, the pool is flushed to
-	 * the file.
+	 * Write data to the ring buffer. The writer thread will write it to the 
+	 * file within the next write interval.
 	 */
 	public void write(DataUnit row)
 	{
-		arrayDataList.add(row);
-		if (arrayDataList.size() > 50)
-			flush();
+		ringBuffer.offer(row.getDate().getTime(), row.getXpos(), row.getYpos(), row.getZpos(),
+				row.getXrot(), row.getYrot(), row.getZrot(), row.getWrot(), row.getSpeed(),
+				row.getSteeringWheelPos(), row.getPedalPos(), row.isBreaking(), row.isEnginOn(),
+				row.getLightIntensity(), row.isBlinkerLeft(), row.isBlinkerRight(),
+				row.getMonotonicTime(), row.getSimulationTime());
 	}
 	
 
+	/**
+	 * Requests the writer thread to write all pending samples to the file
+	 * immediately.
+	 */
 	public void flush() 
 	{
-		try {
-			StringBuffer sb = new StringBuffer();
-			for (DataUnit r : arrayDataList) {
-				sb.append(r.getDate().getTime() + ":" + r.getXpos() + ":"
-						+ r.getYpos() + ":" + r.getZpos() + ":" + r.getXrot()
-						+ ":" + r.getYrot() + ":" + r.getZrot() + ":"
-						+ r.getWrot() + ":" + r.getSpeed() + ":"
-						+ r.getSteeringWheelPos() + ":" + r.getPedalPos() + ":"
-						+ r.isBreaking() + newLine
-				// + r.getRacingLineDistance()
-						// + ":"
-						// + r.getFuelConsumption()
-						// + ":" + r.isMarker1Set()
-						// + ":"
-						// + r.isMarker2Set() + ":" + r.isMarker3Set() + ":"
-						// + r.getRound() + newLine
-						);
-			}
-			out.write(sb.toString());
-			arrayDataList.clear();
-			out.flush();
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(0);
-		}
+		writerThread.wakeUp();
 	}
 
 	
+	/**
+	 * Stops recording, waits until the writer thread has written all pending 
+	 * samples and closes the file.
+	 */
 	public void quit() 
 	{
 		dataWriterEnabled = false;
-		flush();
+		
+		writerThread.requestStop();
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		
 		try {
 			if (out != null)
 				out.close();
+			
+			if (binaryWriter != null)
+				binaryWriter.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		
+		if(getDroppedSamples() > 0)
+			System.err.println("DataWriter: " + getDroppedSamples() + " samples dropped (buffer size: " 
+					+ ringBuffer.getCapacity() + ", max. fill level: " + getMaxBufferFillLevel() + ")");
+	}
+	
+	
+	/**
+	 * Writes the given range of samples from the ring buffer to the output. 
+	 * Called by the writer thread only.
+	 */
+	void writeSamples(DataRingBuffer buffer, long fromSequence, long toSequence) throws IOException
+	{
+		if(fileFormat == FileFormat.BINARY)
+		{
+			for(long sequence = fromSequence; sequence < toSequence; sequence++)
+			{
+				int i = buffer.getIndex(sequence);
+				binaryWriter.write(buffer.getTimeStamp(i), buffer.getXpos(i), buffer.getYpos(i),
+						buffer.getZpos(i), buffer.getXrot(i), buffer.getYrot(i), buffer.getZrot(i),
+						buffer.getWrot(i), buffer.getSpeed(i), buffer.getSteeringWheelPos(i),
+						buffer.getGasPedalPos(i), buffer.getBrakePedalPos(i), buffer.isEngineOn(i),
+						buffer.getLightIntensity(i), buffer.isBlinkerLeft(i), buffer.isBlinkerRight(i),
+						buffer.getMonotonicTime(i), buffer.getSimulationTime(i));
+			}
+		}
+		else
+		{
+			for(long sequence = fromSequence; sequence < toSequence; sequence++)
+			{
+				int i = buffer.getIndex(sequence);
+				appendTextLine(textBuffer, buffer.getTimeStamp(i), buffer.getXpos(i), 
+						buffer.getYpos(i), buffer.getZpos(i), buffer.getXrot(i), buffer.getYrot(i),
+						buffer.getZrot(i), buffer.getWrot(i), buffer.getSpeed(i), 
+						buffer.getSteeringWheelPos(i), buffer.getGasPedalPos(i), 
+						buffer.getBrakePedalPos(i), buffer.getMonotonicTime(i), 
+						buffer.getSimulationTime(i), newLine);
+			}
+			
+			out.write(textBuffer.toString());
+			textBuffer.setLength(0);
+		}
+	}
+	
+	
+	/**
+	 * Flushes the output and syncs the file to the disk if requested. 
+	 * Called by the writer thread only.
+	 */
+	void flushOutput(boolean sync) throws IOException
+	{
+		if(fileFormat == FileFormat.BINARY)
+		{
+			binaryWriter.flush();
+			if(sync)
+				binaryWriter.sync();
+		}
+		else
+		{
+			out.flush();
+			if(sync)
+				outputStream.getFD().sync();
+		}
+	}
+	
+	
+	/**
+	 * Number of samples which could not be recorded because the ring buffer
+	 * was full.
+	 */
+	public long getDroppedSamples()
+	{
+		return ringBuffer.getDroppedSamples();
+	}
+	
+	
+	/**
+	 * Effective number of samples per second (as written to the file header).
+	 */
+	public float getSampleRate()
+	{
+		return sampleRate;
+	}
+	
+	
+	/**
+	 * Maximum number of samples which have been waiting in the ring buffer
+	 * at the same time.
+	 */
+	public int getMaxBufferFillLevel()
+	{
+		return ringBuffer.getMaxFillLevel();
+	}
+	
+	
+	/**
+	 * Writes the header lines of the text format (driving task, date-time, 
+	 * driver, sample rate and used format). The sample rate line will be 
+	 * omitted if the rate is not known (i.e. 0).
+	 */
+	static void writeTextHeader(Writer out, String drivingTaskFileName, Date date, 
+			String driverName, float sampleRate, String newLine) throws IOException
+	{
+		out.write("Driving Task: " + drivingTaskFileName + newLine);
+		out.write("Date-Time: "
+				+ new SimpleDateFormat("yyyy_MM_dd-HH_mm_ss")
+						.format(date) + newLine);
+		out.write("Driver: " + driverName + newLine);
+		if(sampleRate > 0)
+			out.write(SAMPLE_RATE_PREFIX + sampleRate + " Hz" + newLine);
+		out.write("Used Format = Time (ms): Position (x,y,z) : Rotation (x,y,z,w) :"
+				+ " Speed (km/h) : Steering Wheel Position [-1,1] : Gas Pedal Position :"
+				+ " Brake Pedal Position : Monotonic Time (ns) : Simulation Time (ns)" 
+				+ newLine);
+	}
+	
+	
+	/**
+	 * Appends one colon-separated data line of the text format.
+	 */
+	static void appendTextLine(StringBuffer sb, DataUnit r, String newLine)
+	{
+		appendTextLine(sb, r.getDate().getTime(), r.getXpos(), r.getYpos(), r.getZpos(), 
+				r.getXrot(), r.getYrot(), r.getZrot(), r.getWrot(), r.getSpeed(), 
+				r.getSteeringWheelPos(), r.getPedalPos(), r.isBreaking(), r.getMonotonicTime(),
+				r.getSimulationTime(), newLine);
+	}
+	
+	
+	static void appendTextLine(StringBuffer sb, long timeStamp, double x, double y, double z,
+			double xRot, double yRot, double zRot, double wRot, double speed, 
+			double steeringWheelPos, double gasPedalPos, double brakePedalPos, long monotonicTime,
+			long simulationTime, String newLine)
+	{
+		sb.append(timeStamp).append(':')
+			.append(x).append(':')
+			.append(y).append(':')
+			.append(z).append(':')
+			.append(xRot).append(':')
+			.append(yRot).append(':')
+			.append(zRot).append(':')
+			.append(wRot).append(':')
+			.append(speed).append(':')
+			.append(steeringWheelPos).append(':')
+			.append(gasPedalPos).append(':')
+			.append(brakePedalPos).append(':')
+			.append(monotonicTime).append(':')
+			.append(simulationTime).append(newLine);
+		// + r.getRacingLineDistance()
+		// + ":"
+		// + r.getFuelConsumption()
+		// + ":" + r.isMarker1Set()
+		// + ":"
+		// + r.isMarker2Set() + ":" + r.isMarker3Set() + ":"
+		// + r.getRound() + newLine
 	}
 	
 
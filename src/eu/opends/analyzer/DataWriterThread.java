@@ -0,0 +1,129 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import eu.opends.analyzer.DataWriter.SyncPolicy;
+
+/**
+ * This thread drains the samples collected by the render thread in the
+ * data writer's ring buffer and writes them to the analyzer file. It wakes
+ * up once per write interval, writes all pending samples in batches and
+ * flushes the file afterwards. The file will be synced to the disk as
+ * specified by the sync policy.
+ *
+ * @author Rafael Math
+ */
+public class DataWriterThread extends Thread
+{
+	private static final int MAX_BATCH_SIZE = 256;
+
+	private DataWriter dataWriter;
+	private DataRingBuffer ringBuffer;
+	private long writeIntervalNanos;
+	private SyncPolicy syncPolicy;
+	private volatile boolean isRunning = true;
+
+
+	public DataWriterThread(DataWriter dataWriter, DataRingBuffer ringBuffer,
+			int writeInterval, SyncPolicy syncPolicy)
+	{
+		super("DataWriterThread");
+		setDaemon(true);
+
+		this.dataWriter = dataWriter;
+		this.ringBuffer = ringBuffer;
+		this.writeIntervalNanos = writeInterval * 1000000L;
+		this.syncPolicy = syncPolicy;
+	}
+
+
+	@Override
+	public void run()
+	{
+		try {
+
+			while(isRunning)
+			{
+				if(writePendingSamples())
+					dataWriter.flushOutput(syncPolicy == SyncPolicy.FLUSH);
+
+				if(isRunning)
+					LockSupport.parkNanos(writeIntervalNanos);
+			}
+
+			// drain remaining samples after stop has been requested
+			writePendingSamples();
+			dataWriter.flushOutput(syncPolicy != SyncPolicy.NONE);
+
+		} catch (IOException e) {
+			System.err.println("DataWriterThread: could not write analyzer file");
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Writes all samples currently contained in the ring buffer.
+	 *
+	 * @return
+	 * 			true, if at least one sample has been written.
+	 */
+	private boolean writePendingSamples() throws IOException
+	{
+		boolean samplesWritten = false;
+
+		long readSequence = ringBuffer.getReadSequence();
+		long writeSequence = ringBuffer.getWriteSequence();
+
+		while(readSequence < writeSequence)
+		{
+			long batchEnd = Math.min(writeSequence, readSequence + MAX_BATCH_SIZE);
+
+			dataWriter.writeSamples(ringBuffer, readSequence, batchEnd);
+			ringBuffer.advanceReadSequence(batchEnd);
+
+			samplesWritten = true;
+			readSequence = batchEnd;
+		}
+
+		return samplesWritten;
+	}
+
+
+	/**
+	 * Wakes up the thread in order to write all pending samples immediately.
+	 */
+	public void wakeUp()
+	{
+		LockSupport.unpark(this);
+	}
+
+
+	/**
+	 * Requests the thread to write all pending samples and terminate.
+	 */
+	public void requestStop()
+	{
+		isRunning = false;
+		LockSupport.unpark(this);
+	}
+}
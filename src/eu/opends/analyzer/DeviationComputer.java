@@ -20,15 +20,23 @@ package eu.opends.analyzer;
 
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 
+import eu.opends.tools.WorkerPool;
+
 
 /**
  * This class computes the deviation of a car's driven track 
@@ -41,7 +49,7 @@ public class DeviationComputer
 {
 	private Vector<Vector2f> idealPoints;
 	private Vector<Vector3f> processedIdealPoints;
-	private Vector<Vector3f> wayPoints;
+	private Trajectory wayPoints;
 	private Vector<Vector3f> deviationPoints;
 	private float roadWidth;
 	private static final double MAX_DISTANCE = 30.0;
@@ -49,6 +57,15 @@ public class DeviationComputer
 	private static final float MAX_DISTANCE_BETWEEN_TWO_IDEAL_POINTS = 0.1f;
 	private static final boolean DEBUGMODE = false;
 	private SortedMap<String, Vector2f> idealPointMap = new TreeMap<String, Vector2f>();
+	
+	// way points farther from a line than MAX_DISTANCE will be ignored; margin covers rounding errors
+	private static final float SEARCH_MARGIN = (float) MAX_DISTANCE + 1.0f;
+	private static final float GRID_CELL_SIZE = 10.0f;
+	private static final int MIN_IDEAL_POINTS_PER_TASK = 2000;
+	private boolean parallelComputation = true;
+	private float[] lateralOffsets = new float[0];
+	private Vector2f[] idealPointArray;
+	private WayPointGrid wayPointGrid;
 		
 	
 	/**
@@ -65,7 +82,7 @@ public class DeviationComputer
 	{
 		idealPoints = new Vector<Vector2f>(100);
 		processedIdealPoints = new Vector<Vector3f>(100);
-		wayPoints   = new Vector<Vector3f>(100);
+		wayPoints   = new Trajectory();
 		deviationPoints = new Vector<Vector3f>(100);
 		this.roadWidth = roadWidth;
 	}
@@ -192,7 +209,7 @@ public class DeviationComputer
 	public void addWayPoint(Vector3f point)
 	{
 		if(point != null)
-			wayPoints.add(point);
+			wayPoints.add(0, point, Quaternion.IDENTITY, 0);
 	}
 	
 	
@@ -201,24 +218,36 @@ public class DeviationComputer
 	 */
 	public void showAllWayPoints()
 	{
-		for(Vector3f wayPoint : wayPoints) 
-			System.out.println("WP: "+wayPoint.toString());
+		for(int i = 0; i < wayPoints.size(); i++) 
+			System.out.println("WP: "+wayPoints.getPosition(i, null).toString());
 	}
 	
 	
 	/**
-	 * Returns the list of all given way points as 3-dimensional 
-	 * vectors
+	 * Returns all given way points
 	 * 
 	 * @return
-	 * 			list of way points
+	 * 			trajectory of way points
 	 */
-	public List<Vector3f> getWayPoints()
+	public Trajectory getWayPoints()
 	{
 		return wayPoints;
 	}
 	
 	
+	/**
+	 * Replaces the way points by the positions of the given trajectory, 
+	 * e.g. a recorded drive. Order is significant for computation.
+	 * 
+	 * @param trajectory
+	 * 			trajectory of the car
+	 */
+	public void setWayPoints(Trajectory trajectory)
+	{
+		wayPoints = trajectory;
+	}
+	
+	
 	/**
 	 * Returns the list of deviation points, i.e. ideal point / 
 	 * way point pairs used to draw diagonal lines between ideal
@@ -233,6 +262,34 @@ public class DeviationComputer
 	}
 	
 	
+	/**
+	 * Returns the signed distances between the inner ideal points and the 
+	 * corresponding way points as computed by getDeviation(). The sign 
+	 * indicates the side of the ideal line the car was driving on.
+	 * 
+	 * @return
+	 * 			lateral offsets (in meters) along the ideal line
+	 */
+	public float[] getLateralOffsets()
+	{
+		return lateralOffsets;
+	}
+	
+	
+	/**
+	 * Enables or disables splitting up the computation of getDeviation() 
+	 * into several threads (enabled by default). Should be disabled if 
+	 * many deviation computers are running in parallel.
+	 * 
+	 * @param parallelComputation
+	 * 			if true, long ideal lines will be processed by several threads.
+	 */
+	public void setParallelComputation(boolean parallelComputation)
+	{
+		this.parallelComputation = parallelComputation;
+	}
+	
+	
 	/**
 	 * Writes messages to the console if flag DEBUGMODE is set to true.
 	 * 
@@ -263,35 +320,37 @@ public class DeviationComputer
 		if(nrOfIdealPoints >= 3)
 		{
 			// initialize
-			Vector2f prevWP = idealPoints.elementAt(0);
-			DeviationQuadrangle quadrangle;
-			float area,sum = 0.0f;
+			idealPointArray = idealPoints.toArray(new Vector2f[nrOfIdealPoints]);
+			buildWayPointGrid();
+			Vector3f[] linePoints = new Vector3f[nrOfIdealPoints];
+			float[] areas = new float[nrOfIdealPoints];
+			Exception[] errors = new Exception[nrOfIdealPoints];
+			
+			// compute way points and areas of all quadrangles (in parallel, if there are enough ideal points)
+			computeAreas(linePoints, areas, errors);
+			
+			float sum = 0.0f;
+			lateralOffsets = new float[0];
+			float[] offsets = new float[nrOfIdealPoints-2];
 			
 			// compute areas p_0 - p_n-1
 			for(int i = 1; i < nrOfIdealPoints-1; i++)
 			{
-				// get previous, current and next ideal point
-				Vector2f prevIP = idealPoints.elementAt(i-1);
-				Vector2f currIP = idealPoints.elementAt(i);
-				Vector2f nextIP = idealPoints.elementAt(i+1);
-			
-				// compute the line which divides the angle at currIP in two equal halves
-				Line2D.Float crossLine = getHalfwayVector(prevIP, currIP, nextIP);
-				log("Line through IP " + currIP + " from (" + crossLine.getX1() + "," + crossLine.getY1() + ")" +
-						" to (" + crossLine.getX2() + "," + crossLine.getY2() + ")");
+				// abort at the first ideal point without way points nearby
+				if(errors[i] != null)
+				{
+					lateralOffsets = Arrays.copyOf(offsets, i-1);
+					throw errors[i];
+				}
 				
-				// get way point on or next to the line
-				Vector3f currWP3f = getPointOnLine(crossLine);
-				Vector2f currWP = new Vector2f(currWP3f.getX(), currWP3f.getZ());
-				log("Point on line: " + currWP);
-
-				// compute area of current quadrangle with the given corners
-				quadrangle = new DeviationQuadrangle(prevWP, currWP, currIP, prevIP);
-				area = quadrangle.getArea();
-				log("Area: " + area);
+				Vector2f currIP = idealPointArray[i];
+				Vector3f currWP3f = linePoints[i];
+				offsets[i-1] = getLateralOffset(idealPointArray[i-1], currIP, idealPointArray[i+1], currWP3f);
+				log("Point on line: " + currWP3f);
+				log("Area: " + areas[i]);
 				
-				// sum up all computed areas
-				sum += area;
+				// sum up all computed areas (in order of ideal points)
+				sum += areas[i];
 				
 				// store ideal point with adjusted height information
 				// use height value of corresponding way point (only for visualization)
@@ -309,15 +368,161 @@ public class DeviationComputer
 					deviationPoints.add(currWP3f.add(new Vector3f(0,-0.01f,0)));
 					deviationPoints.add(currIP3f.add(new Vector3f(0,-0.01f,0)));
 				}
-				
-				// store current way point as corner for next quadrangle
-				prevWP = currWP;
 			}
+			lateralOffsets = offsets;
 			return sum;
 		}
 		else
 			throw new Exception("Not enough ideal points given!");
 	}
+	
+	
+	/**
+	 * Returns the distance of the given way point from the current ideal 
+	 * point. The sign indicates the side of the ideal line.
+	 */
+	private float getLateralOffset(Vector2f prevIP, Vector2f currIP, Vector2f nextIP, Vector3f wayPoint)
+	{
+		float dx = wayPoint.getX() - currIP.getX();
+		float dz = wayPoint.getZ() - currIP.getY();
+		float offset = FastMath.sqrt(dx*dx + dz*dz);
+		
+		// cross product of ideal line direction and offset vector
+		float directionX = nextIP.getX() - prevIP.getX();
+		float directionZ = nextIP.getY() - prevIP.getY();
+		if(directionX*dz - directionZ*dx < 0)
+			offset = -offset;
+		
+		return offset;
+	}
+	
+	
+	/**
+	 * Sorts all way points into a grid, so way points near an ideal point
+	 * can be looked up without checking all way points.
+	 */
+	private void buildWayPointGrid()
+	{
+		wayPointGrid = new WayPointGrid(wayPoints.xpos, wayPoints.zpos, wayPoints.size(), GRID_CELL_SIZE);
+	}
+	
+	
+	/**
+	 * Computes the way point on the line through every inner ideal point and 
+	 * the area of the quadrangle ending at this line. Ideal points are split 
+	 * into ranges that will be processed by the shared worker pool.
+	 */
+	private void computeAreas(final Vector3f[] linePoints, final float[] areas, 
+			final Exception[] errors) throws Exception
+	{
+		int nrOfInnerPoints = idealPointArray.length - 2;
+		
+		// use more tasks than processors in order to balance the load
+		int numberOfTasks = Math.min(4 * Runtime.getRuntime().availableProcessors(), 
+				nrOfInnerPoints / MIN_IDEAL_POINTS_PER_TASK);
+		
+		if(!parallelComputation || numberOfTasks <= 1)
+		{
+			computeAreas(1, idealPointArray.length-1, linePoints, areas, errors);
+			return;
+		}
+		
+		try {
+			
+			int pointsPerTask = (nrOfInnerPoints + numberOfTasks - 1) / numberOfTasks;
+			
+			List<Callable<Object>> taskList = new ArrayList<Callable<Object>>();
+			for(int from = 1; from < idealPointArray.length-1; from += pointsPerTask)
+			{
+				final int start = from;
+				final int end = Math.min(from + pointsPerTask, idealPointArray.length-1);
+				taskList.add(new Callable<Object>()
+				{
+					public Object call() 
+					{
+						computeAreas(start, end, linePoints, areas, errors);
+						return null;
+					}
+				});
+			}
+			
+			for(Future<Object> future : WorkerPool.getExecutor().invokeAll(taskList))
+				future.get();
+			
+		} catch (ExecutionException e) {
+			
+			throw new Exception("Could not compute deviation", e.getCause());
+		}
+	}
+	
+	
+	/**
+	 * Computes the way points on the lines through the ideal points from 
+	 * index "start" (inclusive) to "end" (exclusive) and the areas of the 
+	 * quadrangles ending at these lines. Errors will be stored per ideal 
+	 * point, so the caller can report the first one.
+	 */
+	private void computeAreas(int start, int end, Vector3f[] linePoints, float[] areas, Exception[] errors)
+	{
+		// the first quadrangle starts at the first ideal point
+		Vector2f prevWP = null;
+		if(start == 1)
+			prevWP = idealPointArray[0];
+		else
+		{
+			// recompute way point of previous range's last line 
+			try {
+				Vector3f prevWP3f = getPointOnLine(idealPointArray[start-2], 
+						idealPointArray[start-1], idealPointArray[start]);
+				prevWP = new Vector2f(prevWP3f.getX(), prevWP3f.getZ());
+			} catch (Exception e) {
+				// will be reported by the previous range
+			}
+		}
+		
+		for(int i = start; i < end; i++)
+		{
+			// get previous, current and next ideal point
+			Vector2f prevIP = idealPointArray[i-1];
+			Vector2f currIP = idealPointArray[i];
+			Vector2f nextIP = idealPointArray[i+1];
+			
+			try {
+				
+				// get way point on or next to the line through currIP
+				Vector3f currWP3f = getPointOnLine(prevIP, currIP, nextIP);
+				Vector2f currWP = new Vector2f(currWP3f.getX(), currWP3f.getZ());
+				linePoints[i] = currWP3f;
+				
+				// compute area of current quadrangle with the given corners
+				if(prevWP != null)
+					areas[i] = new DeviationQuadrangle(prevWP, currWP, currIP, prevIP).getArea();
+				
+				// store current way point as corner for next quadrangle
+				prevWP = currWP;
+				
+			} catch (Exception e) {
+				
+				errors[i] = e;
+				prevWP = null;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns the way point on or next to the line which divides the angle 
+	 * at currIP in two equal halves.
+	 */
+	private Vector3f getPointOnLine(Vector2f prevIP, Vector2f currIP, Vector2f nextIP) throws Exception
+	{
+		// compute the line which divides the angle at currIP in two equal halves
+		Line2D.Float crossLine = getHalfwayVector(prevIP, currIP, nextIP);
+		log("Line through IP " + currIP + " from (" + crossLine.getX1() + "," + crossLine.getY1() + ")" +
+				" to (" + crossLine.getX2() + "," + crossLine.getY2() + ")");
+		
+		return getPointOnLine(crossLine);
+	}
 
 
 	/**
@@ -460,12 +665,17 @@ public class DeviationComputer
 		boolean leftValueFound = false;
 		boolean rightValueFound = false;
 		
+		// only way points close to the line need to be checked (in order of recording)
+		int[] candidates = wayPointGrid.query(
+				Math.min(line.x1, line.x2) - SEARCH_MARGIN, Math.min(line.y1, line.y2) - SEARCH_MARGIN,
+				Math.max(line.x1, line.x2) + SEARCH_MARGIN, Math.max(line.y1, line.y2) + SEARCH_MARGIN);
+		
 		// loop is ended as soon as points on the left and right could be found 
-		for(Vector3f wayPoint : wayPoints)
+		for(int index : candidates)
 		{
 			// get coordinates of current way point
-			float x = wayPoint.getX();
-			float z = wayPoint.getZ();
+			float x = wayPoints.getX(index);
+			float z = wayPoints.getZ(index);
 			Point2D point = new Point2D.Float(x,z);
 			
 			// distance of current point from line segment
@@ -475,24 +685,26 @@ public class DeviationComputer
 			if(distance > MAX_DISTANCE)
 				continue;
 
+			int side = line.relativeCCW(point);
+			
 			// if point is already located on the line --> return this point
-			if(line.relativeCCW(point) == 0)
+			if(side == 0)
 			{
-				return wayPoint;
+				return wayPoints.getPosition(index, null);
 			}
 
 			// store distance and coordinates of the nearest point left of the line
-			if(line.relativeCCW(point) == -1)
+			if(side == -1)
 			{
-				leftValue = wayPoint;
+				leftValue = wayPoints.getPosition(index, leftValue);
 				leftDistance = (float) line.ptLineDist(point);
 				leftValueFound = true;
 			}
 			
 			// store distance and coordinates of the nearest point right of the line
-			if(line.relativeCCW(point) == 1)
+			if(side == 1)
 			{
-				rightValue = wayPoint;
+				rightValue = wayPoints.getPosition(index, rightValue);
 				rightDistance = (float) line.ptLineDist(point);
 				rightValueFound = true;
 			}
@@ -518,50 +730,121 @@ public class DeviationComputer
 	}
 
 	
-/*	
- 	// Test with given way and ideal points
+	/**
+	 * Regression test: computes the deviation of the given way and ideal 
+	 * points and of two generated drives and compares the results with the 
+	 * results of the original, sequential implementation. The long drive 
+	 * will be split up into several tasks. Exits with status 1 if a result 
+	 * differs.
+	 */
 	public static void main(String[] args)
 	{
-		DeviationComputer devComp = new DeviationComputer(5.0f,-0.30f);
-		
-		devComp.addIdealPoint(new Vector2f(3.5f,1));
-		devComp.addIdealPoint(new Vector2f(3.5f,3.5f));
-		devComp.addIdealPoint(new Vector2f(7,3.5f));
-		devComp.addIdealPoint(new Vector2f(7,8));
-		devComp.addIdealPoint(new Vector2f(9.5f,10.5f));
-		devComp.addIdealPoint(new Vector2f(6,14));
-		//devComp.showAllIdealPoints();
+		boolean passed = true;
 		
-		devComp.addWayPoint(new Vector2f(2.5f,1.5f));
-		devComp.addWayPoint(new Vector2f(2.5f,2.5f));
-		devComp.addWayPoint(new Vector2f(3,3.5f));
-		devComp.addWayPoint(new Vector2f(3,4.5f));
-		devComp.addWayPoint(new Vector2f(4,4.5f));
-		devComp.addWayPoint(new Vector2f(5.5f,4));
-		devComp.addWayPoint(new Vector2f(5.5f,5));
-		devComp.addWayPoint(new Vector2f(6.5f,5));
-		devComp.addWayPoint(new Vector2f(6.5f,6));
-		
-		//devComp.addWayPoint(new Vector2f(6.5f,7.5f));
-		//devComp.addWayPoint(new Vector2f(7,8.5f));
+		// way points of the example end before the ideal line --> no result
+		DeviationComputer devComp = new DeviationComputer(5.0f);
+		addExampleIdealPoints(devComp);
+		addExampleWayPoints(devComp);
+		try {
+			devComp.getDeviation();
+			System.out.println("FAIL example: NotFinishedException expected");
+			passed = false;
+		} catch (NotFinishedException e) {
+			System.out.println("OK   example: " + e.getMessage());
+		} catch (Exception e) {
+			System.out.println("FAIL example: " + e.toString());
+			passed = false;
+		}
 		
-		devComp.addWayPoint(new Vector2f(8.5f,7));
-		devComp.addWayPoint(new Vector2f(9,7.5f));
+		// short generated drive (sequential computation only)
+		devComp = new DeviationComputer(10.0f);
+		addGeneratedPoints(devComp, 200);
+		passed &= checkDeviation("short drive", devComp, SHORT_DRIVE_AREA);
 		
+		// long generated drive: parallel and sequential computation
+		for(boolean parallel : new boolean[]{true, false})
+		{
+			devComp = new DeviationComputer(10.0f);
+			addGeneratedPoints(devComp, 2000);
+			devComp.setParallelComputation(parallel);
+			passed &= checkDeviation("long drive (" + (parallel ? "parallel" : "sequential") + ")", 
+					devComp, LONG_DRIVE_AREA);
+		}
 		
-		devComp.addWayPoint(new Vector2f(7.5f,9.5f));
-		devComp.addWayPoint(new Vector2f(8.5f,10));
-		devComp.addWayPoint(new Vector2f(8.5f,11));
-		//devComp.showAllWayPoints();
+		WorkerPool.shutdown();
 		
+		if(!passed)
+			System.exit(1);
+	}
+	
+	
+	// areas computed by the original implementation (before the way point grid)
+	private static final float SHORT_DRIVE_AREA = 196.37169f;
+	private static final float LONG_DRIVE_AREA = 1908.8334f;
+	private static final float RELATIVE_TOLERANCE = 1e-4f;
+	
+	
+	private static boolean checkDeviation(String name, DeviationComputer devComp, float expectedArea)
+	{
 		try {
+			
 			float area = devComp.getDeviation();
-			System.out.println("TOTAL: " + area);
+			boolean passed = Math.abs(area - expectedArea) <= RELATIVE_TOLERANCE * Math.abs(expectedArea);
+			System.out.println((passed ? "OK   " : "FAIL ") + name + ": " + area + " (expected: " + 
+					expectedArea + ", ideal points: " + devComp.idealPoints.size() + ")");
+			return passed;
+			
 		} catch (Exception e) {
-			System.err.println(e.toString());
+			
+			System.out.println("FAIL " + name + ": " + e.toString());
+			return false;
 		}
 	}
-*/
+	
+	
+	private static void addExampleIdealPoints(DeviationComputer devComp)
+	{
+		devComp.addIdealPoint(new Vector2f(3.5f,1));
+		devComp.addIdealPoint(new Vector2f(3.5f,3.5f));
+		devComp.addIdealPoint(new Vector2f(7,3.5f));
+		devComp.addIdealPoint(new Vector2f(7,8));
+		devComp.addIdealPoint(new Vector2f(9.5f,10.5f));
+		devComp.addIdealPoint(new Vector2f(6,14));
+	}
+	
+	
+	private static void addExampleWayPoints(DeviationComputer devComp)
+	{
+		devComp.addWayPoint(new Vector3f(2.5f,0,1.5f));
+		devComp.addWayPoint(new Vector3f(2.5f,0,2.5f));
+		devComp.addWayPoint(new Vector3f(3,0,3.5f));
+		devComp.addWayPoint(new Vector3f(3,0,4.5f));
+		devComp.addWayPoint(new Vector3f(4,0,4.5f));
+		devComp.addWayPoint(new Vector3f(5.5f,0,4));
+		devComp.addWayPoint(new Vector3f(5.5f,0,5));
+		devComp.addWayPoint(new Vector3f(6.5f,0,5));
+		devComp.addWayPoint(new Vector3f(6.5f,0,6));
+		devComp.addWayPoint(new Vector3f(8.5f,0,7));
+		devComp.addWayPoint(new Vector3f(9,0,7.5f));
+		devComp.addWayPoint(new Vector3f(7.5f,0,9.5f));
+		devComp.addWayPoint(new Vector3f(8.5f,0,10));
+		devComp.addWayPoint(new Vector3f(8.5f,0,11));
+	}
+	
+	
+	/**
+	 * Adds a winding ideal line of the given length (10 ideal points per 
+	 * meter after interpolation) and a drive oscillating around it (one 
+	 * way point per meter).
+	 */
+	private static void addGeneratedPoints(DeviationComputer devComp, int length)
+	{
+		for(int x = 0; x <= length; x += 5)
+			devComp.addIdealPoint(new Vector2f(x, 20 * FastMath.sin(x / 50f)));
+		
+		for(int x = -5; x <= length + 5; x++)
+			devComp.addWayPoint(new Vector3f(x, 0, 20 * FastMath.sin(x / 50f) + 1.5f * FastMath.sin(x / 17f)));
+	}
 	
 }
 
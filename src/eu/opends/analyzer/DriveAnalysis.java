@@ -0,0 +1,320 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+
+
+/**
+ * Computes the metrics of a single recorded drive (text or binary format) 
+ * without visualization. The drive-data file is read only once; way points 
+ * are passed to a <code>DeviationComputer</code> in order to compute the 
+ * deviation from the ideal line of the driving task.
+ * 
+ * @author Rafael Math
+ */
+public class DriveAnalysis 
+{
+	private File analyzerFile;
+	private long fileSize;
+	private String drivingTask = "";
+	private String driver = "";
+	private Date fileDate = null;
+	private int records = 0;
+	private float duration = 0;
+	private float distance = 0;
+	private float meanSpeed = 0;
+	private float maxSpeed = 0;
+	private float deviationArea = Float.NaN;
+	private float lengthOfIdealLine = Float.NaN;
+	private int laneChanges = -1;
+	private String error = null;
+	
+	
+	/**
+	 * Provides the ideal line of a driving task (e.g. from a cache, as many 
+	 * drives share the same driving task).
+	 */
+	public interface IdealLineSource
+	{
+		public List<Vector2f> getIdealLine(String drivingTaskPath) throws Exception;
+	}
+	
+	
+	public DriveAnalysis(File analyzerFile)
+	{
+		this.analyzerFile = analyzerFile;
+		this.fileSize = analyzerFile.length();
+	}
+	
+	
+	/**
+	 * Reads the drive-data file and computes all metrics. Errors will not be 
+	 * thrown, but can be requested by getError().
+	 * 
+	 * @param idealLineSource
+	 * 			Source of the ideal line of the driving task.
+	 * 
+	 * @param roadWidth
+	 * 			Maximum distance of way points from the ideal line to be 
+	 * 			considered (see <code>DeviationComputer</code>).
+	 * 
+	 * @param laneWidth
+	 * 			Width of a lane (in meters) used to count lane changes.
+	 */
+	public void analyze(IdealLineSource idealLineSource, float roadWidth, float laneWidth)
+	{
+		DataReader dataReader = new DataReader();
+		if(!dataReader.initReader(analyzerFile.getPath(), false))
+		{
+			error = "Not a valid analyzer file";
+			return;
+		}
+		
+		Trajectory trajectory = new Trajectory();
+		DeviationComputer devComp = new DeviationComputer(roadWidth);
+		devComp.setWayPoints(trajectory);
+		
+		// drives are analyzed in parallel already
+		devComp.setParallelComputation(false);
+		
+		try {
+			
+			drivingTask = dataReader.getNameOfDrivingTaskFile();
+			driver = dataReader.getNameOfDriver();
+			fileDate = dataReader.getFileDate();
+			
+			try {
+				for(Vector2f idealPoint : idealLineSource.getIdealLine(drivingTask))
+					devComp.addIdealPoint(idealPoint);
+			} catch (Exception e) {
+				error = "No ideal line: " + e.getMessage();
+			}
+			
+			long firstTimeStamp = 0, lastTimeStamp = 0;
+			long firstSimulationTime = 0, lastSimulationTime = 0;
+			double speedSum = 0;
+			Vector3f previousPosition = null;
+			
+			while(dataReader.readInNextDataUnit())
+			{
+				Vector3f position = dataReader.getCarPosition();
+				float speed = (float) dataReader.getSpeed();
+				
+				if(records == 0)
+				{
+					firstTimeStamp = dataReader.getTimeStamp();
+					firstSimulationTime = dataReader.getSimulationTime();
+				}
+				else
+					distance += position.distance(previousPosition);
+				
+				lastTimeStamp = dataReader.getTimeStamp();
+				lastSimulationTime = dataReader.getSimulationTime();
+				
+				speedSum += speed;
+				maxSpeed = Math.max(maxSpeed, speed);
+				
+				trajectory.add(dataReader.getTimeStamp(), position, dataReader.getCarRotation(), speed);
+				previousPosition = position;
+				records++;
+			}
+			
+			// simulation time excludes pauses, but is not available in older files
+			if(lastSimulationTime > 0)
+				duration = (lastSimulationTime - firstSimulationTime) / 1e9f;
+			else
+				duration = (lastTimeStamp - firstTimeStamp) / 1000f;
+			
+			if(records > 0)
+				meanSpeed = (float) (speedSum / records);
+			
+		} finally {
+			
+			dataReader.close();
+		}
+		
+		if(error == null)
+		{
+			try {
+				
+				deviationArea = devComp.getDeviation();
+				lengthOfIdealLine = devComp.getLengthOfIdealLine();
+				laneChanges = countLaneChanges(devComp.getLateralOffsets(), laneWidth);
+				
+			} catch (Exception e) {
+				
+				error = e.getMessage();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Counts how often the car moved from one lane to another. A lane change 
+	 * will only be counted when the car reached the middle of the new lane 
+	 * (half of the lane width), hence swerving at the lane marking does not 
+	 * count.
+	 */
+	private static int countLaneChanges(float[] lateralOffsets, float laneWidth)
+	{
+		if(lateralOffsets.length == 0)
+			return 0;
+		
+		int changes = 0;
+		int currentLane = Math.round(lateralOffsets[0] / laneWidth);
+		
+		for(float offset : lateralOffsets)
+		{
+			int lane = Math.round(offset / laneWidth);
+			if(lane != currentLane && Math.abs(offset - lane * laneWidth) <= laneWidth / 4)
+			{
+				changes += Math.abs(lane - currentLane);
+				currentLane = lane;
+			}
+		}
+		
+		return changes;
+	}
+	
+	
+	public File getAnalyzerFile()
+	{
+		return analyzerFile;
+	}
+	
+	
+	/**
+	 * Size of the drive-data file in bytes.
+	 */
+	public long getFileSize()
+	{
+		return fileSize;
+	}
+	
+	
+	public String getDrivingTask()
+	{
+		return drivingTask;
+	}
+	
+	
+	public String getDriver()
+	{
+		return driver;
+	}
+	
+	
+	public Date getFileDate()
+	{
+		return fileDate;
+	}
+	
+	
+	public int getRecords()
+	{
+		return records;
+	}
+	
+	
+	/**
+	 * Duration of the drive in seconds.
+	 */
+	public float getDuration()
+	{
+		return duration;
+	}
+	
+	
+	/**
+	 * Driven distance in meters.
+	 */
+	public float getDistance()
+	{
+		return distance;
+	}
+	
+	
+	/**
+	 * Mean speed (in km/h) of all records.
+	 */
+	public float getMeanSpeed()
+	{
+		return meanSpeed;
+	}
+	
+	
+	/**
+	 * Maximum speed in km/h.
+	 */
+	public float getMaxSpeed()
+	{
+		return maxSpeed;
+	}
+	
+	
+	/**
+	 * Area between ideal line and driven line (NaN, if not available).
+	 */
+	public float getDeviationArea()
+	{
+		return deviationArea;
+	}
+	
+	
+	/**
+	 * Length of the ideal line (NaN, if not available).
+	 */
+	public float getLengthOfIdealLine()
+	{
+		return lengthOfIdealLine;
+	}
+	
+	
+	/**
+	 * Mean deviation from the ideal line in meters (NaN, if not available).
+	 */
+	public float getMeanDeviation()
+	{
+		return deviationArea / lengthOfIdealLine;
+	}
+	
+	
+	/**
+	 * Number of lane changes (-1, if not available).
+	 */
+	public int getLaneChanges()
+	{
+		return laneChanges;
+	}
+	
+	
+	/**
+	 * Error that occurred during analysis or null if all metrics are available.
+	 */
+	public String getError()
+	{
+		return error;
+	}
+}
@@ -23,9 +23,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
 
 import eu.opends.tools.Util;
 
@@ -115,18 +113,18 @@ public class DrivingTaskLogger
 	 * 			Name of the trigger causing the reaction measurement.
 	 * 
 	 * @param startTime
-	 * 			Start time of the measurement.
+	 * 			Start time of the measurement (milliseconds since epoch).
+	 * 
+	 * @param reactionTimeInMilliseconds
+	 * 			Measured reaction time (e.g. from time-stamped input events).
 	 */
-	public void reportReactionTime(String triggerName, Calendar startTime) 
+	public void reportReactionTime(String triggerName, long startTime, long reactionTimeInMilliseconds) 
 	{
 		// get time stamp of start time
-		long startTimeInMilliseconds = startTime.getTimeInMillis();
-		String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(startTimeInMilliseconds);
+		String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(startTime);
 
-		// get passed milliseconds since start time (= reaction time)
-		Calendar now = new GregorianCalendar();
-		long passedMilliseconds = now.getTimeInMillis() - startTimeInMilliseconds;
-		String reactionTime = new SimpleDateFormat("mm:ss.SSS").format(passedMilliseconds);
+		// format passed milliseconds since start time (= reaction time)
+		String reactionTime = new SimpleDateFormat("mm:ss.SSS").format(reactionTimeInMilliseconds);
 		
 		// write data to file
 		try {
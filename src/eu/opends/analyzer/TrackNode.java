@@ -0,0 +1,192 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Curve;
+
+
+/**
+ * Visualizes the driven line (or points) of a trajectory with level of 
+ * detail. The trajectory is split into chunks; depending on the camera 
+ * distance, a chunk is shown at full resolution or simplified by the 
+ * Douglas-Peucker algorithm. The geometry of a chunk is built not before 
+ * it is needed, so only chunks near the camera hold all samples.
+ * 
+ * @author Rafael Math
+ */
+public class TrackNode extends Node
+{
+	private static final int CHUNK_SIZE = 1000;
+	
+	// maximum camera distance (in meters) of each level of detail
+	private static final float[] LEVEL_DISTANCES = {150, 600, Float.POSITIVE_INFINITY};
+	
+	// Douglas-Peucker tolerance (in meters) of each level of detail (0 = all samples)
+	private static final float[] LEVEL_TOLERANCES = {0, 0.25f, 2.0f};
+	
+	private Trajectory trajectory;
+	private Material material;
+	private Mode mode;
+	private float size;
+	private int numberOfChunks;
+	private Vector3f[] chunkCenter;
+	private float[] chunkRadius;
+	private Geometry[][] chunkGeometry;
+	private int[] currentLevel;
+	
+	
+	/**
+	 * Creates a new track node. Chunks will be attached by <code>update()</code>.
+	 * 
+	 * @param name
+	 * 			Name of the node.
+	 * 
+	 * @param trajectory
+	 * 			Trajectory to visualize.
+	 * 
+	 * @param material
+	 * 			Material of the line or points.
+	 * 
+	 * @param mode
+	 * 			Mode.Lines or Mode.Points.
+	 * 
+	 * @param size
+	 * 			Line width or point size.
+	 */
+	public TrackNode(String name, Trajectory trajectory, Material material, Mode mode, float size)
+	{
+		super(name);
+		
+		this.trajectory = trajectory;
+		this.material = material;
+		this.mode = mode;
+		this.size = size;
+		
+		// neighboring chunks share a sample, so the line will not be interrupted
+		numberOfChunks = 0;
+		if(trajectory.size() >= 2)
+			numberOfChunks = (trajectory.size() - 2) / CHUNK_SIZE + 1;
+		
+		chunkCenter = new Vector3f[numberOfChunks];
+		chunkRadius = new float[numberOfChunks];
+		chunkGeometry = new Geometry[numberOfChunks][LEVEL_DISTANCES.length];
+		currentLevel = new int[numberOfChunks];
+		
+		for(int chunk = 0; chunk < numberOfChunks; chunk++)
+		{
+			computeBounds(chunk);
+			currentLevel[chunk] = -1;
+		}
+	}
+	
+	
+	/**
+	 * Selects the level of detail of every chunk by its distance from the
+	 * given camera location. Should be called whenever the camera moved.
+	 * 
+	 * @param cameraLocation
+	 * 			Location of the camera.
+	 */
+	public void update(Vector3f cameraLocation)
+	{
+		for(int chunk = 0; chunk < numberOfChunks; chunk++)
+		{
+			float distance = Math.max(0, cameraLocation.distance(chunkCenter[chunk]) - chunkRadius[chunk]);
+			
+			int level = 0;
+			while(distance > LEVEL_DISTANCES[level])
+				level++;
+			
+			int previousLevel = currentLevel[chunk];
+			if(level != previousLevel)
+			{
+				if(previousLevel >= 0)
+				{
+					detachChild(chunkGeometry[chunk][previousLevel]);
+					
+					// full resolution will only be kept for chunks near the camera
+					if(previousLevel == 0)
+						chunkGeometry[chunk][0] = null;
+				}
+				
+				if(chunkGeometry[chunk][level] == null)
+					chunkGeometry[chunk][level] = createGeometry(chunk, level);
+				
+				attachChild(chunkGeometry[chunk][level]);
+				currentLevel[chunk] = level;
+			}
+		}
+	}
+	
+	
+	private int getFirstIndex(int chunk)
+	{
+		return chunk * CHUNK_SIZE;
+	}
+	
+	
+	private int getLastIndex(int chunk)
+	{
+		return Math.min((chunk + 1) * CHUNK_SIZE, trajectory.size() - 1);
+	}
+	
+	
+	private void computeBounds(int chunk)
+	{
+		Vector3f min = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+		Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+		Vector3f position = new Vector3f();
+		
+		for(int i = getFirstIndex(chunk); i <= getLastIndex(chunk); i++)
+		{
+			trajectory.getPosition(i, position);
+			min.minLocal(position);
+			max.maxLocal(position);
+		}
+		
+		chunkCenter[chunk] = min.add(max).multLocal(0.5f);
+		chunkRadius[chunk] = max.distance(min) / 2f;
+	}
+	
+	
+	private Geometry createGeometry(int chunk, int level)
+	{
+		int[] indices = trajectory.simplify(getFirstIndex(chunk), getLastIndex(chunk), LEVEL_TOLERANCES[level]);
+		
+		Vector3f[] points = new Vector3f[indices.length];
+		for(int i = 0; i < indices.length; i++)
+			points[i] = trajectory.getPosition(indices[i], null);
+		
+		Curve curve = new Curve(points, 1);
+		curve.setMode(mode);
+		if(mode == Mode.Points)
+			curve.setPointSize(size);
+		else
+			curve.setLineWidth(size);
+		
+		Geometry geometry = new Geometry(getName() + "_" + chunk + "_" + level, curve);
+		geometry.setMaterial(material);
+		return geometry;
+	}
+}
@@ -0,0 +1,423 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.Arrays;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+
+/**
+ * Samples of a recorded drive (time stamp, position, rotation and speed of 
+ * the car) stored in parallel primitive arrays. Provides random access to 
+ * all samples in constant time and look-up of samples by time stamp. 
+ * Samples must be added in order of their time stamps.
+ * 
+ * @author Rafael Math
+ */
+public class Trajectory 
+{
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	private int size = 0;
+	long[] timeStamp = new long[INITIAL_CAPACITY];
+	float[] xpos = new float[INITIAL_CAPACITY];
+	float[] ypos = new float[INITIAL_CAPACITY];
+	float[] zpos = new float[INITIAL_CAPACITY];
+	float[] xrot = new float[INITIAL_CAPACITY];
+	float[] yrot = new float[INITIAL_CAPACITY];
+	float[] zrot = new float[INITIAL_CAPACITY];
+	float[] wrot = new float[INITIAL_CAPACITY];
+	float[] speed = new float[INITIAL_CAPACITY];
+	
+	
+	/**
+	 * Appends a sample to the trajectory.
+	 * 
+	 * @param time
+	 * 			Time stamp (in milliseconds).
+	 * 
+	 * @param position
+	 * 			Position of the car.
+	 * 
+	 * @param rotation
+	 * 			Rotation of the car.
+	 * 
+	 * @param carSpeed
+	 * 			Speed of the car (in km/h).
+	 */
+	public void add(long time, Vector3f position, Quaternion rotation, float carSpeed)
+	{
+		if(size == timeStamp.length)
+			grow();
+		
+		timeStamp[size] = time;
+		xpos[size] = position.getX();
+		ypos[size] = position.getY();
+		zpos[size] = position.getZ();
+		xrot[size] = rotation.getX();
+		yrot[size] = rotation.getY();
+		zrot[size] = rotation.getZ();
+		wrot[size] = rotation.getW();
+		speed[size] = carSpeed;
+		size++;
+	}
+	
+	
+	private void grow()
+	{
+		int capacity = 2 * timeStamp.length;
+		timeStamp = Arrays.copyOf(timeStamp, capacity);
+		xpos = Arrays.copyOf(xpos, capacity);
+		ypos = Arrays.copyOf(ypos, capacity);
+		zpos = Arrays.copyOf(zpos, capacity);
+		xrot = Arrays.copyOf(xrot, capacity);
+		yrot = Arrays.copyOf(yrot, capacity);
+		zrot = Arrays.copyOf(zrot, capacity);
+		wrot = Arrays.copyOf(wrot, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+	}
+	
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+	
+	
+	public long getTimeStamp(int index)
+	{
+		return timeStamp[index];
+	}
+	
+	
+	public float getX(int index)
+	{
+		return xpos[index];
+	}
+	
+	
+	public float getY(int index)
+	{
+		return ypos[index];
+	}
+	
+	
+	public float getZ(int index)
+	{
+		return zpos[index];
+	}
+	
+	
+	public float getSpeed(int index)
+	{
+		return speed[index];
+	}
+	
+	
+	/**
+	 * Returns the position of the given sample.
+	 * 
+	 * @param index
+	 * 			Index of the sample.
+	 * 
+	 * @param store
+	 * 			Vector to store the position in (a new one will be created if null).
+	 * 
+	 * @return
+	 * 			Position of the car.
+	 */
+	public Vector3f getPosition(int index, Vector3f store)
+	{
+		if(store == null)
+			store = new Vector3f();
+		
+		return store.set(xpos[index], ypos[index], zpos[index]);
+	}
+	
+	
+	/**
+	 * Returns the rotation of the given sample.
+	 * 
+	 * @param index
+	 * 			Index of the sample.
+	 * 
+	 * @param store
+	 * 			Quaternion to store the rotation in (a new one will be created if null).
+	 * 
+	 * @return
+	 * 			Rotation of the car.
+	 */
+	public Quaternion getRotation(int index, Quaternion store)
+	{
+		if(store == null)
+			store = new Quaternion();
+		
+		return store.set(xrot[index], yrot[index], zrot[index], wrot[index]);
+	}
+	
+	
+	/**
+	 * Returns the positions of all samples, e.g. to build a curve.
+	 */
+	public Vector3f[] getPositions()
+	{
+		Vector3f[] positions = new Vector3f[size];
+		for(int i = 0; i < size; i++)
+			positions[i] = new Vector3f(xpos[i], ypos[i], zpos[i]);
+		
+		return positions;
+	}
+	
+	
+	/**
+	 * Looks up the last sample recorded at or before the given time by 
+	 * binary search.
+	 * 
+	 * @param time
+	 * 			Time stamp (in milliseconds).
+	 * 
+	 * @return
+	 * 			Index of the sample or -1 if all samples were recorded later.
+	 */
+	public int getIndex(long time)
+	{
+		int low = 0;
+		int high = size - 1;
+		
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(timeStamp[mid] <= time)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		
+		return high;
+	}
+	
+	
+	/**
+	 * Returns the position of the car at the given time by linear 
+	 * interpolation between the two adjacent samples.
+	 * 
+	 * @param time
+	 * 			Time stamp (in milliseconds).
+	 * 
+	 * @param store
+	 * 			Vector to store the position in (a new one will be created if null).
+	 * 
+	 * @return
+	 * 			Interpolated position (position of first/last sample if time
+	 * 			is out of range).
+	 */
+	public Vector3f interpolatePosition(long time, Vector3f store)
+	{
+		if(store == null)
+			store = new Vector3f();
+		
+		int index = Math.max(getIndex(time), 0);
+		if(index >= size - 1)
+			return getPosition(index, store);
+		
+		float t = getInterpolationFactor(index, time);
+		return store.set(FastMath.interpolateLinear(t, xpos[index], xpos[index+1]), 
+				FastMath.interpolateLinear(t, ypos[index], ypos[index+1]), 
+				FastMath.interpolateLinear(t, zpos[index], zpos[index+1]));
+	}
+	
+	
+	/**
+	 * Returns the rotation of the car at the given time by spherical linear
+	 * interpolation between the two adjacent samples.
+	 * 
+	 * @param time
+	 * 			Time stamp (in milliseconds).
+	 * 
+	 * @param store
+	 * 			Quaternion to store the rotation in (a new one will be created if null).
+	 * 
+	 * @return
+	 * 			Interpolated rotation (rotation of first/last sample if time
+	 * 			is out of range).
+	 */
+	public Quaternion interpolateRotation(long time, Quaternion store)
+	{
+		if(store == null)
+			store = new Quaternion();
+		
+		int index = Math.max(getIndex(time), 0);
+		if(index >= size - 1)
+			return getRotation(index, store);
+		
+		float t = getInterpolationFactor(index, time);
+		Quaternion previous = getRotation(index, new Quaternion());
+		Quaternion next = getRotation(index + 1, new Quaternion());
+		return store.slerp(previous, next, t);
+	}
+	
+	
+	/**
+	 * Returns the speed of the car (in km/h) at the given time by linear 
+	 * interpolation between the two adjacent samples.
+	 */
+	public float interpolateSpeed(long time)
+	{
+		int index = Math.max(getIndex(time), 0);
+		if(index >= size - 1)
+			return speed[index];
+		
+		return FastMath.interpolateLinear(getInterpolationFactor(index, time), speed[index], speed[index+1]);
+	}
+	
+	
+	/**
+	 * Simplifies the driven line between the given samples by the 
+	 * Douglas-Peucker algorithm, i.e. only samples deviating more than the 
+	 * given tolerance from the simplified line will be kept.
+	 * 
+	 * @param from
+	 * 			Index of the first sample (will always be kept).
+	 * 
+	 * @param to
+	 * 			Index of the last sample (inclusive, will always be kept).
+	 * 
+	 * @param tolerance
+	 * 			Maximum distance (in meters) of a removed sample from the 
+	 * 			simplified line.
+	 * 
+	 * @return
+	 * 			Indices of the remaining samples in ascending order.
+	 */
+	public int[] simplify(int from, int to, float tolerance)
+	{
+		if(to - from < 2 || tolerance <= 0)
+		{
+			int[] indices = new int[to - from + 1];
+			for(int i = 0; i < indices.length; i++)
+				indices[i] = from + i;
+			return indices;
+		}
+		
+		boolean[] keep = new boolean[to - from + 1];
+		keep[0] = true;
+		keep[to - from] = true;
+		int keepCount = 2;
+		
+		// ranges still to be checked (without recursion, as drives may be long)
+		int[] stack = new int[64];
+		int stackSize = 0;
+		stack[stackSize++] = from;
+		stack[stackSize++] = to;
+		
+		float squaredTolerance = tolerance * tolerance;
+		
+		while(stackSize > 0)
+		{
+			int end = stack[--stackSize];
+			int start = stack[--stackSize];
+			
+			int farthest = -1;
+			float maxSquaredDistance = squaredTolerance;
+			for(int i = start + 1; i < end; i++)
+			{
+				float squaredDistance = getSquaredSegmentDistance(i, start, end);
+				if(squaredDistance > maxSquaredDistance)
+				{
+					maxSquaredDistance = squaredDistance;
+					farthest = i;
+				}
+			}
+			
+			if(farthest >= 0)
+			{
+				keep[farthest - from] = true;
+				keepCount++;
+				
+				if(stackSize + 4 > stack.length)
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				
+				if(farthest - start >= 2)
+				{
+					stack[stackSize++] = start;
+					stack[stackSize++] = farthest;
+				}
+				if(end - farthest >= 2)
+				{
+					stack[stackSize++] = farthest;
+					stack[stackSize++] = end;
+				}
+			}
+		}
+		
+		int[] indices = new int[keepCount];
+		int count = 0;
+		for(int i = 0; i < keep.length; i++)
+			if(keep[i])
+				indices[count++] = from + i;
+		
+		return indices;
+	}
+	
+	
+	/**
+	 * Squared distance of the given sample from the line segment between 
+	 * the samples start and end.
+	 */
+	private float getSquaredSegmentDistance(int index, int start, int end)
+	{
+		float segmentX = xpos[end] - xpos[start];
+		float segmentY = ypos[end] - ypos[start];
+		float segmentZ = zpos[end] - zpos[start];
+		
+		float dx = xpos[index] - xpos[start];
+		float dy = ypos[index] - ypos[start];
+		float dz = zpos[index] - zpos[start];
+		
+		float squaredLength = segmentX*segmentX + segmentY*segmentY + segmentZ*segmentZ;
+		if(squaredLength > 0)
+		{
+			float t = FastMath.clamp((dx*segmentX + dy*segmentY + dz*segmentZ) / squaredLength, 0, 1);
+			dx -= t * segmentX;
+			dy -= t * segmentY;
+			dz -= t * segmentZ;
+		}
+		
+		return dx*dx + dy*dy + dz*dz;
+	}
+	
+	
+	private float getInterpolationFactor(int index, long time)
+	{
+		long duration = timeStamp[index+1] - timeStamp[index];
+		if(duration <= 0)
+			return 0;
+		
+		return FastMath.clamp((time - timeStamp[index]) / (float) duration, 0, 1);
+	}
+}
@@ -0,0 +1,155 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.Arrays;
+
+/**
+ * Grid over the x/z-plane containing the indices of all way points of a 
+ * recorded drive. Within a cell, indices are stored in ascending order. 
+ * Once built, the grid is read-only and may be queried by several threads 
+ * at the same time.
+ * 
+ * @author Rafael Math
+ */
+public class WayPointGrid 
+{
+	// limits the number of cells for very long drives (cell size will be increased)
+	private static final int MAX_NUMBER_OF_CELLS = 1 << 22;
+	
+	private float cellSize;
+	private float minX;
+	private float minZ;
+	private int columns;
+	private int rows;
+	private int[] cellStart;
+	private int[] items;
+	
+	
+	/**
+	 * Sorts the given way points into a grid.
+	 * 
+	 * @param xpos
+	 * 			x-coordinates of the way points.
+	 * 
+	 * @param zpos
+	 * 			z-coordinates of the way points.
+	 * 
+	 * @param size
+	 * 			Number of way points.
+	 * 
+	 * @param cellSize
+	 * 			Minimum edge length (in meters) of a grid cell.
+	 */
+	public WayPointGrid(float[] xpos, float[] zpos, int size, float cellSize)
+	{
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxZ = Float.NEGATIVE_INFINITY;
+		minX = Float.POSITIVE_INFINITY;
+		minZ = Float.POSITIVE_INFINITY;
+		
+		for(int i = 0; i < size; i++)
+		{
+			minX = Math.min(minX, xpos[i]);
+			minZ = Math.min(minZ, zpos[i]);
+			maxX = Math.max(maxX, xpos[i]);
+			maxZ = Math.max(maxZ, zpos[i]);
+		}
+		
+		if(size == 0)
+		{
+			minX = minZ = maxX = maxZ = 0;
+		}
+		
+		// enlarge cells until grid does not exceed the maximum number of cells
+		while(((long) getCell(maxX, minX, cellSize) + 1) * ((long) getCell(maxZ, minZ, cellSize) + 1) 
+				> MAX_NUMBER_OF_CELLS)
+			cellSize *= 2;
+		
+		this.cellSize = cellSize;
+		columns = getCell(maxX, minX, cellSize) + 1;
+		rows = getCell(maxZ, minZ, cellSize) + 1;
+		
+		// counting sort of way point indices by cell
+		cellStart = new int[columns * rows + 1];
+		for(int i = 0; i < size; i++)
+			cellStart[getCellIndex(xpos[i], zpos[i]) + 1]++;
+		
+		for(int c = 0; c < columns * rows; c++)
+			cellStart[c + 1] += cellStart[c];
+		
+		int[] position = new int[columns * rows];
+		items = new int[size];
+		for(int i = 0; i < size; i++)
+		{
+			int cell = getCellIndex(xpos[i], zpos[i]);
+			items[cellStart[cell] + position[cell]] = i;
+			position[cell]++;
+		}
+	}
+	
+	
+	/**
+	 * Returns the indices of all way points in the cells overlapping the 
+	 * given rectangle (a superset of the way points located in it).
+	 * 
+	 * @return
+	 * 			Way point indices in ascending order.
+	 */
+	public int[] query(float fromX, float fromZ, float toX, float toZ)
+	{
+		int minColumn = Math.max(getCell(fromX, minX, cellSize), 0);
+		int maxColumn = Math.min(getCell(toX, minX, cellSize), columns - 1);
+		int minRow = Math.max(getCell(fromZ, minZ, cellSize), 0);
+		int maxRow = Math.min(getCell(toZ, minZ, cellSize), rows - 1);
+		
+		if(minColumn > maxColumn || minRow > maxRow)
+			return new int[0];
+		
+		int count = 0;
+		for(int row = minRow; row <= maxRow; row++)
+			count += cellStart[row * columns + maxColumn + 1] - cellStart[row * columns + minColumn];
+		
+		// cells of a row are adjacent in the items array
+		int[] result = new int[count];
+		int offset = 0;
+		for(int row = minRow; row <= maxRow; row++)
+		{
+			int start = cellStart[row * columns + minColumn];
+			int end = cellStart[row * columns + maxColumn + 1];
+			System.arraycopy(items, start, result, offset, end - start);
+			offset += end - start;
+		}
+		
+		Arrays.sort(result);
+		return result;
+	}
+	
+	
+	private int getCellIndex(float x, float z)
+	{
+		return getCell(z, minZ, cellSize) * columns + getCell(x, minX, cellSize);
+	}
+	
+	
+	private static int getCell(float coordinate, float min, float cellSize)
+	{
+		return (int) Math.floor((coordinate - min) / cellSize);
+	}
+}
@@ -18,7 +18,10 @@
 
 package eu.opends.audio;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -27,22 +30,47 @@ import com.jme3.audio.AudioRenderer;
 //import com.jme3.audio.Environment;
 import com.jme3.audio.Listener;
 import com.jme3.audio.AudioNode.Status;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 
+import eu.opends.audio.VoicePool.Priority;
 import eu.opends.main.Simulator;
+import eu.opends.tools.TimerCenter;
 
 /**
+ * Plays all sounds of the simulator. Parameters of the audio renderer
+ * (listener, engine pitch and volume, volume changes) will only be passed 
+ * on if they have changed; sounds will only be paused or resumed when the 
+ * simulator is paused or resumed. Apart from engine and horn, all sounds 
+ * are played on a fixed number of voices (cf. VoicePool).
  * 
  * @author Rafael Math
  */
 public class AudioCenter 
 {
+	private static final int NUMBER_OF_VOICES = 16;
+	
+	// pitch and volume changes below this value will not be passed on
+	private static final float ENGINE_SOUND_TOLERANCE = 0.001f;
+	
+	// sounds not played on the voice pool
+	private static final List<String> reservedSounds = 
+		Arrays.asList("engineStart", "engineIdle", "engineStop", "horn");
+	
 	private static Simulator sim;
 	private static float engineVolume;
 	private static AudioRenderer audioRenderer;
 	private static Listener listener;
 	private static Map<String,AudioNode> audioNodeList;
 	private static Map<String,Float> audioNodeVolumeList;
+	private static VoicePool voicePool;
+	private static boolean isPaused = false;
+	private static List<AudioNode> pausedAudioNodeList = new ArrayList<AudioNode>();
+	private static Vector3f listenerLocation = new Vector3f();
+	private static Quaternion listenerRotation = new Quaternion();
+	private static float enginePitch = -1;
+	private static float engineIdleVolume = -1;
 
 
 	public static void init(Simulator sim) 
@@ -52,6 +80,16 @@ public class AudioCenter
 		listener = sim.getListener();
 		audioNodeList = AudioFiles.load(sim);
 		audioNodeVolumeList = new HashMap<String,Float>();
+		voicePool = new VoicePool(audioRenderer, NUMBER_OF_VOICES);
+		
+		// reset state of a previous simulation run
+		isPaused = false;
+		pausedAudioNodeList.clear();
+		listenerLocation = new Vector3f();
+		listenerRotation = new Quaternion();
+		enginePitch = -1;
+		engineIdleVolume = -1;
+		
 		engineVolume = Simulator.getDrivingTask().getScenarioLoader().getEngineSoundIntensity(-1f);
 		
 		//audioRenderer.setEnvironment(new Environment(Environment.Dungeon));
@@ -78,29 +116,105 @@ public class AudioCenter
 
 	
 	public static void playSound(String soundID)
+	{
+		playSound(soundID, Priority.NORMAL);
+	}
+	
+	
+	/**
+	 * Plays the given sound. Engine and horn sounds will always be played, 
+	 * other sounds will be assigned to a voice of the pool and may be dropped 
+	 * (or stopped later) in favor of sounds of higher priority.
+	 * 
+	 * @param soundID
+	 * 			ID of the sound.
+	 * 
+	 * @param priority
+	 * 			Priority of the sound (ignored for engine and horn).
+	 */
+	public static void playSound(String soundID, Priority priority)
 	{
 		if(soundID != null)
 		{
 			AudioNode audioNode = audioNodeList.get(soundID);
 			if(audioNode != null)
-				audioRenderer.playSource(audioNode);
+			{
+				if(reservedSounds.contains(soundID))
+					audioRenderer.playSource(audioNode);
+				else if(!voicePool.play(audioNode, priority))
+					return;
+				
+				// sounds started during pause will be played after resume
+				if(isPaused)
+				{
+					audioRenderer.pauseSource(audioNode);
+					if(!pausedAudioNodeList.contains(audioNode))
+						pausedAudioNodeList.add(audioNode);
+				}
+			}
 			else
 				System.err.println("AudioNode '" + soundID + "' does not exist!");
 		}
 	}
 	
 	
-	public static void playSoundDelayed(String soundID, int milliSeconds)
+	public static void playSoundDelayed(final String soundID, int milliSeconds)
 	{
-		AudioDelayThread t = new AudioDelayThread(soundID, milliSeconds, "playSound");
-		t.start();
+		TimerCenter.schedule(new Runnable()
+		{
+			public void run() 
+			{
+				playSound(soundID);
+			}
+		}, milliSeconds/1000f);
 	}
 	
 	
 	private static void fadeOut(String soundID, int milliSeconds) 
 	{
-		AudioDelayThread t = new AudioDelayThread(soundID, milliSeconds, "fadeOut");
-		t.start();
+		TimerCenter.schedule(new FadeOutTask(soundID), milliSeconds/1000f);
+	}
+	
+	
+	/**
+	 * Decreases the volume of a sound by 0.1 every 200 milliseconds until 
+	 * it is silent. Then the sound will be stopped and its initial volume 
+	 * restored.
+	 */
+	private static class FadeOutTask implements Runnable
+	{
+		private String soundID;
+		private float initialVolume = -1;
+		private float volume;
+		
+		
+		public FadeOutTask(String soundID)
+		{
+			this.soundID = soundID;
+		}
+		
+		
+		public void run() 
+		{
+			if(initialVolume == -1)
+			{
+				initialVolume = getAudioNode(soundID).getVolume();
+				volume = initialVolume;
+				TimerCenter.schedule(this, 0.2f);
+				return;
+			}
+			
+			volume = Math.max(volume - 0.1f,0);
+			setVolume(soundID, volume);
+			
+			if(volume > 0)
+				TimerCenter.schedule(this, 0.2f);
+			else
+			{
+				stopSound(soundID);
+				setVolume(soundID, initialVolume);
+			}
+		}
 	}
 
 	
@@ -110,6 +224,9 @@ public class AudioCenter
 	}
 	
 	
+	/**
+	 * Changes the volume of a sound with the next update (once).
+	 */
 	public static void setVolume(String soundID, float volume)
 	{
 		audioNodeVolumeList.put(soundID, volume);
@@ -119,46 +236,87 @@ public class AudioCenter
 	public static void update(float tpf, Camera cam)
 	{
 		// when simulator is paused, all sound output will be paused
-		if(sim.isPause())
-			pauseAllSoundEffects();
-		else
-			resumeAllSoundEffects();
+		boolean pause = sim.isPause();
+		if(pause != isPaused)
+		{
+			if(pause)
+				pauseAllSoundEffects();
+			else
+				resumeAllSoundEffects();
+			
+			isPaused = pause;
+		}
 		
 		// adjust listener's position to camera position
-		listener.setLocation(cam.getLocation());
-		listener.setRotation(cam.getRotation());
+		if(!listenerLocation.equals(cam.getLocation()))
+		{
+			listenerLocation.set(cam.getLocation());
+			listener.setLocation(listenerLocation);
+		}
+		
+		if(!listenerRotation.equals(cam.getRotation()))
+		{
+			listenerRotation.set(cam.getRotation());
+			listener.setRotation(listenerRotation);
+		}
 		
 		// engine sound (pitch and volume) is adjusted to current RPM
 		float engineSpeedPercentage = sim.getCar().getTransmission().getRPMPercentage();
 		AudioNode engineIdle = audioNodeList.get("engineIdle");
-		engineIdle.setPitch(1f + engineSpeedPercentage);
 		
+		float pitch = 1f + engineSpeedPercentage;
+		if(Math.abs(pitch - enginePitch) >= ENGINE_SOUND_TOLERANCE)
+		{
+			engineIdle.setPitch(pitch);
+			enginePitch = pitch;
+		}
+		
+		float volume = engineVolume;
 		if(engineVolume == -1)
-			engineIdle.setVolume(0.25f + 0.5f * engineSpeedPercentage);
-		else
-			engineIdle.setVolume(engineVolume);
+			volume = 0.25f + 0.5f * engineSpeedPercentage;
+		
+		if(Math.abs(volume - engineIdleVolume) >= ENGINE_SOUND_TOLERANCE)
+		{
+			engineIdle.setVolume(volume);
+			engineIdleVolume = volume;
+		}
 		
-		// perform volume updates
-		for(Entry<String, Float> entry : audioNodeVolumeList.entrySet())
-			getAudioNode(entry.getKey()).setVolume(entry.getValue());
+		// perform pending volume updates
+		if(!audioNodeVolumeList.isEmpty())
+		{
+			for(Entry<String, Float> entry : audioNodeVolumeList.entrySet())
+			{
+				AudioNode audioNode = getAudioNode(entry.getKey());
+				if(audioNode.getVolume() != entry.getValue())
+					audioNode.setVolume(entry.getValue());
+			}
+			audioNodeVolumeList.clear();
+		}
 	}
 
 	
 	private static void pauseAllSoundEffects() 
 	{
-		for(Entry<String, AudioNode> entry : audioNodeList.entrySet())
-			audioRenderer.pauseSource(entry.getValue());
+		for(AudioNode audioNode : audioNodeList.values())
+		{
+			if(audioNode.getStatus() == Status.Playing)
+			{
+				audioRenderer.pauseSource(audioNode);
+				pausedAudioNodeList.add(audioNode);
+			}
+		}
 	}
 
 	
 	private static void resumeAllSoundEffects() 
 	{
-		for(Entry<String, AudioNode> entry : audioNodeList.entrySet())
+		// only sounds paused by the simulator (stopped sounds remain stopped)
+		for(AudioNode audioNode : pausedAudioNodeList)
 		{
-			AudioNode audioNode = entry.getValue();
 			if(audioNode.getStatus() == Status.Paused)
 				audioRenderer.playSource(audioNode);
 		}
+		pausedAudioNodeList.clear();
 	}
 
 
@@ -0,0 +1,131 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.audio;
+
+import com.jme3.audio.AudioNode;
+import com.jme3.audio.AudioRenderer;
+import com.jme3.audio.AudioNode.Status;
+
+/**
+ * Fixed number of voices for short sound effects (collision and trigger
+ * sounds). If all voices are busy, the voice playing the sound with the
+ * lowest priority (the oldest one, if equal) will be stolen, provided that
+ * its priority does not exceed the priority of the new sound. Otherwise the
+ * new sound will be dropped. Voices of finished sounds will be released
+ * when the next sound is requested, hence, no per-frame bookkeeping is
+ * needed.
+ *
+ * @author Rafael Math
+ */
+public class VoicePool
+{
+	public enum Priority
+	{
+		LOW, NORMAL, HIGH;
+	}
+
+
+	private static class Voice
+	{
+		private AudioNode audioNode = null;
+		private Priority priority;
+		private long startIndex;
+	}
+
+
+	private AudioRenderer audioRenderer;
+	private Voice[] voices;
+	private long startCounter = 0;
+
+
+	public VoicePool(AudioRenderer audioRenderer, int numberOfVoices)
+	{
+		this.audioRenderer = audioRenderer;
+
+		voices = new Voice[numberOfVoices];
+		for(int i=0; i<numberOfVoices; i++)
+			voices[i] = new Voice();
+	}
+
+
+	/**
+	 * Plays the given sound on a free (or stolen) voice. If the sound is
+	 * already assigned to a voice, this voice will be used again.
+	 *
+	 * @param audioNode
+	 * 			Sound to play.
+	 *
+	 * @param priority
+	 * 			Priority of the sound.
+	 *
+	 * @return
+	 * 			true, if the sound has been started; false, if it has been
+	 * 			dropped as all voices are playing sounds of higher priority.
+	 */
+	public boolean play(AudioNode audioNode, Priority priority)
+	{
+		Voice freeVoice = null;
+		Voice victim = null;
+
+		for(Voice voice : voices)
+		{
+			if(voice.audioNode == audioNode)
+			{
+				// sound keeps its voice
+				freeVoice = voice;
+				break;
+			}
+
+			// release voice if sound has finished (or has been stopped)
+			if(voice.audioNode != null && voice.audioNode.getStatus() == Status.Stopped)
+				voice.audioNode = null;
+
+			if(voice.audioNode == null)
+			{
+				if(freeVoice == null)
+					freeVoice = voice;
+			}
+			else if(victim == null || isLessImportant(voice, victim))
+				victim = voice;
+		}
+
+		if(freeVoice == null)
+		{
+			if(victim.priority.compareTo(priority) > 0)
+				return false;
+
+			audioRenderer.stopSource(victim.audioNode);
+			freeVoice = victim;
+		}
+
+		freeVoice.audioNode = audioNode;
+		freeVoice.priority = priority;
+		freeVoice.startIndex = startCounter++;
+
+		audioRenderer.playSource(audioNode);
+		return true;
+	}
+
+
+	private static boolean isLessImportant(Voice voice, Voice otherVoice)
+	{
+		int comparison = voice.priority.compareTo(otherVoice.priority);
+		return (comparison < 0) || (comparison == 0 && voice.startIndex < otherVoice.startIndex);
+	}
+}
@@ -0,0 +1,179 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.basics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+
+/**
+ * Collision shapes of all map objects of a scene, which can be stored in
+ * the driving task cache (J3O format). For each map object, the shape of
+ * the object itself (if physical) and the shapes of all traffic lights
+ * extracted from its model are kept.
+ *
+ * @author Rafael Math
+ */
+public class CollisionShapeSet implements Savable
+{
+	private String[] names = new String[0];
+	private boolean[] hasShape = new boolean[0];
+	private int[] trafficLightCounts = new int[0];
+
+	// shape of each object (if available) followed by the shapes of its traffic lights
+	private ArrayList<CollisionShape> shapes = new ArrayList<CollisionShape>();
+	private int[] offsets = new int[0];
+
+
+	/**
+	 * Needed for loading from J3O.
+	 */
+	public CollisionShapeSet()
+	{
+	}
+
+
+	/**
+	 * Creates a set of collision shapes.
+	 *
+	 * @param names
+	 * 			Names of the map objects.
+	 *
+	 * @param objectShapes
+	 * 			Collision shape of each map object (null if not physical).
+	 *
+	 * @param trafficLightShapes
+	 * 			Collision shapes of the traffic lights of each map object.
+	 */
+	public CollisionShapeSet(List<String> names, List<CollisionShape> objectShapes,
+			List<List<CollisionShape>> trafficLightShapes)
+	{
+		int size = names.size();
+		this.names = names.toArray(new String[size]);
+		this.hasShape = new boolean[size];
+		this.trafficLightCounts = new int[size];
+
+		for(int i=0; i<size; i++)
+		{
+			CollisionShape objectShape = objectShapes.get(i);
+			if(objectShape != null)
+			{
+				hasShape[i] = true;
+				shapes.add(objectShape);
+			}
+
+			trafficLightCounts[i] = trafficLightShapes.get(i).size();
+			shapes.addAll(trafficLightShapes.get(i));
+		}
+
+		computeOffsets();
+	}
+
+
+	private int computeOffsets()
+	{
+		offsets = new int[names.length];
+
+		int offset = 0;
+		for(int i=0; i<names.length; i++)
+		{
+			offsets[i] = offset;
+			offset += (hasShape[i] ? 1 : 0) + trafficLightCounts[i];
+		}
+		
+		return offset;
+	}
+
+
+	public int getNumberOfObjects()
+	{
+		return names.length;
+	}
+
+
+	public String getName(int index)
+	{
+		return names[index];
+	}
+
+
+	/**
+	 * Returns the collision shape of the given map object.
+	 *
+	 * @param index
+	 * 			Index of the map object.
+	 *
+	 * @return
+	 * 			Collision shape or null, if the object is not physical.
+	 */
+	public CollisionShape getObjectShape(int index)
+	{
+		return hasShape[index] ? shapes.get(offsets[index]) : null;
+	}
+
+
+	/**
+	 * Returns the collision shapes of the traffic lights of the given map object.
+	 *
+	 * @param index
+	 * 			Index of the map object.
+	 *
+	 * @return
+	 * 			List of collision shapes (in order of extraction).
+	 */
+	public List<CollisionShape> getTrafficLightShapes(int index)
+	{
+		int start = offsets[index] + (hasShape[index] ? 1 : 0);
+		return shapes.subList(start, start + trafficLightCounts[index]);
+	}
+
+
+	@Override
+	public void write(JmeExporter exporter) throws IOException
+	{
+		OutputCapsule capsule = exporter.getCapsule(this);
+		capsule.write(names, "names", new String[0]);
+		capsule.write(hasShape, "hasShape", new boolean[0]);
+		capsule.write(trafficLightCounts, "trafficLightCounts", new int[0]);
+		capsule.writeSavableArrayList(shapes, "shapes", new ArrayList<CollisionShape>());
+	}
+
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void read(JmeImporter importer) throws IOException
+	{
+		InputCapsule capsule = importer.getCapsule(this);
+		names = capsule.readStringArray("names", new String[0]);
+		hasShape = capsule.readBooleanArray("hasShape", new boolean[0]);
+		trafficLightCounts = capsule.readIntArray("trafficLightCounts", new int[0]);
+		shapes = capsule.readSavableArrayList("shapes", new ArrayList<CollisionShape>());
+
+		if(hasShape.length != names.length || trafficLightCounts.length != names.length ||
+				computeOffsets() != shapes.size())
+			throw new IOException("Inconsistent collision shape set");
+	}
+}
@@ -18,15 +18,24 @@
 
 package eu.opends.basics;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.jme3.bounding.BoundingBox;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.control.RigidBodyControl;
 import com.jme3.bullet.util.CollisionShapeFactory;
+import com.jme3.export.Savable;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Quaternion;
@@ -37,7 +46,10 @@ import com.jme3.scene.Spatial;
 import com.jme3.scene.Spatial.CullHint;
 import com.jme3.scene.shape.Box;
 
+import eu.opends.drivingTask.DrivingTaskCache;
+import eu.opends.drivingTask.scene.ModelLoader;
 import eu.opends.main.Simulator;
+import eu.opends.tools.WorkerPool;
 
 /**
  * This class is used to further process the elements on the map.
@@ -91,11 +103,8 @@ public class InternalMapProcessing
 	}
 
 
-	private void addToPhysicsSpace(Spatial node) 
+	private void addToPhysicsSpace(Spatial node, CollisionShape sceneShape) 
 	{
-		// We set up collision detection for the scene by creating a
-        // compound collision shape and a static physics node with mass zero.
-        CollisionShape sceneShape = CollisionShapeFactory.createMeshShape(node);
         RigidBodyControl sceneControl = new RigidBodyControl(sceneShape, 0);
         node.addControl(sceneControl);
         
@@ -105,117 +114,344 @@ public class InternalMapProcessing
 
 	
 	
+	/**
+	 * Map object which has been prepared for being added to the scene: 
+	 * the node containing the object's spatial and the collision shapes of 
+	 * the node and of all traffic lights extracted from it.
+	 */
+	private static class PreparedMapObject
+	{
+		private MapObject mapObject;
+		private Node node;
+		private boolean isPhysical;
+		private CollisionShape collisionShape = null;
+		private List<Spatial> trafficLights = new ArrayList<Spatial>();
+		private List<CollisionShape> trafficLightShapes = new ArrayList<CollisionShape>();
+	}
+	
+	
 	/**
 	 * Converts a list of map objects into a list of spatial objects which 
-	 * can be added to the simulators scene graph.
+	 * can be added to the simulators scene graph. Collision shapes will be 
+	 * built in parallel on the worker pool, whereas the scene graph and the 
+	 * physics space will only be modified on the calling (render) thread.
 	 * 
 	 * @param mapObjects
 	 * 			List of map objects to convert
-	 * 
-	 * @return
-	 * 			List of spatial objects
 	 */
 	private void addMapObjectsToScene(List<MapObject> mapObjects)
-	{			
+	{
+		long startTime = System.currentTimeMillis();
+		
+		// stage 1: set up nodes (not yet attached to the scene)
+		List<PreparedMapObject> preparedMapObjects = new ArrayList<PreparedMapObject>(mapObjects.size());
 		for(MapObject mapObject : mapObjects)
-		{	
-			Node node = new Node(mapObject.getName());
+			preparedMapObjects.add(prepareMapObject(mapObject));
+		
+		// stage 2: get collision shapes from cache or build them in parallel
+		DrivingTaskCache cache = Simulator.getDrivingTask().getCache();
+		String modelHash = (cache != null) ? hashModelFiles(cache, mapObjects) : null;
+		if(modelHash == null)
+			cache = null;
+		String cacheEntry = "collisionShapes-" + modelHash + ".j3o";
+		
+		Savable cachedShapes = (cache != null) ? cache.loadSavable(cacheEntry, sim.getAssetManager()) : null;
+		if(cachedShapes instanceof CollisionShapeSet && 
+				applyCollisionShapes((CollisionShapeSet) cachedShapes, preparedMapObjects))
+		{
+			System.out.println("Collision shapes loaded from cache");
+		}
+		else if(buildCollisionShapes(preparedMapObjects) && cache != null)
+		{
+			cache.saveSavable(cacheEntry, createCollisionShapeSet(preparedMapObjects));
+		}
+		
+		// stage 3: add map objects to physics space and scene graph
+		for(PreparedMapObject preparedMapObject : preparedMapObjects)
+			addToScene(preparedMapObject);
+		
+		System.out.println("Added " + mapObjects.size() + " map objects to scene (" + 
+				(System.currentTimeMillis() - startTime) + " ms)");
+	}
+	
+	
+	/**
+	 * Builds the collision shapes of all given map objects in parallel.
+	 * 
+	 * @return
+	 * 			true, if all collision shapes have been built successfully.
+	 */
+	private boolean buildCollisionShapes(List<PreparedMapObject> preparedMapObjects)
+	{
+		// clones of the same model share their meshes and mesh buffers must not 
+		// be read concurrently, hence all objects made from the same model will 
+		// be processed by the same task
+		Map<String, List<PreparedMapObject>> modelGroups = new LinkedHashMap<String, List<PreparedMapObject>>();
+		for(PreparedMapObject preparedMapObject : preparedMapObjects)
+		{
+			String modelPath = preparedMapObject.mapObject.getModelPath();
+			if(modelPath == null)
+				modelPath = "";
 			
-			Spatial spatial = mapObject.getSpatial();
+			List<PreparedMapObject> group = modelGroups.get(modelPath);
+			if(group == null)
+			{
+				group = new ArrayList<PreparedMapObject>();
+				modelGroups.put(modelPath, group);
+			}
+			group.add(preparedMapObject);
+		}
+		
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(modelGroups.size());
+		for(final List<PreparedMapObject> group : modelGroups.values())
+		{
+			tasks.add(new Callable<Void>()
+			{
+				public Void call()
+				{
+					for(PreparedMapObject preparedMapObject : group)
+						buildCollisionShapes(preparedMapObject);
+					return null;
+				}
+			});
+		}
+		
+		boolean success = true;
+		try {
 			
-        	// set FaceCullMode of spatial's geometries to off
-			// no longer needed, as FaceCullMode.Off is default setting
-			//Util.setFaceCullMode(spatial, FaceCullMode.Off);
+			for(Future<Void> future : WorkerPool.getExecutor().invokeAll(tasks))
+			{
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace();
+					success = false;
+				}
+			}
 			
-	    	node.attachChild(spatial);
-	    	
-	    	
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			success = false;
+		}
+		
+		return success;
+	}
+	
+	
+	/**
+	 * Computes a hash of all files the given map objects are made from,
+	 * including the assets referenced by the model files. Collision shapes
+	 * must be rebuilt whenever one of these files changes.
+	 * 
+	 * @return
+	 * 			Hash or null, if the files of a model are not known (i.e. 
+	 * 			collision shapes must not be cached).
+	 */
+	private String hashModelFiles(DrivingTaskCache cache, List<MapObject> mapObjects)
+	{
+		Set<File> modelFiles = new LinkedHashSet<File>();
+		for(MapObject mapObject : mapObjects)
+		{
+			String modelPath = mapObject.getModelPath();
+			if(modelPath != null && !modelPath.equals(""))
+			{
+				List<File> files = ModelLoader.getModelFiles(cache, modelPath);
+				if(files == null)
+					return null;
+				
+				modelFiles.addAll(files);
+			}
+		}
+		
+		return DrivingTaskCache.hash(modelFiles);
+	}
+	
+	
+	private CollisionShapeSet createCollisionShapeSet(List<PreparedMapObject> preparedMapObjects)
+	{
+		List<String> names = new ArrayList<String>(preparedMapObjects.size());
+		List<CollisionShape> objectShapes = new ArrayList<CollisionShape>(preparedMapObjects.size());
+		List<List<CollisionShape>> trafficLightShapes = new ArrayList<List<CollisionShape>>(preparedMapObjects.size());
+		
+		for(PreparedMapObject preparedMapObject : preparedMapObjects)
+		{
+			names.add(preparedMapObject.mapObject.getName());
+			objectShapes.add(preparedMapObject.collisionShape);
+			trafficLightShapes.add(preparedMapObject.trafficLightShapes);
+		}
+		
+		return new CollisionShapeSet(names, objectShapes, trafficLightShapes);
+	}
+	
+	
+	/**
+	 * Assigns the cached collision shapes to the given map objects.
+	 * 
+	 * @return
+	 * 			false, if the cached shapes do not match the map objects.
+	 */
+	private boolean applyCollisionShapes(CollisionShapeSet shapeSet, List<PreparedMapObject> preparedMapObjects)
+	{
+		if(shapeSet.getNumberOfObjects() != preparedMapObjects.size())
+			return false;
+		
+		for(int i=0; i<preparedMapObjects.size(); i++)
+		{
+			PreparedMapObject preparedMapObject = preparedMapObjects.get(i);
+			if(!shapeSet.getName(i).equals(preparedMapObject.mapObject.getName()) ||
+					(shapeSet.getObjectShape(i) != null) != preparedMapObject.isPhysical ||
+					shapeSet.getTrafficLightShapes(i).size() != preparedMapObject.trafficLights.size())
+				return false;
+		}
+		
+		for(int i=0; i<preparedMapObjects.size(); i++)
+		{
+			PreparedMapObject preparedMapObject = preparedMapObjects.get(i);
+			preparedMapObject.collisionShape = shapeSet.getObjectShape(i);
+			preparedMapObject.trafficLightShapes = new ArrayList<CollisionShape>(shapeSet.getTrafficLightShapes(i));
+		}
+		
+		return true;
+	}
+	
+	
+	private PreparedMapObject prepareMapObject(MapObject mapObject)
+	{
+		PreparedMapObject preparedMapObject = new PreparedMapObject();
+		preparedMapObject.mapObject = mapObject;
+		
+		Node node = new Node(mapObject.getName());
+		preparedMapObject.node = node;
+		
+		Spatial spatial = mapObject.getSpatial();
+		
+    	// set FaceCullMode of spatial's geometries to off
+		// no longer needed, as FaceCullMode.Off is default setting
+		//Util.setFaceCullMode(spatial, FaceCullMode.Off);
+		
+    	node.attachChild(spatial);
+    	
+    	
 //*******************	TODO   REMOVE  	
 
-	    	Spatial spat;
-	    	if(spatial instanceof Node)
-	    	{
-	    		for (Iterator<Spatial> it = ((Node) spatial).getChildren().iterator(); it.hasNext();) 
-	    		{
-	    			spat = it.next();
+    	Spatial spat;
+    	if(spatial instanceof Node)
+    	{
+    		for (Iterator<Spatial> it = ((Node) spatial).getChildren().iterator(); it.hasNext();) 
+    		{
+    			spat = it.next();
 
-	    			if(spat.getName().startsWith("TrafficLight."))
-	    			{
-	    				sceneNode.attachChild(spat);
-	    				addToPhysicsSpace(spat);
-	    				it.remove();
-	    			}
+    			if(spat.getName().startsWith("TrafficLight."))
+    			{
+    				// will be attached to the scene node in stage 3
+    				preparedMapObject.trafficLights.add(spat);
+    				it.remove();
+    			}
 
-	    			if (spat.getName().startsWith("Car.Driver") ||
-	    				spat.getName().startsWith("Car.Reset") ||
-	    				spat.getName().startsWith("Blind_") ||
-	    				spat.getName().startsWith("Pos_") ||
-	    				spat.getName().startsWith("Dyn.Cone") ||
-	    				spat.getName().startsWith("Traffic.") ||
-	    				spat.getName().startsWith("TrafficWP") ||
-	    				spat.getName().startsWith("SpeedLimit_") ||
-	    				spat.getName().startsWith("Caution_") ||
-	    				spat.getName().startsWith("IdealPoint")
-	    				) 
-	    			{
-	    				it.remove();
-	    			}
-	    		}
-	    	}
-	    	
+    			if (spat.getName().startsWith("Car.Driver") ||
+    				spat.getName().startsWith("Car.Reset") ||
+    				spat.getName().startsWith("Blind_") ||
+    				spat.getName().startsWith("Pos_") ||
+    				spat.getName().startsWith("Dyn.Cone") ||
+    				spat.getName().startsWith("Traffic.") ||
+    				spat.getName().startsWith("TrafficWP") ||
+    				spat.getName().startsWith("SpeedLimit_") ||
+    				spat.getName().startsWith("Caution_") ||
+    				spat.getName().startsWith("IdealPoint")
+    				) 
+    			{
+    				it.remove();
+    			}
+    		}
+    	}
+    	
 //*******************	
-	    	
-	    	node.setLocalScale(mapObject.getScale());
+    	
+    	node.setLocalScale(mapObject.getScale());
 
-	        node.updateModelBound();
-	        
-			// if marked as invisible then cull always else cull dynamic
-			if(!mapObject.isVisible())
-				node.setCullHint(CullHint.Always);
-			
-			String collisionShapeString = mapObject.getCollisionShape();
-			if(collisionShapeString == null)
-				collisionShapeString = "meshShape";
+        node.updateModelBound();
+        
+		// if marked as invisible then cull always else cull dynamic
+		if(!mapObject.isVisible())
+			node.setCullHint(CullHint.Always);
+		
+		String collisionShapeString = mapObject.getCollisionShape();
+		if(collisionShapeString == null)
+			collisionShapeString = "meshShape";
+		
+		// FIXME
+		preparedMapObject.isPhysical = !mapObject.getName().startsWith("TrafficLight") && 
+				(collisionShapeString.equalsIgnoreCase("boxShape") ||
+				collisionShapeString.equalsIgnoreCase("meshShape"));
+		
+		return preparedMapObject;
+	}
+	
+	
+	private void buildCollisionShapes(PreparedMapObject preparedMapObject)
+	{
+		// We set up collision detection for the traffic lights by creating a
+        // compound collision shape and a static physics node with mass zero.
+		for(Spatial trafficLight : preparedMapObject.trafficLights)
+			preparedMapObject.trafficLightShapes.add(CollisionShapeFactory.createMeshShape(trafficLight));
+		
+		if(preparedMapObject.isPhysical)
+		{
+			MapObject mapObject = preparedMapObject.mapObject;
+			Node node = preparedMapObject.node;
 			
-			// FIXME
-			if(!mapObject.getName().startsWith("TrafficLight") && (collisionShapeString.equalsIgnoreCase("boxShape") ||
-					collisionShapeString.equalsIgnoreCase("meshShape")))
-			{
-		        CollisionShape collisionShape;
-		        float mass = mapObject.getMass();
-
-		        if(mass == 0)
-		        	// mesh shape for static objects
-		        	collisionShape = CollisionShapeFactory.createMeshShape(node);
+	        if(mapObject.getMass() == 0)
+	        	// mesh shape for static objects
+	        	preparedMapObject.collisionShape = CollisionShapeFactory.createMeshShape(node);
+	        else
+	        {
+		        // set whether triangle accuracy should be applied
+		        if(mapObject.getCollisionShape().equalsIgnoreCase("meshShape"))
+		        	preparedMapObject.collisionShape = CollisionShapeFactory.createDynamicMeshShape(node);
 		        else
-		        {
-			        // set whether triangle accuracy should be applied
-			        if(collisionShapeString.equalsIgnoreCase("meshShape"))
-			        	collisionShape = CollisionShapeFactory.createDynamicMeshShape(node);
-			        else
-			        	collisionShape = CollisionShapeFactory.createBoxShape(node);
-		        }		        
-		        
-		        RigidBodyControl physicsControl = new RigidBodyControl(collisionShape, mass);
-		        node.addControl(physicsControl);
-
-		        physicsControl.setPhysicsLocation(mapObject.getLocation());
-		        physicsControl.setPhysicsRotation(mapObject.getRotation());
-		        
-		        //physicsControl.setFriction(100);
-		        
-		        // add additional map object to physics space
-		        physicsSpace.add(physicsControl);
-			}
-			else
-			{
-				node.setLocalTranslation(mapObject.getLocation());
-		        node.setLocalRotation(mapObject.getRotation());
-			}
+		        	preparedMapObject.collisionShape = CollisionShapeFactory.createBoxShape(node);
+	        }
+		}
+	}
+	
+	
+	private void addToScene(PreparedMapObject preparedMapObject)
+	{
+		MapObject mapObject = preparedMapObject.mapObject;
+		Node node = preparedMapObject.node;
+		
+		for(int i=0; i<preparedMapObject.trafficLights.size(); i++)
+		{
+			Spatial trafficLight = preparedMapObject.trafficLights.get(i);
+			sceneNode.attachChild(trafficLight);
 			
-	        // attach additional map object to scene node
-			sceneNode.attachChild(node);
+			// shape is missing if building collision shapes has failed
+			if(i < preparedMapObject.trafficLightShapes.size())
+				addToPhysicsSpace(trafficLight, preparedMapObject.trafficLightShapes.get(i));
 		}
+		
+		if(preparedMapObject.collisionShape != null)
+		{
+	        RigidBodyControl physicsControl = new RigidBodyControl(preparedMapObject.collisionShape, 
+	        		mapObject.getMass());
+	        node.addControl(physicsControl);
+
+	        physicsControl.setPhysicsLocation(mapObject.getLocation());
+	        physicsControl.setPhysicsRotation(mapObject.getRotation());
+	        
+	        //physicsControl.setFriction(100);
+	        
+	        // add additional map object to physics space
+	        physicsSpace.add(physicsControl);
+		}
+		else
+		{
+			node.setLocalTranslation(mapObject.getLocation());
+	        node.setLocalRotation(mapObject.getRotation());
+		}
+		
+        // attach additional map object to scene node
+		sceneNode.attachChild(node);
 	}
 	
 	
@@ -41,6 +41,7 @@ import eu.opends.cameraFlight.CameraFlight;
 import eu.opends.drivingTask.DrivingTask;
 import eu.opends.drivingTask.interaction.InteractionLoader;
 import eu.opends.drivingTask.scenario.ScenarioLoader;
+import eu.opends.drivingTask.scene.ModelLoader;
 import eu.opends.drivingTask.scene.SceneLoader;
 import eu.opends.drivingTask.settings.SettingsLoader;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
@@ -78,6 +79,7 @@ public class SimulationBasics extends SimpleApplication
 	protected KeyBindingCenter keyBindingCenter;
 	protected boolean debugEnabled = false;
 	protected int numberOfScreens;
+	protected ModelLoader modelLoader = null;
 
 	
 	public KeyBindingCenter getKeyBindingCenter()
@@ -133,6 +135,22 @@ public class SimulationBasics extends SimpleApplication
     }
 	
 	
+	/**
+	 * Returns the model loader which has been started before the driving task
+	 * was set up (e.g. by the driving task selection screen) or null.
+	 */
+	public ModelLoader getModelLoader()
+	{
+		return modelLoader;
+	}
+	
+	
+	public void setModelLoader(ModelLoader modelLoader)
+	{
+		this.modelLoader = modelLoader;
+	}
+	
+	
 	public static DrivingTask getDrivingTask()
 	{
 		return drivingTask;
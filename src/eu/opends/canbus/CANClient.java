@@ -18,13 +18,9 @@
 
 package eu.opends.canbus;
 
-import java.net.Socket;
-import java.net.SocketException;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
-import java.io.*;
-
-import sun.net.www.protocol.http.HttpURLConnection.TunnelState;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import com.jme3.math.Vector3f;
 
@@ -32,186 +28,316 @@ import eu.opends.car.Car;
 import eu.opends.car.LightTexturesContainer.TurnSignalState;
 import eu.opends.drivingTask.settings.SettingsLoader;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
-import eu.opends.environment.XMLParser;
+import eu.opends.input.InputEventCenter;
 import eu.opends.main.SimulationDefaults;
 import eu.opends.main.Simulator;
 
 /**
- * This class represents the connector to the CAN-Interface. Steering, gas, brake and 
- * control instructions from the real car will be forwarded to the simulator; heading,
- * geo coordinates and speed will be sent back to the CAN-Interface in order to display
- * the position and speed on a in-car display. Furthermore trigger collisions can be 
- * sent to the CAN-Interface.
+ * This class represents the connector to the CAN-Interface. Steering, engine, light 
+ * and turn signal instructions from the real car will be forwarded to the simulator; 
+ * geo coordinates, speed and turn signals will be sent back to the CAN-Interface in 
+ * order to display the position and speed on a in-car display. Furthermore trigger 
+ * collisions can be sent to the CAN-Interface.
+ * 
+ * Messages are exchanged as binary frames (see CANFrame) via a transport, which 
+ * can be selected in the settings: "text" (legacy text files "intest.txt" and 
+ * "outtest.txt", default), "file" (memory-mapped files), "tcp" or "udp".
  * 
  * @author Rafael Math
 *		   Anpassungen Martin Michael Kalbitz
  */
 public class CANClient extends Thread
 {
+	public enum TransportType
+	{
+		TCP, UDP, FILE, TEXT;
+	}
+	
 	// angle the real car wheel must be rotated for full lock in simulator 
 	private float maxSteeringAngle;	
-	private Simulator sim;
 	private Car car;
 	private int framerate;
-	private boolean stoprequested;
-	private boolean errorOccurred;
+	private long fireIntervalNanos;
+	private long nextFireTime;
+	private volatile boolean stoprequested;
+	private volatile boolean errorOccurred;
 	private float steeringAngle;
 	private boolean doSteering;
-	private Calendar timeOfLastFire;
-	private PrintWriter printWriter;
-	private Socket socket;
+	private CANTransport transport;
+	
+	// buffers for incoming and outgoing frames
+	private ByteBuffer inputFrame = CANFrame.allocate();
+	private ByteBuffer outputFrame = CANFrame.allocate();
 	
-	//Neu hinzugefuegte Variablen
-	private File outputFile;
-	private File inputFile;
-	private String lineSeperator;
-	private FileWriter writer;
-	private BufferedReader reader;
-	private StringBuffer outputMessage;
+	// last values of the input frame (in order to apply changes only)
+	private int lastEngineOn = -1;
+	private int lastLightState = -1;
+	private int lastBlinkerLeft = -1;
+	private int lastBlinkerRight = -1;
+	private float lastGasPedal = Float.NaN;
+	private float lastBrakePedal = Float.NaN;
 	
 	
 	/**
-	 * Creates a new TCP connection with the CAN-Interface at the given IP and port
+	 * Creates a new connection with the CAN-Interface using the transport 
+	 * given in the settings
 	 * 
 	 * @param sim
 	 * 			The simulator
 	 */
 	public CANClient(Simulator sim)
     {
-		super();
+		super("CANClient");
+		setDaemon(true);
 		
-		this.sim = sim;
 		this.car = sim.getCar();
 		stoprequested = false;
 		errorOccurred = false;
 		steeringAngle = 0.0f;
 		doSteering = false;
-		timeOfLastFire = new GregorianCalendar();
 		
 		SettingsLoader settingsLoader = Simulator.getDrivingTask().getSettingsLoader();
-		//String ip = settingsLoader.getSetting(Setting.CANInterface_ip, SimulationDefaults.CANInterface_ip);
-		//int port = settingsLoader.getSetting(Setting.CANInterface_port, SimulationDefaults.CANInterface_port);
+		String ip = settingsLoader.getSetting(Setting.CANInterface_ip, SimulationDefaults.CANInterface_ip);
+		int port = settingsLoader.getSetting(Setting.CANInterface_port, SimulationDefaults.CANInterface_port);
 		framerate = settingsLoader.getSetting(Setting.CANInterface_updateRate, SimulationDefaults.CANInterface_updateRate);
 		maxSteeringAngle = settingsLoader.getSetting(Setting.CANInterface_maxSteeringAngle, SimulationDefaults.CANInterface_maxSteeringAngle); 
+		String transportString = settingsLoader.getSetting(Setting.CANInterface_transport, SimulationDefaults.CANInterface_transport);
+		
+		fireIntervalNanos = 1000000000L / Math.max(framerate, 1);
+		nextFireTime = System.nanoTime();
 		
-		lineSeperator = System.getProperty("line.separator");
-		outputFile = new File("outtest.txt");
-		inputFile = new File("intest.txt");
-		outputMessage = new StringBuffer(50);	//50 als erster Test wenn mehr Werte kommen sollte die Zahl groesser gewaehlt werden
+		TransportType transportType;
+		try {
+			transportType = TransportType.valueOf(transportString.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			System.err.println("Unknown CAN-Interface transport '" + transportString + "'. Using text transport.");
+			transportType = TransportType.TEXT;
+		}
+		
+		// text files of the legacy protocol have different default names
+		boolean isText = (transportType == TransportType.TEXT);
+		String inputFileName = settingsLoader.getSetting(Setting.CANInterface_inputFile, 
+				isText ? SimulationDefaults.CANInterface_textInputFile : SimulationDefaults.CANInterface_inputFile);
+		String outputFileName = settingsLoader.getSetting(Setting.CANInterface_outputFile, 
+				isText ? SimulationDefaults.CANInterface_textOutputFile : SimulationDefaults.CANInterface_outputFile);
+		
+		if(transportType == TransportType.FILE)
+			transport = new FileCANTransport(new File(inputFileName), new File(outputFileName));
+		else if(transportType == TransportType.TEXT)
+			transport = new TextCANTransport(new File(inputFileName), new File(outputFileName));
+		else
+			transport = new SocketCANTransport(ip, port, transportType == TransportType.UDP);
+		
+		try {
+			
+			transport.open();
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			if(transportType == TransportType.FILE || transportType == TransportType.TEXT)
+				System.err.println("Could not open CAN-Interface files " + inputFileName + ", " + outputFileName);
+			else
+				System.err.println("No " + transportType + " connection possible to CAN-Interface at " + ip + ":" + port);
+			errorOccurred = true;
+		}
     }
 	
     
 	/**
-	 * Werten Parameter aus einer textdatei aus um den Simulator entsprechend anzupassen
+	 * Waits for incoming frames from the CAN-Interface (engine, light and turn 
+	 * signal states, steering angle, pedals) and forwards them to the simulator
 	 */
 	@Override
 	public void run() 
 	{
+		long timeout = Math.max(fireIntervalNanos / 1000000L, 1);
+		
 		// when loop is left, connection will be closed
 		// loop will be left when requested or error occurred
 		while(!stoprequested && !errorOccurred)
 		{
 			try {
-				reader = new BufferedReader(new FileReader(inputFile));
-				//Motor an oder aus
-				String zeile = reader.readLine();
-				if (zeile != null)
+				
+				// sleeps until a frame has been received (or timeout)
+				if(transport.receive(inputFrame, timeout))
+					evaluateFrame(inputFrame, System.nanoTime());
+				
+			} catch (RuntimeException e) {
+				
+				// corrupt frame must not stop the client
+				System.err.println("CANClient: could not evaluate frame: " + e.toString());
+				
+			} catch (IOException e) {
+				
+				// will be thrown if e.g. server was shut down
+				System.err.println("Connection to CAN-Interface has to be closed: " + e.getMessage());
+				errorOccurred = true;
+			}
+			
+			// set virtual car's steering angle to the given steering angle
+			if(doSteering)
+				updateSteeringAngle();
+		}
+		
+		// notify CAN-Interface and close connection
+		if(!errorOccurred)
+		{
+			try {
+				synchronized(this)
+				{
+					CANFrame.putExit(outputFrame);
+					transport.send(outputFrame);
+				}
+			} catch (IOException e) {
+				System.err.println("Could not send exit to CAN-Interface");
+			}
+		}
+		
+		transport.close();
+	}
+	
+	
+	private void evaluateFrame(ByteBuffer frame, long receiveTime)
+	{
+		switch(CANFrame.getType(frame))
+		{
+			case CANFrame.TYPE_CAR_CONTROL :
+				
+				if(!checkPayload(frame, CANFrame.CAR_CONTROL_SIZE))
+					break;
+				
+				int engineOn = frame.get();
+				int lightState = frame.getInt();
+				int blinkerLeft = frame.get();
+				int blinkerRight = frame.get();
+				
+				// engine on or off
+				if(engineOn != lastEngineOn)
 				{
-					//Pruefen ob Motor an oder aus
-					int enOn = Integer.parseInt(zeile);
-					boolean engineOn = enOn == 0 ? false : true;
-					if(engineOn != car.isEngineOn())
-					{
-						car.setEnginOn(engineOn);
-					}
+					lastEngineOn = engineOn;
+					if((engineOn != 0) != car.isEngineOn())
+						car.setEnginOn(engineOn != 0);
 				}
-				//Licht Status
-				zeile = reader.readLine();
-				if (zeile != null)
+				
+				// light state
+				if(lightState != lastLightState)
 				{
-					int lightIntensity = Integer.parseInt(zeile);
-					car.setLightState(lightIntensity);
+					lastLightState = lightState;
+					car.setLightState(lightState);
 					car.toggleLight();
-					System.out.println(lightIntensity);
-					
 				}
-				//Blinker links
-				zeile = reader.readLine();
-				int blkLeft;
-				if (zeile != null)
+				
+				// turn signal left (-1: unchanged)
+				if(blinkerLeft != lastBlinkerLeft)
 				{
-					blkLeft = Integer.parseInt(zeile);
-					if (blkLeft != -1)
-					{
-						if (blkLeft != 0)	car.setTurnSignal(TurnSignalState.LEFT);
-						else				car.setTurnSignal(TurnSignalState.OFF);
-					}					
+					lastBlinkerLeft = blinkerLeft;
+					if(blinkerLeft > 0)
+						car.setTurnSignal(TurnSignalState.LEFT);
+					else if(blinkerLeft == 0)
+						car.setTurnSignal(TurnSignalState.OFF);
 				}
-				//Blinker rechts
-				zeile = reader.readLine();
-				if (zeile != null)
+				
+				// turn signal right (-1: unchanged)
+				if(blinkerRight != lastBlinkerRight)
 				{
-					int blkright = Integer.parseInt(zeile);
-					if(blkright != 0)	car.setTurnSignal(TurnSignalState.RIGHT);
-					
+					lastBlinkerRight = blinkerRight;
+					if(blinkerRight > 0)
+						car.setTurnSignal(TurnSignalState.RIGHT);
 				}
+				break;
 				
+			case CANFrame.TYPE_STEERING_ANGLE :
 				
-				reader.close();				
-			} catch (IOException e) {
+				if(!checkPayload(frame, CANFrame.STEERING_ANGLE_SIZE))
+					break;
 				
-				// will be thrown if e.g. server was shut down
-				System.err.println("Fehler beim Auslesen von Input Daten");
-				errorOccurred = true;
+				float angle = frame.getFloat();
+				setSteeringAngle(angle);
 				
-			} catch (Exception e) {
-			}
-			
-			// set virtual car's steering angle to the given steering angle
-			if(doSteering)
-				updateSteeringAngle();
+				// report steering input with time of reception (for reaction measurement)
+				InputEventCenter.reportSteering(getTargetAngle(angle), receiveTime);
+				break;
+				
+			case CANFrame.TYPE_PEDALS :
+				
+				if(!checkPayload(frame, CANFrame.PEDALS_SIZE))
+					break;
+				
+				// note that the virtual car goes forward on negative gas pedal intensity
+				float gasPedal = -toPedalIntensity(frame.getFloat());
+				float brakePedal = toPedalIntensity(frame.getFloat());
+				
+				// apply and report changes only (with time of reception)
+				if(gasPedal != lastGasPedal)
+				{
+					lastGasPedal = gasPedal;
+					car.setGasPedalIntensity(gasPedal);
+					InputEventCenter.reportGasPedal(gasPedal, receiveTime);
+				}
+				
+				if(brakePedal != lastBrakePedal)
+				{
+					lastBrakePedal = brakePedal;
+					car.setBrakePedalPressIntensity(brakePedal);
+					InputEventCenter.reportBrakePedal(brakePedal, receiveTime);
+				}
+				break;
+				
+			default:
+				System.err.println("CANClient: unknown frame type " + CANFrame.getType(frame));
 		}
+	}
+	
+	
+	private static float toPedalIntensity(float value)
+	{
+		// also maps NaN to 0 (released)
+		return (value > 0) ? Math.min(value, 1) : 0;
+	}
+	
+	
+	private static boolean checkPayload(ByteBuffer frame, int payloadSize)
+	{
+		if(CANFrame.hasPayload(frame, payloadSize))
+			return true;
 		
+		System.err.println("CANClient: dropped frame of type " + CANFrame.getType(frame) + 
+				" (payload " + (frame.limit() - CANFrame.HEADER_SIZE) + " of " + payloadSize + " bytes)");
+		return false;
 	}
 
 	
 	/**
-	 * Schreibt Parameter des Simulates in textdatei die dann von externen Programm auf den CAN geschrieben werden
+	 * Sends car data to the CAN-Interface, such as geo coordinates, speed and 
+	 * turn signals. Will be called every frame, but data will only be sent 
+	 * complying with the given update rate.
 	 */
 	public synchronized void sendCarData()
 	{
-		// generate time stamp
-		Calendar currentTime = new GregorianCalendar();
+		// break, if no connection established
+		if(errorOccurred)
+			return;
 		
 		// if enough time has passed by since last fire, the event will be forwarded
-		if(forwardEvent(currentTime))
+		if(forwardEvent(System.nanoTime()))
 		{
-			
 			float speed = ((float) car.getCurrentSpeedKmhRounded());  // in km/h
-			//float heading = car.getHeadingDegree();       // 0..360 degree
 			Vector3f geoPosition = car.getGeoPosition();
 			float latitude = geoPosition.getX();          // N-S position in model coordinates
 			float longitude = geoPosition.getY();         // W-E position in model coordinates
 			float tspeed = ((float) car.getCurrentSpeedKmh());	//TODO muss noch rausgefunden werden
-			int blk_left = car.getTurnSignal() == TurnSignalState.LEFT || car.getTurnSignal() == TurnSignalState.BOTH ? 1 : 0;
-			int blk_right = car.getTurnSignal() == TurnSignalState.RIGHT || car.getTurnSignal() == TurnSignalState.BOTH ? 1 : 0;
+			TurnSignalState turnSignal = car.getTurnSignal();
+			boolean blinkerLeft = turnSignal == TurnSignalState.LEFT || turnSignal == TurnSignalState.BOTH;
+			boolean blinkerRight = turnSignal == TurnSignalState.RIGHT || turnSignal == TurnSignalState.BOTH;
 			
-			outputMessage.delete(0, outputMessage.length());
-			try { 	
-				writer = new FileWriter(outputFile);
-				outputMessage.append(speed).append(lineSeperator);			//Geschwindigkeit
-				outputMessage.append(tspeed).append(lineSeperator);			//Drehzahl
-				outputMessage.append(blk_left).append(lineSeperator);		//blinker links
-				outputMessage.append(blk_right).append(lineSeperator);		//blinker rechts
-				outputMessage.append(latitude).append(lineSeperator);		//Latitude
-				outputMessage.append(longitude).append(lineSeperator);		//Longitude
-				writer.write(outputMessage.toString());
-				writer.flush();
-				writer.close();
+			try {
+				
+				CANFrame.putCarData(outputFrame, speed, tspeed, blinkerLeft, blinkerRight, latitude, longitude);
+				transport.send(outputFrame);
+				
 			} catch (IOException e) {
 				System.err.println("CANClient_sendCarData(): " + e.toString());
 			}
-
 		}
 	}
 	
@@ -225,16 +351,14 @@ public class CANClient extends Thread
 	public synchronized void sendTriggerData(String triggerID)
 	{
 		// break, if no connection established
-		if(socket == null || errorOccurred)
+		if(errorOccurred)
 			return;
 
 		try { 	
 
-		 	// send trigger data to CAN-bus and flush
-			String triggerString = "$SimCarTrigger#" + triggerID + "%";
-			printWriter = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
-		 	printWriter.print(triggerString);
-		 	printWriter.flush();
+		 	// send trigger data to CAN-bus
+			CANFrame.putTrigger(outputFrame, triggerID);
+			transport.send(outputFrame);
 		 				 	
 		} catch (IOException e) {
 			System.err.println("CANClient_sendTriggerData(): " + e.toString());
@@ -252,16 +376,14 @@ public class CANClient extends Thread
 	public synchronized void sendDeviationData(float deviation) 
 	{
 		// break, if no connection established
-		if(socket == null || errorOccurred)
+		if(errorOccurred)
 			return;
 
 		try { 	
 
-		 	// send deviation data to CAN-Interface and flush
-			String positionString = "$SimDeviationState#" + deviation + "%";
-			printWriter = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
-		 	printWriter.print(positionString);
-		 	printWriter.flush();
+		 	// send deviation data to CAN-Interface
+			CANFrame.putDeviation(outputFrame, deviation);
+			transport.send(outputFrame);
 		 				 	
 		} catch (IOException e) {
 			System.err.println("CANClient_sendDeviationData(): " + e.toString());
@@ -315,16 +437,11 @@ public class CANClient extends Thread
 		try {
 			
 			// get target steering angle from real car
-			// maximum angle will be matched to -1 or 1, respectively
-			float targetAngle = -Math.max(Math.min(steeringAngle/maxSteeringAngle,1),-1);
+			float targetAngle = getTargetAngle(steeringAngle);
 			
 			// print target (real car) steering angle
 			//System.out.println("target: " + targetAngle);
 			
-			// if target angle is close to straight ahead, steer straight ahead
-			if((targetAngle >= -0.001f) && (targetAngle <= 0.001f))	
-				targetAngle = 0;
-			
 			car.steer(targetAngle);
 			
 		} catch (Exception e) {
@@ -332,51 +449,38 @@ public class CANClient extends Thread
 		}
 		
 	}
-    
 	
-	/**
-	 * Reads an incoming message from the socket connection.
-	 * 
-	 * @param socket
-	 * 			Socket connection
-	 * 
-	 * @return
-	 * 			Message string of up to 10,000 characters
-	 * 
-	 * @throws IOException
-	 */
-	private String readMessage(Socket socket) throws IOException 
+	
+	private float getTargetAngle(float steeringAngle) 
 	{
-		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-		char[] buffer = new char[10000];
-		int nrOfChars = bufferedReader.read(buffer, 0, buffer.length);
+		// maximum angle will be matched to -1 or 1, respectively
+		float targetAngle = -Math.max(Math.min(steeringAngle/maxSteeringAngle,1),-1);
 		
-		return new String(buffer, 0, nrOfChars);
+		// if target angle is close to straight ahead, steer straight ahead
+		if((targetAngle >= -0.001f) && (targetAngle <= 0.001f))	
+			targetAngle = 0;
+		
+		return targetAngle;
 	}
 	
 	
 	/**
-	 * This method checks whether the incoming camera information should 
-	 * be sent to the server at the current time complying with the given 
-	 * frame rate
+	 * This method checks whether the car data should be sent to the 
+	 * CAN-Interface at the current time complying with the given update rate
 	 * 
 	 * @param now
-	 * 			The current time stamp
+	 * 			The current time stamp (nanoseconds)
 	 * 
 	 * @return true if enough time has passed by since last fire, false otherwise
 	 */
-    private boolean forwardEvent(Calendar now)
+    private boolean forwardEvent(long now)
     {
-        // fire an event every x milliseconds
-    	int fireInterval = 1000 / framerate;
-
-        // subtract time of last event from current time to get time elapsed since last fire
-        long elapsedMillisecs = timeDiff(now,timeOfLastFire);
-        
-        if (elapsedMillisecs >= fireInterval)
+        if (now - nextFireTime >= 0)
         {
-            // update time of last fire
-            timeOfLastFire.add(Calendar.MILLISECOND, fireInterval);
+            // fixed schedule; skip missed intervals instead of catching up
+            nextFireTime += fireIntervalNanos;
+            if(now - nextFireTime >= 0)
+            	nextFireTime = now + fireIntervalNanos;
 
             // fire
             return true;
@@ -385,23 +489,6 @@ public class CANClient extends Thread
             // do not fire
             return false;
     }
-    
-    
-	/**
-	 * This method computes the difference between two given time stamps
-	 * 
-	 * @param timestamp1
-	 * 			First time stamp value to compare
-	 * 
-	 * @param timestamp2
-	 * 			Second time stamp value to compare
-	 * 
-	 * @return difference between the given time stamps in milliseconds (long)
-	 */
-    private static long timeDiff(Calendar timestamp1, Calendar timestamp2)
-    {
-        return Math.abs(timestamp1.getTimeInMillis() - timestamp2.getTimeInMillis());
-    }
 
    
 }
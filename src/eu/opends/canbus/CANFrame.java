@@ -0,0 +1,286 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary frame encoding used for the communication with the CAN-Interface.
+ * Every frame consists of a three byte header followed by the payload:
+ *
+ * <pre>
+ * header:
+ *   byte   frame type
+ *   short  payload length in bytes
+ *
+ * simulator --&gt; CAN-Interface:
+ *   CAR_DATA        float speed (km/h), float engine speed, byte flags
+ *                   (turn signal left, turn signal right), float latitude,
+ *                   float longitude
+ *   TRIGGER         UTF-8 bytes of trigger ID
+ *   DEVIATION       float deviation from normative line (m)
+ *   EXIT            (no payload)
+ *
+ * CAN-Interface --&gt; simulator:
+ *   CAR_CONTROL     byte engine on, int light state, byte turn signal left,
+ *                   byte turn signal right (-1: unchanged, 0: off, 1: on)
+ *   STEERING_ANGLE  float steering angle of the real car (degree)
+ *   PEDALS          float gas pedal, float brake pedal (0: released, 1: fully
+ *                   pressed)
+ * </pre>
+ *
+ * All values are stored in big-endian byte order.
+ *
+ * @author Rafael Math
+ */
+public final class CANFrame
+{
+	public static final byte TYPE_CAR_DATA = 1;
+	public static final byte TYPE_TRIGGER = 2;
+	public static final byte TYPE_DEVIATION = 3;
+	public static final byte TYPE_EXIT = 4;
+	public static final byte TYPE_CAR_CONTROL = 16;
+	public static final byte TYPE_STEERING_ANGLE = 17;
+	public static final byte TYPE_PEDALS = 18;
+
+	public static final int HEADER_SIZE = 3;
+	public static final int MAX_FRAME_SIZE = 1024;
+
+	// payload sizes of frames with fixed layout
+	public static final int CAR_DATA_SIZE = 17;
+	public static final int DEVIATION_SIZE = 4;
+	public static final int CAR_CONTROL_SIZE = 7;
+	public static final int STEERING_ANGLE_SIZE = 4;
+	public static final int PEDALS_SIZE = 8;
+
+	public static final byte FLAG_BLINKER_LEFT = 0x01;
+	public static final byte FLAG_BLINKER_RIGHT = 0x02;
+
+	public static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
+
+	private static final String CHARSET = "UTF-8";
+
+
+	private CANFrame()
+	{
+	}
+
+
+	/**
+	 * Allocates a buffer large enough for any frame.
+	 */
+	public static ByteBuffer allocate()
+	{
+		return ByteBuffer.allocate(MAX_FRAME_SIZE).order(BYTE_ORDER);
+	}
+
+
+	/**
+	 * Encodes car data into the given buffer (cleared first). The buffer
+	 * will be flipped, hence ready to be sent.
+	 */
+	public static void putCarData(ByteBuffer buffer, float speed, float engineSpeed,
+			boolean blinkerLeft, boolean blinkerRight, float latitude, float longitude)
+	{
+		byte flags = 0;
+		if(blinkerLeft)
+			flags |= FLAG_BLINKER_LEFT;
+		if(blinkerRight)
+			flags |= FLAG_BLINKER_RIGHT;
+
+		putHeader(buffer, TYPE_CAR_DATA, CAR_DATA_SIZE);
+		buffer.putFloat(speed);
+		buffer.putFloat(engineSpeed);
+		buffer.put(flags);
+		buffer.putFloat(latitude);
+		buffer.putFloat(longitude);
+		buffer.flip();
+	}
+
+
+	/**
+	 * Encodes a trigger report into the given buffer (cleared first). The
+	 * buffer will be flipped, hence ready to be sent.
+	 */
+	public static void putTrigger(ByteBuffer buffer, String triggerID)
+	{
+		byte[] bytes = encode(triggerID);
+		putHeader(buffer, TYPE_TRIGGER, bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+	}
+
+
+	/**
+	 * Encodes a deviation value into the given buffer (cleared first). The
+	 * buffer will be flipped, hence ready to be sent.
+	 */
+	public static void putDeviation(ByteBuffer buffer, float deviation)
+	{
+		putHeader(buffer, TYPE_DEVIATION, DEVIATION_SIZE);
+		buffer.putFloat(deviation);
+		buffer.flip();
+	}
+
+
+	/**
+	 * Encodes an exit frame into the given buffer (cleared first). The
+	 * buffer will be flipped, hence ready to be sent.
+	 */
+	public static void putExit(ByteBuffer buffer)
+	{
+		putHeader(buffer, TYPE_EXIT, 0);
+		buffer.flip();
+	}
+
+
+	/**
+	 * Encodes car control values into the given buffer (cleared first). The
+	 * buffer will be flipped and positioned at the first payload byte, hence
+	 * ready to be evaluated like a received frame.
+	 */
+	public static void putCarControl(ByteBuffer buffer, int engineOn, int lightState,
+			int blinkerLeft, int blinkerRight)
+	{
+		putHeader(buffer, TYPE_CAR_CONTROL, CAR_CONTROL_SIZE);
+		buffer.put((byte) engineOn);
+		buffer.putInt(lightState);
+		buffer.put((byte) blinkerLeft);
+		buffer.put((byte) blinkerRight);
+		buffer.flip();
+		buffer.position(HEADER_SIZE);
+	}
+
+
+	/**
+	 * Extracts the next complete frame from a stream of frames. On success,
+	 * the frame (header and payload) will be copied to the frame buffer
+	 * (flipped, position at the first payload byte) and removed from the
+	 * stream buffer.
+	 *
+	 * @param stream
+	 * 			Buffer in read mode containing received bytes.
+	 *
+	 * @param frame
+	 * 			Buffer the frame will be copied to.
+	 *
+	 * @return
+	 * 			true, if a complete frame has been extracted.
+	 */
+	public static boolean nextFrame(ByteBuffer stream, ByteBuffer frame)
+	{
+		if(stream.remaining() < HEADER_SIZE)
+			return false;
+
+		int start = stream.position();
+		int frameSize = HEADER_SIZE + (stream.getShort(start + 1) & 0xFFFF);
+
+		if(frameSize > MAX_FRAME_SIZE)
+		{
+			// corrupt or oversized frame: discard received bytes
+			System.err.println("CANFrame: dropped frame of " + frameSize + " bytes");
+			stream.position(stream.limit());
+			return false;
+		}
+
+		if(stream.remaining() < frameSize)
+			return false;
+
+		int limit = stream.limit();
+		stream.limit(start + frameSize);
+		frame.clear();
+		frame.put(stream);
+		frame.flip();
+		stream.limit(limit);
+
+		frame.position(HEADER_SIZE);
+		return true;
+	}
+
+
+	/**
+	 * Returns the type of the frame contained in the given buffer.
+	 */
+	public static byte getType(ByteBuffer frame)
+	{
+		return frame.get(0);
+	}
+
+
+	/**
+	 * Returns the payload length given in the header of the frame.
+	 */
+	public static int getPayloadLength(ByteBuffer frame)
+	{
+		return frame.getShort(1) & 0xFFFF;
+	}
+
+
+	/**
+	 * Checks whether the given frame contains at least the given number of
+	 * payload bytes (according to both header and received bytes).
+	 */
+	public static boolean hasPayload(ByteBuffer frame, int payloadSize)
+	{
+		return frame.limit() >= HEADER_SIZE && getPayloadLength(frame) >= payloadSize
+			&& frame.limit() - HEADER_SIZE >= payloadSize;
+	}
+
+
+	/**
+	 * Returns the payload of the given frame as string.
+	 */
+	public static String getString(ByteBuffer frame)
+	{
+		byte[] bytes = new byte[frame.remaining()];
+		frame.get(bytes);
+
+		try {
+			return new String(bytes, CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			return new String(bytes);
+		}
+	}
+
+
+	private static void putHeader(ByteBuffer buffer, byte type, int payloadLength)
+	{
+		buffer.clear();
+		buffer.put(type);
+		buffer.putShort((short) payloadLength);
+	}
+
+
+	private static byte[] encode(String string)
+	{
+		try {
+			byte[] bytes = string.getBytes(CHARSET);
+			if(bytes.length > MAX_FRAME_SIZE - HEADER_SIZE)
+			{
+				System.err.println("CANFrame: string too long: " + string);
+				return new byte[0];
+			}
+			return bytes;
+		} catch (UnsupportedEncodingException e) {
+			return string.getBytes();
+		}
+	}
+}
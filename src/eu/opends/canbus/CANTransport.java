@@ -0,0 +1,69 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Transport layer between the CAN client and the CAN-Interface. Frames are
+ * encoded as specified in <code>CANFrame</code>. Frames will be received by
+ * the CAN client thread only, whereas frames may be sent from any thread.
+ *
+ * @author Rafael Math
+ */
+public interface CANTransport
+{
+	/**
+	 * Establishes the connection to the CAN-Interface.
+	 */
+	public void open() throws IOException;
+
+
+	/**
+	 * Sends a frame without blocking. If the frame cannot be sent at the
+	 * moment, it may be dropped.
+	 *
+	 * @param frame
+	 * 			Encoded frame (position at start, limit at end of frame).
+	 */
+	public void send(ByteBuffer frame) throws IOException;
+
+
+	/**
+	 * Waits until a frame has been received or the timeout has elapsed.
+	 *
+	 * @param frame
+	 * 			Buffer the frame will be copied to (flipped, position at first
+	 * 			payload byte).
+	 *
+	 * @param timeout
+	 * 			Maximum time to wait (in milliseconds).
+	 *
+	 * @return
+	 * 			true, if a frame has been received.
+	 */
+	public boolean receive(ByteBuffer frame, long timeout) throws IOException;
+
+
+	/**
+	 * Closes the connection to the CAN-Interface.
+	 */
+	public void close();
+}
@@ -0,0 +1,198 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Transport to the CAN-Interface via two memory-mapped files, one per
+ * direction. Each file contains a ring of frame slots:
+ *
+ * <pre>
+ *   int    write sequence (number of frames written, updated by the writer)
+ *   int    read sequence (number of frames read, updated by the reader)
+ *   byte[] RING_SIZE slots of MAX_FRAME_SIZE bytes (see CANFrame)
+ * </pre>
+ *
+ * Frame n is stored in slot n % RING_SIZE. The writer stores the frame
+ * before it increments the write sequence; the reader copies the frame
+ * before it increments the read sequence. As each sequence number has a
+ * single writer, no locking is needed and frames are neither overwritten
+ * nor skipped. If the ring is full (the reader is RING_SIZE frames behind),
+ * new frames will be dropped.
+ *
+ * Files are neither reopened nor parsed unless frames are pending; the
+ * reader compares the sequence numbers in the mapped memory every few
+ * milliseconds.
+ *
+ * @author Rafael Math
+ */
+public class FileCANTransport implements CANTransport
+{
+	private static final int WRITE_SEQUENCE_POSITION = 0;
+	private static final int READ_SEQUENCE_POSITION = 4;
+	private static final int HEADER_SIZE = 8;
+	private static final int RING_SIZE = 64;
+	private static final int FILE_SIZE = HEADER_SIZE + RING_SIZE * CANFrame.MAX_FRAME_SIZE;
+	private static final int CHECK_INTERVAL = 5;
+
+	private File inputFile;
+	private File outputFile;
+	private RandomAccessFile inputRandomAccessFile;
+	private RandomAccessFile outputRandomAccessFile;
+	private MappedByteBuffer inputBuffer;
+	private MappedByteBuffer outputBuffer;
+	private int inputReadSequence;
+	private int outputWriteSequence;
+	private long droppedFrames = 0;
+
+
+	/**
+	 * Creates a new file transport.
+	 *
+	 * @param inputFile
+	 * 			File containing frames sent by the CAN-Interface.
+	 *
+	 * @param outputFile
+	 * 			File frames for the CAN-Interface will be written to.
+	 */
+	public FileCANTransport(File inputFile, File outputFile)
+	{
+		this.inputFile = inputFile;
+		this.outputFile = outputFile;
+	}
+
+
+	@Override
+	public void open() throws IOException
+	{
+		inputRandomAccessFile = new RandomAccessFile(inputFile, "rw");
+		inputBuffer = map(inputRandomAccessFile);
+
+		// skip frames left over from a previous session
+		inputReadSequence = inputBuffer.getInt(WRITE_SEQUENCE_POSITION);
+		inputBuffer.putInt(READ_SEQUENCE_POSITION, inputReadSequence);
+
+		// continue numbering of a running CAN-Interface
+		outputRandomAccessFile = new RandomAccessFile(outputFile, "rw");
+		outputBuffer = map(outputRandomAccessFile);
+		outputWriteSequence = outputBuffer.getInt(WRITE_SEQUENCE_POSITION);
+	}
+
+
+	@Override
+	public synchronized void send(ByteBuffer frame) throws IOException
+	{
+		int readSequence = outputBuffer.getInt(READ_SEQUENCE_POSITION);
+		if(outputWriteSequence - readSequence >= RING_SIZE)
+		{
+			// ring is full: CAN-Interface does not keep up
+			droppedFrames++;
+			if(droppedFrames == 1 || droppedFrames % 1000 == 0)
+				System.err.println("FileCANTransport: " + droppedFrames + " frame(s) dropped");
+			return;
+		}
+
+		outputBuffer.position(getSlotPosition(outputWriteSequence));
+		outputBuffer.put(frame);
+
+		// publish frame
+		outputWriteSequence++;
+		outputBuffer.putInt(WRITE_SEQUENCE_POSITION, outputWriteSequence);
+	}
+
+
+	@Override
+	public boolean receive(ByteBuffer frame, long timeout) throws IOException
+	{
+		long deadline = System.currentTimeMillis() + timeout;
+
+		while(inputBuffer.getInt(WRITE_SEQUENCE_POSITION) == inputReadSequence)
+		{
+			long remaining = deadline - System.currentTimeMillis();
+			if(remaining <= 0)
+				return false;
+
+			try {
+				Thread.sleep(Math.min(remaining, CHECK_INTERVAL));
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+
+		readFrame(frame, getSlotPosition(inputReadSequence));
+
+		// release slot
+		inputReadSequence++;
+		inputBuffer.putInt(READ_SEQUENCE_POSITION, inputReadSequence);
+
+		return true;
+	}
+
+
+	private void readFrame(ByteBuffer frame, int slotPosition)
+	{
+		int payloadLength = inputBuffer.getShort(slotPosition + 1) & 0xFFFF;
+		int frameSize = Math.min(CANFrame.HEADER_SIZE + payloadLength, CANFrame.MAX_FRAME_SIZE);
+
+		frame.clear();
+		for(int i = 0; i < frameSize; i++)
+			frame.put(inputBuffer.get(slotPosition + i));
+		frame.flip();
+		frame.position(CANFrame.HEADER_SIZE);
+	}
+
+
+	private static int getSlotPosition(int sequence)
+	{
+		// sequence numbers may wrap around
+		int slot = (int) ((sequence & 0xFFFFFFFFL) % RING_SIZE);
+		return HEADER_SIZE + slot * CANFrame.MAX_FRAME_SIZE;
+	}
+
+
+	private static MappedByteBuffer map(RandomAccessFile file) throws IOException
+	{
+		if(file.length() < FILE_SIZE)
+			file.setLength(FILE_SIZE);
+
+		MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+		buffer.order(CANFrame.BYTE_ORDER);
+		return buffer;
+	}
+
+
+	@Override
+	public void close()
+	{
+		try {
+			if(inputRandomAccessFile != null)
+				inputRandomAccessFile.close();
+			if(outputRandomAccessFile != null)
+				outputRandomAccessFile.close();
+		} catch (IOException e) {
+			System.err.println("Could not close CAN-Interface files");
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Non-blocking NIO transport to the CAN-Interface via TCP or UDP. Incoming
+ * frames are awaited by a selector, hence the receiving thread sleeps until
+ * data arrives. Outgoing frames are written without blocking: over TCP,
+ * bytes that could not be written yet are kept in a send buffer (frames
+ * will be dropped if it is full); over UDP, each frame is sent as a single
+ * datagram to the CAN-Interface, which replies to the sender's address.
+ *
+ * @author Rafael Math
+ */
+public class SocketCANTransport implements CANTransport
+{
+	private static final int CONNECT_TIMEOUT = 2000;
+	private static final int BUFFER_SIZE = 64 * CANFrame.MAX_FRAME_SIZE;
+
+	private String ip;
+	private int port;
+	private boolean useUDP;
+	private Selector selector;
+	private ByteChannel channel;
+	private ByteBuffer receiveBuffer = ByteBuffer.allocate(BUFFER_SIZE).order(CANFrame.BYTE_ORDER);
+	private ByteBuffer sendBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private long droppedFrames = 0;
+
+
+	/**
+	 * Creates a new socket transport.
+	 *
+	 * @param ip
+	 * 			IP of the CAN-Interface.
+	 *
+	 * @param port
+	 * 			Port of the CAN-Interface.
+	 *
+	 * @param useUDP
+	 * 			true for UDP, false for TCP.
+	 */
+	public SocketCANTransport(String ip, int port, boolean useUDP)
+	{
+		this.ip = ip;
+		this.port = port;
+		this.useUDP = useUDP;
+
+		// receive buffer is kept in read mode between calls
+		receiveBuffer.flip();
+	}
+
+
+	@Override
+	public void open() throws IOException
+	{
+		InetSocketAddress address = new InetSocketAddress(ip, port);
+		SelectableChannel selectableChannel;
+
+		if(useUDP)
+		{
+			DatagramChannel datagramChannel = DatagramChannel.open();
+			datagramChannel.connect(address);
+			channel = datagramChannel;
+			selectableChannel = datagramChannel;
+		}
+		else
+		{
+			SocketChannel socketChannel = SocketChannel.open();
+			socketChannel.socket().connect(address, CONNECT_TIMEOUT);
+			socketChannel.socket().setTcpNoDelay(true);
+			channel = socketChannel;
+			selectableChannel = socketChannel;
+		}
+
+		selectableChannel.configureBlocking(false);
+		selector = Selector.open();
+		selectableChannel.register(selector, SelectionKey.OP_READ);
+	}
+
+
+	@Override
+	public synchronized void send(ByteBuffer frame) throws IOException
+	{
+		if(useUDP)
+		{
+			// single datagram; will be dropped by the OS if it cannot be sent
+			if(channel.write(frame) == 0)
+				droppedFrames++;
+			return;
+		}
+
+		if(sendBuffer.remaining() < frame.remaining())
+		{
+			// write pending bytes first to make room
+			sendBuffer.flip();
+			channel.write(sendBuffer);
+			sendBuffer.compact();
+		}
+
+		if(sendBuffer.remaining() < frame.remaining())
+		{
+			droppedFrames++;
+			return;
+		}
+
+		sendBuffer.put(frame);
+		sendBuffer.flip();
+		channel.write(sendBuffer);
+		sendBuffer.compact();
+	}
+
+
+	@Override
+	public boolean receive(ByteBuffer frame, long timeout) throws IOException
+	{
+		// frame left from previous read
+		if(CANFrame.nextFrame(receiveBuffer, frame))
+			return true;
+
+		if(selector.select(Math.max(timeout, 1)) > 0)
+		{
+			selector.selectedKeys().clear();
+
+			receiveBuffer.compact();
+			int bytesRead = channel.read(receiveBuffer);
+			receiveBuffer.flip();
+
+			if(bytesRead < 0)
+				throw new IOException("Connection closed by CAN-Interface");
+
+			return CANFrame.nextFrame(receiveBuffer, frame);
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Returns the number of outgoing frames dropped, as they could not be
+	 * sent without blocking.
+	 */
+	public long getDroppedFrames()
+	{
+		return droppedFrames;
+	}
+
+
+	@Override
+	public void close()
+	{
+		try {
+			if(selector != null)
+				selector.close();
+			if(channel != null)
+				channel.close();
+		} catch (IOException e) {
+			System.err.println("Could not close connection to CAN-Interface");
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Legacy transport to the CAN-Interface via two text files (formerly
+ * "intest.txt" and "outtest.txt"), one value per line.
+ *
+ * <pre>
+ * input file:   engine on, light state, turn signal left, turn signal right
+ * output file:  speed, engine speed, turn signal left, turn signal right,
+ *               latitude, longitude
+ * </pre>
+ *
+ * The input file is read every few milliseconds and converted to a car
+ * control frame whenever its content changes. Car data frames overwrite
+ * the output file; other frames cannot be expressed in this format and
+ * will be ignored.
+ *
+ * @author Rafael Math
+ */
+public class TextCANTransport implements CANTransport
+{
+	private static final int CHECK_INTERVAL = 10;
+
+	private File inputFile;
+	private File outputFile;
+	private String lineSeparator = System.getProperty("line.separator");
+	private StringBuilder outputMessage = new StringBuilder(64);
+	private String lastInput = null;
+
+
+	/**
+	 * Creates a new text file transport.
+	 *
+	 * @param inputFile
+	 * 			File containing the values sent by the CAN-Interface.
+	 *
+	 * @param outputFile
+	 * 			File the car data will be written to.
+	 */
+	public TextCANTransport(File inputFile, File outputFile)
+	{
+		this.inputFile = inputFile;
+		this.outputFile = outputFile;
+	}
+
+
+	@Override
+	public void open() throws IOException
+	{
+	}
+
+
+	@Override
+	public synchronized void send(ByteBuffer frame) throws IOException
+	{
+		if(CANFrame.getType(frame) != CANFrame.TYPE_CAR_DATA || !CANFrame.hasPayload(frame, CANFrame.CAR_DATA_SIZE))
+			return;
+
+		int start = CANFrame.HEADER_SIZE;
+		byte flags = frame.get(start + 8);
+
+		outputMessage.setLength(0);
+		outputMessage.append(frame.getFloat(start)).append(lineSeparator);			// speed
+		outputMessage.append(frame.getFloat(start + 4)).append(lineSeparator);		// engine speed
+		outputMessage.append((flags & CANFrame.FLAG_BLINKER_LEFT) != 0 ? 1 : 0).append(lineSeparator);
+		outputMessage.append((flags & CANFrame.FLAG_BLINKER_RIGHT) != 0 ? 1 : 0).append(lineSeparator);
+		outputMessage.append(frame.getFloat(start + 9)).append(lineSeparator);		// latitude
+		outputMessage.append(frame.getFloat(start + 13)).append(lineSeparator);		// longitude
+
+		FileWriter writer = new FileWriter(outputFile);
+		try {
+			writer.write(outputMessage.toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	@Override
+	public boolean receive(ByteBuffer frame, long timeout) throws IOException
+	{
+		long deadline = System.currentTimeMillis() + timeout;
+
+		while(true)
+		{
+			String input = readInput();
+			if(input != null && !input.equals(lastInput))
+			{
+				lastInput = input;
+				if(parseInput(input, frame))
+					return true;
+			}
+
+			long remaining = deadline - System.currentTimeMillis();
+			if(remaining <= 0)
+				return false;
+
+			try {
+				Thread.sleep(Math.min(remaining, CHECK_INTERVAL));
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+	}
+
+
+	private String readInput()
+	{
+		if(!inputFile.isFile())
+			return null;
+
+		StringBuilder input = new StringBuilder();
+		try {
+
+			BufferedReader reader = new BufferedReader(new FileReader(inputFile));
+			try {
+				String line;
+				while((line = reader.readLine()) != null)
+					input.append(line.trim()).append('\n');
+			} finally {
+				reader.close();
+			}
+
+		} catch (IOException e) {
+			// file is being rewritten --> try again later
+			return null;
+		}
+
+		return input.toString();
+	}
+
+
+	private static boolean parseInput(String input, ByteBuffer frame)
+	{
+		String[] lines = input.split("\n");
+		if(lines.length < 4)
+			return false;
+
+		try {
+
+			CANFrame.putCarControl(frame, Integer.parseInt(lines[0]), Integer.parseInt(lines[1]),
+					Integer.parseInt(lines[2]), Integer.parseInt(lines[3]));
+			return true;
+
+		} catch (NumberFormatException e) {
+			// incomplete file --> wait for next change
+			return false;
+		}
+	}
+
+
+	@Override
+	public void close()
+	{
+	}
+}
@@ -33,7 +33,6 @@ import eu.opends.car.LightTexturesContainer.TurnSignalState;
 import eu.opends.environment.GeoPosition;
 import eu.opends.main.Simulator;
 import eu.opends.tools.PanelCenter;
-import eu.opends.tools.SpeedControlCenter;
 
 /**
  * 
@@ -260,6 +259,16 @@ public abstract class Car
 	}
 	
 	
+	/**
+	 * Writes the current position of the car to the given vector instead of
+	 * allocating a new one.
+	 */
+	public Vector3f getPosition(Vector3f store) 
+	{
+		return carControl.getPhysicsLocation(store);
+	}
+	
+	
 	public Vector3f getGeoPosition() 
 	{
 		return GeoPosition.modelToGeo(getPosition());
@@ -328,6 +337,16 @@ public abstract class Car
 	}
 	
 	
+	/**
+	 * Writes the current rotation of the car to the given quaternion instead 
+	 * of allocating a new one.
+	 */
+	public Quaternion getRotation(Quaternion store) 
+	{
+		return carControl.getPhysicsRotation(store);
+	}
+	
+	
 	/**
 	 * Accelerates the car forward or backwards. Does it by accelerating both
 	 * suspensions (4WD). If you want a front wheel drive, comment out the
@@ -359,7 +378,6 @@ public abstract class Car
 	public void setBrakePedalPressIntensity(float intensity) 
 	{
 		brakePedalPressIntensity = intensity;
-		SpeedControlCenter.stopBrakeTimer();
 	}
 	
 	
@@ -207,7 +207,7 @@ public class Transmission
 		
 		// output texts
 		PanelCenter.setGearIndicator(gear, isAutomaticTransmission);
-		PanelCenter.getEngineSpeedText().setText((int) currentEngineSpeed + " rpm");
+		PanelCenter.setEngineSpeed(currentEngineSpeed);
 		//TextCenter.getEngineSpeedText().setText((int) (powerPercentage * 100) + " %");
 	}
 	
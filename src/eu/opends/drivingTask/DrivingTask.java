@@ -98,6 +98,18 @@ public class DrivingTask
 	}
 	
 	
+	/**
+	 * Returns the on-disk cache of this driving task.
+	 * 
+	 * @return
+	 * 			Cache of derived data (e.g. collision shapes)
+	 */
+	public DrivingTaskCache getCache()
+	{
+		return dtData.getCache();
+	}
+	
+	
 	public static boolean isValidDrivingTask(File xmlfile)
 	{
 		DrivingTaskDataQuery dtData = new DrivingTaskDataQuery(xmlfile.getPath());
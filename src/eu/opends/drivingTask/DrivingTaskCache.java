@@ -0,0 +1,358 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.drivingTask;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.export.Savable;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+
+/**
+ * On-disk cache for data derived from a driving task, e.g. validated
+ * documents, collision shapes and converted models. Each driving task gets
+ * its own folder, named by a content hash of the driving task files;
+ * entries depending on further files (e.g. model assets) should include a
+ * hash of those files in their names. Hence, entries will never be out of
+ * date; changing a file just results in a different folder or entry name.
+ * The cache folder may be deleted at any time.
+ *
+ * @author Rafael Math
+ */
+public class DrivingTaskCache
+{
+	private static final String CACHE_FOLDER = "cache";
+	private static final int BUFFER_SIZE = 65536;
+
+	private File folder;
+
+
+	/**
+	 * Creates a cache for the driving task made up of the given files.
+	 *
+	 * @param drivingTaskFiles
+	 * 			All files the driving task depends on (e.g. properties, layer
+	 * 			and schema files).
+	 */
+	public DrivingTaskCache(Collection<File> drivingTaskFiles)
+	{
+		folder = new File(CACHE_FOLDER, hash(drivingTaskFiles));
+	}
+
+
+	/**
+	 * Computes a SHA-1 hash of the names and contents of the given files.
+	 * Missing files will be included by name only.
+	 *
+	 * @param files
+	 * 			Files to hash.
+	 *
+	 * @return
+	 * 			Hex string of the hash.
+	 */
+	public static String hash(Collection<File> files)
+	{
+		try {
+
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] buffer = new byte[BUFFER_SIZE];
+
+			for(File file : files)
+			{
+				digest.update(file.getPath().getBytes("UTF-8"));
+				digest.update((byte) 0);
+
+				if(file.isFile())
+				{
+					InputStream inputStream = new FileInputStream(file);
+					try {
+						int length;
+						while((length = inputStream.read(buffer)) != -1)
+							digest.update(buffer, 0, length);
+					} finally {
+						inputStream.close();
+					}
+				}
+				digest.update((byte) 0);
+			}
+
+			StringBuilder hexString = new StringBuilder();
+			for(byte b : digest.digest())
+				hexString.append(String.format("%02x", b));
+
+			return hexString.toString();
+
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			// unreadable file --> use a key which will never be found again
+			e.printStackTrace();
+			return "invalid-" + System.nanoTime();
+		}
+	}
+
+
+	/**
+	 * Returns the file of the given cache entry (which might not exist).
+	 *
+	 * @param name
+	 * 			Name of the entry, e.g. "scene.xml"
+	 *
+	 * @return
+	 * 			File of the entry.
+	 */
+	public File getFile(String name)
+	{
+		return new File(folder, name);
+	}
+
+
+	public boolean contains(String name)
+	{
+		return getFile(name).isFile();
+	}
+
+
+	/**
+	 * Loads a document from the cache. As documents are written to the cache
+	 * after they have been validated, they will be parsed without schema.
+	 *
+	 * @param name
+	 * 			Name of the entry.
+	 *
+	 * @return
+	 * 			Document or null, if not available.
+	 */
+	public Document loadDocument(String name)
+	{
+		File file = getFile(name);
+		if(!file.isFile())
+			return null;
+
+		try {
+
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			try {
+				factory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+			} catch (Exception e) {
+				// feature not supported by parser
+			}
+
+			DocumentBuilder builder = factory.newDocumentBuilder();
+			builder.setErrorHandler(new DrivingTaskErrorHandler(file.getName()));
+			return builder.parse(file);
+
+		} catch (Exception e) {
+			System.err.println("Could not read cache entry '" + file.getPath() + "'");
+			return null;
+		}
+	}
+
+
+	/**
+	 * Writes the given (validated) document to the cache. Default values
+	 * added by the schema will be written explicitly.
+	 *
+	 * @param name
+	 * 			Name of the entry.
+	 *
+	 * @param document
+	 * 			Document to store.
+	 */
+	public void saveDocument(String name, Document document)
+	{
+		File file = getFile(name);
+		File tempFile = getFile(name + ".tmp");
+
+		try {
+
+			folder.mkdirs();
+			Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			transformer.transform(new DOMSource(document), new StreamResult(tempFile));
+			commit(tempFile, file);
+
+		} catch (Exception e) {
+			tempFile.delete();
+			System.err.println("Could not write cache entry '" + file.getPath() + "'");
+		}
+	}
+
+
+	/**
+	 * Loads a jME object (e.g. a collision shape or a model) from the cache.
+	 *
+	 * @param name
+	 * 			Name of the entry.
+	 *
+	 * @param assetManager
+	 * 			Asset manager to load referenced assets (e.g. materials).
+	 *
+	 * @return
+	 * 			Object or null, if not available.
+	 */
+	public Savable loadSavable(String name, AssetManager assetManager)
+	{
+		File file = getFile(name);
+		if(!file.isFile())
+			return null;
+
+		try {
+
+			BinaryImporter importer = BinaryImporter.getInstance();
+			importer.setAssetManager(assetManager);
+			return importer.load(file);
+
+		} catch (Exception e) {
+			System.err.println("Could not read cache entry '" + file.getPath() + "'");
+			return null;
+		}
+	}
+
+
+	/**
+	 * Writes a jME object (in J3O format) to the cache.
+	 *
+	 * @param name
+	 * 			Name of the entry.
+	 *
+	 * @param savable
+	 * 			Object to store.
+	 */
+	public void saveSavable(String name, Savable savable)
+	{
+		File file = getFile(name);
+		File tempFile = getFile(name + ".tmp");
+
+		try {
+
+			folder.mkdirs();
+			BinaryExporter.getInstance().save(savable, tempFile);
+			commit(tempFile, file);
+
+		} catch (Exception e) {
+			tempFile.delete();
+			System.err.println("Could not write cache entry '" + file.getPath() + "'");
+		}
+	}
+
+
+	/**
+	 * Loads a list of strings (one per line) from the cache.
+	 *
+	 * @param name
+	 * 			Name of the entry.
+	 *
+	 * @return
+	 * 			List of strings or null, if not available.
+	 */
+	public List<String> loadStrings(String name)
+	{
+		File file = getFile(name);
+		if(!file.isFile())
+			return null;
+
+		try {
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			try {
+				List<String> strings = new ArrayList<String>();
+				String line;
+				while((line = reader.readLine()) != null)
+					strings.add(line);
+				return strings;
+			} finally {
+				reader.close();
+			}
+
+		} catch (IOException e) {
+			System.err.println("Could not read cache entry '" + file.getPath() + "'");
+			return null;
+		}
+	}
+
+
+	/**
+	 * Writes a list of strings (one per line) to the cache.
+	 *
+	 * @param name
+	 * 			Name of the entry.
+	 *
+	 * @param strings
+	 * 			Strings to store (must not contain line breaks).
+	 */
+	public void saveStrings(String name, Collection<String> strings)
+	{
+		File file = getFile(name);
+		File tempFile = getFile(name + ".tmp");
+
+		try {
+
+			folder.mkdirs();
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8"));
+			try {
+				for(String string : strings)
+				{
+					writer.write(string);
+					writer.newLine();
+				}
+			} finally {
+				writer.close();
+			}
+			commit(tempFile, file);
+
+		} catch (Exception e) {
+			tempFile.delete();
+			System.err.println("Could not write cache entry '" + file.getPath() + "'");
+		}
+	}
+
+
+	// entries are written to a temporary file first, so a simulator crash
+	// will never leave an incomplete entry behind
+	private void commit(File tempFile, File file) throws IOException
+	{
+		file.delete();
+		if(!tempFile.renameTo(file))
+			throw new IOException("Could not rename " + tempFile.getPath());
+	}
+}
@@ -24,13 +24,16 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.InvalidPropertiesFormatException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.xml.namespace.NamespaceContext;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -45,8 +48,8 @@ import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import com.jme3.math.ColorRGBA;
@@ -76,6 +79,90 @@ public class DrivingTaskDataQuery
     private Document settings;
     private boolean verbose = true;
 	private boolean isValid = false;
+	private DrivingTaskCache cache;
+	
+	// compiled XPath expressions of the current thread
+	private ThreadLocal<XPathCache> xPathCache = new ThreadLocal<XPathCache>()
+	{
+		@Override
+		protected XPathCache initialValue()
+		{
+			return new XPathCache();
+		}
+	};
+    
+    
+    /**
+     * Thread-confined XPath object and compiled expressions, keyed by layer 
+     * and query. Least recently used expressions will be dropped if the 
+     * cache is full. Simple location paths are parsed once and evaluated by 
+     * walking the DOM (see LocationPath).
+     */
+    private static class XPathCache
+    {
+    	private static final int MAX_EXPRESSIONS_PER_LAYER = 512;
+    	
+    	private XPath xpath;
+    	private DrivingTaskNamespaceContext nsContext = new DrivingTaskNamespaceContext();
+    	private Map<Layer, Map<String, XPathExpression>> expressionMap = 
+    		new EnumMap<Layer, Map<String, XPathExpression>>(Layer.class);
+    	
+    	// parsed location paths (null if query is not a simple location path)
+    	private Map<String, LocationPath> locationPathMap = createLRUMap();
+    	
+    	
+    	private XPathCache()
+    	{
+    		xpath = XPathFactory.newInstance().newXPath();
+    		xpath.setNamespaceContext(nsContext);
+    	}
+    	
+    	
+    	private static <V> Map<String, V> createLRUMap()
+    	{
+    		return new LinkedHashMap<String, V>(64, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, V> eldest)
+				{
+					return size() > MAX_EXPRESSIONS_PER_LAYER;
+				}
+			};
+    	}
+    	
+    	
+    	private LocationPath getLocationPath(String query)
+    	{
+    		if(locationPathMap.containsKey(query))
+    			return locationPathMap.get(query);
+    		
+    		LocationPath locationPath = LocationPath.parse(query, nsContext);
+    		locationPathMap.put(query, locationPath);
+    		return locationPath;
+    	}
+    	
+    	
+    	private XPathExpression getExpression(Layer layer, String query) throws XPathExpressionException
+    	{
+    		Map<String, XPathExpression> expressions = expressionMap.get(layer);
+    		if(expressions == null)
+    		{
+    			expressions = createLRUMap();
+    			expressionMap.put(layer, expressions);
+    		}
+    		
+    		XPathExpression expression = expressions.get(query);
+    		if(expression == null)
+    		{
+    			expression = xpath.compile(query);
+    			expressions.put(query, expression);
+    		}
+    		
+    		return expression;
+    	}
+    }
     
     
     public static enum Layer 
@@ -107,22 +194,28 @@ public class DrivingTaskDataQuery
 			
 			// look up path names for scene, scenario, interaction and settings files
 			lookupPathNames(pathToPropertiesFile);
+			
+			// cache entries depend on the content of all driving task and schema files
+			cache = new DrivingTaskCache(Arrays.asList(new File(pathToPropertiesFile), 
+					new File(scenePath), new File(scenarioPath), new File(interactionPath), 
+					new File(settingsPath), new File(sceneSchema), new File(scenarioSchema), 
+					new File(interactionSchema), new File(settingsSchema)));
 	        
 	        // validate scene file
 			errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid scene file: " + scenePath;
-			scene = validateFile(scenePath, sceneSchema);
+			scene = loadFile(scenePath, sceneSchema, "scene.xml");
 			
 			// validate scenario file
 			errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid scenario file: " + scenarioPath;
-	        scenario = validateFile(scenarioPath, scenarioSchema);
+	        scenario = loadFile(scenarioPath, scenarioSchema, "scenario.xml");
 	        
 	        // validate interaction file
 	        errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid interaction file: " + interactionPath;
-	        interaction = validateFile(interactionPath, interactionSchema);
+	        interaction = loadFile(interactionPath, interactionSchema, "interaction.xml");
 	        
 	        // validate settings file
 	        errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid settings file: " + settingsPath;
-	        settings = validateFile(settingsPath, settingsSchema);
+	        settings = loadFile(settingsPath, settingsSchema, "settings.xml");
 	        
 	        if((scene != null) && (scenario != null) && (interaction != null) && (settings != null))
 	        	isValid = true;
@@ -176,6 +269,15 @@ public class DrivingTaskDataQuery
 	}
 
 
+	/**
+	 * @return the cache of this driving task
+	 */
+	public DrivingTaskCache getCache()
+	{
+		return cache;
+	}
+
+
 	public String getScenePath()
 	{
 		return scenePath;
@@ -202,10 +304,32 @@ public class DrivingTaskDataQuery
 	
 	public Waypoint getWayPoint(Layer layer, String path) 
 	{
-		String id = getValue(layer, path + "/@id", String.class);
-		Vector3f translation = getVector3f(layer, path + "/" + layer + ":translation");
-		Float speed = getValue(layer, path + "/" + layer + ":speed", Float.class);
-		String trafficLightID = getValue(layer, path + "/" + layer + ":trafficLight", String.class);
+		Node node = (Node) xPathQuery(layer, path, XPathConstants.NODE);
+		if(node == null)
+			return null;
+		
+		return getWayPoint(layer, node);
+	}
+	
+	
+	/**
+	 * Reads a way point from the given way point node.
+	 * 
+	 * @param layer
+	 * 			Layer containing the node.
+	 * 
+	 * @param node
+	 * 			Way point node.
+	 * 
+	 * @return
+	 * 			Way point or null, if ID, translation or speed is missing.
+	 */
+	public Waypoint getWayPoint(Layer layer, Node node) 
+	{
+		String id = getValue(layer, node, "@id", String.class);
+		Vector3f translation = getVector3f(layer, node, layer + ":translation");
+		Float speed = getValue(layer, node, layer + ":speed", Float.class);
+		String trafficLightID = getValue(layer, node, layer + ":trafficLight", String.class);
 
 		if((id != null) && (translation != null) && (speed != null))
 			return new Waypoint(id, translation, speed, trafficLightID);
@@ -215,16 +339,29 @@ public class DrivingTaskDataQuery
 	
 	
 	public <T> List<T> getArray(Layer layer, String path, Class<T> cast) 
+	{
+		return getArray(layer, null, path, cast);
+	}
+	
+	
+	public <T> List<T> getArray(Layer layer, Node context, String path, Class<T> cast) 
 	{
 		try {
 			
-			NodeList arrayNodes = (NodeList) xPathQuery(layer, 
-					path + "/" + layer + ":vector/" + layer + ":entry", XPathConstants.NODESET);
+			List<String> entries = getVectorEntries(layer, context, path);
+			if(entries == null)
+				return new ArrayList<T>();
 
-			List<T> array = new ArrayList<T>(arrayNodes.getLength());
+			List<T> array = new ArrayList<T>(entries.size());
 			
-			for (int k = 1; k <= arrayNodes.getLength(); k++) 
-				array.add(getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry["+k+"]", cast));
+			for (String entry : entries) 
+			{
+				try {
+					array.add(convert(entry, cast));
+				} catch (Exception e) {
+					array.add(null);
+				}
+			}
 
 			return array;
 			
@@ -237,12 +374,19 @@ public class DrivingTaskDataQuery
 	
 	
 	public Vector3f getVector3f(Layer layer, String path) 
+	{
+		return getVector3f(layer, null, path);
+	}
+	
+	
+	public Vector3f getVector3f(Layer layer, Node context, String path) 
 	{		
 		try {
-				
-			float x = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[1]", Float.class);
-			float y = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[2]", Float.class);
-			float z = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[3]", Float.class);
+			
+			List<String> entries = getVectorEntries(layer, context, path);
+			float x = Float.parseFloat(entries.get(0));
+			float y = Float.parseFloat(entries.get(1));
+			float z = Float.parseFloat(entries.get(2));
 			return new Vector3f(x,y,z);
 			
 		} catch (Exception e) {
@@ -254,13 +398,20 @@ public class DrivingTaskDataQuery
 
 
 	public ColorRGBA getColorRGBA(Layer layer, String path) 
+	{
+		return getColorRGBA(layer, null, path);
+	}
+	
+	
+	public ColorRGBA getColorRGBA(Layer layer, Node context, String path) 
 	{
 		try {
 			
-			float r = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[1]", Float.class);
-			float g = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[2]", Float.class);
-			float b = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[3]", Float.class);
-			float a = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[4]", Float.class);
+			List<String> entries = getVectorEntries(layer, context, path);
+			float r = Float.parseFloat(entries.get(0));
+			float g = Float.parseFloat(entries.get(1));
+			float b = Float.parseFloat(entries.get(2));
+			float a = Float.parseFloat(entries.get(3));
 			return new ColorRGBA(r,g,b,a);
 			
 		} catch (Exception e) {
@@ -273,18 +424,30 @@ public class DrivingTaskDataQuery
 	
 	public Quaternion getQuaternion(Layer layer, String path) 
 	{
-		Boolean isQuaternion = getValue(layer, path + "/@quaternion", Boolean.class);
-		if(isQuaternion == null)
-			isQuaternion = false;
-				
+		return getQuaternion(layer, null, path);
+	}
+	
+	
+	public Quaternion getQuaternion(Layer layer, Node context, String path) 
+	{
+		Node node = (Node) xPathQuery(layer, context, path, XPathConstants.NODE);
+		if(node == null)
+			return null;
+		
+		Boolean isQuaternion = false;
+		if(node instanceof Element)
+			isQuaternion = Boolean.parseBoolean(((Element) node).getAttribute("quaternion"));
+		
+		List<String> entries = getVectorEntries(node);
+		
 		if(isQuaternion)
 		{
 			try {
 				
-				float x = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[1]", Float.class);
-				float y = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[2]", Float.class);
-				float z = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[3]", Float.class);
-				float w = getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[4]", Float.class);
+				float x = Float.parseFloat(entries.get(0));
+				float y = Float.parseFloat(entries.get(1));
+				float z = Float.parseFloat(entries.get(2));
+				float w = Float.parseFloat(entries.get(3));
 				return new Quaternion(x,y,z,w);
 				
 			} catch (Exception e) {
@@ -297,9 +460,9 @@ public class DrivingTaskDataQuery
 		{
 			try {
 					
-				float yaw = degToRad(getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[1]", Float.class));
-				float roll = degToRad(getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[2]", Float.class));
-				float pitch = degToRad(getValue(layer, path + "/" + layer + ":vector/" + layer + ":entry[3]", Float.class));
+				float yaw = degToRad(Float.parseFloat(entries.get(0)));
+				float roll = degToRad(Float.parseFloat(entries.get(1)));
+				float pitch = degToRad(Float.parseFloat(entries.get(2)));
 				return new Quaternion().fromAngles(yaw, roll, pitch);
 				
 			} catch (Exception e) {
@@ -311,6 +474,56 @@ public class DrivingTaskDataQuery
 	}
 	
 	
+	/**
+	 * Looks up the node at the given path and returns the text of all
+	 * entries of its vector, e.g. 
+	 * &lt;translation&gt;&lt;vector&gt;&lt;entry&gt;1&lt;/entry&gt;...&lt;/vector&gt;&lt;/translation&gt;
+	 * Instead of querying each entry by index, the vector will be walked once.
+	 * 
+	 * @return
+	 * 			List of entry texts or null, if the node does not exist.
+	 */
+	private List<String> getVectorEntries(Layer layer, Node context, String path)
+	{
+		Node node = (Node) xPathQuery(layer, context, path, XPathConstants.NODE);
+		if(node == null)
+			return null;
+		
+		return getVectorEntries(node);
+	}
+	
+	
+	private static List<String> getVectorEntries(Node node)
+	{
+		List<String> entries = new ArrayList<String>(4);
+		
+		for(Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			if(child.getNodeType() == Node.ELEMENT_NODE && "vector".equals(getLocalName(child)))
+			{
+				for(Node entry = child.getFirstChild(); entry != null; entry = entry.getNextSibling())
+				{
+					if(entry.getNodeType() == Node.ELEMENT_NODE && "entry".equals(getLocalName(entry)))
+						entries.add(entry.getTextContent());
+				}
+				break;
+			}
+		}
+		
+		return entries;
+	}
+	
+	
+	private static String getLocalName(Node node)
+	{
+		String localName = node.getLocalName();
+		if(localName != null)
+			return localName;
+		
+		return node.getNodeName();
+	}
+	
+	
 	/**
 	 * Transforms degree to radian angles
 	 * 
@@ -329,7 +542,13 @@ public class DrivingTaskDataQuery
 	
 	public boolean hasChild(Layer layer, String path, String childNode) 
 	{
-		Node node = (Node) xPathQuery(layer, path + "/" + layer + ":" + childNode, XPathConstants.NODE);
+		return hasChild(layer, null, path, childNode);
+	}
+	
+	
+	public boolean hasChild(Layer layer, Node context, String path, String childNode) 
+	{
+		Node node = (Node) xPathQuery(layer, context, path + "/" + layer + ":" + childNode, XPathConstants.NODE);
 		if((node != null) && (node.getNodeName() != null) && (node.getNodeName().equalsIgnoreCase(childNode)))
 			return true;
 		
@@ -345,12 +564,29 @@ public class DrivingTaskDataQuery
      * @param cast result will be casted to the class
      * @return the casted XPath query result
      */
-    @SuppressWarnings("unchecked")
 	public <T> T getValue(Layer layer, String query, Class<T> cast)
+    {
+		return getValue(layer, null, query, cast);
+    }
+	
+	
+    /**
+     * Executes a XPath query relative to the given node (e.g. "scenario:speed"
+     * for the current way point), which avoids building an indexed path for 
+     * each element of a list.
+     * @param <T> return type
+     * @param layer the driving task layer DrivingTaskDataQuery.Layer
+     * @param context node the query will be evaluated on; if null, the query
+     *        will be evaluated on the layer's document
+     * @param query the XPath query
+     * @param cast result will be casted to the class
+     * @return the casted XPath query result
+     */
+	public <T> T getValue(Layer layer, Node context, String query, Class<T> cast)
     {
         try {
 
-            String stringValue = (String) xPathQuery(layer, query, XPathConstants.STRING);
+            String stringValue = (String) xPathQuery(layer, context, query, XPathConstants.STRING);
             
             if (verbose) 
             {
@@ -358,33 +594,60 @@ public class DrivingTaskDataQuery
                 System.out.println("Result: " + stringValue);
             }
             
-            Constructor<T> constructor = cast.getConstructor(String.class);
-            Object obj = constructor.newInstance(stringValue);
-            return (T) obj;
+            return convert(stringValue, cast);
 
         } catch (Exception ex) {
             //Logger.getLogger(DrivingTaskDataQuery.class.getName()).log(Level.SEVERE, null, ex);
         	return null;
         }
     }
+	
+	
+    @SuppressWarnings("unchecked")
+	private static <T> T convert(String stringValue, Class<T> cast) throws Exception
+	{
+		if(cast == String.class)
+			return (T) stringValue;
+		
+        Constructor<T> constructor = cast.getConstructor(String.class);
+        Object obj = constructor.newInstance(stringValue);
+        return (T) obj;
+	}
     
 	
 	public Object xPathQuery(Layer layer, String query, QName xPathConst) 
+    {
+		return xPathQuery(layer, null, query, xPathConst);
+    }
+	
+	
+	/**
+	 * Evaluates the given XPath query on the given node (or on the layer's 
+	 * document, if node is null). Compiled expressions will be cached per 
+	 * thread, as neither XPath nor XPathExpression objects are thread-safe.
+	 */
+	public Object xPathQuery(Layer layer, Node context, String query, QName xPathConst) 
     {
         try {
 
-            final XPath xpath = XPathFactory.newInstance().newXPath();
-            
-            NamespaceContext nsContext = new DrivingTaskNamespaceContext();
-            xpath.setNamespaceContext(nsContext);
-
-            if (!query.startsWith("/")) {
+            if (context == null && !query.startsWith("/")) {
                 query = "/" + layer.toString() + ":" + layer.toString() + "/" + query;
             }
 
-            final XPathExpression expr = xpath.compile(query);
-            Document document = lookUpSource(layer);
-            return expr.evaluate(document, xPathConst);
+            XPathCache cache = xPathCache.get();
+            Node source = (context != null) ? context : lookUpSource(layer);
+            
+            // the JDK's XPath implementation converts the whole document on each 
+            // evaluation --> walk the DOM for simple location paths instead
+            if(source != null && xPathConst != XPathConstants.NUMBER && xPathConst != XPathConstants.BOOLEAN)
+            {
+            	LocationPath locationPath = cache.getLocationPath(query);
+            	if(locationPath != null)
+            		return locationPath.evaluate(source, xPathConst);
+            }
+            
+            XPathExpression expr = cache.getExpression(layer, query);
+            return expr.evaluate(source, xPathConst);
 
         } catch (XPathExpressionException ex) {
             Logger.getLogger(DrivingTaskDataQuery.class.getName()).log(Level.SEVERE, null, ex);
@@ -449,6 +712,23 @@ public class DrivingTaskDataQuery
     }
     
     
+	/**
+	 * Returns the given file as validated document. Validation will be skipped 
+	 * if the file has been validated before (i.e. it is found in the cache).
+	 */
+	private Document loadFile(String filePath, String schemaSource, String cacheEntry) 
+			throws SAXException, ParserConfigurationException, IOException
+	{
+		Document document = cache.loadDocument(cacheEntry);
+		if(document == null)
+		{
+			document = validateFile(filePath, schemaSource);
+			cache.saveDocument(cacheEntry, document);
+		}
+		return document;
+	}
+	
+	
 	private Document validateFile(String filePath, String schemaSource) 
 			throws SAXException, ParserConfigurationException, IOException
 	{
@@ -457,6 +737,14 @@ public class DrivingTaskDataQuery
 		// create new DocumentBuilderFactory and set validation properties
 		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 		
+		// expand all nodes while parsing, as deferred expansion would modify 
+		// the document when it is read (possibly by several loader threads)
+		try {
+			factory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+		} catch (ParserConfigurationException e) {
+			// feature not supported by parser --> nodes will not be deferred anyway
+		}
+		
 		if(!schemaSource.equalsIgnoreCase(""))
 		{
 			factory.setNamespaceAware(true);
@@ -0,0 +1,280 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.drivingTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPathConstants;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Simple XPath location path (e.g. "/scene:scene/scene:models/scene:model[3]/@id"
+ * or "scenario:translation") which will be evaluated by walking the DOM directly.
+ * Only child steps with optional position predicates and a final attribute
+ * step are supported; use parse() to check whether a query can be handled.
+ *
+ * The XPath implementation of the JDK converts the whole document into its
+ * internal model on every evaluation, which makes thousands of small queries
+ * on a large driving task very slow.
+ *
+ * @author Rafael Math
+ */
+final class LocationPath
+{
+	private boolean isAbsolute;
+	private String[] namespaces;
+	private String[] localNames;
+	private int[] positions;
+	private String attributeName = null;
+
+
+	private LocationPath()
+	{
+	}
+
+
+	/**
+	 * Parses the given query.
+	 *
+	 * @param query
+	 * 			XPath query
+	 *
+	 * @param nsContext
+	 * 			Namespace context to resolve prefixes
+	 *
+	 * @return
+	 * 			Location path or null, if the query is not a simple location path.
+	 */
+	static LocationPath parse(String query, NamespaceContext nsContext)
+	{
+		LocationPath path = new LocationPath();
+		path.isAbsolute = query.startsWith("/");
+
+		String[] steps = (path.isAbsolute ? query.substring(1) : query).split("/", -1);
+
+		List<String> namespaces = new ArrayList<String>(steps.length);
+		List<String> localNames = new ArrayList<String>(steps.length);
+		List<Integer> positions = new ArrayList<Integer>(steps.length);
+
+		for(int i=0; i<steps.length; i++)
+		{
+			String step = steps[i];
+
+			if(step.startsWith("@"))
+			{
+				// attribute steps are only supported at the end of the path
+				String name = step.substring(1);
+				if(i != steps.length-1 || !isName(name))
+					return null;
+
+				path.attributeName = name;
+				break;
+			}
+
+			int position = 0;
+			int bracket = step.indexOf('[');
+			if(bracket >= 0)
+			{
+				if(!step.endsWith("]"))
+					return null;
+
+				try {
+					position = Integer.parseInt(step.substring(bracket+1, step.length()-1));
+				} catch (NumberFormatException e) {
+					return null;
+				}
+
+				if(position < 1)
+					return null;
+
+				step = step.substring(0, bracket);
+			}
+
+			String namespace = XMLConstants.NULL_NS_URI;
+			String localName = step;
+			int colon = step.indexOf(':');
+			if(colon >= 0)
+			{
+				namespace = nsContext.getNamespaceURI(step.substring(0, colon));
+				localName = step.substring(colon+1);
+			}
+
+			if(!isName(localName))
+				return null;
+
+			namespaces.add(namespace);
+			localNames.add(localName);
+			positions.add(position);
+		}
+
+		if(namespaces.isEmpty() && path.attributeName == null)
+			return null;
+
+		path.namespaces = namespaces.toArray(new String[namespaces.size()]);
+		path.localNames = localNames.toArray(new String[localNames.size()]);
+		path.positions = new int[positions.size()];
+		for(int i=0; i<path.positions.length; i++)
+			path.positions[i] = positions.get(i);
+
+		return path;
+	}
+
+
+	private static boolean isName(String name)
+	{
+		if(name.length() == 0)
+			return false;
+
+		for(int i=0; i<name.length(); i++)
+		{
+			char c = name.charAt(i);
+			if(!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.')
+				return false;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Evaluates this path like an XPath expression.
+	 *
+	 * @param context
+	 * 			Node to evaluate relative paths on; absolute paths will be
+	 * 			evaluated on the context node's document.
+	 *
+	 * @param returnType
+	 * 			XPathConstants.STRING, NODE or NODESET
+	 *
+	 * @return
+	 * 			String value, node (or null) or node list
+	 */
+	Object evaluate(Node context, QName returnType)
+	{
+		List<Node> nodes = new ArrayList<Node>();
+
+		if(isAbsolute)
+		{
+			Document document = (context instanceof Document) ? (Document) context : context.getOwnerDocument();
+			nodes.add(document);
+		}
+		else
+			nodes.add(context);
+
+		// select child elements step by step (document order will be preserved)
+		for(int i=0; i<localNames.length && !nodes.isEmpty(); i++)
+		{
+			List<Node> children = new ArrayList<Node>();
+			for(Node node : nodes)
+			{
+				int count = 0;
+				for(Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+				{
+					if(matches(child, i))
+					{
+						count++;
+						if(positions[i] == 0 || positions[i] == count)
+							children.add(child);
+
+						if(positions[i] == count)
+							break;
+					}
+				}
+			}
+			nodes = children;
+		}
+
+		if(attributeName != null)
+		{
+			List<Node> attributes = new ArrayList<Node>(nodes.size());
+			for(Node node : nodes)
+			{
+				if(node instanceof Element)
+				{
+					Node attribute = ((Element) node).getAttributeNode(attributeName);
+					if(attribute != null)
+						attributes.add(attribute);
+				}
+			}
+			nodes = attributes;
+		}
+
+		if(returnType == XPathConstants.STRING)
+			return nodes.isEmpty() ? "" : nodes.get(0).getTextContent();
+		else if(returnType == XPathConstants.NODE)
+			return nodes.isEmpty() ? null : nodes.get(0);
+		else
+			return new ListNodeList(nodes);
+	}
+
+
+	private boolean matches(Node node, int step)
+	{
+		if(node.getNodeType() != Node.ELEMENT_NODE)
+			return false;
+
+		String localName = node.getLocalName();
+		if(localName == null)
+		{
+			// document has not been parsed namespace-aware
+			return (namespaces[step].equals(XMLConstants.NULL_NS_URI) &&
+					localNames[step].equals(node.getNodeName()));
+		}
+
+		String namespace = node.getNamespaceURI();
+		if(namespace == null)
+			namespace = XMLConstants.NULL_NS_URI;
+
+		return localNames[step].equals(localName) && namespaces[step].equals(namespace);
+	}
+
+
+	private static class ListNodeList implements NodeList
+	{
+		private List<Node> nodes;
+
+
+		private ListNodeList(List<Node> nodes)
+		{
+			this.nodes = nodes;
+		}
+
+
+		@Override
+		public Node item(int index)
+		{
+			return (index >= 0 && index < nodes.size()) ? nodes.get(index) : null;
+		}
+
+
+		@Override
+		public int getLength()
+		{
+			return nodes.size();
+		}
+	}
+}
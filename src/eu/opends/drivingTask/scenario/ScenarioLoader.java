@@ -151,10 +151,10 @@ public class ScenarioLoader
 
 			for (int k = 1; k <= positionNodes.getLength(); k++) 
 			{
-				ResetPosition resetPosition = createResetPosition(path + "["+k+"]");
+				Node currentNode = positionNodes.item(k-1);
+				ResetPosition resetPosition = createResetPosition(currentNode);
 			
-				String resetPositionRef = dtData.getValue(Layer.SCENARIO, 
-						path + "["+k+"]/@ref", String.class);
+				String resetPositionRef = dtData.getValue(Layer.SCENARIO, currentNode, "@ref", String.class);
 
 				Map<String, ResetPosition> resetPositionMap = sceneLoader.getResetPositionMap();
 				
@@ -185,11 +185,13 @@ public class ScenarioLoader
 
 			for (int k = 1; k <= laneNodes.getLength(); k++) 
 			{
-				String laneID = dtData.getValue(Layer.SCENARIO, path + "["+k+"]/@id", String.class);
+				Node currentNode = laneNodes.item(k-1);
 				
-				Float xMin = dtData.getValue(Layer.SCENARIO, path + "["+k+"]/scenario:xMin", Float.class);
+				String laneID = dtData.getValue(Layer.SCENARIO, currentNode, "@id", String.class);
 				
-				Float xMax = dtData.getValue(Layer.SCENARIO, path + "["+k+"]/scenario:xMax", Float.class);
+				Float xMin = dtData.getValue(Layer.SCENARIO, currentNode, "scenario:xMin", Float.class);
+				
+				Float xMax = dtData.getValue(Layer.SCENARIO, currentNode, "scenario:xMax", Float.class);
 				
 				
 				if(laneID != null && !laneID.isEmpty() && xMin != null && xMax != null)
@@ -205,11 +207,11 @@ public class ScenarioLoader
 	}
 	
 
-	private ResetPosition createResetPosition(String path) 
+	private ResetPosition createResetPosition(Node node) 
 	{
-		String id = dtData.getValue(Layer.SCENARIO, path + "/@id", String.class);
-		Vector3f translation = dtData.getVector3f(Layer.SCENARIO, path + "/scenario:translation");
-		Quaternion rotation = dtData.getQuaternion(Layer.SCENARIO, path + "/scenario:rotation");
+		String id = dtData.getValue(Layer.SCENARIO, node, "@id", String.class);
+		Vector3f translation = dtData.getVector3f(Layer.SCENARIO, node, "scenario:translation");
+		Quaternion rotation = dtData.getQuaternion(Layer.SCENARIO, node, "scenario:rotation");
 
 		if((id != null) && (translation != null) && (rotation != null))
 			return new ResetPosition(id, translation, rotation);
@@ -238,11 +240,13 @@ public class ScenarioLoader
 
 			for (int k = 1; k <= pointNodes.getLength(); k++) 
 			{
-				Vector3f point = dtData.getVector3f(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:driver/scenario:cameraFlight/scenario:track/scenario:point["+k+"]/scenario:translation");
+				Node currentNode = pointNodes.item(k-1);
+				
+				Vector3f point = dtData.getVector3f(Layer.SCENARIO, currentNode, 
+						"scenario:translation");
 				
-				String pointRef = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:driver/scenario:cameraFlight/scenario:track/scenario:point["+k+"]/@ref", String.class);
+				String pointRef = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"@ref", String.class);
 
 				Map<String, Vector3f> pointMap = sceneLoader.getPointMap();
 				
@@ -445,8 +449,10 @@ public class ScenarioLoader
 
 			for (int k = 1; k <= landmarkObjectNodes.getLength(); k++) 
 			{
-				String landmarkObjectId = dtData.getValue(Layer.SCENARIO, 
-						steeringTaskPath + "/scenario:secondaryTask/scenario:landmarkObjects/scenario:landmarkObject["+k+"]/@id", String.class);
+				Node currentNode = landmarkObjectNodes.item(k-1);
+				
+				String landmarkObjectId = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"@id", String.class);
 				
 				if(landmarkObjectId != null)
 					stLandmarkObjectsList.add(landmarkObjectId);
@@ -461,8 +467,10 @@ public class ScenarioLoader
 
 			for (int k = 1; k <= landmarkTextureNodes.getLength(); k++) 
 			{
-				String landmarkTexturesUrl = dtData.getValue(Layer.SCENARIO, 
-						steeringTaskPath + "/scenario:secondaryTask/scenario:landmarkTextures/scenario:landmarkTexture["+k+"]/@url", String.class);
+				Node currentNode = landmarkTextureNodes.item(k-1);
+				
+				String landmarkTexturesUrl = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"@url", String.class);
 				
 				if(landmarkTexturesUrl != null)
 					stLandmarkTexturesList.add(landmarkTexturesUrl);
@@ -477,8 +485,10 @@ public class ScenarioLoader
 
 			for (int k = 1; k <= distractorTextureNodes.getLength(); k++) 
 			{
-				String distractorTexturesUrl = dtData.getValue(Layer.SCENARIO, 
-						steeringTaskPath + "/scenario:secondaryTask/scenario:distractorTextures/scenario:distractorTexture["+k+"]/@url", String.class);
+				Node currentNode = distractorTextureNodes.item(k-1);
+				
+				String distractorTexturesUrl = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"@url", String.class);
 				
 				if(distractorTexturesUrl != null)
 					stDistractorTexturesList.add(distractorTexturesUrl);
@@ -512,41 +522,10 @@ public class ScenarioLoader
 	
 	public void extractIdealLine()
 	{
-		List<Vector3f> idealPoints = new ArrayList<Vector3f>();
-		
 		try {
 			
-			NodeList pointNodes = (NodeList) dtData.xPathQuery(Layer.SCENARIO, 
-					"/scenario:scenario/scenario:driver/scenario:idealTrack/scenario:point", XPathConstants.NODESET);
-
-			for (int k = 1; k <= pointNodes.getLength(); k++) 
-			{
-				Vector3f point = dtData.getVector3f(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:driver/scenario:idealTrack/scenario:point["+k+"]/scenario:translation");
-				
-				String pointRef = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:driver/scenario:idealTrack/scenario:point["+k+"]/@ref", String.class);
-
-				Map<String, Vector3f> pointMap = sceneLoader.getPointMap();
-				
-				if(point != null)
-				{
-					idealPoints.add(point);
-				}
-				else if((pointRef != null) && (pointMap.containsKey(pointRef)))
-				{
-					Vector3f translation = pointMap.get(pointRef);
-					idealPoints.add(translation);
-				}
-				else 
-					throw new Exception("Error in ideal point list");
-			}
-			
-			for(Vector3f idealPoint : idealPoints)
-			{
-				Vector2f idealPoint2f = new Vector2f(idealPoint.getX(), idealPoint.getZ());
+			for(Vector2f idealPoint2f : readIdealLine(dtData, sceneLoader.getPointMap()))
 				((DriveAnalyzer) sim).getDeviationComputer().addIdealPoint(idealPoint2f);
-			}
 			
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -554,6 +533,53 @@ public class ScenarioLoader
 	}
 	
 	
+	/**
+	 * Reads the ideal track of the driver. Does not need a running simulation, 
+	 * hence it can be used for headless processing of driving tasks.
+	 * 
+	 * @param dtData
+	 * 			Driving task to read the ideal track from.
+	 * 
+	 * @param pointMap
+	 * 			Points of the scene which may be referenced by the ideal track.
+	 * 
+	 * @return
+	 * 			List of ideal points (x/z-plane).
+	 * 
+	 * @throws Exception
+	 * 			if an ideal point could not be resolved.
+	 */
+	public static List<Vector2f> readIdealLine(DrivingTaskDataQuery dtData, Map<String, Vector3f> pointMap) 
+			throws Exception
+	{
+		List<Vector2f> idealPoints = new ArrayList<Vector2f>();
+		
+		NodeList pointNodes = (NodeList) dtData.xPathQuery(Layer.SCENARIO, 
+				"/scenario:scenario/scenario:driver/scenario:idealTrack/scenario:point", XPathConstants.NODESET);
+
+		for (int k = 1; k <= pointNodes.getLength(); k++) 
+		{
+			Node currentNode = pointNodes.item(k-1);
+			
+			Vector3f point = dtData.getVector3f(Layer.SCENARIO, currentNode, 
+					"scenario:translation");
+			
+			String pointRef = dtData.getValue(Layer.SCENARIO, currentNode, 
+					"@ref", String.class);
+			
+			if(point == null && (pointRef != null) && (pointMap.containsKey(pointRef)))
+				point = pointMap.get(pointRef);
+			
+			if(point == null)
+				throw new Exception("Error in ideal point list");
+			
+			idealPoints.add(new Vector2f(point.getX(), point.getZ()));
+		}
+		
+		return idealPoints;
+	}
+	
+	
 	public WeatherSettings getWeatherSettings()
 	{
 		Float snowingPercentage = dtData.getValue(Layer.SCENARIO, 
@@ -643,68 +669,69 @@ public class ScenarioLoader
 
 			for (int k = 1; k <= pointNodes.getLength(); k++) 
 			{
+				Node currentNode = pointNodes.item(k-1);
+				
 				/*
-				String modelRef = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/@ref", String.class);
+				String modelRef = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"@ref", String.class);
 				
-				Float simulationRate = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:simulationRate", Float.class);
+				Float simulationRate = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:simulationRate", Float.class);
 		
-				Float pivotPosition = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:pivotPosition", Float.class);
+				Float pivotPosition = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:pivotPosition", Float.class);
 				
-				Float frontSide = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:frontSide", Float.class);
+				Float frontSide = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:frontSide", Float.class);
 				
-				Float acceleration = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:acceleration", Float.class);
+				Float acceleration = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:acceleration", Float.class);
 				
-				Float yRotationSpeed = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:yRotationSpeed", Float.class);
+				Float yRotationSpeed = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:yRotationSpeed", Float.class);
 				
-				Float zRotationSpeed = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:zRotationSpeed", Float.class);
+				Float zRotationSpeed = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:zRotationSpeed", Float.class);
 				*/
 				
 
-				String name = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/@id", String.class);
+				String name = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"@id", String.class);
 				
-				Float mass = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:mass", Float.class);
+				Float mass = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:mass", Float.class);
 
-				Float acceleration = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:acceleration", Float.class);
+				Float acceleration = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:acceleration", Float.class);
 				
-				Float decelerationBrake = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:decelerationBrake", Float.class);
+				Float decelerationBrake = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:decelerationBrake", Float.class);
 				
-				Float decelerationFreeWheel = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:decelerationFreeWheel", Float.class);
+				Float decelerationFreeWheel = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:decelerationFreeWheel", Float.class);
 				
-				Boolean engineOn = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:engineOn", Boolean.class);
+				Boolean engineOn = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:engineOn", Boolean.class);
 				
-				String modelPath = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:modelPath", String.class);
+				String modelPath = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:modelPath", String.class);
 				
-				ArrayList<Waypoint> wayPoints = extractWayPoints(
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:wayPoints/scenario:wayPoint");
+				ArrayList<Waypoint> wayPoints = extractWayPoints(currentNode, "scenario:wayPoints/scenario:wayPoint");
 				
-				Float curveTension = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:curveTension", Float.class);
+				Float curveTension = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:curveTension", Float.class);
 				
-				Float maxDistance = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:maxDistanceFromPath", Float.class);
+				Float maxDistance = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:maxDistanceFromPath", Float.class);
 		
-				Boolean pathIsCycle = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:pathIsCycle", Boolean.class);
+				Boolean pathIsCycle = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:pathIsCycle", Boolean.class);
 				
-				Boolean pathIsVisible = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:pathIsVisible", Boolean.class);
+				Boolean pathIsVisible = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:pathIsVisible", Boolean.class);
 				
-				String startWayPoint = dtData.getValue(Layer.SCENARIO, 
-						"/scenario:scenario/scenario:traffic/scenario:vehicle["+k+"]/scenario:startWayPoint", String.class);
+				String startWayPoint = dtData.getValue(Layer.SCENARIO, currentNode, 
+						"scenario:startWayPoint", String.class);
 
 				
 				TrafficCarData trafficCarData = new TrafficCarData(name, mass, acceleration, decelerationBrake, 
@@ -721,19 +748,31 @@ public class ScenarioLoader
 	
 
 	public ArrayList<Waypoint> extractWayPoints(String path)
+	{
+		return extractWayPoints(null, path);
+	}
+	
+
+	/**
+	 * Extracts the way points at the given path relative to the given node 
+	 * (e.g. a vehicle node). If node is null, the path will be evaluated on
+	 * the scenario document.
+	 */
+	public ArrayList<Waypoint> extractWayPoints(Node context, String path)
 	{
 		ArrayList<Waypoint> wayPoints = new ArrayList<Waypoint>();
 		
 		try {
-			NodeList pointNodes = (NodeList) dtData.xPathQuery(Layer.SCENARIO, 
+			NodeList pointNodes = (NodeList) dtData.xPathQuery(Layer.SCENARIO, context,
 					path, XPathConstants.NODESET);
 
 			for (int k = 1; k <= pointNodes.getLength(); k++) 
 			{
-				Waypoint wayPoint = dtData.getWayPoint(Layer.SCENARIO, path + "["+k+"]");
+				Node currentNode = pointNodes.item(k-1);
+				
+				Waypoint wayPoint = dtData.getWayPoint(Layer.SCENARIO, currentNode);
 			
-				String wayPointRef = dtData.getValue(Layer.SCENARIO, 
-						path + "["+k+"]/@ref", String.class);
+				String wayPointRef = dtData.getValue(Layer.SCENARIO, currentNode, "@ref", String.class);
 
 				Map<String, Vector3f> pointMap = sceneLoader.getPointMap();
 				
@@ -744,8 +783,8 @@ public class ScenarioLoader
 				else if((wayPointRef != null) && (pointMap.containsKey(wayPointRef)))
 				{
 					Vector3f translation = pointMap.get(wayPointRef);
-					Float speed = dtData.getValue(Layer.SCENARIO, path + "["+k+"]/scenario:speed", Float.class);
-					String trafficLightID = dtData.getValue(Layer.SCENARIO, path + "["+k+"]/scenario:trafficLight", String.class);
+					Float speed = dtData.getValue(Layer.SCENARIO, currentNode, "scenario:speed", Float.class);
+					String trafficLightID = dtData.getValue(Layer.SCENARIO, currentNode, "scenario:trafficLight", String.class);
 					
 					if((translation != null) && (speed != null))
 					{
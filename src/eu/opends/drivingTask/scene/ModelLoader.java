@@ -0,0 +1,299 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.drivingTask.scene;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jme3.asset.AssetEventListener;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.ModelKey;
+import com.jme3.export.Savable;
+import com.jme3.scene.Spatial;
+
+import eu.opends.drivingTask.DrivingTaskCache;
+import eu.opends.tools.WorkerPool;
+
+/**
+ * Loads the models of a scene in parallel on the worker pool. Each model
+ * file will be loaded once; every request returns a clone of the loaded
+ * model, which shares its meshes with all other clones. Models may be
+ * requested before loading has finished (e.g. while the driving task
+ * selection screen reports the progress), the caller will be blocked until
+ * the requested model is available. Models which are not stored in J3O
+ * format will be converted and kept in the driving task cache. As the
+ * converted model also depends on the assets referenced by the model file
+ * (e.g. materials, meshes, textures), all assets requested while loading
+ * a model will be recorded and included in the name of the cache entry.
+ *
+ * @author Rafael Math
+ */
+public class ModelLoader
+{
+	private AssetManager assetManager;
+	private DrivingTaskCache cache;
+	private Map<String, Future<Spatial>> modelMap = new HashMap<String, Future<Spatial>>();
+	private AtomicInteger loadedModels = new AtomicInteger(0);
+	
+	// names of all assets requested by the current thread while loading a model
+	private static final ThreadLocal<Set<String>> requestedAssets = new ThreadLocal<Set<String>>();
+	
+	private static final AssetEventListener assetRecorder = new AssetEventListener()
+	{
+		public void assetRequested(AssetKey key)
+		{
+			Set<String> assets = requestedAssets.get();
+			if(assets != null)
+				assets.add(key.getName());
+		}
+		
+		
+		public void assetLoaded(AssetKey key)
+		{
+		}
+		
+		
+		public void assetDependencyNotFound(AssetKey parentKey, AssetKey dependentAssetKey)
+		{
+		}
+	};
+
+
+	/**
+	 * Creates a model loader.
+	 * 
+	 * @param assetManager
+	 * 			Asset manager to load models with.
+	 * 
+	 * @param cache
+	 * 			Cache to store models in J3O format (may be null). Models in 
+	 * 			other formats will be converted at the first start only.
+	 */
+	public ModelLoader(AssetManager assetManager, DrivingTaskCache cache)
+	{
+		this.assetManager = assetManager;
+		this.cache = cache;
+		
+		// register recorder once per asset manager
+		assetManager.removeAssetEventListener(assetRecorder);
+		assetManager.addAssetEventListener(assetRecorder);
+	}
+
+
+	/**
+	 * Starts loading the given model files. Files that have been requested
+	 * before will not be loaded again.
+	 *
+	 * @param modelKeys
+	 * 			Asset keys of the model files, e.g. "Models/Cars/car.j3o"
+	 */
+	public synchronized void load(Collection<String> modelKeys)
+	{
+		for(final String modelKey : modelKeys)
+		{
+			if(modelMap.containsKey(modelKey))
+				continue;
+
+			Future<Spatial> future = WorkerPool.getExecutor().submit(new Callable<Spatial>()
+			{
+				public Spatial call() throws Exception
+				{
+					try {
+						return loadModel(modelKey);
+					} finally {
+						loadedModels.incrementAndGet();
+					}
+				}
+			});
+
+			modelMap.put(modelKey, future);
+		}
+	}
+
+
+	private Spatial loadModel(String modelKey)
+	{
+		if(cache == null || modelKey.toLowerCase().endsWith(".j3o"))
+			return assetManager.loadModel(modelKey);
+		
+		// entry changes whenever the model file or one of its assets changes
+		String assetListEntry = getAssetListEntry(modelKey);
+		List<String> assetList = cache.loadStrings(assetListEntry);
+		if(assetList != null)
+		{
+			Savable cachedModel = cache.loadSavable(getModelEntry(assetList), assetManager);
+			if(cachedModel instanceof Spatial)
+				return (Spatial) cachedModel;
+		}
+		
+		// load model (not from jME's cache) and record all assets requested meanwhile
+		Set<String> assets = new LinkedHashSet<String>();
+		assetManager.deleteFromCache(new ModelKey(modelKey));
+		requestedAssets.set(assets);
+		Spatial model;
+		try {
+			model = assetManager.loadModel(modelKey);
+		} finally {
+			requestedAssets.remove();
+		}
+		
+		// referenced assets could not be recorded --> do not cache
+		if(!assets.contains(modelKey))
+			return model;
+		
+		assetList = new ArrayList<String>(assets);
+		cache.saveSavable(getModelEntry(assetList), model);
+		cache.saveStrings(assetListEntry, assetList);
+		return model;
+	}
+	
+	
+	/**
+	 * Returns all files the given model has been made of, i.e. the model file 
+	 * and the assets it references, as recorded when the model was converted.
+	 * 
+	 * @param cache
+	 * 			Driving task cache.
+	 * 
+	 * @param modelKey
+	 * 			Asset key of the model file
+	 * 
+	 * @return
+	 * 			Model file and referenced files or null, if not known.
+	 */
+	public static List<File> getModelFiles(DrivingTaskCache cache, String modelKey)
+	{
+		// geometry of J3O models is contained in the model file
+		if(modelKey.toLowerCase().endsWith(".j3o"))
+			return Collections.singletonList(getAssetFile(modelKey));
+		
+		List<String> assetList = cache.loadStrings(getAssetListEntry(modelKey));
+		if(assetList == null)
+			return null;
+		
+		return getAssetFiles(assetList);
+	}
+	
+	
+	private static String getAssetListEntry(String modelKey)
+	{
+		return "model-" + DrivingTaskCache.hash(Collections.singleton(getAssetFile(modelKey))) + ".assets";
+	}
+	
+	
+	private static String getModelEntry(List<String> assetList)
+	{
+		return "model-" + DrivingTaskCache.hash(getAssetFiles(assetList)) + ".j3o";
+	}
+	
+	
+	private static List<File> getAssetFiles(List<String> assetList)
+	{
+		// assets of the engine (e.g. material definitions) are included by name
+		List<File> files = new ArrayList<File>(assetList.size());
+		for(String asset : assetList)
+			files.add(getAssetFile(asset));
+		return files;
+	}
+	
+	
+	private static File getAssetFile(String assetName)
+	{
+		return new File("assets", assetName);
+	}
+
+
+	/**
+	 * Returns a clone of the given model. If the model has not been loaded
+	 * yet, this method will block until it is available.
+	 *
+	 * @param modelKey
+	 * 			Asset key of the model file
+	 *
+	 * @return
+	 * 			Clone of the loaded model
+	 *
+	 * @throws Exception
+	 * 			if the model could not be loaded (e.g. AssetNotFoundException)
+	 */
+	public Spatial getModel(String modelKey) throws Exception
+	{
+		Future<Spatial> future;
+		synchronized(this)
+		{
+			if(!modelMap.containsKey(modelKey))
+				load(Collections.singleton(modelKey));
+
+			future = modelMap.get(modelKey);
+		}
+
+		try {
+
+			return future.get().clone();
+
+		} catch (ExecutionException e) {
+
+			// forward the original exception of the loader
+			Throwable cause = e.getCause();
+			if(cause instanceof Exception)
+				throw (Exception) cause;
+			else
+				throw e;
+		}
+	}
+
+
+	/**
+	 * Returns the number of model files requested so far.
+	 */
+	public synchronized int getNumberOfModels()
+	{
+		return modelMap.size();
+	}
+
+
+	/**
+	 * Returns the number of model files that have been loaded (or failed to load).
+	 */
+	public int getNumberOfLoadedModels()
+	{
+		return loadedModels.get();
+	}
+
+
+	/**
+	 * Returns true, if all requested model files have been processed.
+	 */
+	public boolean isDone()
+	{
+		return getNumberOfLoadedModels() >= getNumberOfModels();
+	}
+}
@@ -20,8 +20,10 @@ package eu.opends.drivingTask.scene;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import javax.xml.xpath.XPathConstants;
@@ -112,41 +114,41 @@ public class SceneLoader
 					
 					
 					// set positional
-					Boolean isPositional = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:positional/@value", Boolean.class);
+					Boolean isPositional = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:positional/@value", Boolean.class);
 					if(isPositional == null)
 						isPositional = false;
 					audioNode.setPositional(isPositional);
 					if(isPositional)
 					{
-						Vector3f translation = dtData.getVector3f(Layer.SCENE,
-								"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:positional/scene:translation");
+						Vector3f translation = dtData.getVector3f(Layer.SCENE, currentNode,
+								"scene:positional/scene:translation");
 						if(translation != null)
 							audioNode.setLocalTranslation(new Vector3f(0,0,0));
 					}
 					
 					
 					// set directional
-					Boolean isDirectional = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:directional/@value", Boolean.class);
+					Boolean isDirectional = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:directional/@value", Boolean.class);
 					if(isDirectional == null)
 						isDirectional = false;
 					audioNode.setDirectional(isDirectional);
 					if(isDirectional)
 					{
-						Vector3f direction = dtData.getVector3f(Layer.SCENE,
-								"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:directional/scene:direction");
+						Vector3f direction = dtData.getVector3f(Layer.SCENE, currentNode,
+								"scene:directional/scene:direction");
 						if(direction != null)
 							audioNode.setDirection(direction);
 						
-						Float innerAngle = dtData.getValue(Layer.SCENE,
-								"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:directional/scene:innerAngle", 
+						Float innerAngle = dtData.getValue(Layer.SCENE, currentNode,
+								"scene:directional/scene:innerAngle", 
 								Float.class);
 						if(innerAngle != null)
 							audioNode.setInnerAngle(dtData.degToRad(innerAngle));
 						
-						Float outerAngle = dtData.getValue(Layer.SCENE,
-								"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:directional/scene:outerAngle", 
+						Float outerAngle = dtData.getValue(Layer.SCENE, currentNode,
+								"scene:directional/scene:outerAngle", 
 								Float.class);
 						if(outerAngle != null)
 							audioNode.setOuterAngle(dtData.degToRad(outerAngle));
@@ -154,24 +156,24 @@ public class SceneLoader
 					
 					
 					// set looping
-					Boolean isLooping = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:loop", Boolean.class);
+					Boolean isLooping = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:loop", Boolean.class);
 					if(isLooping == null)
 						isLooping = false;
 					audioNode.setLooping(isLooping);
 					
 					
 					// set volume
-					Float volume = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:volume", Float.class);
+					Float volume = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:volume", Float.class);
 					if(volume == null)
 						volume = 0.5f;
 					audioNode.setVolume(volume);
 					
 					
 					// set pitch
-					Float pitch = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:sounds/scene:sound["+k+"]/scene:pitch", Float.class);
+					Float pitch = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:pitch", Float.class);
 					if(pitch == null)
 						pitch = 1.0f;
 					audioNode.setVolume(pitch);
@@ -218,32 +220,32 @@ public class SceneLoader
 					Picture picture = new Picture(pictureID);
 					
 					// set useAlpha
-					Boolean useAlpha = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:pictures/scene:picture["+k+"]/scene:useAlpha", Boolean.class);
+					Boolean useAlpha = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:useAlpha", Boolean.class);
 					if(useAlpha == null)
 						useAlpha = false;
 					picture.setImage(sim.getAssetManager(), pictureURL, useAlpha);
 					
 
 					// set width
-					Integer width = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:pictures/scene:picture["+k+"]/scene:width", Integer.class);
+					Integer width = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:width", Integer.class);
 					if(width == null)
 						width = 100;
 					picture.setWidth(width);
 					
 					
 					// set height
-					Integer height = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:pictures/scene:picture["+k+"]/scene:height", Integer.class);
+					Integer height = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:height", Integer.class);
 					if(height == null)
 						height = 100;
 					picture.setHeight(height);
 
 					
 					// set isVisible
-					Boolean isVisible = dtData.getValue(Layer.SCENE,
-							"/scene:scene/scene:pictures/scene:picture["+k+"]/scene:visible", Boolean.class);
+					Boolean isVisible = dtData.getValue(Layer.SCENE, currentNode,
+							"scene:visible", Boolean.class);
 					if(isVisible == null)
 						isVisible = false;
 					picture.setCullHint(isVisible?CullHint.Dynamic:CullHint.Always);
@@ -410,6 +412,16 @@ public class SceneLoader
 			
 			NodeList modelNodes = (NodeList) dtData.xPathQuery(Layer.SCENE, 
 					"/scene:scene/scene:models/scene:model", XPathConstants.NODESET);
+			
+			// load all model files in parallel (unless already started by the 
+			// driving task selection screen) while the map objects are being built
+			ModelLoader modelLoader = sim.getModelLoader();
+			if(modelLoader == null)
+				modelLoader = new ModelLoader(assetManager, dtData.getCache());
+			modelLoader.load(getModelKeys(modelNodes));
+			
+			// loaded models are not needed any longer after this method has finished
+			sim.setModelLoader(null);
 
 			for (int k = 1; k <= modelNodes.getLength(); k++) 
 			{
@@ -428,7 +440,7 @@ public class SceneLoader
 
 				if((spatialURL != null) && (!spatialURL.equals("")))
 				{
-					spatial = assetManager.loadModel(spatialURL);
+					spatial = modelLoader.getModel(spatialURL);
 				}
 				else
 				{
@@ -579,6 +591,43 @@ public class SceneLoader
 	}
 	
 	
+	/**
+	 * Returns the keys of all model files referenced in the scene layer of 
+	 * the given driving task, e.g. to start loading them in advance.
+	 * 
+	 * @param dtData
+	 * 			Driving task to read model keys from
+	 * 
+	 * @return
+	 * 			Set of model keys (without duplicates)
+	 */
+	public static Set<String> getModelKeys(DrivingTaskDataQuery dtData)
+	{
+		NodeList modelNodes = (NodeList) dtData.xPathQuery(Layer.SCENE, 
+				"/scene:scene/scene:models/scene:model", XPathConstants.NODESET);
+		
+		return getModelKeys(modelNodes);
+	}
+	
+	
+	private static Set<String> getModelKeys(NodeList modelNodes)
+	{
+		Set<String> modelKeys = new LinkedHashSet<String>();
+		
+		if(modelNodes != null)
+		{
+			for (int k = 1; k <= modelNodes.getLength(); k++) 
+			{
+				Node keyNode = modelNodes.item(k-1).getAttributes().getNamedItem("key");
+				if(keyNode != null && !keyNode.getNodeValue().equals(""))
+					modelKeys.add(keyNode.getNodeValue());
+			}
+		}
+		
+		return modelKeys;
+	}
+	
+	
 	/**
 	 * Returns a list of all lights. 
 	 * 
@@ -812,20 +861,19 @@ public class SceneLoader
 	
 			for (int k = 1; k <= geometryNodes.getLength(); k++) 
 			{
+				Node currentNode = geometryNodes.item(k-1);
+				
 				Geometry geometry = null;
-				String geometryID = dtData.getValue(Layer.SCENE, 
-						"/scene:scene/scene:geometries/scene:" + type + "["+k+"]/@id", String.class);
+				String geometryID = dtData.getValue(Layer.SCENE, currentNode, "@id", String.class);
 		
 				if(geometryID != null)
 				{
-					String path = "/scene:scene/scene:geometries/scene:" + type + "["+k+"]";
-					
 					if(type.equals("box"))
-						geometry = createBox(path, geometryID);
+						geometry = createBox(currentNode, geometryID);
 					else if(type.equals("sphere"))
-						geometry = createSphere(path, geometryID);
+						geometry = createSphere(currentNode, geometryID);
 					else if(type.equals("cylinder"))
-						geometry = createCylinder(path, geometryID);
+						geometry = createCylinder(currentNode, geometryID);
 				}
 				
 				if(geometry != null)
@@ -835,13 +883,13 @@ public class SceneLoader
 	}
 
 
-	private Geometry createBox(String path, String name) 
+	private Geometry createBox(Node node, String name) 
 	{
 		Geometry geometry = null;
 		
-		Float width = dtData.getValue(Layer.SCENE, path + "/scene:width", Float.class);		
-		Float depth = dtData.getValue(Layer.SCENE, path + "/scene:depth", Float.class);		
-		Float height = dtData.getValue(Layer.SCENE, path + "/scene:height", Float.class);
+		Float width = dtData.getValue(Layer.SCENE, node, "scene:width", Float.class);		
+		Float depth = dtData.getValue(Layer.SCENE, node, "scene:depth", Float.class);		
+		Float height = dtData.getValue(Layer.SCENE, node, "scene:height", Float.class);
 
 		if((width != null) && (depth != null) && (height != null))
 		{
@@ -854,13 +902,13 @@ public class SceneLoader
 	}
 	
 	
-	private Geometry createSphere(String path, String name) 
+	private Geometry createSphere(Node node, String name) 
 	{
 		Geometry geometry = null;
 		
-		Integer axisSamples = dtData.getValue(Layer.SCENE, path + "/scene:samples/@axis", Integer.class);		
-		Integer radialSamples = dtData.getValue(Layer.SCENE, path + "/scene:samples/@radial", Integer.class);		
-		Float radius = dtData.getValue(Layer.SCENE, path + "/scene:radius", Float.class);
+		Integer axisSamples = dtData.getValue(Layer.SCENE, node, "scene:samples/@axis", Integer.class);		
+		Integer radialSamples = dtData.getValue(Layer.SCENE, node, "scene:samples/@radial", Integer.class);		
+		Float radius = dtData.getValue(Layer.SCENE, node, "scene:radius", Float.class);
 
 		if((axisSamples != null) && (radialSamples != null) && (radius != null))
 		{
@@ -873,15 +921,15 @@ public class SceneLoader
 	}
 	
 	
-	private Geometry createCylinder(String path, String name) 
+	private Geometry createCylinder(Node node, String name) 
 	{
 		Geometry geometry = null;
 	
-		Integer axisSamples = dtData.getValue(Layer.SCENE, path + "/scene:samples/@axis", Integer.class);		
-		Integer radialSamples = dtData.getValue(Layer.SCENE, path + "/scene:samples/@radial", Integer.class);		
-		Float radius = dtData.getValue(Layer.SCENE, path + "/scene:radius", Float.class);
-		Float height = dtData.getValue(Layer.SCENE, path + "/scene:height", Float.class);
-		Boolean closed = dtData.getValue(Layer.SCENE, path + "/scene:closed", Boolean.class);
+		Integer axisSamples = dtData.getValue(Layer.SCENE, node, "scene:samples/@axis", Integer.class);		
+		Integer radialSamples = dtData.getValue(Layer.SCENE, node, "scene:samples/@radial", Integer.class);		
+		Float radius = dtData.getValue(Layer.SCENE, node, "scene:radius", Float.class);
+		Float height = dtData.getValue(Layer.SCENE, node, "scene:height", Float.class);
+		Boolean closed = dtData.getValue(Layer.SCENE, node, "scene:closed", Boolean.class);
 
 		if((axisSamples != null) && (radialSamples != null) && (radius != null) && 
 				(height != null) && (closed != null))
@@ -897,27 +945,47 @@ public class SceneLoader
 
 	public void getPoints()
 	{	
+		pointMap.putAll(readPoints(dtData));
+	}
+	
+	
+	/**
+	 * Reads all points of the scene. Does not need a running simulation, 
+	 * hence it can be used for headless processing of driving tasks.
+	 * 
+	 * @param dtData
+	 * 			Driving task to read the points from.
+	 * 
+	 * @return
+	 * 			Map of point IDs and translations.
+	 */
+	public static Map<String, Vector3f> readPoints(DrivingTaskDataQuery dtData)
+	{
+		Map<String, Vector3f> points = new HashMap<String, Vector3f>();
+		
 		NodeList pointNodes = (NodeList) dtData.xPathQuery(Layer.SCENE, 
 				"/scene:scene/scene:geometries/scene:point", XPathConstants.NODESET);
 
 		for (int k = 1; k <= pointNodes.getLength(); k++) 
 		{
-			String pointID = dtData.getValue(Layer.SCENE, 
-					"/scene:scene/scene:geometries/scene:point" + "["+k+"]/@id", String.class);
+			Node currentNode = pointNodes.item(k-1);
+			String pointID = dtData.getValue(Layer.SCENE, currentNode, "@id", String.class);
 
 			if(pointID != null)
-				addPoint("/scene:scene/scene:geometries/scene:point" + "["+k+"]");
+				addPoint(dtData, points, currentNode);
 		}
+		
+		return points;
 	}
 	
 	
-	private void addPoint(String path) 
+	private static void addPoint(DrivingTaskDataQuery dtData, Map<String, Vector3f> points, Node node) 
 	{
-		String id = dtData.getValue(Layer.SCENE, path + "/@id", String.class);
-		Vector3f translation = dtData.getVector3f(Layer.SCENE, path + "/scene:translation");
+		String id = dtData.getValue(Layer.SCENE, node, "@id", String.class);
+		Vector3f translation = dtData.getVector3f(Layer.SCENE, node, "scene:translation");
 
 		if((id != null) && (translation != null))
-			pointMap.put(id, translation);
+			points.put(id, translation);
 	}
 	
 	
@@ -928,20 +996,20 @@ public class SceneLoader
 
 		for (int k = 1; k <= pointNodes.getLength(); k++) 
 		{
-			String pointID = dtData.getValue(Layer.SCENE, 
-					"/scene:scene/scene:resetPoints/scene:resetPoint" + "["+k+"]/@id", String.class);
+			Node currentNode = pointNodes.item(k-1);
+			String pointID = dtData.getValue(Layer.SCENE, currentNode, "@id", String.class);
 
 			if(pointID != null)
-				addResetPoint("/scene:scene/scene:resetPoints/scene:resetPoint" + "["+k+"]");
+				addResetPoint(currentNode);
 		}
 	}
 
 
-	private void addResetPoint(String path) 
+	private void addResetPoint(Node node) 
 	{
-		String id = dtData.getValue(Layer.SCENE, path + "/@id", String.class);
-		Vector3f translation = dtData.getVector3f(Layer.SCENE, path + "/scene:translation");
-		Quaternion rotation = dtData.getQuaternion(Layer.SCENE, path + "/scene:rotation");
+		String id = dtData.getValue(Layer.SCENE, node, "@id", String.class);
+		Vector3f translation = dtData.getVector3f(Layer.SCENE, node, "scene:translation");
+		Quaternion rotation = dtData.getQuaternion(Layer.SCENE, node, "scene:rotation");
 
 		if((id != null) && (translation != null) && (rotation != null))
 			//Simulator.getResetPositionList().add(new ResetPosition(id, translation, rotation));
@@ -25,6 +25,7 @@ import java.util.Map;
 
 import javax.xml.xpath.XPathConstants;
 
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import eu.opends.drivingTask.DrivingTaskDataQuery;
@@ -56,7 +57,18 @@ public class SettingsLoader
 		General_showAnalogIndicators("settings:general/settings:showAnalogIndicators"),
 		General_showDigitalIndicators("settings:general/settings:showDigitalIndicators"),
 		General_showFuelConsumption("settings:general/settings:showFuelConsumption"),
+		General_panelRefreshRate("settings:general/settings:panelRefreshRate"),
+		General_physicsRate("settings:general/settings:physicsRate"),
 		Analyzer_suppressPDFPopup("settings:analyzer/settings:suppressPDFPopup"),
+		Analyzer_fileFormat("settings:analyzer/settings:fileFormat"),
+		Analyzer_syncPolicy("settings:analyzer/settings:syncPolicy"),
+		Analyzer_bufferSize("settings:analyzer/settings:bufferSize"),
+		Analyzer_writeInterval("settings:analyzer/settings:writeInterval"),
+		Analyzer_recordingRate("settings:analyzer/settings:recordingRate"),
+		Analyzer_recordOnPhysicsTick("settings:analyzer/settings:recordOnPhysicsTick"),
+		Database_queueSize("settings:database/settings:queueSize"),
+		Database_batchSize("settings:database/settings:batchSize"),
+		Database_flushInterval("settings:database/settings:flushInterval"),
 		SIMTD_sendDataToHmi("settings:SIMTD/settings:sendDataToHmi"),
 		SIMTD_startGui("settings:SIMTD/settings:startGui"),
 		SIMTD_hmiNativePath("settings:SIMTD/settings:hmiNativePath"),
@@ -74,6 +86,11 @@ public class SettingsLoader
 		CANInterface_port("settings:CANInterface/settings:port"),
 		CANInterface_updateRate("settings:CANInterface/settings:updateRate"),
 		CANInterface_maxSteeringAngle("settings:CANInterface/settings:maxSteeringAngle"),
+		CANInterface_transport("settings:CANInterface/settings:transport"),
+		CANInterface_inputFile("settings:CANInterface/settings:inputFile"),
+		CANInterface_outputFile("settings:CANInterface/settings:outputFile"),
+		SharedMemory_enableVehicleState("settings:sharedMemory/settings:enableVehicleState"),
+		SharedMemory_vehicleStateFile("settings:sharedMemory/settings:vehicleStateFile"),
 		VsimrtiServer_startServer("settings:vsimrtiServer/settings:startServer"),
 		VsimrtiServer_port("settings:vsimrtiServer/settings:port"),
 		SettingsControllerServer_startServer("settings:settingsControllerServer/settings:startServer"),
@@ -135,11 +152,11 @@ public class SettingsLoader
 
 		for (int k = 1; k <= keyAssignmentNodes.getLength(); k++) 
 		{
-			String function = dtData.getValue(Layer.SETTINGS, 
-					path + "["+k+"]/@function", String.class);
+			Node currentNode = keyAssignmentNodes.item(k-1);
 			
-			String keyList = dtData.getValue(Layer.SETTINGS, 
-					path + "["+k+"]/@key", String.class).toUpperCase();
+			String function = dtData.getValue(Layer.SETTINGS, currentNode, "@function", String.class);
+			
+			String keyList = dtData.getValue(Layer.SETTINGS, currentNode, "@key", String.class).toUpperCase();
 			
 			if(!function.isEmpty())
 			{
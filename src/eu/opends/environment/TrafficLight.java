@@ -81,7 +81,7 @@ public class TrafficLight
 	private String trafficLightObjectID;
 	private String name;
 	private String intersectionID;
-	private TrafficLightState state;
+	private volatile TrafficLightState state;
 	private TrafficLightDirection direction;
 	private ArrayList<TrafficLight> requiresRedList = null;
 	private TrafficLightPositionData positionData;
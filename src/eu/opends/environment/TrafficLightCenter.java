@@ -20,8 +20,11 @@ package eu.opends.environment;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import com.jme3.scene.Spatial;
 
@@ -53,17 +56,25 @@ public class TrafficLightCenter
 	
 	private static List<TrafficLight> trafficLightsList;
 	private static Simulator sim;
-	private static TrafficLightMode mode;
+	private static volatile TrafficLightMode mode;
 	private static TrafficLightExternalConnector trafficLightExternalConnector;
+	private static TrafficLightStateDecoder trafficLightStateDecoder;
 	private static List<TrafficLightInternalProgram> trafficLightProgramList = 
 		new LinkedList<TrafficLightInternalProgram>();
+	private static TrafficLightScheduler scheduler = new TrafficLightScheduler();
+	
+	// indexes for look-ups (built in setup(), read-only afterwards)
+	private static Map<String, TrafficLight> trafficLightByName = Collections.emptyMap();
+	private static Map<String, TrafficLight> trafficLightByID = Collections.emptyMap();
+	private static Map<String, TrafficLight> trafficLightByLocation = Collections.emptyMap();
+	private static Map<String, TrafficLightInternalProgram> internalProgramByIntersection = Collections.emptyMap();
 	
 	
 	/**
 	 * Setup initializes the traffic light center. Traffic light rules will 
 	 * be loaded from a *-tlr.xml file, traffic lights will be loaded from the 
 	 * map model, rules will be attached to traffic lights and traffic light
-	 * programs will be started
+	 * programs will be scheduled
 	 * 
 	 * @param _sim
 	 * 			Simulator for map data
@@ -71,6 +82,8 @@ public class TrafficLightCenter
 	public static void setup(Simulator _sim)
 	{
 		sim = _sim;
+		scheduler = new TrafficLightScheduler();
+		trafficLightProgramList.clear();
 		
 		// load traffic light rules from file
 		TrafficLightRules.loadTrafficLightRules(Simulator.getDrivingTask().getPath());
@@ -81,10 +94,26 @@ public class TrafficLightCenter
 		
 		trafficLightsList.addAll(Simulator.getDrivingTask().getScenarioLoader().getTrafficLights());
 		
+		// index traffic lights by name and ID (needed to resolve traffic light rules)
+		Map<String, TrafficLight> nameIndex = new HashMap<String, TrafficLight>();
+		Map<String, TrafficLight> idIndex = new HashMap<String, TrafficLight>();
+		for(TrafficLight trafficLight : trafficLightsList)
+		{
+			// in case of duplicates, the first traffic light in the list will be found
+			if(!nameIndex.containsKey(trafficLight.getName()))
+				nameIndex.put(trafficLight.getName(), trafficLight);
+			
+			if(!idIndex.containsKey(trafficLight.getObjectID()))
+				idIndex.put(trafficLight.getObjectID(), trafficLight);
+		}
+		trafficLightByName = Collections.unmodifiableMap(nameIndex);
+		trafficLightByID = Collections.unmodifiableMap(idIndex);
+		
 		// set internal traffic light program as default
 		mode = TrafficLightMode.TRIGGER;
 
 		List<String> intersectionIDList = new LinkedList<String>();
+		Map<String, TrafficLight> locationIndex = new HashMap<String, TrafficLight>();
 		for(TrafficLight trafficLight : trafficLightsList)
 		{
 			String trafficLightName = trafficLight.getName();
@@ -101,6 +130,16 @@ public class TrafficLightCenter
 			if(currentTrafficLightsPositionData != null)
 				trafficLight.setPositionData(currentTrafficLightsPositionData);
 			
+			// index traffic light by intersection, road and lane
+			TrafficLightPositionData positionData = trafficLight.getPositionData();
+			if(positionData != null && trafficLight.getIntersectionID() != null && positionData.getRoadID() != null)
+			{
+				String locationKey = getLocationKey(trafficLight.getIntersectionID(), 
+						positionData.getRoadID(), positionData.getLane());
+				if(!locationIndex.containsKey(locationKey))
+					locationIndex.put(locationKey, trafficLight);
+			}
+			
 			// create a list containing all intersections
 			String intersectionID = trafficLight.getIntersectionID();
 			if(!intersectionIDList.contains(intersectionID))
@@ -110,40 +149,70 @@ public class TrafficLightCenter
 			//LightningData.printTrafficLightInfos(trafficLight, 100f);
 		}
 
+		trafficLightByLocation = Collections.unmodifiableMap(locationIndex);
+
 		// create a new traffic light program for each intersection
+		Map<String, TrafficLightInternalProgram> programIndex = new HashMap<String, TrafficLightInternalProgram>();
 		for(String intersectionID : intersectionIDList)
 		{
 			// get traffic light phases for current intersection
 			LinkedList<TrafficLightPhase> currentTrafficLightsPhases = 
 				TrafficLightRules.getTrafficLightPhases(intersectionID);
 
-			// create and start program
+			// create program
 			TrafficLightInternalProgram trafficLightInternalProgram = 
-				new TrafficLightInternalProgram(sim,intersectionID,trafficLightsList,currentTrafficLightsPhases);
-			trafficLightInternalProgram.start();
+				new TrafficLightInternalProgram(scheduler,intersectionID,trafficLightsList,currentTrafficLightsPhases);
 			trafficLightProgramList.add(trafficLightInternalProgram);
+			programIndex.put(intersectionID, trafficLightInternalProgram);
 		}	
+		internalProgramByIntersection = Collections.unmodifiableMap(programIndex);
+		
+		// start all programs with the first update
+		scheduler.wakeAll(trafficLightProgramList);
+		
+		// decoder for updates from external traffic light controllers
+		trafficLightStateDecoder = new TrafficLightStateDecoder(trafficLightsList);
 		
-		// start trafficLight-thread
-		trafficLightExternalConnector = new TrafficLightExternalConnector(sim,2001,2048);
+		// start trafficLight-thread (packets up to the maximum UDP payload, 
+		// since binary key frames may contain thousands of signals)
+		trafficLightExternalConnector = new TrafficLightExternalConnector(sim,2001,65507);
 		trafficLightExternalConnector.start();
 	}
 	
 	
 	/**
-	 * Evaluates an XML-string containing traffic light circuits from 
-	 * external sources
+	 * Steps all internal traffic light programs that are due. Must be called
+	 * once per frame on the render thread.
 	 * 
-	 * @param datastring
-	 * 			XML-file to be processed
+	 * @param tpf
+	 * 			Time per frame (in seconds)
+	 * 
+	 * @param isPause
+	 * 			true, if the simulation is paused (programs will be halted)
 	 */
-	public static void evaluateInstructionString(String datastring)
+	public static void update(float tpf, boolean isPause)
 	{
-		if(mode == TrafficLightMode.EXTERNAL)
-		{
-			XMLParser parser = new XMLParser(datastring);
-			parser.evalTrafficLightInstructions();
-		}
+		scheduler.update(tpf, isPause);
+	}
+	
+	
+	/**
+	 * Evaluates a packet containing traffic light states from external 
+	 * sources, either in binary format or as XML-string (see 
+	 * TrafficLightStateDecoder). Must be called by the receiving thread only.
+	 * 
+	 * @param data
+	 * 			Packet buffer
+	 * 
+	 * @param offset
+	 * 			Start of the packet in the buffer
+	 * 
+	 * @param length
+	 * 			Length of the packet
+	 */
+	public static void evaluateInstructionPacket(byte[] data, int offset, int length)
+	{
+		trafficLightStateDecoder.decode(data, offset, length);
 	}
 	
 	
@@ -160,13 +229,10 @@ public class TrafficLightCenter
 		if((mode == TrafficLightMode.TRIGGER) && (type.equals("TrafficLightTrigger")))
 		{
 			TrafficLight trafficLight = getTrafficLightByName(trafficLightName);
-			for(TrafficLightInternalProgram trafficLightInternalProgram : trafficLightProgramList)
-			{
-				if(trafficLightInternalProgram.getIntersectionID().equals(trafficLight.getIntersectionID()))
-				{
-					trafficLightInternalProgram.requestGreen(trafficLight);
-				}
-			}
+			TrafficLightInternalProgram trafficLightInternalProgram = 
+				internalProgramByIntersection.get(trafficLight.getIntersectionID());
+			if(trafficLightInternalProgram != null)
+				trafficLightInternalProgram.requestGreen(trafficLight);
 		}
 	}
 
@@ -196,6 +262,9 @@ public class TrafficLightCenter
 			setStateAll(TrafficLightState.OFF);
 			mode = _mode;
 			System.out.println("Switched mode to " + _mode.toString());
+			
+			// let all programs react to the new mode with the next update
+			scheduler.wakeAll(trafficLightProgramList);
 		}
 	}
 	
@@ -236,12 +305,7 @@ public class TrafficLightCenter
 	 */
 	public static TrafficLight getTrafficLightByName(String trafficLightName)
 	{		
-		for(TrafficLight trafficLight : trafficLightsList)
-		{
-			if(trafficLight.getName().equals(trafficLightName))
-				return trafficLight;
-		}
-		return null;
+		return trafficLightByName.get(trafficLightName);
 	}
 	
 	
@@ -257,12 +321,7 @@ public class TrafficLightCenter
 	 */
 	public static TrafficLight getTrafficLightByID(String trafficLightID)
 	{		
-		for(TrafficLight trafficLight : trafficLightsList)
-		{
-			if(trafficLight.getObjectID().equals(trafficLightID))
-				return trafficLight;
-		}
-		return null;
+		return trafficLightByID.get(trafficLightID);
 	}
 	
 	
@@ -285,26 +344,13 @@ public class TrafficLightCenter
 	 */
 	public static TrafficLight getTrafficLightByLocation(String intersectionID, String roadID, int lane) 
 	{
-		try{
-			
-			// go through traffic light list
-			for(TrafficLight trafficLight : trafficLightsList)
-			{
-				if(
-						   trafficLight.getIntersectionID().equals(intersectionID)
-						&& trafficLight.getPositionData().getRoadID().equals(roadID)
-						&& trafficLight.getPositionData().getLane() == lane
-				   )
-					// return traffic light that matches with the given intersectionID, 
-					// roadID and lane
-					return trafficLight;
-			}
-			
-		}catch(NullPointerException e){
-			return null;
-		}
-		
-		return null;
+		return trafficLightByLocation.get(getLocationKey(intersectionID, roadID, lane));
+	}
+	
+	
+	private static String getLocationKey(String intersectionID, String roadID, int lane)
+	{
+		return intersectionID + "|" + roadID + "|" + lane;
 	}
 	
 	
@@ -323,13 +369,10 @@ public class TrafficLightCenter
 	public static TrafficLightInternalProgram getInternalProgram(String IntersectionID) 
 			throws NoInternalProgramException
 	{
-		// go through all internal programs (normally one program for each intersection)
-		for(TrafficLightInternalProgram trafficLightInternalProgram : trafficLightProgramList)
-		{
-			// return internal program if it matches the given intersectionID
-			if(trafficLightInternalProgram.getIntersectionID().equals(IntersectionID))
-				return trafficLightInternalProgram;
-		}
+		// one program for each intersection
+		TrafficLightInternalProgram trafficLightInternalProgram = internalProgramByIntersection.get(IntersectionID);
+		if(trafficLightInternalProgram != null)
+			return trafficLightInternalProgram;
 		
 		// if no internal program found --> throw exception
 		throw new NoInternalProgramException("Traffic light not assigned to any internal program!");
@@ -436,12 +479,11 @@ public class TrafficLightCenter
 	
 	
 	/**
-	 * Closes all internal threads
+	 * Stops all internal programs and closes the external connector thread
 	 */
 	public static void close()
 	{
-		for(TrafficLightInternalProgram tlip : trafficLightProgramList)
-			tlip.requestStop();
+		scheduler.clear();
 		
 		trafficLightExternalConnector.requestStop();
 	}
@@ -25,6 +25,8 @@ import eu.opends.main.Simulator;
 
 /**
  * This class connects to an external traffic light program via an UDP socket.
+ * Incoming packets may contain binary state vectors or XML instructions
+ * (see TrafficLightStateDecoder).
  * 
  * @author Rafael Math
  */
@@ -45,7 +47,7 @@ public class TrafficLightExternalConnector extends Thread
 	 * 			Number of the port to use for this connection
 	 * 
 	 * @param packetsize
-	 * 			Maximum size of an incoming XML-String
+	 * 			Maximum size of an incoming packet
 	 */
 	public TrafficLightExternalConnector(Simulator sim, int port, int packetsize)
 	{
@@ -81,15 +83,15 @@ public class TrafficLightExternalConnector extends Thread
 	
 	/**
 	 * This method contains a loop that listens to the given port. Incoming
-	 * XML-files will be processed. Each execution of this loop takes at 
-	 * least 300 milliseconds.
+	 * packets will be processed without copying. If no packet arrives, the 
+	 * loop waits for 300 milliseconds.
 	 */
 	@Override
 	public void run() 
 	{
 		int packetsize;
+		int packetoffset;
 		byte[] packetdata;
-		String datastring = "";
 
 		while (!stoprequested)
 		{
@@ -97,6 +99,7 @@ public class TrafficLightExternalConnector extends Thread
 				// read data and get length
 				incomingSocket.receive(packet);
 				packetsize = packet.getLength();
+				packetoffset = packet.getOffset();
 				packetdata = packet.getData();
 				
 			} catch (SocketTimeoutException e) {
@@ -111,11 +114,13 @@ public class TrafficLightExternalConnector extends Thread
 				continue;
 			}
 			
-			// transform incoming data to string of variable length
-			datastring = new String(packetdata, 0, packetsize);
-
-			//System.out.println(datastring);
-			TrafficLightCenter.evaluateInstructionString(datastring);
+			// decode binary states or XML instructions directly from the packet buffer
+			try {
+				TrafficLightCenter.evaluateInstructionPacket(packetdata, packetoffset, packetsize);
+			} catch (RuntimeException e) {
+				// malformed packet must not stop the receiver
+				System.err.println("TrafficLightExternalConnector_run(): invalid packet (" + e.toString() + ")");
+			}
 		}
 
 
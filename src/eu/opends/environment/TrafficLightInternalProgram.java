@@ -21,8 +21,9 @@ package eu.opends.environment;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-import eu.opends.basics.SimulationBasics;
 import eu.opends.environment.TrafficLight.*;
 import eu.opends.environment.TrafficLightCenter.*;
 import eu.opends.environment.TrafficLightException.*;
@@ -31,27 +32,88 @@ import eu.opends.environment.TrafficLightException.*;
 /**
  * This class represents the internal traffic light program. It provides 
  * rules to switch traffic lights of a specific intersection. Each intersection
- * requires an individual instance which runs as thread. Before a traffic light
+ * requires an individual instance which will be stepped by the traffic light
+ * scheduler whenever its next deadline is due. Before a traffic light
  * will be switched to green, all traffic lights as given in the *-tlr.xml file 
  * will be switched to red first. If no rules file available, all other traffic 
  * lights will be switched to red. Traffic lights to switch green will be queued 
- * in a list (trafficLightsListForGreen) and be processed every 5 seconds.
+ * in a list (trafficLightsListForGreen) and be processed one after another.
  * 
  * @author Rafael Math
  */
-public class TrafficLightInternalProgram extends Thread
+public class TrafficLightInternalProgram
 {
-	private SimulationBasics sim;
-	private boolean stoprequested;
+	/**
+	 * Steps of switching a requested traffic light to green in TRIGGER mode
+	 */
+	private enum TriggerStep
+	{
+		IDLE, INIT_RED, SHIFT_RED, CHECK_RED, SWITCH_GREEN;
+	}
+	
+	// time (in seconds) the program waits before switching the next light in TRIGGER mode
+	private static final float STEP_DURATION = 1f;
+	
+	// time (in seconds) a requested traffic light stays green before the next request will be processed
+	private static final float GREEN_DURATION = 4f;
+	
+	// time (in seconds) a blinking traffic light will be on or off
+	private static final float BLINKING_INTERVAL = 1f;
+	
+	// delay returned if the program waits to be woken up (e.g. by a green request)
+	private static final float IDLE = Float.POSITIVE_INFINITY;
+	
+	private TrafficLightScheduler scheduler;
 	private String intersectionID;
-	private List<TrafficLight> trafficLightsListForGreen = new LinkedList<TrafficLight>();
+	private Queue<TrafficLight> trafficLightsListForGreen = new ConcurrentLinkedQueue<TrafficLight>();
 	private List<TrafficLight> intersectionTrafficLightsList = new LinkedList<TrafficLight>();
 	private LinkedList<TrafficLightPhase>intersectionPhasesList = new LinkedList<TrafficLightPhase>();
 	private TrafficLightMode previousMode;
+	private TriggerStep triggerStep = TriggerStep.IDLE;
+	private TrafficLight trafficLightForGreen;
 	private TrafficLightPhase phase;
 	private ListIterator<TrafficLightPhase> iterator;
-	private int currentTime;
+	private double lastStepTime;
+	private double programTime;
+	private double phaseExpirationTime;
 	private boolean allTrafficLightsOff;
+	
+	// state of PROGRAM mode published to other threads (immutable, replaced on every change)
+	private volatile ProgramState programState;
+	
+	
+	/**
+	 * Snapshot of the current phase, which can be read without locking.
+	 */
+	private static class ProgramState
+	{
+		private final TrafficLightPhase phase;
+		private final double phaseExpirationTime;
+		private final double programTime;
+		private final double schedulerTime;
+		private final boolean running;
+		
+		
+		private ProgramState(TrafficLightPhase phase, double phaseExpirationTime, 
+				double programTime, double schedulerTime, boolean running)
+		{
+			this.phase = phase;
+			this.phaseExpirationTime = phaseExpirationTime;
+			this.programTime = programTime;
+			this.schedulerTime = schedulerTime;
+			this.running = running;
+		}
+		
+		
+		private float getTimeToExpiration(double currentSchedulerTime)
+		{
+			double currentProgramTime = programTime;
+			if(running)
+				currentProgramTime += currentSchedulerTime - schedulerTime;
+			
+			return (float) Math.max(0, phaseExpirationTime - currentProgramTime);
+		}
+	}
 
 	
 	/**
@@ -59,6 +121,9 @@ public class TrafficLightInternalProgram extends Thread
 	 * intersectionID and filtering the traffic lights of this intersection 
 	 * from the list of all traffic lights.
 	 * 
+	 * @param scheduler
+	 * 			Scheduler which steps this program
+	 * 
 	 * @param intersectionID
 	 * 			ID of the intersection that runs this instance of the traffic 
 	 * 			light program
@@ -66,28 +131,28 @@ public class TrafficLightInternalProgram extends Thread
 	 * @param allTrafficLightsList
 	 * 			List of all traffic lights in the model
 	 */
-	public TrafficLightInternalProgram(SimulationBasics sim, String intersectionID, List<TrafficLight> allTrafficLightsList, 
-			LinkedList<TrafficLightPhase> intersectionPhasesList) 
+	public TrafficLightInternalProgram(TrafficLightScheduler scheduler, String intersectionID, 
+			List<TrafficLight> allTrafficLightsList, LinkedList<TrafficLightPhase> intersectionPhasesList) 
 	{
-		super();
-		this.sim = sim;
+		this.scheduler = scheduler;
 		this.intersectionID = intersectionID;
 		this.intersectionTrafficLightsList = filterTrafficLightsOfIntersection(intersectionID,allTrafficLightsList);
 		this.intersectionPhasesList = intersectionPhasesList;
-		stoprequested = false;
-		currentTime = 0;
+		programTime = 0;
 		allTrafficLightsOff = false;
 		
 		if(intersectionPhasesList != null)
 		{
 			iterator = intersectionPhasesList.listIterator(0);
 			phase = gotoNextPhase();
-			phase.activate(currentTime);
+			phaseExpirationTime = programTime + phase.getDuration();
 			if(TrafficLightCenter.getMode() == TrafficLightMode.PROGRAM)
 				setPhaseToTrafficLights();
 		}
+		
+		publishProgramState(scheduler.getTime(), false);
 	}
-	
+
 	
 	/**
 	 * Walks through the traffic light list of the model and returns a list of 
@@ -121,24 +186,18 @@ public class TrafficLightInternalProgram extends Thread
 	
 	/**
 	 * This method adds a traffic light to the queue of traffic lights waiting 
-	 * to turn green, if it is not contained yet.
+	 * to turn green, if it is not contained yet. If the program is waiting for
+	 * requests, it will be woken up.
 	 * 
 	 * @param trafficLight
 	 * 			Traffic light to be added to the green-light-queue
 	 */
-	public synchronized void requestGreen(TrafficLight trafficLight)
+	public void requestGreen(TrafficLight trafficLight)
 	{
 		if(!trafficLightsListForGreen.contains(trafficLight))
 			trafficLightsListForGreen.add(trafficLight);
-	}
-	
-
-	/**
-	 * Stops the traffic light program by exiting the loop
-	 */
-	public synchronized void requestStop()
-	{
-		stoprequested = true;
+		
+		scheduler.wakeIfIdle(this);
 	}
 	
 	
@@ -148,23 +207,22 @@ public class TrafficLightInternalProgram extends Thread
 	 * @return
 	 * 			intersectionID
 	 */
-	public synchronized String getIntersectionID()
+	public String getIntersectionID()
 	{
 		return intersectionID;
 	}
 	
 	
 	/**
-	 * Computes the number of steps (usually 1 step = 1 second) that a given 
-	 * traffic light will be in a different state than "green" according to 
-	 * the internal program schedule.<br>
+	 * Computes the time (in seconds) that a given traffic light will be in a 
+	 * different state than "green" according to the internal program schedule.<br>
 	 * Note: Red means every non-green state in this context
 	 * 
 	 * @param trafficLight
 	 * 			Traffic light to check for remaining red
 	 * 
 	 * @return
-	 * 			Number of steps, the given traffic light will not be green
+	 * 			Time (in seconds), the given traffic light will not be green
 	 * 
 	 * @throws NeverGreenException
 	 * 			If given traffic light will never turn to green
@@ -172,20 +230,26 @@ public class TrafficLightInternalProgram extends Thread
 	 * @throws IsGreenException
 	 * 			If given traffic light has already turned to green
 	 */
-	public synchronized int getRemainingRed(TrafficLight trafficLight) throws NeverGreenException, IsGreenException
+	public float getRemainingRed(TrafficLight trafficLight) throws NeverGreenException, IsGreenException
 	{
+		ProgramState state = programState;
+		TrafficLightPhase currentPhase = state.phase;
+		
+		if(currentPhase == null)
+			throw new NeverGreenException("No traffic light phases available");
+		
 		// if traffic light is green --> exception, since no remaining red
-		if(phase.getState(trafficLight) == TrafficLightState.GREEN)
+		if(currentPhase.getState(trafficLight) == TrafficLightState.GREEN)
 			throw new IsGreenException("Traffic light is green");
 		
-		// get remaining time (usually in seconds) for current phase
-		int remainingRed = phase.timeToExpiration(currentTime);
+		// get remaining time (in seconds) for current phase
+		float remainingRed = state.getTimeToExpiration(scheduler.getTime());
 		
 		// remember start phase to avoid cycles
-		String startPhaseID = phase.getID();
+		String startPhaseID = currentPhase.getID();
 		
 		// compute next phase
-		TrafficLightPhase nextPhase = getNextPhase(phase);
+		TrafficLightPhase nextPhase = getNextPhase(currentPhase);
 		
 		// go through phases until next green-phase is reached
 		while(nextPhase.getState(trafficLight) != TrafficLightState.GREEN)
@@ -204,14 +268,14 @@ public class TrafficLightInternalProgram extends Thread
 	
 	
 	/**
-	 * Computes the number of steps (usually 1 step = 1 second) that a given 
-	 * traffic light will be green according to the internal program schedule.
+	 * Computes the time (in seconds) that a given traffic light will be green 
+	 * according to the internal program schedule.
 	 * 
 	 * @param trafficLight
 	 * 			Traffic light to check for remaining green
 	 * 
 	 * @return
-	 * 			Number of steps, the given traffic light will be green
+	 * 			Time (in seconds), the given traffic light will be green
 	 * 
 	 * @throws AlwaysGreenException
 	 * 			If given traffic light will always be green
@@ -219,20 +283,23 @@ public class TrafficLightInternalProgram extends Thread
 	 * @throws IsNotGreenException
 	 * 			If given traffic light is not green
 	 */
-	public synchronized int getRemainingGreen(TrafficLight trafficLight) throws AlwaysGreenException, IsNotGreenException
+	public float getRemainingGreen(TrafficLight trafficLight) throws AlwaysGreenException, IsNotGreenException
 	{
+		ProgramState state = programState;
+		TrafficLightPhase currentPhase = state.phase;
+		
 		// if traffic light is not green --> exception, since no remaining green
-		if(phase.getState(trafficLight) != TrafficLightState.GREEN)
+		if(currentPhase == null || currentPhase.getState(trafficLight) != TrafficLightState.GREEN)
 			throw new IsNotGreenException("Traffic light is not green");
 		
-		// get remaining time (usually in seconds) for current phase
-		int remainingGreen = phase.timeToExpiration(currentTime);
+		// get remaining time (in seconds) for current phase
+		float remainingGreen = state.getTimeToExpiration(scheduler.getTime());
 		
 		// remember start phase to avoid cycles
-		String startPhaseID = phase.getID();
+		String startPhaseID = currentPhase.getID();
 		
 		// compute next phase
-		TrafficLightPhase nextPhase = getNextPhase(phase);
+		TrafficLightPhase nextPhase = getNextPhase(currentPhase);
 		
 		// go through phases until next non-green-phase is reached
 		while(nextPhase.getState(trafficLight) == TrafficLightState.GREEN)
@@ -251,42 +318,40 @@ public class TrafficLightInternalProgram extends Thread
 	
 	
 	/**
-	 * This method contains a loop with the basic rules to switch the traffic lights
-	 * of a certain intersection. Instructions will only be carried out in TRIGGER,
-	 * PROGRAMM or BLINKING mode. Each execution of this loop takes at least 1 second.
+	 * Carries out the basic rules to switch the traffic lights of a certain 
+	 * intersection. Instructions will only be carried out in TRIGGER, PROGRAM 
+	 * or BLINKING mode. Will be called by the scheduler on the render thread.
+	 * 
+	 * @param currentTime
+	 * 			Simulation time (in seconds) of the scheduler
+	 * 
+	 * @return
+	 * 			Time (in seconds) until this program needs to be stepped again;
+	 * 			infinite, if it waits to be woken up
 	 */
-	@Override
-	public void run() 
-	{		
-		while (!stoprequested) 
-		{
-			TrafficLightMode currentMode = TrafficLightCenter.getMode();
-
-			if(!sim.isPause())
-			{
-				if(currentMode == TrafficLightMode.TRIGGER)
-					runTriggerMode();
-	
-				else if(currentMode == TrafficLightMode.BLINKING)
-					runBlinkingMode();
-				
-				else if(currentMode == TrafficLightMode.PROGRAM)
-					runProgramMode();
-			}
+	public float step(double currentTime) 
+	{
+		TrafficLightMode currentMode = TrafficLightCenter.getMode();
+		float delay;
+		
+		if(currentMode == TrafficLightMode.TRIGGER)
+			delay = runTriggerMode();
 
-			previousMode = currentMode;
-			
-			try {
-				// halt thread for 1 second to provide a clock for PROGRAMM 
-				// and BLINKING mode; otherwise prevent loop from repeating 
-				// to fast in OFF or EXTERNAL mode 
-				Thread.sleep(1000);
-				
-			} catch (InterruptedException e){}
-		}
+		else if(currentMode == TrafficLightMode.BLINKING)
+			delay = runBlinkingMode();
+		
+		else if(currentMode == TrafficLightMode.PROGRAM)
+			delay = runProgramMode(currentTime);
+		
+		else
+			// OFF or EXTERNAL mode: wait until mode changes
+			delay = IDLE;
 
-		// if loop was left: traffic light program will be terminated
-		//System.out.println("Program terminated");
+		previousMode = currentMode;
+		lastStepTime = currentTime;
+		publishProgramState(currentTime, currentMode == TrafficLightMode.PROGRAM);
+		
+		return delay;
 	}
 
 
@@ -297,53 +362,100 @@ public class TrafficLightInternalProgram extends Thread
 	 * be loaded from an external source; if not available, all other traffic lights 
 	 * will be switched to red. After this, the selected traffic light will be switched
 	 * to yellow-red and finally to green. After processing, it will be removed from queue. 
+	 * Each call carries out one step and returns the time to wait before the next one.
 	 */
-	private void runTriggerMode() 
+	private float runTriggerMode() 
 	{
-		
 		// if mode has changed to TRIGGER mode --> initialize first
 		if(previousMode != TrafficLightMode.TRIGGER)
 		{
 			// clear queue of traffic lights waiting to be switched to green
 			trafficLightsListForGreen.clear();
+			trafficLightForGreen = null;
 			
 			// switch all traffic lights of current intersection to red
-			requestIntersectionRed(null);
+			// shift rules: 1. GREEN --> YELLOW
+			//				2. wait 1 second
+			//				3. YELLOW --> RED
+			shiftIntersectionToRed(null);
+			triggerStep = isIntersectionRed(null) ? TriggerStep.IDLE : TriggerStep.INIT_RED;
+			return STEP_DURATION;
 		}
 		
-		
-		// if there are traffic lights waiting to be switched to green --> process queue
-		if(!trafficLightsListForGreen.isEmpty())
+		switch(triggerStep)
 		{
-			// get first traffic light in queue
-			TrafficLight trafficLight = trafficLightsListForGreen.get(0);
+			case INIT_RED:
+				// shift one further step (all remaining yellow lights to red)
+				shiftIntersectionToRed(null);
+				triggerStep = TriggerStep.IDLE;
+				return STEP_DURATION;
 				
-			// if traffic light belongs to current intersection and is not green yet
-			if((trafficLight.getIntersectionID().equals(intersectionID)) && 
-					(trafficLight.getState() != TrafficLightState.GREEN))
-			{
-				// switch all those traffic lights of the current intersection to red, 
-				// that are required to switch the selected traffic light to green and 
-				// wait a second
-				requestIntersectionRed(trafficLight);
-				wait(1);
+			case SHIFT_RED:
+				// shift one further step (all remaining yellow lights to red)
+				shiftIntersectionToRed(trafficLightForGreen);
+				triggerStep = TriggerStep.CHECK_RED;
+				return STEP_DURATION;
 				
+			case CHECK_RED:
 				// if all required traffic lights are red
-				if(isIntersectionRed(trafficLight))
+				if(isIntersectionRed(trafficLightForGreen))
 				{
 					// switch selected traffic light to YELLOWRED and wait 1 second
-					trafficLight.setState(TrafficLightState.YELLOWRED);
-					wait(1);
-					
-					// switch selected traffic light to GREEN and wait 3 seconds
-					trafficLight.setState(TrafficLightState.GREEN);
-					wait(3);
+					trafficLightForGreen.setState(TrafficLightState.YELLOWRED);
+					triggerStep = TriggerStep.SWITCH_GREEN;
+					return STEP_DURATION;
 				}
-			}
+				
+				// remove processed traffic light from queue
+				return finishGreenRequest(STEP_DURATION);
+				
+			case SWITCH_GREEN:
+				// switch selected traffic light to GREEN and keep it for a while
+				trafficLightForGreen.setState(TrafficLightState.GREEN);
+				return finishGreenRequest(GREEN_DURATION);
+				
+			default:
+				break;
+		}
+		
+		// if there are no traffic lights waiting to be switched to green --> wait for request
+		TrafficLight trafficLight = trafficLightsListForGreen.peek();
+		if(trafficLight == null)
+			return IDLE;
 			
-			// remove processed traffic light from queue
-			trafficLightsListForGreen.remove(0);
+		// if traffic light belongs to current intersection and is not green yet
+		if((trafficLight.getIntersectionID().equals(intersectionID)) && 
+				(trafficLight.getState() != TrafficLightState.GREEN))
+		{
+			// switch all those traffic lights of the current intersection to red, 
+			// that are required to switch the selected traffic light to green and 
+			// wait a second
+			trafficLightForGreen = trafficLight;
+			shiftIntersectionToRed(trafficLight);
+			triggerStep = isIntersectionRed(trafficLight) ? TriggerStep.CHECK_RED : TriggerStep.SHIFT_RED;
+			return STEP_DURATION;
 		}
+		
+		// remove processed traffic light from queue
+		return finishGreenRequest(STEP_DURATION);
+	}
+	
+	
+	/**
+	 * Removes the processed traffic light from the green-light-queue.
+	 * 
+	 * @param delay
+	 * 			Time (in seconds) to wait before processing the next request
+	 * 
+	 * @return
+	 * 			the given delay
+	 */
+	private float finishGreenRequest(float delay)
+	{
+		trafficLightsListForGreen.poll();
+		trafficLightForGreen = null;
+		triggerStep = TriggerStep.IDLE;
+		return delay;
 	}
 
 
@@ -353,7 +465,7 @@ public class TrafficLightInternalProgram extends Thread
 	 * changed from OFF to YELLOW in the odd calls, and from YELLOW to OFF in the 
 	 * even calls.
 	 */
-	private void runBlinkingMode() 
+	private float runBlinkingMode() 
 	{
 		for(TrafficLight trafficLight : intersectionTrafficLightsList)
 		{
@@ -362,39 +474,67 @@ public class TrafficLightInternalProgram extends Thread
 			else
 				trafficLight.setState(TrafficLightState.OFF);
 		}
+		
+		return BLINKING_INTERVAL;
 	}	
 	
 	
 	/**
 	 * Traffic light program for PROGRAM mode. Traffic light states will be scheduled
-	 * according to a given external XML file. Every step (usually 1 second) this method
-	 * checks whether the current phase has changed and if so, the traffic light states
-	 * will be changed.
+	 * according to a given external XML file. The program's clock only proceeds 
+	 * while PROGRAM mode is active. Whenever the current phase has expired, the 
+	 * traffic light states will be changed. Returns the time until the current 
+	 * phase expires.
 	 */
-	private void runProgramMode() 
+	private float runProgramMode(double currentTime) 
 	{
 		// if no external phases list available 
 		// --> switch all traffic lights off (only once)
 		if(intersectionPhasesList == null)
 		{
 			switchAllTrafficLightsOff();
-			return;
+			return IDLE;
 		}
 		
 		// if changed from different mode --> initialize PROGRAM mode
 		if(previousMode != TrafficLightMode.PROGRAM)
 			setPhaseToTrafficLights();
+		else
+			programTime += currentTime - lastStepTime;
 
 		// if current phase has expired, set next phase to traffic lights
-		if(phase.hasExpired(currentTime))
+		// (at most one cycle, in case all phases have zero duration)
+		boolean phaseChanged = false;
+		for(int i = 0; i < intersectionPhasesList.size() && phaseExpirationTime <= programTime; i++)
 		{
 			phase = gotoNextPhase();
-			phase.activate(currentTime);
-			setPhaseToTrafficLights();
+			phaseExpirationTime += phase.getDuration();
+			phaseChanged = true;
 		}
 		
-		// increment clock
-		currentTime++;
+		if(phaseExpirationTime <= programTime)
+			phaseExpirationTime = programTime + STEP_DURATION;
+		
+		if(phaseChanged)
+			setPhaseToTrafficLights();
+		
+		return (float) (phaseExpirationTime - programTime);
+	}
+	
+	
+	/**
+	 * Publishes the current phase to readers on other threads.
+	 * 
+	 * @param currentTime
+	 * 			Simulation time (in seconds) of the scheduler
+	 * 
+	 * @param running
+	 * 			true, if the program's clock proceeds (PROGRAM mode)
+	 */
+	private void publishProgramState(double currentTime, boolean running)
+	{
+		programState = new ProgramState(phase, phaseExpirationTime, programTime, 
+				currentTime, running);
 	}
 
 
@@ -465,35 +605,6 @@ public class TrafficLightInternalProgram extends Thread
 	}
 	
 	
-	/**
-	 * Switches all traffic lights to red which are required to switch the 
-	 * given one to green. Green traffic lights will first be switched to
-	 * yellow, after a second they will be switched to red.
-	 * 
-	 * @param trafficLightForGreen
-	 *  		Traffic light waiting for green, while all other interfering 
-	 *  		traffic lights at this intersection will be switched to red.
-	 *  		If null, all traffic lights at this intersection will be 
-	 *  		switched to red.
-	 */
-	private void requestIntersectionRed(TrafficLight trafficLightForGreen)
-	{
-		// shift rules: 1. GREEN --> YELLOW
-		//				2. wait 1 second
-		//				3. YELLOW --> RED
-		
-		// shift one step (all yellow lights to red and all green lights to yellow) 
-		shiftIntersectionToRed(trafficLightForGreen);
-		
-		if(!isIntersectionRed(trafficLightForGreen))
-		{
-			wait(1);
-			// shift one further step (all remaining yellow lights to red)
-			shiftIntersectionToRed(trafficLightForGreen);
-		}
-	}
-	
-	
 	/**
 	 * Walks through the list of all traffic lights of the current intersection
 	 * and shifts the light status one step closer to red for all traffic lights
@@ -573,24 +684,4 @@ public class TrafficLightInternalProgram extends Thread
 		
 		return allRed;
 	}
-
-	
-	/**
-	 * Stops the loop for the given number of seconds (for INTERNAL mode only)
-	 * 
-	 * @param seconds
-	 * 			number of seconds to stop the thread
-	 */
-	private void wait(int seconds)
-	{
-		// wait only if INTERNAL mode is still running
-		if(TrafficLightCenter.getMode() == TrafficLightMode.TRIGGER)
-		{
-			try {
-				Thread.sleep(seconds*1000);
-			} catch (InterruptedException e){}
-		}
-	}
-
-	
 }
@@ -24,7 +24,7 @@ import eu.opends.environment.TrafficLightException.InvalidStateCharacterExceptio
 
 /**
  * This class represents a traffic light phase. Each phase consists of a unique ID, 
- * a number of steps the phase endures (duration) and a string containing a character
+ * the time in seconds the phase endures (duration) and a string containing a character
  * representation of traffic light states. Every time a phase is used it has to be 
  * activated in order to set an expiration time.<br>
  * Moreover, this class contains a method to read a traffic light's state from the 
@@ -35,14 +35,14 @@ import eu.opends.environment.TrafficLightException.InvalidStateCharacterExceptio
 public class TrafficLightPhase 
 {
 	private String ID;
-	private int    duration;
+	private float  duration;
 	private String stateString;
-	private int    expirationTime;
+	private float  expirationTime;
 	
 
 	/**
 	 * Creates a new traffic light phase. Needed parameters are the unique phaseID, 
-	 * the number of steps a phase endures (usually in seconds) and a state string 
+	 * the time a phase endures (in seconds, fractions allowed) and a state string 
 	 * of length 16 representing the states of the involved traffic lights 
 	 * (e.g. "yyggrrrryyggrrrr").
 	 * 
@@ -50,12 +50,12 @@ public class TrafficLightPhase
 	 * 			Unique phaseID
 	 * 
 	 * @param phaseDuration
-	 * 			number of steps a phase endures
+	 * 			time (in seconds) a phase endures
 	 * 
 	 * @param phaseState
 	 * 			state string
 	 */
-	public TrafficLightPhase(String phaseID, int phaseDuration, String phaseState)
+	public TrafficLightPhase(String phaseID, float phaseDuration, String phaseState)
 	{
 		this.ID = phaseID;
 		this.duration = phaseDuration;
@@ -78,12 +78,12 @@ public class TrafficLightPhase
 	
 	
 	/**
-	 * Returns the duration (usually time in seconds) of a traffic light phase.
+	 * Returns the duration (in seconds) of a traffic light phase.
 	 * 
 	 * @return
-	 * 			Number of steps (usually 1 step = 1 second) a phase will endure
+	 * 			Time (in seconds) a phase will endure
 	 */
-	public int getDuration()
+	public float getDuration()
 	{
 		return duration;
 	}
@@ -104,30 +104,30 @@ public class TrafficLightPhase
 	
 	
 	/**
-	 * Returns the number of steps (usually in seconds) until the phase expires. This 
+	 * Returns the time (in seconds) until the phase expires. This 
 	 * value can be computed by subtracting the current time from the expiration time.
 	 * 
 	 * @param currentTime
-	 * 			Current time stamp (number of steps passed so far)
+	 * 			Current time stamp (in seconds)
 	 * 
 	 * @return
-	 * 			Number of steps until the phase expires
+	 * 			Time (in seconds) until the phase expires
 	 */
-	public int timeToExpiration(int currentTime)
+	public float timeToExpiration(float currentTime)
 	{
-		int timeToExpiration = expirationTime - currentTime;
+		float timeToExpiration = expirationTime - currentTime;
 		return Math.max(0, timeToExpiration);
 	}
 	
 	
 	/**
 	 * Activates a phase by setting the expiration time. Expiration time is the sum 
-	 * of steps passed so far and the number of steps the phase endures.
+	 * of the current time and the duration of the phase.
 	 * 
 	 * @param currentTime
-	 * 			Current time stamp (number of steps passed so far)
+	 * 			Current time stamp (in seconds)
 	 */
-	public void activate(int currentTime)
+	public void activate(float currentTime)
 	{
 		expirationTime = currentTime + duration;
 	}
@@ -137,11 +137,11 @@ public class TrafficLightPhase
 	 * Checks whether a phase has expired.
 	 * 
 	 * @param currentTime
-	 * 			Current time stamp (number of steps passed so far)
+	 * 			Current time stamp (in seconds)
 	 * @return
 	 * 			true, if phase has expired
 	 */
-	public boolean hasExpired(int currentTime)
+	public boolean hasExpired(float currentTime)
 	{
 		return (expirationTime <= currentTime);
 	}
@@ -0,0 +1,207 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.environment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Drives the internal traffic light programs of all intersections. Instead
+ * of running a thread per intersection, each program is stepped when its
+ * next deadline is due. Deadlines are kept in a priority queue and given in
+ * simulation time, which is advanced once per frame by the simulator and
+ * does not proceed while the simulation is paused. Hence, all programs are
+ * executed on the render thread.
+ *
+ * @author Rafael Math
+ */
+public class TrafficLightScheduler
+{
+	// minimum delay (in seconds) between two steps of the same program
+	private static final float MIN_DELAY = 0.001f;
+
+	private PriorityQueue<Deadline> deadlineQueue = new PriorityQueue<Deadline>();
+	private Map<TrafficLightInternalProgram, Deadline> pendingDeadlines =
+		new HashMap<TrafficLightInternalProgram, Deadline>();
+	private long sequence = 0;
+
+	// simulation time (in seconds), may be read from any thread
+	private volatile double time = 0;
+
+
+	private static class Deadline implements Comparable<Deadline>
+	{
+		private TrafficLightInternalProgram program;
+		private double time;
+		private long sequence;
+		private boolean cancelled = false;
+
+
+		private Deadline(TrafficLightInternalProgram program, double time, long sequence)
+		{
+			this.program = program;
+			this.time = time;
+			this.sequence = sequence;
+		}
+
+
+		@Override
+		public int compareTo(Deadline other)
+		{
+			if(time < other.time)
+				return -1;
+			else if(time > other.time)
+				return 1;
+
+			// programs with equal deadlines will be stepped in order of scheduling
+			return (sequence < other.sequence) ? -1 : ((sequence > other.sequence) ? 1 : 0);
+		}
+	}
+
+
+	/**
+	 * Returns the simulation time (in seconds) of this scheduler.
+	 *
+	 * @return
+	 * 			Simulation time passed since setup (pauses excluded).
+	 */
+	public double getTime()
+	{
+		return time;
+	}
+
+
+	/**
+	 * Schedules the next step of the given program. Any pending step of this
+	 * program will be replaced.
+	 *
+	 * @param program
+	 * 			Program to step.
+	 *
+	 * @param delay
+	 * 			Delay (in simulation seconds) until the step is due. If infinite,
+	 * 			the program will not be stepped until it is woken up.
+	 */
+	public synchronized void schedule(TrafficLightInternalProgram program, float delay)
+	{
+		scheduleAt(program, time + delay);
+	}
+
+
+	/**
+	 * Schedules the given program to be stepped in the next update.
+	 *
+	 * @param program
+	 * 			Program to wake up.
+	 */
+	public synchronized void wake(TrafficLightInternalProgram program)
+	{
+		scheduleAt(program, time);
+	}
+
+
+	/**
+	 * Schedules the given program to be stepped in the next update, if it
+	 * is waiting without a deadline (e.g. for a green request).
+	 *
+	 * @param program
+	 * 			Program to wake up.
+	 */
+	public synchronized void wakeIfIdle(TrafficLightInternalProgram program)
+	{
+		if(!pendingDeadlines.containsKey(program))
+			scheduleAt(program, time);
+	}
+
+
+	/**
+	 * Schedules all programs to be stepped in the next update (e.g. after
+	 * the traffic light mode has changed).
+	 *
+	 * @param programs
+	 * 			Programs to wake up.
+	 */
+	public synchronized void wakeAll(Iterable<TrafficLightInternalProgram> programs)
+	{
+		for(TrafficLightInternalProgram program : programs)
+			scheduleAt(program, time);
+	}
+
+
+	/**
+	 * Advances the simulation time and steps all programs whose deadlines are
+	 * due. Must be called once per frame.
+	 *
+	 * @param tpf
+	 * 			Time per frame (in seconds).
+	 *
+	 * @param isPause
+	 * 			true, if the simulation is paused.
+	 */
+	public synchronized void update(float tpf, boolean isPause)
+	{
+		if(isPause)
+			return;
+
+		double currentTime = time + tpf;
+		time = currentTime;
+
+		while(!deadlineQueue.isEmpty() && deadlineQueue.peek().time <= currentTime)
+		{
+			Deadline deadline = deadlineQueue.poll();
+			if(deadline.cancelled)
+				continue;
+
+			pendingDeadlines.remove(deadline.program);
+
+			// step at the scheduled time to avoid drift of the program's clock
+			float delay = deadline.program.step(deadline.time);
+
+			// the step might have scheduled the program itself
+			if(!pendingDeadlines.containsKey(deadline.program))
+				scheduleAt(deadline.program, deadline.time + Math.max(delay, MIN_DELAY));
+		}
+	}
+
+
+	/**
+	 * Removes all pending deadlines.
+	 */
+	public synchronized void clear()
+	{
+		deadlineQueue.clear();
+		pendingDeadlines.clear();
+	}
+
+
+	private void scheduleAt(TrafficLightInternalProgram program, double deadlineTime)
+	{
+		Deadline pending = pendingDeadlines.remove(program);
+		if(pending != null)
+			pending.cancelled = true;
+
+		if(!Double.isInfinite(deadlineTime) && !Double.isNaN(deadlineTime))
+		{
+			Deadline deadline = new Deadline(program, deadlineTime, sequence++);
+			deadlineQueue.add(deadline);
+			pendingDeadlines.put(program, deadline);
+		}
+	}
+}
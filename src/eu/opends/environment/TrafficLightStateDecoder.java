@@ -0,0 +1,473 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.environment;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import eu.opends.environment.TrafficLight.TrafficLightState;
+import eu.opends.environment.TrafficLightCenter.TrafficLightMode;
+
+/**
+ * Decodes traffic light updates received from an external controller (e.g.
+ * a SUMO coupling) and assigns the states to the traffic lights. Two packet
+ * formats are supported:
+ *
+ * <p>Binary state vector (all values big-endian):</p>
+ * <pre>
+ * offset  type      field
+ *   0     int       magic ("ODTL")
+ *   4     byte      protocol version
+ *   5     byte      packet type (0 = key frame, 1 = delta)
+ *   6     short     (reserved)
+ *   8     int       sequence (incremented by one per packet)
+ *  12     int       number of entries
+ *  16     ...       key frame: one SUMO state character per signal index
+ *                   delta: entries of (unsigned short signal index, byte
+ *                   SUMO state character) for changed signals only
+ * </pre>
+ *
+ * The signal index of a traffic light is its intersection number * 100 +
+ * its number within the intersection, e.g. TrafficLight.11_06 --> 1106,
+ * which equals the position in SUMO's state string of intersection 11.
+ * A delta refers to the previous packet; if a packet is missing, deltas
+ * will be ignored until the next key frame. Hence, senders should send a
+ * key frame at least once per second.
+ *
+ * <p>Legacy XML instructions (see <code>XMLParser.evalTrafficLightInstructions()</code>)
+ * will be parsed with a streaming parser instead of building a DOM.</p>
+ *
+ * Decoding binary packets does not allocate any objects. This class is not
+ * thread-safe; it is meant to be used by the receiving thread only.
+ *
+ * @author Rafael Math
+ */
+public class TrafficLightStateDecoder
+{
+	public static final int MAGIC = 0x4F44544C;
+	public static final int VERSION = 1;
+	public static final int TYPE_KEYFRAME = 0;
+	public static final int TYPE_DELTA = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int DELTA_ENTRY_SIZE = 3;
+	public static final int MAX_SIGNALS = 65536;
+	public static final int LIGHTS_PER_INTERSECTION = 100;
+
+	private TrafficLight[] signalTable;
+	private byte[] stateVector = new byte[MAX_SIGNALS];
+	private boolean hasKeyframe = false;
+	private int lastSequence = 0;
+	private boolean wasExternalMode = false;
+	private XMLInputFactory xmlInputFactory;
+
+	private long binaryPackets = 0;
+	private long xmlPackets = 0;
+	private long droppedPackets = 0;
+	private long invalidStates = 0;
+
+
+	/**
+	 * Creates a decoder for the given traffic lights. Traffic lights whose
+	 * names cannot be mapped to a signal index can only be addressed by XML.
+	 *
+	 * @param trafficLightsList
+	 * 			List of all traffic lights
+	 */
+	public TrafficLightStateDecoder(List<TrafficLight> trafficLightsList)
+	{
+		int maxIndex = -1;
+		for(TrafficLight trafficLight : trafficLightsList)
+			maxIndex = Math.max(maxIndex, getSignalIndex(trafficLight.getName()));
+
+		signalTable = new TrafficLight[maxIndex + 1];
+		for(TrafficLight trafficLight : trafficLightsList)
+		{
+			// in case of duplicates, the first traffic light in the list will be used
+			int index = getSignalIndex(trafficLight.getName());
+			if(index >= 0 && signalTable[index] == null)
+				signalTable[index] = trafficLight;
+		}
+
+		xmlInputFactory = XMLInputFactory.newInstance();
+	}
+
+
+	/**
+	 * Computes the signal index from a traffic light name,
+	 * e.g. TrafficLight.11_06 --> 1106
+	 *
+	 * @param trafficLightName
+	 * 			traffic light name
+	 *
+	 * @return
+	 * 			signal index or -1, if the name does not contain numeric
+	 * 			IDs or the index exceeds the maximum number of signals
+	 */
+	public static int getSignalIndex(String trafficLightName)
+	{
+		try {
+			int intersection = Integer.parseInt(TrafficLight.parseIntersectionID(trafficLightName));
+			int light = Integer.parseInt(TrafficLight.parseTrafficLightID(trafficLightName));
+
+			if(intersection < 0 || light < 0 || light >= LIGHTS_PER_INTERSECTION)
+				return -1;
+
+			int index = intersection * LIGHTS_PER_INTERSECTION + light;
+			return (index < MAX_SIGNALS) ? index : -1;
+
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Decodes the given packet, which may either be a binary state vector or
+	 * a legacy XML instruction. States will only be assigned to the traffic
+	 * lights in EXTERNAL mode; binary packets will always be tracked in order
+	 * to keep the state vector up-to-date.
+	 *
+	 * @param data
+	 * 			Packet buffer
+	 *
+	 * @param offset
+	 * 			Start of the packet in the buffer
+	 *
+	 * @param length
+	 * 			Length of the packet
+	 */
+	public void decode(byte[] data, int offset, int length)
+	{
+		if(length >= 4 && readInt(data, offset) == MAGIC)
+			decodeBinary(data, offset, length);
+		else
+			decodeXML(data, offset, length);
+	}
+
+
+	private void decodeBinary(byte[] data, int offset, int length)
+	{
+		binaryPackets++;
+
+		if(length < HEADER_SIZE || data[offset+4] != VERSION)
+		{
+			droppedPackets++;
+			return;
+		}
+
+		int type = data[offset+5];
+		int sequence = readInt(data, offset+8);
+		int count = readInt(data, offset+12);
+		int position = offset + HEADER_SIZE;
+
+		boolean isExternalMode = (TrafficLightCenter.getMode() == TrafficLightMode.EXTERNAL);
+
+		// when switching to EXTERNAL mode, all known states have to be assigned
+		boolean applyAll = isExternalMode && !wasExternalMode;
+		wasExternalMode = isExternalMode;
+
+		if(type == TYPE_KEYFRAME)
+		{
+			if(count < 0 || count > MAX_SIGNALS || length < HEADER_SIZE + count)
+			{
+				droppedPackets++;
+				return;
+			}
+
+			for(int i=0; i<count; i++)
+				stateVector[i] = data[position+i];
+
+			// signals not contained in the key frame are unknown
+			for(int i=count; i<stateVector.length && i<signalTable.length; i++)
+				stateVector[i] = 0;
+
+			hasKeyframe = true;
+
+			// assign all states (only changes will be carried out by the traffic lights)
+			applyAll = isExternalMode;
+		}
+		else if(type == TYPE_DELTA)
+		{
+			// delta refers to a missing packet --> wait for next key frame
+			// (count is checked by division, as count * DELTA_ENTRY_SIZE may overflow)
+			if(!hasKeyframe || sequence != lastSequence + 1 || count < 0 ||
+					count > (length - HEADER_SIZE) / DELTA_ENTRY_SIZE)
+			{
+				hasKeyframe = false;
+				droppedPackets++;
+				return;
+			}
+
+			for(int i=0; i<count; i++)
+			{
+				int index = ((data[position] & 0xff) << 8) | (data[position+1] & 0xff);
+				byte stateCharacter = data[position+2];
+				position += DELTA_ENTRY_SIZE;
+
+				if(stateVector[index] != stateCharacter)
+				{
+					stateVector[index] = stateCharacter;
+					if(isExternalMode && !applyAll)
+						applySignal(index);
+				}
+			}
+		}
+		else
+		{
+			droppedPackets++;
+			return;
+		}
+
+		lastSequence = sequence;
+
+		if(applyAll)
+		{
+			for(int i=0; i<signalTable.length; i++)
+				applySignal(i);
+		}
+	}
+
+
+	private void applySignal(int index)
+	{
+		if(index >= signalTable.length || stateVector[index] == 0)
+			return;
+
+		TrafficLight trafficLight = signalTable[index];
+		if(trafficLight != null)
+		{
+			TrafficLightState state = toState((char) stateVector[index]);
+			if(state != null)
+				trafficLight.setState(state);
+			else
+				invalidStates++;
+		}
+	}
+
+
+	/**
+	 * Transforms SUMO's character representation of states to a value of
+	 * TrafficLightState (see <code>XMLParser.parseSUMOStateCharacter()</code>)
+	 * without throwing an exception on invalid input.
+	 *
+	 * @param stateChar
+	 * 			A SUMO state character
+	 *
+	 * @return
+	 * 			The corresponding traffic light state or null, if invalid
+	 */
+	private static TrafficLightState toState(char stateChar)
+	{
+		switch (stateChar){
+			case 'G' : return TrafficLightState.GREEN;
+			case 'g' : return TrafficLightState.GREEN;
+			case 'y' : return TrafficLightState.YELLOW;
+			case 'r' : return TrafficLightState.RED;
+			case 'x' : return TrafficLightState.YELLOWRED;
+			case 'o' : return TrafficLightState.OFF;
+			case 'a' : return TrafficLightState.ALL;
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Evaluates legacy XML instructions with a streaming parser.
+	 *
+	 * <pre> &lt;TrafficLightControl&gt;
+	 *     &lt;tlsstate timeR="178.00" id="0" programID="0" phase="6" state="rrrryyggrrrryygg"/&gt;
+	 *     &lt;TrafficLight.00_12&gt;
+	 *         &lt;status>GREEN&lt;/status&gt;
+	 *     &lt;/TrafficLight.00_12&gt;
+	 * &lt;/TrafficLightControl&gt;</pre>
+	 */
+	private void decodeXML(byte[] data, int offset, int length)
+	{
+		if(TrafficLightCenter.getMode() != TrafficLightMode.EXTERNAL)
+			return;
+
+		xmlPackets++;
+
+		XMLStreamReader reader = null;
+		try {
+
+			reader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(data, offset, length));
+
+			int depth = 0;
+			int controlDepth = -1;
+			String trafficLightName = null;
+
+			while(reader.hasNext())
+			{
+				int event = reader.next();
+
+				if(event == XMLStreamConstants.START_ELEMENT)
+				{
+					depth++;
+					String elementName = reader.getLocalName();
+
+					if(controlDepth < 0)
+					{
+						if(elementName.equals("TrafficLightControl"))
+							controlDepth = depth;
+					}
+					else if(depth == controlDepth + 1)
+					{
+						// <tlsstate .../> --> SUMO instruction, otherwise manual instruction
+						if(elementName.equals("tlsstate"))
+							evalSUMOInstruction(reader.getAttributeValue(null, "id"),
+									reader.getAttributeValue(null, "state"));
+						else
+							trafficLightName = elementName;
+					}
+					else if(depth == controlDepth + 2 && trafficLightName != null &&
+							elementName.equals("status"))
+					{
+						// reads text and moves to the end tag of <status>
+						evalManualInstruction(trafficLightName, reader.getElementText());
+						depth--;
+					}
+				}
+				else if(event == XMLStreamConstants.END_ELEMENT)
+				{
+					if(depth == controlDepth + 1)
+						trafficLightName = null;
+					else if(depth == controlDepth)
+						controlDepth = -1;
+
+					depth--;
+				}
+			}
+
+		} catch (XMLStreamException e) {
+			System.err.println("[WARNING]: Malformed XML input (TrafficLightStateDecoder.java): " + e.getMessage());
+		} finally {
+			try {
+				if(reader != null)
+					reader.close();
+			} catch (XMLStreamException e) {
+			}
+		}
+	}
+
+
+	private void evalSUMOInstruction(String idString, String stateString)
+	{
+		if(idString == null || stateString == null)
+			return;
+
+		int intersection;
+		try {
+			intersection = Integer.parseInt(idString.trim());
+		} catch (NumberFormatException e) {
+			intersection = -1;
+		}
+
+		String intersectionID = String.format("%2s", idString).replace(' ', '0');
+
+		for(int i=0; i<stateString.length(); i++)
+		{
+			TrafficLight trafficLight = null;
+
+			int index = intersection * LIGHTS_PER_INTERSECTION + i;
+			if(intersection >= 0 && i < LIGHTS_PER_INTERSECTION && index < signalTable.length)
+				trafficLight = signalTable[index];
+			else
+			{
+				// get traffic light object from intersection ID and traffic light ID
+				String trafficlightID   = String.format("%2s", i).replace(' ', '0');
+				String trafficLightName = "TrafficLight." + intersectionID + "_" + trafficlightID;
+				trafficLight = TrafficLightCenter.getTrafficLightByName(trafficLightName);
+			}
+
+			if(trafficLight != null)
+			{
+				TrafficLightState state = toState(stateString.charAt(i));
+				if(state != null)
+					trafficLight.setState(state);
+				else
+					System.err.println("Invalid character data: '" + stateString.charAt(i) + "'");
+			}
+		}
+	}
+
+
+	private void evalManualInstruction(String trafficLightName, String stateString)
+	{
+		TrafficLight trafficLight = TrafficLightCenter.getTrafficLightByName(trafficLightName);
+		if(trafficLight != null)
+		{
+			try{
+				trafficLight.setState(TrafficLightState.valueOf(stateString.trim().toUpperCase()));
+			} catch (IllegalArgumentException e){
+				System.err.println("Invalid character data: '" + stateString + "'");
+			}
+		}
+	}
+
+
+	private static int readInt(byte[] data, int offset)
+	{
+		return ((data[offset] & 0xff) << 24) | ((data[offset+1] & 0xff) << 16) |
+				((data[offset+2] & 0xff) << 8) | (data[offset+3] & 0xff);
+	}
+
+
+	/**
+	 * Returns the number of binary packets received so far.
+	 */
+	public long getBinaryPackets()
+	{
+		return binaryPackets;
+	}
+
+
+	/**
+	 * Returns the number of XML packets evaluated so far.
+	 */
+	public long getXMLPackets()
+	{
+		return xmlPackets;
+	}
+
+
+	/**
+	 * Returns the number of binary packets dropped, e.g. malformed packets
+	 * or deltas received after a packet loss.
+	 */
+	public long getDroppedPackets()
+	{
+		return droppedPackets;
+	}
+
+
+	/**
+	 * Returns the number of invalid state characters received so far.
+	 */
+	public long getInvalidStates()
+	{
+		return invalidStates;
+	}
+}
@@ -0,0 +1,155 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.environment;
+
+import static eu.opends.environment.TrafficLightStateDecoder.*;
+
+/**
+ * Encodes traffic light state vectors into the binary format understood by
+ * <code>TrafficLightStateDecoder</code>. Can be used by an external traffic
+ * light controller (e.g. a SUMO coupling) to send updates to the simulator.
+ * Consecutive packets will be delta-encoded; a key frame will be sent
+ * periodically and whenever a delta would be larger than a key frame.
+ *
+ * Usage:
+ * <pre>
+ * TrafficLightStateEncoder encoder = new TrafficLightStateEncoder(signalCount, 20);
+ * byte[] buffer = new byte[encoder.getMaxPacketSize()];
+ * int length = encoder.encode(states, buffer);
+ * socket.send(new DatagramPacket(buffer, length, address, 2001));
+ * </pre>
+ *
+ * @author Rafael Math
+ */
+public class TrafficLightStateEncoder
+{
+	private byte[] previousStates;
+	private int keyframeInterval;
+	private int packetsSinceKeyframe;
+	private int sequence = 0;
+	private boolean hasPrevious = false;
+
+
+	/**
+	 * Creates a new encoder.
+	 *
+	 * @param signalCount
+	 * 			Number of signal indices (length of the state vector).
+	 *
+	 * @param keyframeInterval
+	 * 			Maximum number of packets between two key frames.
+	 */
+	public TrafficLightStateEncoder(int signalCount, int keyframeInterval)
+	{
+		if(signalCount < 0 || signalCount > MAX_SIGNALS)
+			throw new IllegalArgumentException("Number of signals must be between 0 and " + MAX_SIGNALS);
+
+		this.previousStates = new byte[signalCount];
+		this.keyframeInterval = Math.max(1, keyframeInterval);
+	}
+
+
+	/**
+	 * Returns the size of the largest packet that can be produced.
+	 */
+	public int getMaxPacketSize()
+	{
+		return HEADER_SIZE + previousStates.length;
+	}
+
+
+	/**
+	 * Encodes the given state vector (one SUMO state character per signal
+	 * index, e.g. 'r', 'y', 'G') into the given buffer.
+	 *
+	 * @param states
+	 * 			State vector; length must equal the number of signals.
+	 *
+	 * @param buffer
+	 * 			Buffer of at least getMaxPacketSize() bytes.
+	 *
+	 * @return
+	 * 			Length of the packet.
+	 */
+	public int encode(byte[] states, byte[] buffer)
+	{
+		int signalCount = previousStates.length;
+
+		int changes = 0;
+		if(hasPrevious)
+		{
+			for(int i=0; i<signalCount; i++)
+				if(states[i] != previousStates[i])
+					changes++;
+		}
+
+		sequence++;
+		int position = HEADER_SIZE;
+
+		if(!hasPrevious || packetsSinceKeyframe + 1 >= keyframeInterval ||
+				changes * DELTA_ENTRY_SIZE >= signalCount)
+		{
+			writeHeader(buffer, TYPE_KEYFRAME, signalCount);
+			System.arraycopy(states, 0, buffer, position, signalCount);
+			position += signalCount;
+			packetsSinceKeyframe = 0;
+		}
+		else
+		{
+			writeHeader(buffer, TYPE_DELTA, changes);
+			for(int i=0; i<signalCount; i++)
+			{
+				if(states[i] != previousStates[i])
+				{
+					buffer[position] = (byte) (i >>> 8);
+					buffer[position+1] = (byte) i;
+					buffer[position+2] = states[i];
+					position += DELTA_ENTRY_SIZE;
+				}
+			}
+			packetsSinceKeyframe++;
+		}
+
+		System.arraycopy(states, 0, previousStates, 0, signalCount);
+		hasPrevious = true;
+
+		return position;
+	}
+
+
+	private void writeHeader(byte[] buffer, int type, int count)
+	{
+		writeInt(buffer, 0, MAGIC);
+		buffer[4] = (byte) VERSION;
+		buffer[5] = (byte) type;
+		buffer[6] = 0;
+		buffer[7] = 0;
+		writeInt(buffer, 8, sequence);
+		writeInt(buffer, 12, count);
+	}
+
+
+	private static void writeInt(byte[] buffer, int offset, int value)
+	{
+		buffer[offset] = (byte) (value >>> 24);
+		buffer[offset+1] = (byte) (value >>> 16);
+		buffer[offset+2] = (byte) (value >>> 8);
+		buffer[offset+3] = (byte) value;
+	}
+}
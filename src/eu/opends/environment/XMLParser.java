@@ -414,7 +414,7 @@ public class XMLParser
 					Element currentPhase = (Element) phaseList.item(j);
 					
 					String phaseID = currentPhase.getAttribute("ID");
-					int phaseDuration = Integer.parseInt(currentPhase.getAttribute("duration"));
+					float phaseDuration = Float.parseFloat(currentPhase.getAttribute("duration"));
 					String phaseState = currentPhase.getAttribute("state");
 					
 					returnList.add(new TrafficLightPhase(phaseID, phaseDuration, phaseState));
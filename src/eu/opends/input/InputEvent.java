@@ -0,0 +1,103 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.input;
+
+/**
+ * Input of the driver (key, pedal or steering), stamped with System.nanoTime()
+ * at the moment it has been captured.
+ *
+ * @author Rafael Math
+ */
+public class InputEvent
+{
+	public enum Type
+	{
+		KEY, STEERING, GAS_PEDAL, BRAKE_PEDAL;
+	}
+
+	private Type type;
+	private String binding;
+	private float value;
+	private long time;
+
+
+	/**
+	 * Creates a new input event.
+	 *
+	 * @param type
+	 * 			Type of input.
+	 *
+	 * @param binding
+	 * 			Name of the key mapping (KEY only, otherwise null).
+	 *
+	 * @param value
+	 * 			1 (pressed) or 0 (released) for keys; steering angle
+	 * 			or pedal intensity as passed to the car, otherwise.
+	 *
+	 * @param time
+	 * 			Capture time (System.nanoTime()).
+	 */
+	public InputEvent(Type type, String binding, float value, long time)
+	{
+		this.type = type;
+		this.binding = binding;
+		this.value = value;
+		this.time = time;
+	}
+
+
+	public Type getType()
+	{
+		return type;
+	}
+
+
+	public String getBinding()
+	{
+		return binding;
+	}
+
+
+	public float getValue()
+	{
+		return value;
+	}
+
+
+	public boolean isPressed()
+	{
+		return value != 0;
+	}
+
+
+	/**
+	 * @return capture time in nanoseconds (System.nanoTime())
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return type + (binding != null ? " '" + binding + "'" : "") + ": " + value + " @ " + time;
+	}
+}
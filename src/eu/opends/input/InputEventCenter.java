@@ -0,0 +1,132 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.input;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import eu.opends.input.InputEvent.Type;
+
+/**
+ * Distributes time-stamped driver input to all consumers (e.g. reaction
+ * timers). Input sources (key and joystick listeners, CAN-Interface) stamp
+ * each event with System.nanoTime() as soon as it has been captured, so
+ * measured latencies do not depend on frame rate. Every consumer owns a
+ * lock-free queue, which may be filled from any thread and will be drained
+ * by the consumer (usually once per frame). If no queue has been created,
+ * events will be discarded.
+ *
+ * @author Rafael Math
+ */
+public class InputEventCenter
+{
+	private static CopyOnWriteArrayList<Queue<InputEvent>> queueList =
+		new CopyOnWriteArrayList<Queue<InputEvent>>();
+
+
+	/**
+	 * Creates a queue which will receive all events posted from now on.
+	 *
+	 * @return
+	 * 			Queue of input events.
+	 */
+	public static Queue<InputEvent> createQueue()
+	{
+		Queue<InputEvent> queue = new ConcurrentLinkedQueue<InputEvent>();
+		queueList.add(queue);
+		return queue;
+	}
+
+
+	/**
+	 * Stops forwarding events to the given queue.
+	 *
+	 * @param queue
+	 * 			Queue created by createQueue().
+	 */
+	public static void releaseQueue(Queue<InputEvent> queue)
+	{
+		queueList.remove(queue);
+	}
+
+
+	/**
+	 * Forwards the given event to all queues. Can be used by a synthetic input
+	 * driver in order to replay events with given time stamps.
+	 *
+	 * @param event
+	 * 			Input event.
+	 */
+	public static void post(InputEvent event)
+	{
+		for(Queue<InputEvent> queue : queueList)
+			queue.offer(event);
+	}
+
+
+	public static void reportKey(String binding, boolean pressed)
+	{
+		report(Type.KEY, binding, pressed ? 1 : 0, System.nanoTime());
+	}
+
+
+	public static void reportSteering(float steeringAngle)
+	{
+		report(Type.STEERING, null, steeringAngle, System.nanoTime());
+	}
+
+
+	public static void reportSteering(float steeringAngle, long time)
+	{
+		report(Type.STEERING, null, steeringAngle, time);
+	}
+
+
+	public static void reportGasPedal(float intensity)
+	{
+		report(Type.GAS_PEDAL, null, intensity, System.nanoTime());
+	}
+
+
+	public static void reportGasPedal(float intensity, long time)
+	{
+		report(Type.GAS_PEDAL, null, intensity, time);
+	}
+
+
+	public static void reportBrakePedal(float intensity)
+	{
+		report(Type.BRAKE_PEDAL, null, intensity, System.nanoTime());
+	}
+
+
+	public static void reportBrakePedal(float intensity, long time)
+	{
+		report(Type.BRAKE_PEDAL, null, intensity, time);
+	}
+
+
+	private static void report(Type type, String binding, float value, long time)
+	{
+		// avoid creating events nobody is listening to
+		if(!queueList.isEmpty())
+			post(new InputEvent(type, binding, value, time));
+	}
+}
@@ -68,6 +68,7 @@ public class SimulatorActionListener implements ActionListener
 			if(canClient != null)
 				canClient.suppressSteering();
 			
+			InputEventCenter.reportSteering(steeringValue);
 			sim.getSteeringTask().setSteeringIntensity(-3*steeringValue);
 			car.steer(steeringValue);
 		} 
@@ -86,6 +87,7 @@ public class SimulatorActionListener implements ActionListener
 			if(canClient != null)
 				canClient.suppressSteering();
 			
+			InputEventCenter.reportSteering(steeringValue);
 			sim.getSteeringTask().setSteeringIntensity(-3*steeringValue);
 			car.steer(steeringValue);
 		}
@@ -100,6 +102,7 @@ public class SimulatorActionListener implements ActionListener
 			} else {
 				accelerationValue += 1;
 			}
+			InputEventCenter.reportGasPedal(accelerationValue);
 			car.setGasPedalIntensity(accelerationValue);
 		} 
 		
@@ -112,14 +115,17 @@ public class SimulatorActionListener implements ActionListener
 			} else {
 				accelerationValue -= 1;
 			}
+			InputEventCenter.reportGasPedal(accelerationValue);
 			car.setGasPedalIntensity(accelerationValue);
 		} 
 		
 		else if (binding.equals(KeyMapping.BRAKE.getID())) 
 		{
 			if (value) {
+				InputEventCenter.reportBrakePedal(1f);
 				car.setBrakePedalPressIntensity(1f);
 			} else {
+				InputEventCenter.reportBrakePedal(0f);
 				car.setBrakePedalPressIntensity(0f);
 			}
 		}
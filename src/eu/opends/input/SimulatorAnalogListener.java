@@ -57,6 +57,7 @@ public class SimulatorAnalogListener implements AnalogListener
 			
 			//System.out.println("left: " + Math.round(steeringValue*100000)/1000f);
 
+			InputEventCenter.reportSteering(steeringValue/2.3f);
 			simulator.getSteeringTask().setSteeringIntensity(-2.6f*steeringValue);
 			
 			/*
@@ -72,6 +73,7 @@ public class SimulatorAnalogListener implements AnalogListener
 			
 			//System.out.println("right: " + Math.round(steeringValue*100000)/1000f);
 
+			InputEventCenter.reportSteering(steeringValue/2.3f);
 			simulator.getSteeringTask().setSteeringIntensity(-2.6f*steeringValue);
 			
 			/*
@@ -92,9 +94,15 @@ public class SimulatorAnalogListener implements AnalogListener
 
 
 			if(Math.abs(accelerationValue) <= 0.05f)
+			{
+				InputEventCenter.reportGasPedal(0);
 				simulator.getCar().resetPedals();
+			}
 			else
+			{
+				InputEventCenter.reportGasPedal(accelerationValue);
 				simulator.getCar().setGasPedalIntensity(accelerationValue);
+			}
 		} 
 		
 		else if (binding.equals("Joy Up")) 
@@ -107,9 +115,13 @@ public class SimulatorAnalogListener implements AnalogListener
 				simulator.getSteeringTask().getPrimaryTask().reportRedLight();
 			
 			if(Math.abs(brakeValue) <= 0.05f)
+			{
+				InputEventCenter.reportBrakePedal(0);
 				simulator.getCar().resetPedals();
+			}
 			else
 			{
+				InputEventCenter.reportBrakePedal(brakeValue);
 				simulator.getCar().setBrakePedalPressIntensity(brakeValue);
 			} 
 		}
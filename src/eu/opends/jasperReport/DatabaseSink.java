@@ -0,0 +1,575 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.jasperReport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind sink for database rows. Rows are added to a bounded queue by
+ * the simulation and inserted by this thread in batches (JDBC addBatch/
+ * executeBatch) once per flush interval or as soon as a batch is complete.
+ * Each row will be inserted into all given tables.
+ *
+ * Statements clearing the tables of a previous session will be executed once
+ * after the first successful connection, before any row is inserted.
+ *
+ * If the database server cannot be reached, rows will be appended to a
+ * backlog file. The thread tries to reconnect periodically and replays the
+ * backlog once the connection has been established again. Rows of a batch
+ * that failed will be written to the backlog as a whole; as MyISAM tables do
+ * not support transactions, a few rows might be inserted twice in this case.
+ *
+ * @author Rafael Math
+ */
+public class DatabaseSink extends Thread
+{
+	private static final long RECONNECT_INTERVAL = 10000;
+
+	// type tags of values in the backlog file
+	private static final byte NULL = 0, STRING = 1, BOOLEAN = 2, INT = 3, LONG = 4, FLOAT = 5, DOUBLE = 6;
+
+	private String url;
+	private String user;
+	private String password;
+	private String[] initSQL;
+	private String[] clearSQL;
+	private String[] insertSQL;
+	private File backlogFile;
+	private File replayFile;
+
+	private BlockingQueue<Object[]> queue;
+	private int batchSize;
+	private long flushIntervalNanos;
+	private volatile boolean isRunning = true;
+
+	private Connection connection = null;
+	private PreparedStatement[] statements = null;
+	private long lastConnectionAttempt = 0;
+	private boolean isCleared = false;
+
+	private AtomicLong insertedRows = new AtomicLong(0);
+	private AtomicLong backlogRows = new AtomicLong(0);
+	private volatile long lastFlushLatency = 0;
+	private volatile long maxFlushLatency = 0;
+
+
+	/**
+	 * Creates a database sink. The thread has to be started by the caller.
+	 *
+	 * @param url
+	 * 			JDBC URL of the database.
+	 *
+	 * @param user
+	 * 			Database user.
+	 *
+	 * @param password
+	 * 			Password of the database user.
+	 *
+	 * @param initSQL
+	 * 			Statements to execute after each (re)connection, e.g. "CREATE
+	 * 			TABLE IF NOT EXISTS ...". Must be safe to be executed repeatedly.
+	 *
+	 * @param clearSQL
+	 * 			Statements to execute once after the first successful connection, 
+	 * 			e.g. "TRUNCATE TABLE ...".
+	 *
+	 * @param insertSQL
+	 * 			Insert statement of each table (with one "?" per value of a row).
+	 *
+	 * @param backlogFile
+	 * 			Append-only file keeping rows while the server cannot be reached.
+	 *
+	 * @param queueSize
+	 * 			Maximum number of pending rows.
+	 *
+	 * @param batchSize
+	 * 			Maximum number of rows per batch.
+	 *
+	 * @param flushInterval
+	 * 			Maximum time (in milliseconds) rows will be kept in the queue.
+	 */
+	public DatabaseSink(String url, String user, String password, String[] initSQL, String[] clearSQL,
+			String[] insertSQL, File backlogFile, int queueSize, int batchSize, int flushInterval)
+	{
+		super("DatabaseSink");
+		setDaemon(true);
+
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.initSQL = initSQL;
+		this.clearSQL = clearSQL;
+		this.insertSQL = insertSQL;
+		this.backlogFile = backlogFile;
+		this.replayFile = new File(backlogFile.getPath() + ".replay");
+		this.queue = new ArrayBlockingQueue<Object[]>(Math.max(1, queueSize));
+		this.batchSize = Math.max(1, batchSize);
+		this.flushIntervalNanos = Math.max(1, flushInterval) * 1000000L;
+	}
+
+
+	/**
+	 * Adds a row to the queue. Will only block if the queue is full (i.e. if
+	 * neither the database nor the backlog file can keep up).
+	 *
+	 * @param values
+	 * 			Values of the row (String, Boolean, Integer, Long, Float, Double or null).
+	 */
+	public void add(Object... values)
+	{
+		if(!queue.offer(values))
+		{
+			LockSupport.unpark(this);
+			try {
+				queue.put(values);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if(queue.size() >= batchSize)
+			LockSupport.unpark(this);
+	}
+
+
+	@Override
+	public void run()
+	{
+		while(isRunning)
+		{
+			flushQueue();
+
+			if(isRunning)
+				LockSupport.parkNanos(flushIntervalNanos);
+		}
+
+		// write remaining rows after stop has been requested
+		flushQueue();
+		closeConnection();
+	}
+
+
+	private void flushQueue()
+	{
+		List<Object[]> batch = new ArrayList<Object[]>(batchSize);
+
+		while(queue.drainTo(batch, batchSize) > 0)
+		{
+			writeBatch(batch);
+			batch.clear();
+		}
+
+		// replay backlog as soon as the server can be reached again
+		if((backlogFile.exists() || replayFile.exists()) && connect())
+			replayBacklog();
+	}
+
+
+	private void writeBatch(List<Object[]> batch)
+	{
+		long start = System.nanoTime();
+		boolean success = connect();
+
+		for(int target=0; target<insertSQL.length; target++)
+		{
+			if(success)
+				success = executeBatch(target, batch);
+
+			if(!success)
+				appendToBacklog(target, batch);
+		}
+
+		if(success)
+		{
+			long latency = (System.nanoTime() - start) / 1000000L;
+			lastFlushLatency = latency;
+			maxFlushLatency = Math.max(maxFlushLatency, latency);
+			insertedRows.addAndGet(batch.size());
+		}
+	}
+
+
+	private boolean executeBatch(int target, List<Object[]> batch)
+	{
+		try {
+
+			PreparedStatement statement = statements[target];
+			for(Object[] row : batch)
+			{
+				bind(statement, row);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+			return true;
+
+		} catch (SQLException e) {
+
+			System.err.println("DatabaseSink: could not insert rows (" + e.getMessage() + "). Writing to backlog.");
+			closeConnection();
+			return false;
+		}
+	}
+
+
+	private static void bind(PreparedStatement statement, Object[] row) throws SQLException
+	{
+		for(int i=0; i<row.length; i++)
+		{
+			Object value = row[i];
+
+			if(value instanceof String)
+				statement.setString(i+1, (String) value);
+			else if(value instanceof Boolean)
+				statement.setBoolean(i+1, (Boolean) value);
+			else if(value instanceof Integer)
+				statement.setInt(i+1, (Integer) value);
+			else if(value instanceof Long)
+				statement.setLong(i+1, (Long) value);
+			else if(value instanceof Float)
+				statement.setFloat(i+1, (Float) value);
+			else
+				statement.setObject(i+1, value);
+		}
+	}
+
+
+	/**
+	 * Connects to the database (if not connected). After a failed attempt,
+	 * the next attempt will be made after the reconnect interval.
+	 */
+	private boolean connect()
+	{
+		if(connection != null)
+			return true;
+
+		long now = System.currentTimeMillis();
+		if(lastConnectionAttempt != 0 && now - lastConnectionAttempt < RECONNECT_INTERVAL)
+			return false;
+		lastConnectionAttempt = now;
+
+		try {
+
+			connection = DriverManager.getConnection(url, user, password);
+
+			executeUpdates(initSQL);
+
+			// before the first row (incl. backlog) will be inserted
+			if(!isCleared)
+			{
+				executeUpdates(clearSQL);
+				isCleared = true;
+			}
+
+			statements = new PreparedStatement[insertSQL.length];
+			for(int i=0; i<insertSQL.length; i++)
+				statements[i] = connection.prepareStatement(insertSQL[i]);
+
+			lastConnectionAttempt = 0;
+			return true;
+
+		} catch (SQLException e) {
+
+			System.err.println("DatabaseSink: could not connect to database (" + e.getMessage() + ")");
+			closeConnection();
+			return false;
+		}
+	}
+
+
+	private void executeUpdates(String[] sqlStatements) throws SQLException
+	{
+		for(String sql : sqlStatements)
+		{
+			PreparedStatement statement = connection.prepareStatement(sql);
+			statement.executeUpdate();
+			statement.close();
+		}
+	}
+
+
+	private void closeConnection()
+	{
+		try {
+
+			if(connection != null)
+				connection.close();
+
+		} catch (SQLException e) {
+			// connection is lost anyway
+		}
+
+		connection = null;
+		statements = null;
+	}
+
+
+	private synchronized void appendToBacklog(int target, List<Object[]> rows)
+	{
+		try {
+
+			backlogFile.getAbsoluteFile().getParentFile().mkdirs();
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(backlogFile, true)));
+			try {
+				for(Object[] row : rows)
+					writeRow(output, target, row);
+			} finally {
+				output.close();
+			}
+
+			backlogRows.addAndGet(rows.size());
+
+		} catch (IOException e) {
+
+			System.err.println("DatabaseSink: could not write backlog file '" + backlogFile.getPath() + "'");
+			e.printStackTrace();
+		}
+	}
+
+
+	private static void writeRow(DataOutputStream output, int target, Object[] row) throws IOException
+	{
+		output.writeByte(target);
+		output.writeShort(row.length);
+
+		for(Object value : row)
+		{
+			if(value instanceof String)
+			{
+				output.writeByte(STRING);
+				output.writeUTF((String) value);
+			}
+			else if(value instanceof Boolean)
+			{
+				output.writeByte(BOOLEAN);
+				output.writeBoolean((Boolean) value);
+			}
+			else if(value instanceof Integer)
+			{
+				output.writeByte(INT);
+				output.writeInt((Integer) value);
+			}
+			else if(value instanceof Long)
+			{
+				output.writeByte(LONG);
+				output.writeLong((Long) value);
+			}
+			else if(value instanceof Float)
+			{
+				output.writeByte(FLOAT);
+				output.writeFloat((Float) value);
+			}
+			else if(value instanceof Double)
+			{
+				output.writeByte(DOUBLE);
+				output.writeDouble((Double) value);
+			}
+			else
+				output.writeByte(NULL);
+		}
+	}
+
+
+	private static Object[] readRow(DataInputStream input, int length) throws IOException
+	{
+		Object[] row = new Object[length];
+
+		for(int i=0; i<length; i++)
+		{
+			switch(input.readByte())
+			{
+				case STRING  : row[i] = input.readUTF(); break;
+				case BOOLEAN : row[i] = input.readBoolean(); break;
+				case INT     : row[i] = input.readInt(); break;
+				case LONG    : row[i] = input.readLong(); break;
+				case FLOAT   : row[i] = input.readFloat(); break;
+				case DOUBLE  : row[i] = input.readDouble(); break;
+				default      : row[i] = null;
+			}
+		}
+
+		return row;
+	}
+
+
+	/**
+	 * Inserts all rows of the backlog file. Rows that could not be inserted
+	 * will be written to the backlog again.
+	 */
+	private void replayBacklog()
+	{
+		// rows failing meanwhile will be appended to a new backlog file
+		if(!replayFile.exists() && !backlogFile.renameTo(replayFile))
+			return;
+
+		System.out.println("DatabaseSink: replaying backlog (" + backlogRows.get() + " rows)");
+		backlogRows.set(0);
+
+		try {
+
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(replayFile)));
+			try {
+
+				List<List<Object[]>> batches = new ArrayList<List<Object[]>>();
+				for(int i=0; i<insertSQL.length; i++)
+					batches.add(new ArrayList<Object[]>(batchSize));
+
+				while(true)
+				{
+					int target;
+					try {
+						target = input.readUnsignedByte();
+					} catch (EOFException e) {
+						break;
+					}
+
+					List<Object[]> batch = batches.get(target);
+					batch.add(readRow(input, input.readUnsignedShort()));
+
+					if(batch.size() >= batchSize)
+						replayBatch(target, batch);
+				}
+
+				for(int target=0; target<insertSQL.length; target++)
+					replayBatch(target, batches.get(target));
+
+			} finally {
+				input.close();
+			}
+
+			replayFile.delete();
+
+		} catch (IOException e) {
+
+			System.err.println("DatabaseSink: could not read backlog file '" + replayFile.getPath() + "'");
+			e.printStackTrace();
+		}
+	}
+
+
+	private void replayBatch(int target, List<Object[]> batch)
+	{
+		if(batch.isEmpty())
+			return;
+
+		if(connection != null && executeBatch(target, batch))
+			insertedRows.addAndGet(batch.size());
+		else
+			appendToBacklog(target, batch);
+
+		batch.clear();
+	}
+
+
+	/**
+	 * Requests the thread to write all pending rows and terminate. Waits at
+	 * most the given time. Rows still queued after the timeout (e.g. if the 
+	 * database server hangs) will be written to the backlog file.
+	 *
+	 * @param timeout
+	 * 			Maximum time to wait (in milliseconds).
+	 */
+	public void close(long timeout)
+	{
+		isRunning = false;
+		LockSupport.unpark(this);
+
+		try {
+			join(timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if(isAlive())
+		{
+			List<Object[]> rows = new ArrayList<Object[]>(queue.size());
+			queue.drainTo(rows);
+
+			for(int target=0; target<insertSQL.length; target++)
+				appendToBacklog(target, rows);
+
+			System.err.println("DatabaseSink: timeout on close. " + rows.size() + 
+					" queued rows written to backlog file '" + backlogFile.getPath() + "'");
+		}
+	}
+
+
+	/**
+	 * @return number of rows waiting in the queue
+	 */
+	public int getQueueDepth()
+	{
+		return queue.size();
+	}
+
+
+	/**
+	 * @return number of rows inserted into the database (per table)
+	 */
+	public long getInsertedRows()
+	{
+		return insertedRows.get();
+	}
+
+
+	/**
+	 * @return number of rows (of all tables) written to the backlog file 
+	 * 			since the last replay
+	 */
+	public long getBacklogRows()
+	{
+		return backlogRows.get();
+	}
+
+
+	/**
+	 * @return duration of the last successful flush of a batch (in milliseconds)
+	 */
+	public long getLastFlushLatency()
+	{
+		return lastFlushLatency;
+	}
+
+
+	/**
+	 * @return maximum duration of a successful flush of a batch (in milliseconds)
+	 */
+	public long getMaxFlushLatency()
+	{
+		return maxFlushLatency;
+	}
+}
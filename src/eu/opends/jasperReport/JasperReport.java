@@ -18,13 +18,15 @@
 
 package eu.opends.jasperReport;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -35,6 +37,7 @@ import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
 
+import eu.opends.drivingTask.settings.SettingsLoader;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
 import eu.opends.main.SimulationDefaults;
 import eu.opends.main.Simulator;
@@ -49,10 +52,11 @@ import eu.opends.tools.Util;
  */
 public class JasperReport 
 {
+    private static final long SINK_CLOSE_TIMEOUT = 30000;
+    
 	private SteeringTaskType steeringTaskType;
     private Connection connection;
-    private PreparedStatement statement;
-    private PreparedStatement additionalStatement;
+    private DatabaseSink databaseSink;
     private boolean useAdditionalTable;
     
     // TODO: load from settings.xml
@@ -83,85 +87,122 @@ public class JasperReport
             // Loading database connection driver for MySQL server connection
             Class.forName("com.mysql.jdbc.Driver").newInstance();
             
-            // load settings from driving task
-    		SteeringTaskSettings steeringTaskSettings = Simulator.getDrivingTask().
-    				getScenarioLoader().getSteeringTaskSettings();
-    		String url = steeringTaskSettings.getDatabaseUrl();
-    		String user = steeringTaskSettings.getDatabaseUser();
-    		String pass = steeringTaskSettings.getDatabasePassword();
-    		String table = steeringTaskSettings.getDatabaseTable();
-    		
-    		// TODO load from settings.xml
-    		useAdditionalTable = true; //steeringTaskSettings.getClearTable();
-    		
+        } catch(Exception e) {
+
+        	e.printStackTrace();
+        }
+        
+        // load settings from driving task
+		SteeringTaskSettings steeringTaskSettings = Simulator.getDrivingTask().
+				getScenarioLoader().getSteeringTaskSettings();
+		String url = steeringTaskSettings.getDatabaseUrl();
+		String user = steeringTaskSettings.getDatabaseUser();
+		String pass = steeringTaskSettings.getDatabasePassword();
+		String table = steeringTaskSettings.getDatabaseTable();
+		
+		// TODO load from settings.xml
+		useAdditionalTable = true; //steeringTaskSettings.getClearTable();
+		
+		List<String> initSQL = new ArrayList<String>();
+		List<String> clearSQL = new ArrayList<String>();
+		List<String> insertSQL = new ArrayList<String>();
+		clearSQL.add("TRUNCATE TABLE " + table);
+		insertSQL.add(getInsertSQL(table));
+		
+        if(useAdditionalTable)
+        {
+        	String additionalTable = table + "_" + Simulator.getOutputFolder().replace("analyzerData/", "");
+        	initSQL.add(getCreateTableSQL(additionalTable));
+        	insertSQL.add(getInsertSQL(additionalTable));
+        }
+        
+        try {
+        	
             // Creating connection to local database
             connection = DriverManager.getConnection(url, user, pass);
 
             if(!connection.isClosed())
             	System.out.println("Successfully connected to MySQL server using TCP/IP...");
-            
-            // Creating prepared statement for faster query execution all "?" then have to be assigned some value using statement.set[Float,Int,Long,String,etc]
-            statement = connection.prepareStatement("INSERT INTO `" + table + "` (subject_name, is_main_driver, condition_name, condition_number, " +
-            			"lateral_target_pos, lateral_steering_pos, steering_deviation, light_state, co_driver_reaction, co_driver_reaction_time, brake_reaction, " +
-            			"brake_reaction_time_driver, brake_reaction_time_co_driver, acceleration_reaction, acceleration_reaction_time_driver, " +
-            			"acceleration_reaction_time_co_driver, absolute_time, gesture_reaction, gesture_reaction_time, lat_relevant_building, lon_relevant_building, " +
-            			"x_screen_coordinate, y_screen_coordinate, non_relevant_buildings, experimentTime) VALUES (?, ?, ?, ?,   ?, ?, ?, ?, ?, ?, ?,   ?, ?, ?, ?,  " +
-            			" ?, ?, ?, ?, ?,   ?, ?, ?, ?,?);");
-
-
-            PreparedStatement clearStatement = connection.prepareStatement("TRUNCATE TABLE " + table);
-            clearStatement.executeUpdate();
-            
-            if(useAdditionalTable)
-            {
-            	String additionalTable = table + "_" + Simulator.getOutputFolder().replace("analyzerData/", "");
-            	
-            	// create new table
-            	PreparedStatement newTableStatement = connection.prepareStatement(
-            			"CREATE TABLE IF NOT EXISTS `" + additionalTable + "` (" +
-            			"`subject_name` varchar(100) default NULL," +
-            			"`is_main_driver` tinyint(1) default NULL," +
-            			"`condition_name` varchar(20) default NULL," +
-            			"`condition_number` bigint(20) default NULL," +
-            			"`lateral_target_pos` float default NULL," +
-            			"`lateral_steering_pos` float default NULL," +
-            			"`steering_deviation` float default NULL," +
-            			"`light_state` varchar(20) default NULL," +
-            			"`co_driver_reaction` int(11) default NULL," +
-            			"`co_driver_reaction_time` bigint(20) default NULL," +
-            			"`brake_reaction` int(11) default NULL," +
-            			"`brake_reaction_time_driver` bigint(20) default NULL," +
-            			"`brake_reaction_time_co_driver` bigint(20) default NULL," +
-            			"`acceleration_reaction` int(11) default NULL," +
-            			"`acceleration_reaction_time_driver` bigint(20) default NULL," +
-            			"`acceleration_reaction_time_co_driver` bigint(20) default NULL," +
-            			"`absolute_time` bigint(20) default NULL," +
-            			"`gesture_reaction` int(11) default NULL," +
-            			"`gesture_reaction_time` bigint(20) default NULL," +
-            			"`lat_relevant_building` float default NULL," +
-            			"`lon_relevant_building` float default NULL," +
-            			"`x_screen_coordinate` float default NULL," +
-            			"`y_screen_coordinate` float default NULL," +
-            			"`non_relevant_buildings` int(11) default NULL," +
-            			"`experimentTime` bigint(20) default NULL) ENGINE=MyISAM DEFAULT CHARSET=ascii;");
-            	newTableStatement.executeUpdate();
-            	
-            	additionalStatement = connection.prepareStatement("INSERT INTO `" + additionalTable + "` (subject_name, is_main_driver, condition_name, condition_number, " +
-            			"lateral_target_pos, lateral_steering_pos, steering_deviation, light_state, co_driver_reaction, co_driver_reaction_time, brake_reaction, " +
-            			"brake_reaction_time_driver, brake_reaction_time_co_driver, acceleration_reaction, acceleration_reaction_time_driver, " +
-            			"acceleration_reaction_time_co_driver, absolute_time, gesture_reaction, gesture_reaction_time, lat_relevant_building, lon_relevant_building, " +
-            			"x_screen_coordinate, y_screen_coordinate, non_relevant_buildings, experimentTime) VALUES (?, ?, ?, ?,   ?, ?, ?, ?, ?, ?, ?,   ?, ?, ?, ?,  " +
-            			" ?, ?, ?, ?, ?,   ?, ?, ?, ?,?);");
-            }
             	
         } catch(Exception e) {
 
-        	e.getStackTrace();
+        	e.printStackTrace();
         }
+        
+        // rows will be inserted in batches by a background thread (or kept 
+        // in a backlog file while the database server cannot be reached)
+        startDatabaseSink(url, user, pass, initSQL, clearSQL, insertSQL);
+    }
+    
+    
+    private void startDatabaseSink(String url, String user, String pass, List<String> initSQL, 
+    		List<String> clearSQL, List<String> insertSQL)
+    {
+    	SettingsLoader settingsLoader = Simulator.getSettingsLoader();
+    	
+    	int queueSize = settingsLoader.getSetting(Setting.Database_queueSize, 
+    			SimulationDefaults.Database_queueSize);
+    	
+    	int batchSize = settingsLoader.getSetting(Setting.Database_batchSize, 
+    			SimulationDefaults.Database_batchSize);
+    	
+    	int flushInterval = settingsLoader.getSetting(Setting.Database_flushInterval, 
+    			SimulationDefaults.Database_flushInterval);
+    	
+    	// rows will be kept here while the database server cannot be reached
+    	File backlogFile = new File(outputFolder, "databaseBacklog.dat");
+    	
+    	databaseSink = new DatabaseSink(url, user, pass, initSQL.toArray(new String[0]), 
+    			clearSQL.toArray(new String[0]), insertSQL.toArray(new String[0]), backlogFile, queueSize, batchSize, flushInterval);
+    	databaseSink.start();
+    }
+    
+    
+    private static String getInsertSQL(String table)
+    {
+    	// all "?" have to be assigned some value when the row is written
+    	return "INSERT INTO `" + table + "` (subject_name, is_main_driver, condition_name, condition_number, " +
+    			"lateral_target_pos, lateral_steering_pos, steering_deviation, light_state, co_driver_reaction, co_driver_reaction_time, brake_reaction, " +
+    			"brake_reaction_time_driver, brake_reaction_time_co_driver, acceleration_reaction, acceleration_reaction_time_driver, " +
+    			"acceleration_reaction_time_co_driver, absolute_time, gesture_reaction, gesture_reaction_time, lat_relevant_building, lon_relevant_building, " +
+    			"x_screen_coordinate, y_screen_coordinate, non_relevant_buildings, experimentTime) VALUES (?, ?, ?, ?,   ?, ?, ?, ?, ?, ?, ?,   ?, ?, ?, ?,  " +
+    			" ?, ?, ?, ?, ?,   ?, ?, ?, ?,?);";
+    }
+    
+    
+    private static String getCreateTableSQL(String table)
+    {
+    	return "CREATE TABLE IF NOT EXISTS `" + table + "` (" +
+    			"`subject_name` varchar(100) default NULL," +
+    			"`is_main_driver` tinyint(1) default NULL," +
+    			"`condition_name` varchar(20) default NULL," +
+    			"`condition_number` bigint(20) default NULL," +
+    			"`lateral_target_pos` float default NULL," +
+    			"`lateral_steering_pos` float default NULL," +
+    			"`steering_deviation` float default NULL," +
+    			"`light_state` varchar(20) default NULL," +
+    			"`co_driver_reaction` int(11) default NULL," +
+    			"`co_driver_reaction_time` bigint(20) default NULL," +
+    			"`brake_reaction` int(11) default NULL," +
+    			"`brake_reaction_time_driver` bigint(20) default NULL," +
+    			"`brake_reaction_time_co_driver` bigint(20) default NULL," +
+    			"`acceleration_reaction` int(11) default NULL," +
+    			"`acceleration_reaction_time_driver` bigint(20) default NULL," +
+    			"`acceleration_reaction_time_co_driver` bigint(20) default NULL," +
+    			"`absolute_time` bigint(20) default NULL," +
+    			"`gesture_reaction` int(11) default NULL," +
+    			"`gesture_reaction_time` bigint(20) default NULL," +
+    			"`lat_relevant_building` float default NULL," +
+    			"`lon_relevant_building` float default NULL," +
+    			"`x_screen_coordinate` float default NULL," +
+    			"`y_screen_coordinate` float default NULL," +
+    			"`non_relevant_buildings` int(11) default NULL," +
+    			"`experimentTime` bigint(20) default NULL) ENGINE=MyISAM DEFAULT CHARSET=ascii;";
     }
 
 
-    // Method, which writes record to database. It assigns to each "?" in prepared statement definite value and then executes update inserting record in database
+    // Method, which queues a record for the database. Rows will be inserted into the main table
+    // and the additional table in batches by the database sink (no database access on this thread)
     public void addDataSet(String subjectName, boolean isMainDriver, String conditionName, long conditionNumber,
     							float lateralTargetPos, float lateralSteeringPos, float steeringDeviation, 
     							String lightState, int coDriverReaction, long coDriverReactionTime, int brakeReaction,
@@ -170,82 +211,24 @@ public class JasperReport
                                 int gestureReaction, long gestureReactionTime, float latRelBuilding, float lonRelBuilding, 
                                 float xCoordinate, float yCoordinate, int nonRelBuildings, long experimentTime)
     {
-        try {
-            statement.setString(1, subjectName);
-            statement.setBoolean(2, isMainDriver);
-            statement.setString(3, conditionName);
-            statement.setLong(4, conditionNumber);
-            
-            statement.setFloat(5, lateralTargetPos);
-            statement.setFloat(6, lateralSteeringPos);
-            statement.setFloat(7, steeringDeviation);
-            statement.setString(8, lightState);
-            statement.setInt(9, coDriverReaction);
-            statement.setLong(10, coDriverReactionTime);
-            
-            statement.setInt(11, brakeReaction);
-            statement.setLong(12, brakeReactionTimeDriver);
-            statement.setLong(13, brakeReactionTimeCoDriver);
-            
-            statement.setInt(14, accelReaction);
-            statement.setLong(15, accelReactionTimeDriver);
-            statement.setLong(16, accelReactionTimeCoDriver);
-            
-            statement.setLong(17, absoluteTime);
-            statement.setInt(18, gestureReaction);
-            statement.setLong(19, gestureReactionTime);
-            
-            statement.setFloat(20, latRelBuilding);            
-            statement.setFloat(21, lonRelBuilding);
-            statement.setFloat(22, xCoordinate);
-            statement.setFloat(23, yCoordinate);
-            
-            statement.setInt(24, nonRelBuildings);
-            statement.setLong(25, experimentTime);
-            
-            statement.executeUpdate();
-            
-            if(useAdditionalTable)
-            {
-                additionalStatement.setString(1, subjectName);
-                additionalStatement.setBoolean(2, isMainDriver);
-                additionalStatement.setString(3, conditionName);
-                additionalStatement.setLong(4, conditionNumber);
-                
-                additionalStatement.setFloat(5, lateralTargetPos);
-                additionalStatement.setFloat(6, lateralSteeringPos);
-                additionalStatement.setFloat(7, steeringDeviation);
-                additionalStatement.setString(8, lightState);
-                additionalStatement.setInt(9, coDriverReaction);
-                additionalStatement.setLong(10, coDriverReactionTime);
-                
-                additionalStatement.setInt(11, brakeReaction);
-                additionalStatement.setLong(12, brakeReactionTimeDriver);
-                additionalStatement.setLong(13, brakeReactionTimeCoDriver);
-                
-                additionalStatement.setInt(14, accelReaction);
-                additionalStatement.setLong(15, accelReactionTimeDriver);
-                additionalStatement.setLong(16, accelReactionTimeCoDriver);
-                
-                additionalStatement.setLong(17, absoluteTime);
-                additionalStatement.setInt(18, gestureReaction);
-                additionalStatement.setLong(19, gestureReactionTime);
-                
-                additionalStatement.setFloat(20, latRelBuilding);            
-                additionalStatement.setFloat(21, lonRelBuilding);
-                additionalStatement.setFloat(22, xCoordinate);
-                additionalStatement.setFloat(23, yCoordinate);
-                
-                additionalStatement.setInt(24, nonRelBuildings);
-                additionalStatement.setLong(25, experimentTime);
-                
-                additionalStatement.executeUpdate();
-            }
-
-        } catch (SQLException ex) {
-        	
-            Logger.getLogger(JasperReport.class.getName()).log(Level.SEVERE, null, ex);
-        }
+    	if(databaseSink != null)
+    	{
+    		databaseSink.add(subjectName, isMainDriver, conditionName, conditionNumber, 
+    				lateralTargetPos, lateralSteeringPos, steeringDeviation, lightState, coDriverReaction, 
+    				coDriverReactionTime, brakeReaction, brakeReactionTimeDriver, brakeReactionTimeCoDriver, 
+    				accelReaction, accelReactionTimeDriver, accelReactionTimeCoDriver, absoluteTime, 
+    				gestureReaction, gestureReactionTime, latRelBuilding, lonRelBuilding, xCoordinate, 
+    				yCoordinate, nonRelBuildings, experimentTime);
+    	}
+    }
+    
+    
+    /**
+     * @return database sink (e.g. for monitoring queue depth and flush latency)
+     */
+    public DatabaseSink getDatabaseSink()
+    {
+    	return databaseSink;
     }
 
     
@@ -256,6 +239,15 @@ public class JasperReport
     {
         try {
         	
+        	// insert pending rows before report is filled from database
+        	if(databaseSink != null)
+        	{
+        		databaseSink.close(SINK_CLOSE_TIMEOUT);
+        		System.out.println("Database: " + databaseSink.getInsertedRows() + " rows inserted, " + 
+        				databaseSink.getBacklogRows() + " rows in backlog, max. flush latency: " + 
+        				databaseSink.getMaxFlushLatency() + " ms");
+        	}
+        	
         	boolean reportCreated = false;
         	
         	if(createReport)
@@ -264,12 +256,6 @@ public class JasperReport
         	if(reportCreated && openReport)
 				Util.open(outputFolder + "/" + fileName);
 			
-			if(statement != null)
-				statement.close();
-			
-			if(additionalStatement != null)
-				additionalStatement.close();
-			
 			if(connection != null)
 				connection.close();
             
@@ -0,0 +1,289 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.jasperReport;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+
+/**
+ * Reaction measurements of a session, stored column by column in memory.
+ * Reports will be filled directly from these columns, so the data file
+ * written by ReactionLogger does not have to be parsed again (except for
+ * regenerating reports of previous sessions).
+ *
+ * @author Rafael Math
+ */
+public class ReactionData
+{
+	private static final String[] COLUMNS = {"reactionGroup", "reactionResult", "reactionTime",
+		"absoluteTime", "experimentTime", "comment"};
+
+	private int size = 0;
+	private ArrayList<String> reactionGroups = new ArrayList<String>();
+	private int[] reactionResults = new int[16];
+	private long[] reactionTimes = new long[16];
+	private long[] absoluteTimes = new long[16];
+	private long[] experimentTimes = new long[16];
+	private ArrayList<String> comments = new ArrayList<String>();
+
+	private Map<String, Object> parameters = new HashMap<String, Object>();
+
+
+	public void add(String reactionGroup, int reactionResult, long reactionTime,
+			long absoluteTime, long experimentTime, String comment)
+	{
+		if(size == reactionResults.length)
+		{
+			int capacity = 2*size;
+			reactionResults = Arrays.copyOf(reactionResults, capacity);
+			reactionTimes = Arrays.copyOf(reactionTimes, capacity);
+			absoluteTimes = Arrays.copyOf(absoluteTimes, capacity);
+			experimentTimes = Arrays.copyOf(experimentTimes, capacity);
+		}
+
+		reactionGroups.add(reactionGroup);
+		reactionResults[size] = reactionResult;
+		reactionTimes[size] = reactionTime;
+		absoluteTimes[size] = absoluteTime;
+		experimentTimes[size] = experimentTime;
+		comments.add(comment);
+		size++;
+	}
+
+
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Report parameters (e.g. names of the reaction groups).
+	 */
+	public Map<String, Object> getParameters()
+	{
+		return parameters;
+	}
+
+
+	/**
+	 * Creates a data source iterating over all measurements. Fields of the
+	 * report are matched by description (as used with the XML data source)
+	 * or name and will be converted to the class of the field.
+	 *
+	 * @return
+	 * 			Data source for filling a report.
+	 */
+	public JRDataSource createDataSource()
+	{
+		return new JRDataSource()
+		{
+			private int row = -1;
+			private Map<JRField, Integer> columnMap = new HashMap<JRField, Integer>();
+
+
+			public boolean next()
+			{
+				row++;
+				return row < size;
+			}
+
+
+			public Object getFieldValue(JRField field) throws JRException
+			{
+				Integer column = columnMap.get(field);
+				if(column == null)
+				{
+					column = getColumn(field);
+					columnMap.put(field, column);
+				}
+
+				return convert(getValue(column, row), field.getValueClass());
+			}
+		};
+	}
+
+
+	private static int getColumn(JRField field) throws JRException
+	{
+		String description = field.getDescription();
+		if(description != null)
+		{
+			// e.g. "reactionTime" or "./reactionTime"
+			description = description.trim();
+			if(description.startsWith("./"))
+				description = description.substring(2);
+
+			int column = Arrays.asList(COLUMNS).indexOf(description);
+			if(column >= 0)
+				return column;
+		}
+
+		int column = Arrays.asList(COLUMNS).indexOf(field.getName());
+		if(column >= 0)
+			return column;
+
+		throw new JRException("Unknown field '" + field.getName() + "' in reaction report");
+	}
+
+
+	private Object getValue(int column, int row)
+	{
+		switch(column)
+		{
+			case 0 : return reactionGroups.get(row);
+			case 1 : return reactionResults[row];
+			case 2 : return reactionTimes[row];
+			case 3 : return absoluteTimes[row];
+			case 4 : return experimentTimes[row];
+			default: return comments.get(row);
+		}
+	}
+
+
+	private static Object convert(Object value, Class<?> valueClass) throws JRException
+	{
+		if(value == null || valueClass.isInstance(value))
+			return value;
+
+		if(valueClass == String.class)
+			return value.toString();
+
+		try {
+
+			String string = value.toString().trim();
+
+			if(valueClass == Integer.class)
+				return Integer.valueOf(string);
+			else if(valueClass == Long.class)
+				return Long.valueOf(string);
+			else if(valueClass == Short.class)
+				return Short.valueOf(string);
+			else if(valueClass == Float.class)
+				return Float.valueOf(string);
+			else if(valueClass == Double.class)
+				return Double.valueOf(string);
+			else if(valueClass == BigDecimal.class)
+				return new BigDecimal(string);
+			else if(valueClass == BigInteger.class)
+				return new BigInteger(string);
+
+		} catch (NumberFormatException e) {
+
+			// same as XML data source: non-numeric text --> no value
+			return null;
+		}
+
+		throw new JRException("Field class " + valueClass.getName() + " not supported in reaction report");
+	}
+
+
+	/**
+	 * Loads the measurements of a previous session from the data file written
+	 * by ReactionLogger.
+	 *
+	 * @param dataFile
+	 * 			Reaction data file (e.g. "analyzerData/.../reactionData.xml").
+	 *
+	 * @return
+	 * 			Reaction data of the session.
+	 *
+	 * @throws Exception
+	 * 			if the file could not be read.
+	 */
+	public static ReactionData load(File dataFile) throws Exception
+	{
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(dataFile);
+		ReactionData reactionData = new ReactionData();
+
+		NodeList parameterList = document.getElementsByTagName("parameter");
+		for(int i=0; i<parameterList.getLength(); i++)
+		{
+			Element parameter = (Element) parameterList.item(i);
+			reactionData.parameters.put(parameter.getAttribute("name"), 
+					parseParameter(parameter.getTextContent(), parameter.getAttribute("class")));
+		}
+
+		NodeList measurementList = document.getElementsByTagName("reactionMeasurement");
+		for(int i=0; i<measurementList.getLength(); i++)
+		{
+			Map<String, String> values = new HashMap<String, String>();
+			for(Node child = measurementList.item(i).getFirstChild(); child != null; child = child.getNextSibling())
+			{
+				if(child.getNodeType() == Node.ELEMENT_NODE)
+					values.put(child.getNodeName(), child.getTextContent());
+			}
+
+			reactionData.add(values.get("reactionGroup"), parseInt(values.get("reactionResult")),
+					parseLong(values.get("reactionTime")), parseLong(values.get("absoluteTime")),
+					parseLong(values.get("experimentTime")), values.get("comment"));
+		}
+
+		return reactionData;
+	}
+
+
+	private static Object parseParameter(String value, String className)
+	{
+		// files written before the class was recorded contain strings only
+		if(className.isEmpty())
+			return value;
+
+		try {
+
+			Object parameter = convert(value, Class.forName(className));
+			if(parameter != null)
+				return parameter;
+
+		} catch (Exception e) {
+
+			System.err.println("Could not restore report parameter of class " + className);
+		}
+
+		return value;
+	}
+
+
+	private static int parseInt(String value)
+	{
+		return (value == null) ? 0 : Integer.parseInt(value.trim());
+	}
+
+
+	private static long parseLong(String value)
+	{
+		return (value == null) ? 0 : Long.parseLong(value.trim());
+	}
+}
@@ -19,13 +19,11 @@
 package eu.opends.jasperReport;
 
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import eu.opends.drivingTask.settings.SettingsLoader;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
@@ -33,17 +31,10 @@ import eu.opends.main.SimulationDefaults;
 import eu.opends.main.Simulator;
 import eu.opends.tools.Util;
 
-import net.sf.jasperreports.engine.JRDataSource;
-import net.sf.jasperreports.engine.JasperCompileManager;
-import net.sf.jasperreports.engine.JasperExportManager;
-import net.sf.jasperreports.engine.JasperFillManager;
-import net.sf.jasperreports.engine.JasperPrint;
-import net.sf.jasperreports.engine.JasperReport;
-import net.sf.jasperreports.engine.data.JaxenXmlDataSource;
-import net.sf.jasperreports.engine.design.JasperDesign;
-import net.sf.jasperreports.engine.xml.JRXmlLoader;
-
 /**
+ * Logs reaction measurements to an XML data file and creates a PDF report 
+ * when closed. The report will be filled from the measurements kept in 
+ * memory and generated in the background (see ReportGenerator).
  * 
  * @author Rafael Math
  */
@@ -51,8 +42,8 @@ public class ReactionLogger
 {
 	private boolean isRunning = false;
 	private String dataFileName = "reactionData.xml";
-	private String reportFileName = "reactionReport.pdf";
 	private String outputFolder;
+	private ReactionData reactionData;
 	BufferedWriter bw;
 
 
@@ -67,6 +58,16 @@ public class ReactionLogger
 			bw.write("<?xml version=\"1.0\"?>\n");    
 			bw.write("<report>\n");
 			
+			// report parameters incl. class (needed to regenerate the report later)
+			reactionData = new ReactionData();
+			reactionData.getParameters().putAll(getParameters());
+			for(Entry<String, Object> parameter : reactionData.getParameters().entrySet())
+			{
+				Object value = parameter.getValue();
+				bw.write("\t<parameter name=\"" + escapeXML(parameter.getKey()) + "\" class=\"" + 
+						value.getClass().getName() + "\">" + escapeXML(value.toString()) + "</parameter>\n");
+			}
+			
 			isRunning = true;
 			
 		} catch (IOException e) {
@@ -84,11 +85,13 @@ public class ReactionLogger
 		
 		if(isRunning)
 		{
+			reactionData.add(reactionGroup, reactionResult, reactionTime, absoluteTime, experimentTime, comment);
+			
 			try {
 				
 	            bw.write("\t<reactionMeasurement>\n");
 	            
-	            bw.write("\t\t<reactionGroup>" + reactionGroup + "</reactionGroup>\n");
+	            bw.write("\t\t<reactionGroup>" + escapeXML(reactionGroup) + "</reactionGroup>\n");
 				
 				bw.write("\t\t<reactionResult>" + reactionResult + "</reactionResult>\n");
 				
@@ -98,7 +101,7 @@ public class ReactionLogger
 				
 				bw.write("\t\t<experimentTime>" + experimentTime + "</experimentTime>\n");
 				
-				bw.write("\t\t<comment>" + comment + "</comment>\n");
+				bw.write("\t\t<comment>" + escapeXML(comment) + "</comment>\n");
 
 	            bw.write("\t</reactionMeasurement>\n");
 	            
@@ -120,53 +123,39 @@ public class ReactionLogger
 				
 				bw.write("</report>\n");        
 				bw.close();
-				generateReport();
 				
 			} catch (IOException e) {
 	
 				e.printStackTrace();
 			}
+			
+			generateReport();
 		}
 	}
 	
 	
 	private void generateReport()
 	{
-		try
-		{
-			// open XML data source
-			JRDataSource dataSource = new JaxenXmlDataSource(new File(outputFolder + "/" + dataFileName),
-					"report/reactionMeasurement");
-
-			//get report template for reaction measurement
-			//InputStream reportStream = new FileInputStream("assets/JasperReports/templates/reactionMeasurement.jasper");
-			InputStream inputStream = new FileInputStream("assets/JasperReports/templates/reactionMeasurement.jrxml");
-			JasperDesign design = JRXmlLoader.load(inputStream);
-			JasperReport report = JasperCompileManager.compileReport(design);
-
-			// fill report with parameters and data
-			Map<String, Object> parameters = getParameters();
-			JasperPrint print = JasperFillManager.fillReport(report, parameters, dataSource);
-			
-			// create PDF file
-			long start = System.currentTimeMillis();
-			JasperExportManager.exportReportToPdfFile(print, outputFolder + "/" + reportFileName);
-			System.out.println("PDF creation time : " + (System.currentTimeMillis() - start) + " ms");
-			
-			// open PDF file
-			boolean suppressPDF = Simulator.getSettingsLoader().getSetting(Setting.Analyzer_suppressPDFPopup, 
-					SimulationDefaults.Analyzer_suppressPDFPopup);
-			
-			if(!suppressPDF)
-				Util.open(outputFolder + "/" + reportFileName);
-
-		} catch (Exception e) {
-
-			e.printStackTrace();
-		}
+		// open PDF file when done
+		boolean suppressPDF = Simulator.getSettingsLoader().getSetting(Setting.Analyzer_suppressPDFPopup, 
+				SimulationDefaults.Analyzer_suppressPDFPopup);
+		
+		// fill report from memory in the background (simulator may be closed meanwhile)
+		ReportGenerator.generateReactionReport(reactionData, outputFolder, !suppressPDF);
+		reactionData = null;
 	}
 
 
+	private static String escapeXML(String text)
+	{
+		if(text == null)
+			return "";
+		
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+				.replace("\"", "&quot;").replace("'", "&apos;");
+	}
+	
+	
 	private Map<String, Object> getParameters() 
 	{
 		SettingsLoader settingsLoader = Simulator.getDrivingTask().getSettingsLoader();
@@ -0,0 +1,347 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.jasperReport;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import eu.opends.drivingTask.DrivingTaskCache;
+import eu.opends.tools.Util;
+
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSaver;
+
+/**
+ * Generates PDF reports in the background. Compiled report templates will
+ * be kept in memory and on disk (folder "cache/reports", keyed by a hash of
+ * the template file), so templates will only be compiled once after they
+ * have been changed. Threads of the executor are no daemon threads, hence,
+ * reports which are still being generated when the simulator is closed will
+ * be finished before the JVM exits. Idle threads will be stopped after a
+ * few seconds.
+ *
+ * Reports of previous sessions can be regenerated in parallel by running
+ * this class, e.g. "ReportGenerator analyzerData".
+ *
+ * @author Rafael Math
+ */
+public class ReportGenerator
+{
+	private static final String CACHE_FOLDER = "cache/reports";
+	private static final String REACTION_TEMPLATE = "assets/JasperReports/templates/reactionMeasurement.jrxml";
+	private static final String REACTION_DATA_FILE = "reactionData.xml";
+	private static final String REACTION_REPORT_FILE = "reactionReport.pdf";
+	private static final long KEEP_ALIVE_TIME = 5000;
+
+	private static ThreadPoolExecutor executor = null;
+	private static Map<String, JasperReport> reportMap = new HashMap<String, JasperReport>();
+
+
+	/**
+	 * Returns the executor for generating reports (will be created on first call).
+	 */
+	public static synchronized ExecutorService getExecutor()
+	{
+		if(executor == null || executor.isShutdown())
+		{
+			int numberOfThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+			executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, KEEP_ALIVE_TIME,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+			{
+				private int counter = 0;
+
+				public Thread newThread(Runnable runnable)
+				{
+					// no daemon: report will be finished even if the simulator has been closed
+					Thread thread = new Thread(runnable, "ReportGenerator-" + (counter++));
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+			executor.allowCoreThreadTimeOut(true);
+		}
+
+		return executor;
+	}
+
+
+	/**
+	 * Returns the compiled version of the given report template. Source
+	 * templates (*.jrxml) will be compiled once and cached on disk; compiled
+	 * templates (*.jasper) will be loaded.
+	 *
+	 * @param templatePath
+	 * 			Path of the template, e.g. "assets/JasperReports/templates/driver.jrxml"
+	 *
+	 * @return
+	 * 			Compiled report.
+	 *
+	 * @throws Exception
+	 * 			if the template could neither be loaded nor compiled.
+	 */
+	public static synchronized JasperReport getCompiledReport(String templatePath) throws Exception
+	{
+		File templateFile = new File(templatePath);
+		String hash = DrivingTaskCache.hash(Collections.singleton(templateFile));
+
+		// compiled report will change whenever the template file changes
+		JasperReport report = reportMap.get(hash);
+		if(report != null)
+			return report;
+
+		if(templatePath.endsWith(".jasper"))
+		{
+			report = (JasperReport) JRLoader.loadObject(templateFile);
+		}
+		else
+		{
+			String templateName = templateFile.getName().replaceAll("\\.jrxml$", "");
+			File cacheFile = new File(CACHE_FOLDER, templateName + "-" + hash + ".jasper");
+
+			if(cacheFile.isFile())
+			{
+				try {
+					report = (JasperReport) JRLoader.loadObject(cacheFile);
+				} catch (Exception e) {
+					System.err.println("Could not read compiled report '" + cacheFile.getPath() + "'");
+				}
+			}
+
+			if(report == null)
+			{
+				long start = System.currentTimeMillis();
+				report = JasperCompileManager.compileReport(templatePath);
+				System.out.println("Report compilation time : " + (System.currentTimeMillis() - start) + " ms");
+
+				saveCompiledReport(report, cacheFile);
+			}
+		}
+
+		reportMap.put(hash, report);
+		return report;
+	}
+
+
+	private static void saveCompiledReport(JasperReport report, File cacheFile)
+	{
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+
+		try {
+
+			cacheFile.getParentFile().mkdirs();
+			JRSaver.saveObject(report, tempFile);
+			cacheFile.delete();
+			if(!tempFile.renameTo(cacheFile))
+				throw new Exception("Could not rename " + tempFile.getPath());
+
+		} catch (Exception e) {
+			tempFile.delete();
+			System.err.println("Could not write compiled report '" + cacheFile.getPath() + "'");
+		}
+	}
+
+
+	/**
+	 * Fills the given report template and exports it to a PDF file in the
+	 * background.
+	 *
+	 * @param templatePath
+	 * 			Path of the template (*.jrxml or *.jasper).
+	 *
+	 * @param parameters
+	 * 			Report parameters.
+	 *
+	 * @param dataSource
+	 * 			Data to fill the report with (will be accessed by the executor only).
+	 *
+	 * @param outputFile
+	 * 			Path of the PDF file.
+	 *
+	 * @param openPDF
+	 * 			If true, the PDF file will be opened after it has been created.
+	 *
+	 * @return
+	 * 			Future returning true, if the PDF file has been created.
+	 */
+	public static Future<Boolean> generatePDF(final String templatePath, final Map<String, Object> parameters,
+			final JRDataSource dataSource, final String outputFile, final boolean openPDF)
+	{
+		return getExecutor().submit(new Callable<Boolean>()
+		{
+			public Boolean call()
+			{
+				return createPDF(templatePath, parameters, dataSource, outputFile, openPDF);
+			}
+		});
+	}
+
+
+	private static boolean createPDF(String templatePath, Map<String, Object> parameters,
+			JRDataSource dataSource, String outputFile, boolean openPDF)
+	{
+		try {
+
+			JasperReport report = getCompiledReport(templatePath);
+
+			// fill report with parameters and data
+			JasperPrint print = JasperFillManager.fillReport(report, parameters, dataSource);
+
+			// create PDF file
+			long start = System.currentTimeMillis();
+			JasperExportManager.exportReportToPdfFile(print, outputFile);
+			System.out.println("PDF creation time : " + (System.currentTimeMillis() - start) + " ms");
+
+			if(openPDF)
+				Util.open(outputFile);
+
+			return true;
+
+		} catch (Exception e) {
+
+			System.err.println("Could not create report '" + outputFile + "'");
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+
+	/**
+	 * Generates the reaction report of a session in the background.
+	 *
+	 * @param reactionData
+	 * 			Reaction measurements of the session.
+	 *
+	 * @param outputFolder
+	 * 			Output folder of the session.
+	 *
+	 * @param openPDF
+	 * 			If true, the PDF file will be opened after it has been created.
+	 *
+	 * @return
+	 * 			Future returning true, if the PDF file has been created.
+	 */
+	public static Future<Boolean> generateReactionReport(ReactionData reactionData, String outputFolder,
+			boolean openPDF)
+	{
+		return generatePDF(REACTION_TEMPLATE, reactionData.getParameters(), reactionData.createDataSource(),
+				outputFolder + "/" + REACTION_REPORT_FILE, openPDF);
+	}
+
+
+	/**
+	 * Regenerates the reaction reports of all sessions found in the given
+	 * folder (and its sub folders) in parallel.
+	 *
+	 * @param folder
+	 * 			Folder containing session folders, e.g. "analyzerData".
+	 *
+	 * @return
+	 * 			Number of reports created.
+	 */
+	public static int regenerateReactionReports(File folder)
+	{
+		List<File> dataFileList = new ArrayList<File>();
+		findFiles(folder, REACTION_DATA_FILE, dataFileList);
+
+		List<Future<Boolean>> futureList = new ArrayList<Future<Boolean>>();
+		for(File dataFile : dataFileList)
+		{
+			try {
+
+				ReactionData reactionData = ReactionData.load(dataFile);
+				futureList.add(generateReactionReport(reactionData, dataFile.getParent(), false));
+
+			} catch (Exception e) {
+				System.err.println("Could not read '" + dataFile.getPath() + "': " + e.getMessage());
+			}
+		}
+
+		int numberOfReports = 0;
+		for(Future<Boolean> future : futureList)
+		{
+			try {
+				if(future.get())
+					numberOfReports++;
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+
+		return numberOfReports;
+	}
+
+
+	private static void findFiles(File folder, String fileName, List<File> fileList)
+	{
+		File[] files = folder.listFiles();
+		if(files == null)
+			return;
+
+		for(File file : files)
+		{
+			if(file.isDirectory())
+				findFiles(file, fileName, fileList);
+			else if(file.getName().equals(fileName))
+				fileList.add(file);
+		}
+	}
+
+
+	/**
+	 * Lets all submitted reports finish and stops the executor.
+	 */
+	public static synchronized void shutdown()
+	{
+		if(executor != null)
+		{
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+
+	public static void main(String[] args)
+	{
+		String folder = (args.length > 0) ? args[0] : "analyzerData";
+
+		long start = System.currentTimeMillis();
+		int numberOfReports = regenerateReactionReports(new File(folder));
+		System.out.println(numberOfReports + " report(s) created in " +
+				(System.currentTimeMillis() - start) + " ms");
+
+		shutdown();
+	}
+}
@@ -18,18 +18,25 @@
 
 package eu.opends.knowledgeBase;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import de.dfki.automotive.kapcom.knowledgebase.KAPcomException;
 import de.dfki.automotive.kapcom.knowledgebase.NetClient;
 import de.dfki.automotive.kapcom.knowledgebase.PropertyValue;
 import de.dfki.automotive.kapcom.knowledgebase.ontology.*;
 import eu.opends.car.Car;
 import eu.opends.main.Simulator;
+import eu.opends.tools.BackgroundScheduler;
 
 /**
  * 
  * @author Michael Feld, Rafael Math
  */
-final public class KnowledgeBase extends Thread
+final public class KnowledgeBase
 {
 	public final static String CULTURE_GERMAN = "de-DE";
 	public final static String CULTURE_ENGLISH = "en-US";
@@ -37,14 +44,34 @@ final public class KnowledgeBase extends Thread
 	/** Singleton KB instance */
 	public static KnowledgeBase KB = new KnowledgeBase(true, true);
 	
+	// back-off after failed updates (doubled after each failure)
+	private final static long MIN_BACKOFF_MSEC = 1000;
+	private final static long MAX_BACKOFF_MSEC = 60000;
+	
 	private Car car;
-	private boolean isRunning = true;
 	private boolean connect = false;
 	private boolean fallback = true;
 	private int outgoingUpdateIntervalMsec = 100;
+	private ScheduledFuture<?> outgoingUpdateTask = null;
+	
+	// state of the outgoing update task (only accessed while holding sendLock)
+	private final Object sendLock = new Object();
+	
+	// property updates not sent yet (latest value per property, in order of arrival)
+	private final Map<String,String[]> pendingProperties = new LinkedHashMap<String,String[]>();
+	private boolean isDrainingProperties = false;
 	private long lastOutgoingUpdate = 0;
+	private long backoffMsec = 0;
+	private long backoffUntil = 0;
+	
+	// metrics of outgoing updates
+	private volatile long sentUpdates = 0;
+	private volatile long droppedUpdates = 0;
+	private volatile long failedUpdates = 0;
+	private volatile long totalSendLatencyNanos = 0;
+	private volatile long maxSendLatencyNanos = 0;
 	private String culture = CULTURE_GERMAN;
-	private NetClient client = null;
+	private volatile NetClient client = null;
 	private Root root = null;
 	
 	private UserKnowledge user = null;
@@ -160,7 +187,14 @@ final public class KnowledgeBase extends Thread
 	}
 	
 	
-	public void sendSetProperty(String path, String propertyName, String propertyValue, String propertyType)
+	/**
+	 * Sets a property in KAPcom. The property will be sent by the shared 
+	 * background scheduler, hence this method does not block. Updates are 
+	 * sent one after another in order of arrival; if a property is updated 
+	 * again before it has been sent, only the latest value will be sent.
+	 */
+	public void sendSetProperty(String path, String propertyName, 
+			String propertyValue, String propertyType)
 	{	
 		if (!KB.isConnected()) 
 		{
@@ -169,6 +203,61 @@ final public class KnowledgeBase extends Thread
 			return;
 		}
 		
+		synchronized(pendingProperties)
+		{
+			String key = path + "::" + propertyName;
+			
+			// property moves to the end of the queue, so it cannot overtake earlier updates
+			pendingProperties.remove(key);
+			pendingProperties.put(key, new String[]{path, propertyName, propertyValue, propertyType});
+			
+			if (isDrainingProperties)
+				return;
+			
+			isDrainingProperties = true;
+		}
+		
+		// at most one drain task at a time, hence updates cannot be reordered
+		BackgroundScheduler.getExecutor().execute(new Runnable()
+		{
+			public void run() 
+			{
+				drainPendingProperties();
+			}
+		});
+	}
+	
+	
+	private void drainPendingProperties()
+	{
+		while (true)
+		{
+			String[] property;
+			
+			synchronized(pendingProperties)
+			{
+				Iterator<String[]> iterator = pendingProperties.values().iterator();
+				if (!iterator.hasNext())
+				{
+					isDrainingProperties = false;
+					return;
+				}
+				
+				property = iterator.next();
+				iterator.remove();
+			}
+			
+			synchronized(sendLock)
+			{
+				if (isConnected())
+					setProperty(property[0], property[1], property[2], property[3]);
+			}
+		}
+	}
+	
+	
+	private void setProperty(String path, String propertyName, String propertyValue, String propertyType)
+	{
 		try {
 			PropertyValue valueObject;
 			
@@ -188,7 +277,7 @@ final public class KnowledgeBase extends Thread
 				// for char, String and all others types different from types above
 				valueObject = new PropertyValue(propertyValue);
 
-			KB.getClient().sendSetProperty(path, propertyName, valueObject, true);
+			getClient().sendSetProperty(path, propertyName, valueObject, true);
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -197,38 +286,161 @@ final public class KnowledgeBase extends Thread
 	
 	
 	/**
-	 * Sends information about the current vehicle status to KAPcom for use by other applications.
-	 * This may be called many times a second (update rate is limited internally).
+	 * Starts sending information about the current vehicle status to KAPcom for use 
+	 * by other applications. Updates will be sent by the shared background scheduler 
+	 * every outgoing update interval.
 	 */
-	//public synchronized void sendCarData(Car car)
-	@Override
-    public void run()
+	public synchronized void start()
 	{
-		while(isRunning)
+		if (outgoingUpdateIntervalMsec <= 0 || !isConnected() || outgoingUpdateTask != null) 
+			return;
+		
+		outgoingUpdateTask = BackgroundScheduler.getExecutor().scheduleWithFixedDelay(new Runnable()
 		{
-			if (outgoingUpdateIntervalMsec <= 0 || !isConnected()) return;
-			if (System.currentTimeMillis() - lastOutgoingUpdate > outgoingUpdateIntervalMsec) {
-				lastOutgoingUpdate = System.currentTimeMillis();
-				try{
-					getVehicle().sendCarData(car);
-				} catch (Exception ex) {
-					ex.printStackTrace();
-					System.err.println("Failed to send update to KAPcom. Will stop sending updates for 60 seconds.");
-					lastOutgoingUpdate += (1000 * 60);
-					return;
-				}
+			public void run() 
+			{
+				sendOutgoingUpdate();
 			}
+		}, 0, outgoingUpdateIntervalMsec, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	private void sendOutgoingUpdate()
+	{
+		synchronized(sendLock)
+		{
+			if (isConnected())
+				sendOutgoingUpdate(System.currentTimeMillis());
 		}
-		if(KB.isConnected())
+	}
+	
+	
+	private void sendOutgoingUpdate(long now)
+	{
+		// skipped ticks will be counted once the next update is sent
+		if (now < backoffUntil)
+			return;
+		
+		if (lastOutgoingUpdate > 0)
 		{
-			KB.getClient().disconnect();
-			System.out.println("Closed connection to KAPcom");
+			// updates that should have been sent since the last one, but were 
+			// skipped (e.g. due to a slow connection or back-off) are coalesced
+			long missedUpdates = (now - lastOutgoingUpdate) / outgoingUpdateIntervalMsec - 1;
+			if (missedUpdates > 0)
+				droppedUpdates += missedUpdates;
 		}
+		
+		lastOutgoingUpdate = now;
+		
+		try {
+			
+			long start = System.nanoTime();
+			getVehicle().sendCarData(car);
+			long latency = System.nanoTime() - start;
+			
+			sentUpdates++;
+			totalSendLatencyNanos += latency;
+			if (latency > maxSendLatencyNanos)
+				maxSendLatencyNanos = latency;
+			
+			backoffMsec = 0;
+			
+		} catch (KAPcomException ex) {
+			
+			failedUpdates++;
+			backoffMsec = Math.min(Math.max(2 * backoffMsec, MIN_BACKOFF_MSEC), MAX_BACKOFF_MSEC);
+			backoffUntil = now + backoffMsec;
+			System.err.println("Failed to send update to KAPcom (" + ex.getMessage() + 
+					"). Will stop sending updates for " + (backoffMsec/1000f) + " seconds.");
+			
+			// send all values again after connection problems
+			getVehicle().resetChangeDetection();
+			
+		} catch (Exception ex) {
+			
+			failedUpdates++;
+			ex.printStackTrace();
+		}
+	}
+	
+	
+	/**
+	 * Number of updates successfully sent to KAPcom.
+	 */
+	public long getSentUpdates()
+	{
+		return sentUpdates;
+	}
+	
+	
+	/**
+	 * Number of updates not sent, as they were coalesced with a later update 
+	 * (slow connection) or suppressed during back-off.
+	 */
+	public long getDroppedUpdates()
+	{
+		return droppedUpdates;
+	}
+	
+	
+	public long getFailedUpdates()
+	{
+		return failedUpdates;
+	}
+	
+	
+	/**
+	 * Average time (in milliseconds) needed to send an update to KAPcom.
+	 */
+	public float getAverageSendLatency()
+	{
+		long sent = sentUpdates;
+		if (sent == 0)
+			return 0;
+		return totalSendLatencyNanos / sent / 1000000f;
+	}
+	
+	
+	/**
+	 * Maximum time (in milliseconds) needed to send an update to KAPcom.
+	 */
+	public float getMaxSendLatency()
+	{
+		return maxSendLatencyNanos / 1000000f;
 	}
 
 	
 	public synchronized void disconnect()
 	{
-		isRunning = false;
+		if (outgoingUpdateTask != null)
+		{
+			outgoingUpdateTask.cancel(false);
+			outgoingUpdateTask = null;
+			
+			System.out.println("KAPcom updates: " + sentUpdates + " sent, " + droppedUpdates + 
+					" dropped, " + failedUpdates + " failed, latency avg " + getAverageSendLatency() + 
+					" ms, max " + getMaxSendLatency() + " ms");
+		}
+		
+		if (isConnected())
+		{
+			// disconnect after pending updates have been sent
+			BackgroundScheduler.getExecutor().execute(new Runnable()
+			{
+				public void run() 
+				{
+					synchronized(sendLock)
+					{
+						NetClient netClient = client;
+						if (netClient != null)
+						{
+							client = null;
+							netClient.disconnect();
+							System.out.println("Closed connection to KAPcom");
+						}
+					}
+				}
+			});
+		}
 	}
 }
@@ -18,6 +18,11 @@
 
 package eu.opends.knowledgeBase;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 
@@ -64,6 +69,79 @@ public class VehicleKnowledge
 	}
 
 	
+	/**
+	 * Forces all properties to be sent with the next update (e.g. after
+	 * connection problems).
+	 */
+	void resetChangeDetection()
+	{
+		lastSentValues.clear();
+	}
+	
+	
+	private void putIfChanged(PropertyNode root, Map<String,String> changedValues, String path, 
+			String propertyName, Object value)
+	{
+		String key = path + "/" + propertyName;
+		String stringValue = String.valueOf(value);
+		
+		if(!stringValue.equals(lastSentValues.get(key)))
+		{
+			root.put(path, propertyName, stringValue);
+			changedValues.put(key, stringValue);
+		}
+	}
+	
+	
+	/**
+	 * Node of the XML tree sent to KAPcom. Properties of a node will be 
+	 * written to its "Properties" element, followed by the child nodes.
+	 */
+	private static class PropertyNode
+	{
+		private Map<String,PropertyNode> children = new LinkedHashMap<String,PropertyNode>();
+		private Map<String,String> properties = new LinkedHashMap<String,String>();
+		
+		
+		void put(String path, String propertyName, String value)
+		{
+			PropertyNode node = this;
+			for(String element : path.split("/"))
+			{
+				PropertyNode child = node.children.get(element);
+				if(child == null)
+				{
+					child = new PropertyNode();
+					node.children.put(element, child);
+				}
+				node = child;
+			}
+			node.properties.put(propertyName, value);
+		}
+		
+		
+		void appendXml(StringBuilder xml)
+		{
+			if(!properties.isEmpty())
+			{
+				xml.append("<Properties>");
+				for(Entry<String,String> property : properties.entrySet())
+					xml.append("<").append(property.getKey()).append(">").append(property.getValue())
+						.append("</").append(property.getKey()).append(">");
+				xml.append("</Properties>");
+			}
+			
+			for(Entry<String,PropertyNode> child : children.entrySet())
+			{
+				xml.append("<").append(child.getKey()).append(">");
+				child.getValue().appendXml(xml);
+				xml.append("</").append(child.getKey()).append(">");
+			}
+		}
+	}
+	
+	
+	private Map<String,String> lastSentValues = new HashMap<String,String>();
 	private float oldOrientation = 0;
 	private float oldRotation = 0;
 	private float oldAltitude = 0;
@@ -138,63 +216,48 @@ public class VehicleKnowledge
 		
 		int rpm = (int) car.getTransmission().getRPM();
 		
-		String xml = "<root>" +
-						"<thisVehicle>" +
-							"<interior>" +
-								"<cockpit>" +
-									"<pedals>" +
-										"<gasPedal>" +
-											"<Properties><pressedState>" + gasPedalPress + "</pressedState></Properties>" +
-										"</gasPedal>" +
-										"<brakePedal>" +
-											"<Properties><pressedState>" + brakePedalPress + "</pressedState></Properties>" +
-										"</brakePedal>" +
-									"</pedals>" +
-									"<steeringWheel>" +
-										"<Properties><steerAngle>" + steeringAngle + "</steerAngle></Properties>" +
-									"</steeringWheel>" +
-								"</cockpit>" +
-							"</interior>" +
-							"<exterior>" +
-								"<lights>" +
-									"<Properties><headlights>" + lightState + "</headlights></Properties>" +
-								"</lights>" +
-								"<gearUnit>" +
-									"<Properties><currentGear>" + selectedGear + "</currentGear></Properties>" +
-								"</gearUnit>" +
-								"<engineCompartment>" +
-									"<engine><Properties>" +
-										"<running>" + engineOn + "</running>" +
-										"<actualRpm>" + rpm + "</actualRpm>" +
-									"</Properties></engine>" +
-								"</engineCompartment>" +
-								"<fueling>" +
-									"<fuelType>" +
-										"<Properties><currentConsumption>" + fuelConsumption + "</currentConsumption></Properties>" +
-										"<tank><Properties>" +
-											"<maxAmount>" + maxFuelCapacity + "</maxAmount>" +
-											"<actualAmount>" + fuelLeft + "</actualAmount>" +
-										"</Properties></tank>" +
-									"</fuelType>" +
-								"</fueling>" +
-							"</exterior>" +
-							"<physicalAttributes><Properties>" +
-								"<latitude>"+latitude+"</latitude>" +
-								"<longitude>"+longitude+"</longitude>" +
-								"<altitude>"+altitude+"</altitude>" +
-								"<orientation>"+orientation+"</orientation>" +
-								"<speed>"+speed+"</speed>" +
-								"<rise>"+rise+"</rise>" +
-								"<accelerationLateral>"+verticalAcceleration+"</accelerationLateral>" +
-								"<rotation>"+rotation+"</rotation>" +
-								"<accelerationRotation>"+rotationAcceleration+"</accelerationRotation>" +
-								"<acceleration>"+acceleration+"</acceleration>" +
-							"</Properties></physicalAttributes>" +
-						"</thisVehicle>" +
-					"</root>";
-
+		// only properties that changed since the last update will be sent
+		PropertyNode root = new PropertyNode();
+		Map<String,String> changedValues = new HashMap<String,String>();
+		
+		String cockpit = "thisVehicle/interior/cockpit";
+		putIfChanged(root, changedValues, cockpit + "/pedals/gasPedal", "pressedState", gasPedalPress);
+		putIfChanged(root, changedValues, cockpit + "/pedals/brakePedal", "pressedState", brakePedalPress);
+		putIfChanged(root, changedValues, cockpit + "/steeringWheel", "steerAngle", steeringAngle);
+		
+		String exterior = "thisVehicle/exterior";
+		putIfChanged(root, changedValues, exterior + "/lights", "headlights", lightState);
+		putIfChanged(root, changedValues, exterior + "/gearUnit", "currentGear", selectedGear);
+		putIfChanged(root, changedValues, exterior + "/engineCompartment/engine", "running", engineOn);
+		putIfChanged(root, changedValues, exterior + "/engineCompartment/engine", "actualRpm", rpm);
+		putIfChanged(root, changedValues, exterior + "/fueling/fuelType", "currentConsumption", fuelConsumption);
+		putIfChanged(root, changedValues, exterior + "/fueling/fuelType/tank", "maxAmount", maxFuelCapacity);
+		putIfChanged(root, changedValues, exterior + "/fueling/fuelType/tank", "actualAmount", fuelLeft);
+		
+		String physicalAttributes = "thisVehicle/physicalAttributes";
+		putIfChanged(root, changedValues, physicalAttributes, "latitude", latitude);
+		putIfChanged(root, changedValues, physicalAttributes, "longitude", longitude);
+		putIfChanged(root, changedValues, physicalAttributes, "altitude", altitude);
+		putIfChanged(root, changedValues, physicalAttributes, "orientation", orientation);
+		putIfChanged(root, changedValues, physicalAttributes, "speed", speed);
+		putIfChanged(root, changedValues, physicalAttributes, "rise", rise);
+		putIfChanged(root, changedValues, physicalAttributes, "accelerationLateral", verticalAcceleration);
+		putIfChanged(root, changedValues, physicalAttributes, "rotation", rotation);
+		putIfChanged(root, changedValues, physicalAttributes, "accelerationRotation", rotationAcceleration);
+		putIfChanged(root, changedValues, physicalAttributes, "acceleration", acceleration);
 
-		kb.getClient().sendAddInstanceXml("", xml);		
+		if(!changedValues.isEmpty())
+		{
+			StringBuilder xml = new StringBuilder(1024);
+			xml.append("<root>");
+			root.appendXml(xml);
+			xml.append("</root>");
+			
+			kb.getClient().sendAddInstanceXml("", xml.toString());
+			
+			// values will only be regarded as sent if no exception occurred
+			lastSentValues.putAll(changedValues);
+		}
 		
 		//System.out.println(timeDiff);
 		
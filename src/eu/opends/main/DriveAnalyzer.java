@@ -22,18 +22,15 @@ import java.io.File;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.jme3.material.Material;
-import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.math.ColorRGBA;
 import com.jme3.niftygui.NiftyJmeDisplay;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
-import com.jme3.scene.Spatial;
 import com.jme3.font.BitmapText;
 import com.jme3.scene.Mesh.Mode;
 import com.jme3.scene.Spatial.CullHint;
@@ -44,6 +41,8 @@ import com.jme3.system.AppSettings;
 import de.lessvoid.nifty.Nifty;
 import eu.opends.analyzer.DeviationComputer;
 import eu.opends.analyzer.DataReader;
+import eu.opends.analyzer.TrackNode;
+import eu.opends.analyzer.Trajectory;
 import eu.opends.basics.InternalMapProcessing;
 import eu.opends.basics.SimulationBasics;
 import eu.opends.camera.AnalyzerCam;
@@ -71,6 +70,9 @@ public class DriveAnalyzer extends SimulationBasics
 	private Node pointNode = new Node();
 	private Node lineNode = new Node();
 	private Node coneNode = new Node();
+	private TrackNode drivenPoints;
+	private TrackNode drivenLine;
+	private Geometry geoCone;
 	private Node target = new Node();
 	private int targetIndex = 0;
 	
@@ -85,21 +87,12 @@ public class DriveAnalyzer extends SimulationBasics
 		return devComp;
 	}
 
-	private LinkedList<Vector3f> carPositionList = new LinkedList<Vector3f>();
-	public LinkedList<Vector3f> getCarPositionList() 
+	private Trajectory trajectory = new Trajectory();
+	public Trajectory getTrajectory() 
 	{
-		return carPositionList;
+		return trajectory;
 	}
 
-	private LinkedList<Quaternion> carRotationList = new LinkedList<Quaternion>();
-	public LinkedList<Quaternion> getCarRotationList() 
-	{
-		return carRotationList;
-	}
-
-	private LinkedList<Long> timeList = new LinkedList<Long>();
-	private LinkedList<Double> speedList = new LinkedList<Double>();
-
 	private DataReader dataReader = new DataReader();
 	private Long initialTimeStamp = 0l;
 
@@ -209,32 +202,21 @@ public class DriveAnalyzer extends SimulationBasics
 
 		//mapFileName = myDataReader.getNameOfMap();
 
-		String inputLineNext = dataReader.readInNextDataLine();
-
-		while (inputLineNext != null) 
+		while (dataReader.readInNextDataUnit()) 
 		{	
-			Vector3f carPos = dataReader.getCarPositionFromDataLine(inputLineNext);
-			carPositionList.add(carPos);
-			
-			Quaternion carRotation = dataReader.getCarRotationFromDataLine(inputLineNext);
-			carRotationList.add(carRotation);
-		
-			devComp.addWayPoint(carPos);
-			
-			timeList.add(dataReader.getTimeStamp(inputLineNext));
-
-			speedList.add(dataReader.getSpeed(inputLineNext));
-
-			inputLineNext = dataReader.readInNextDataLine();
+			trajectory.add(dataReader.getTimeStamp(), dataReader.getCarPosition(), 
+					dataReader.getCarRotation(), (float) dataReader.getSpeed());
 		}
+		
+		dataReader.close();
+		
+		// driven positions are the way points of the deviation computer
+		devComp.setWayPoints(trajectory);
 
-		if(timeList.size() > 0)
-			initialTimeStamp = timeList.get(0);
+		if(trajectory.size() > 0)
+			initialTimeStamp = trajectory.getTimeStamp(0);
 		
-		// System.out.println("Size carPositionList: "+ carPositionList.size());
-		// System.out.println("Size timeList: "+ timeList.size());
-		// System.out.println("Size speedList: "+ speedList.size());
-		// System.out.println("Size markerList: "+ markerList.size());
+		// System.out.println("Size trajectory: "+ trajectory.size());
 
 	}
 
@@ -327,38 +309,25 @@ public class DriveAnalyzer extends SimulationBasics
 		Material drivenMaterial = new Material(assetManager,"Common/MatDefs/Misc/Unshaded.j3md");
 		drivenMaterial.setColor("Color", ColorRGBA.Yellow);
 		
-		// visualize points
-		Curve points = new Curve(carPositionList.toArray(new Vector3f[0]), 1);
-		points.setMode(Mode.Points);
-		points.setPointSize(4f);
-		Geometry geoPoints = new Geometry("drivenPoints", points);
-		geoPoints.setMaterial(drivenMaterial);
-		pointNode.attachChild(geoPoints);
-
-		// visualize line
-		Curve line = new Curve(carPositionList.toArray(new Vector3f[0]), 1);
-		line.setMode(Mode.Lines);
-		line.setLineWidth(4f);
-		Geometry geoLine = new Geometry("drivenLine", line);
-	    geoLine.setMaterial(drivenMaterial);
-	    lineNode.attachChild(geoLine);
+		// visualize points (level of detail depends on camera distance)
+		drivenPoints = new TrackNode("drivenPoints", trajectory, drivenMaterial, Mode.Points, 4f);
+		pointNode.attachChild(drivenPoints);
+
+		// visualize line (level of detail depends on camera distance)
+		drivenLine = new TrackNode("drivenLine", trajectory, drivenMaterial, Mode.Lines, 4f);
+	    lineNode.attachChild(drivenLine);
 
 	
-	    // visualize cones
+	    // visualize cone (only the cone at the current target is visible, 
+	    // hence a single geometry will be moved to the target)
 	    Material coneMaterial = new Material(assetManager,"Common/MatDefs/Misc/Unshaded.j3md");
 	    coneMaterial.setColor("Color", ColorRGBA.Black);
 		
-		for (int i=0; i<carPositionList.size(); i++) 
-		{
-			Cylinder cone = new Cylinder(10, 10, 0.3f, 0.01f, 0.9f, true, false);
-			cone.setLineWidth(4f);
-			Geometry geoCone = new Geometry("cone_"+i, cone);
-			geoCone.setLocalTranslation(carPositionList.get(i));
-			geoCone.setLocalRotation(carRotationList.get(i));
-			geoCone.setMaterial(coneMaterial);
-			geoCone.setCullHint(CullHint.Always);
-			coneNode.attachChild(geoCone);
-		}
+		Cylinder cone = new Cylinder(10, 10, 0.3f, 0.01f, 0.9f, true, false);
+		cone.setLineWidth(4f);
+		geoCone = new Geometry("cone", cone);
+		geoCone.setMaterial(coneMaterial);
+		coneNode.attachChild(geoCone);
 
 		if (pointsEnabled)
 			sceneNode.attachChild(pointNode);
@@ -444,7 +413,7 @@ public class DriveAnalyzer extends SimulationBasics
 	 */
 	public void moveFocus(int direction) 
 	{
-		if (!isPause() && direction == 1 && (targetIndex + 1) < carPositionList.size()) 
+		if (!isPause() && direction == 1 && (targetIndex + 1) < trajectory.size()) 
 		{
 			targetIndex++;
 			updateView();
@@ -460,40 +429,32 @@ public class DriveAnalyzer extends SimulationBasics
 
 	private void updateView() 
 	{
-		target.setLocalTranslation(carPositionList.get(targetIndex));
-		target.setLocalRotation(carRotationList.get(targetIndex));
+		target.setLocalTranslation(trajectory.getPosition(targetIndex, null));
+		target.setLocalRotation(trajectory.getRotation(targetIndex, null));
 		cameraFactory.updateCamera();
 		
 		// update speed text
 		DecimalFormat decimalFormat = new DecimalFormat("#0.00");
-		speedText.setText(decimalFormat.format(speedList.get(targetIndex)) + " km/h");
+		speedText.setText(decimalFormat.format(trajectory.getSpeed(targetIndex)) + " km/h");
 		
 		// update timestamp
 		updateTimestamp();
 
-		// make previous cone invisible (if exists)
-		Spatial previousCone = coneNode.getChild("cone_" + (targetIndex-1));		
-		if(previousCone != null)
-			previousCone.setCullHint(CullHint.Always);
-		
-		// make current cone visible (if exists)
-		Spatial currentCone = coneNode.getChild("cone_" + targetIndex);
-		if(currentCone != null)
-			currentCone.setCullHint(CullHint.Dynamic);
+		// move cone to current target
+		geoCone.setLocalTranslation(target.getLocalTranslation());
+		geoCone.setLocalRotation(target.getLocalRotation());
 		
-		// make next cone invisible (if exists)
-		Spatial nextCone = coneNode.getChild("cone_" + (targetIndex+1));
-		if(nextCone != null)
-			nextCone.setCullHint(CullHint.Always);
+		// adjust level of detail of driven line
+		updateTrackNodes();
 		
 		// Update webcams
-		this.capturedImageViewer.showImage(this.timeList.get(targetIndex));
+		this.capturedImageViewer.showImage(trajectory.getTimeStamp(targetIndex));
 	}
 
 
 	private void updateTimestamp() 
 	{
-		Long currentTimeStamp = timeList.get(targetIndex);
+		Long currentTimeStamp = trajectory.getTimeStamp(targetIndex);
 		
 		if(showRelativeTime)
 		{
@@ -509,6 +470,14 @@ public class DriveAnalyzer extends SimulationBasics
 	}
 	
 
+	private void updateTrackNodes() 
+	{
+		Vector3f cameraLocation = cam.getLocation();
+		drivenPoints.update(cameraLocation);
+		drivenLine.update(cameraLocation);
+	}
+	
+
     @Override
     public void simpleUpdate(float tpf) 
     {
@@ -516,6 +485,8 @@ public class DriveAnalyzer extends SimulationBasics
     	{
 			// updates camera
 			super.simpleUpdate(tpf);
+			
+			updateTrackNodes();
     	}
     }
     
@@ -46,6 +46,14 @@ public class SimulationDefaults
 	public static int CANInterface_port = 5678;
 	public static int CANInterface_updateRate = 20;
 	public static float CANInterface_maxSteeringAngle = 270;
+	public static String CANInterface_transport = "text";
+	public static String CANInterface_inputFile = "intest.bin";
+	public static String CANInterface_outputFile = "outtest.bin";
+	public static String CANInterface_textInputFile = "intest.txt";
+	public static String CANInterface_textOutputFile = "outtest.txt";
+	
+	public static boolean SharedMemory_enableVehicleState = false;
+	public static String SharedMemory_vehicleStateFile = "vehicleState.shm";
 	
 	public static boolean vsimrtiServer_startServer = false;
 	public static int vsimrtiServer_port = 1234;
@@ -54,6 +62,23 @@ public class SimulationDefaults
 	public static int SettingsControllerServer_port = 1000;
 	
 	public static boolean Analyzer_suppressPDFPopup = false;
+	public static String Analyzer_fileFormat = "text";
+	public static String Analyzer_syncPolicy = "none";
+	public static int Analyzer_bufferSize = 8192;
+	public static int Analyzer_writeInterval = 500;
+	public static int Analyzer_recordingRate = 20;
+	public static boolean Analyzer_recordOnPhysicsTick = false;
+	
+	// write-behind database sink: max. pending rows, rows per batch, flush interval (ms)
+	public static int Database_queueSize = 10000;
+	public static int Database_batchSize = 100;
+	public static int Database_flushInterval = 1000;
+	
+	// refresh rate (in Hz) of speed, mileage and indicators on the panel; 0 = every frame
+	public static float General_panelRefreshRate = 0;
+	
+	// number of physics ticks per second (jME default: 60)
+	public static int General_physicsRate = 60;
 	
 	public static float gravity = 9.81f;
 	
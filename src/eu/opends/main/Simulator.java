@@ -20,6 +20,7 @@
 package eu.opends.main;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -54,11 +55,15 @@ import eu.opends.knowledgeBase.KnowledgeBase;
 import eu.opends.niftyGui.DrivingTaskSelectionGUIController;
 import eu.opends.reactionCenter.ReactionCenter;
 import eu.opends.settingsController.SettingsControllerServer;
+import eu.opends.sharedMemory.VehicleStatePublisher;
 import eu.opends.steeringTask.SteeringTask;
+import eu.opends.tools.BackgroundScheduler;
 import eu.opends.tools.ObjectManipulationCenter;
 import eu.opends.tools.PanelCenter;
 import eu.opends.tools.SpeedControlCenter;
+import eu.opends.tools.TimerCenter;
 import eu.opends.tools.Util;
+import eu.opends.tools.WorkerPool;
 import eu.opends.traffic.PhysicalTraffic;
 import eu.opends.trigger.TriggerCenter;
 import eu.opends.visualization.LightningClient;
@@ -72,6 +77,7 @@ public class Simulator extends SimulationBasics
 	private final static Logger logger = Logger.getLogger(Simulator.class);
 
     private Nifty nifty;
+    private DrivingTaskSelectionGUIController drivingTaskSelectionGUIController = null;
     private boolean drivingTaskGiven = false;
     private boolean initializationFinished = false;
     
@@ -101,6 +107,7 @@ public class Simulator extends SimulationBasics
 		return drivingTaskLogger;
 	}
 	
+	private int physicsRate = SimulationDefaults.General_physicsRate;
 	private boolean dataWriterQuittable = false;
 	private DataWriter dataWriter;
 	public DataWriter getMyDataWriter() 
@@ -120,6 +127,8 @@ public class Simulator extends SimulationBasics
 		return canClient;
 	}
 	
+	private VehicleStatePublisher vehicleStatePublisher = null;
+	
 	private TriggerCenter triggerCenter = new TriggerCenter(this);
 	public TriggerCenter getTriggerCenter()
 	{
@@ -219,7 +228,8 @@ public class Simulator extends SimulationBasics
     	String xmlPath = "Interface/DrivingTaskSelectionGUI.xml";
     	
     	// Read XML and initialize custom ScreenController
-    	nifty.fromXml(xmlPath, "start", new DrivingTaskSelectionGUIController(this, nifty));
+    	drivingTaskSelectionGUIController = new DrivingTaskSelectionGUIController(this, nifty);
+    	nifty.fromXml(xmlPath, "start", drivingTaskSelectionGUIController);
     		
     	// attach the Nifty display to the gui view port as a processor
     	guiViewPort.addProcessor(niftyDisplay);
@@ -231,6 +241,7 @@ public class Simulator extends SimulationBasics
 	
 	public void closeDrivingTaskSelectionGUI() 
 	{
+		drivingTaskSelectionGUIController = null;
 		nifty.exit();
         inputManager.setCursorVisible(false);
         flyCam.setEnabled(true);
@@ -255,7 +266,14 @@ public class Simulator extends SimulationBasics
     	// set gravity
     	gravityConstant = drivingTask.getSceneLoader().getGravity(SimulationDefaults.gravity);
     	getPhysicsSpace().setGravity(new Vector3f(0, -gravityConstant, 0));	
-    	//getPhysicsSpace().setAccuracy(0.005f);
+    	
+    	// set physics tick rate (e.g. for recording on every physics tick at high rates)
+    	physicsRate = Math.max(1, drivingTask.getSettingsLoader().getSetting(Setting.General_physicsRate, 
+    			SimulationDefaults.General_physicsRate));
+    	getPhysicsSpace().setAccuracy(1f / physicsRate);
+    	
+    	// enough sub steps to keep up with the physics rate at 30 fps
+    	getPhysicsSpace().setMaxSubSteps(Math.max(4, (physicsRate + 29) / 30));
     	
     	PanelCenter.init(this);
 	
@@ -272,7 +290,6 @@ public class Simulator extends SimulationBasics
 		
 		// initialize physical vehicles
 		physicalTraffic = new PhysicalTraffic(this);
-		//physicalTraffic.start(); //TODO
 		
 		// open TCP connection to KAPcom (knowledge component) [affects the driver name, see below]
 		//KnowledgeBase.KB.setConnect(true);
@@ -290,6 +307,8 @@ public class Simulator extends SimulationBasics
         // setup key binding
 		keyBindingCenter = new KeyBindingCenter(this);
         
+        TimerCenter.init();
+        
         AudioCenter.init(this);
 
         // setup camera settings
@@ -313,6 +332,19 @@ public class Simulator extends SimulationBasics
 			canClient = new CANClient(this);
 			canClient.start();
 		}
+		
+		// publish vehicle state to shared memory
+		if(settingsLoader.getSetting(Setting.SharedMemory_enableVehicleState, SimulationDefaults.SharedMemory_enableVehicleState))
+		{
+			String vehicleStateFile = settingsLoader.getSetting(Setting.SharedMemory_vehicleStateFile, 
+					SimulationDefaults.SharedMemory_vehicleStateFile);
+			try {
+				vehicleStatePublisher = new VehicleStatePublisher(new File(vehicleStateFile));
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.err.println("Could not map vehicle state file " + vehicleStateFile);
+			}
+		}
 
 		drivingTaskLogger = new DrivingTaskLogger(outputFolder, driverName, drivingTask.getFileName());
 		
@@ -368,7 +400,44 @@ public class Simulator extends SimulationBasics
 	 */
 	public void initializeDataWriter() 
 	{
-		dataWriter = new DataWriter(outputFolder, car, driverName, SimulationDefaults.drivingTaskFileName);
+		String fileFormatString = settingsLoader.getSetting(Setting.Analyzer_fileFormat, 
+				SimulationDefaults.Analyzer_fileFormat);
+		
+		DataWriter.FileFormat fileFormat = DataWriter.FileFormat.TEXT;
+		try {
+			fileFormat = DataWriter.FileFormat.valueOf(fileFormatString.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			System.err.println("Unknown analyzer file format '" + fileFormatString + "'. Using text format.");
+		}
+		
+		String syncPolicyString = settingsLoader.getSetting(Setting.Analyzer_syncPolicy, 
+				SimulationDefaults.Analyzer_syncPolicy);
+		
+		DataWriter.SyncPolicy syncPolicy = DataWriter.SyncPolicy.NONE;
+		try {
+			syncPolicy = DataWriter.SyncPolicy.valueOf(syncPolicyString.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			System.err.println("Unknown analyzer sync policy '" + syncPolicyString + "'. Using 'none'.");
+		}
+		
+		int bufferSize = settingsLoader.getSetting(Setting.Analyzer_bufferSize, 
+				SimulationDefaults.Analyzer_bufferSize);
+		
+		int writeInterval = settingsLoader.getSetting(Setting.Analyzer_writeInterval, 
+				SimulationDefaults.Analyzer_writeInterval);
+		
+		int recordingRate = settingsLoader.getSetting(Setting.Analyzer_recordingRate, 
+				SimulationDefaults.Analyzer_recordingRate);
+		
+		boolean recordOnPhysicsTick = settingsLoader.getSetting(Setting.Analyzer_recordOnPhysicsTick, 
+				SimulationDefaults.Analyzer_recordOnPhysicsTick);
+		
+		dataWriter = new DataWriter(outputFolder, car, driverName, 
+				SimulationDefaults.drivingTaskFileName, fileFormat, syncPolicy, bufferSize, 
+				writeInterval, recordingRate, recordOnPhysicsTick, physicsRate);
+		
+		// physics ticks advance the simulation time (and record samples if enabled)
+		getPhysicsSpace().addTickListener(dataWriter);
 	}
 	
 	
@@ -385,9 +454,15 @@ public class Simulator extends SimulationBasics
 			if(!isPause())
 				car.getTransmission().updateRPM(tpf);
 		
-			PanelCenter.update();
+			PanelCenter.update(tpf);
 		
 			triggerCenter.doTriggerChecks();
+			
+			// execute delayed actions (simulation time stops in pause)
+			TimerCenter.update(tpf, isPause());
+			
+			// switch traffic lights of all intersections that are due
+			TrafficLightCenter.update(tpf, isPause());
 		
 			updateDataWriter();
 			
@@ -402,7 +477,11 @@ public class Simulator extends SimulationBasics
 			if(!isPause())
 				car.update(tpf);
 			
-			// TODO start thread in init-method to update traffic
+			// publish vehicle and camera state to shared memory
+			if(vehicleStatePublisher != null)
+				vehicleStatePublisher.publish(car, cam, isPause(), tpf);
+			
+			// update traffic (decisions are made in parallel for large numbers of vehicles)
 			physicalTraffic.update(); 
 			
 			SpeedControlCenter.update();
@@ -428,6 +507,11 @@ public class Simulator extends SimulationBasics
 				instructionScreenID = null;
 			}
     	}
+    	else if(drivingTaskSelectionGUIController != null)
+    	{
+    		// report progress of loading models in advance
+    		drivingTaskSelectionGUIController.update();
+    	}
     }
 
     
@@ -445,6 +529,7 @@ public class Simulator extends SimulationBasics
 		{
 			if (dataWriterQuittable) 
 			{
+				getPhysicsSpace().removeTickListener(dataWriter);
 				dataWriter.quit();
 				dataWriter = null;
 				dataWriterQuittable = false;
@@ -487,6 +572,9 @@ public class Simulator extends SimulationBasics
 			if(canClient != null)
 				canClient.requestStop();
 			
+			if(vehicleStatePublisher != null)
+				vehicleStatePublisher.close();
+			
 			TrafficLightCenter.close();
 			
 			steeringTask.close();
@@ -495,6 +583,11 @@ public class Simulator extends SimulationBasics
 			
 			KnowledgeBase.KB.disconnect();
 			
+			// let pending background tasks (e.g. disconnect) finish
+			BackgroundScheduler.shutdown(2000);
+			
+			WorkerPool.shutdown();
+			
 			car.close();
 			
 			physicalTraffic.close();
@@ -502,6 +595,13 @@ public class Simulator extends SimulationBasics
 			if(settingsControllerServer != null)
 				settingsControllerServer.close();
 			
+			// write pending samples of the analyzer file
+			if(dataWriter != null && dataWriter.isDataWriterEnabled())
+			{
+				getPhysicsSpace().removeTickListener(dataWriter);
+				dataWriter.quit();
+			}
+			
 			dataWriter.micRecorder.finish();
 			//dataWriter.micRecorder.saveToFile("~tmp", AudioFileFormat.Type.WAVE , dataWriter.micRecorder.getAudioInputStream());
 			
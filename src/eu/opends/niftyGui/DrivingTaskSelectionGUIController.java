@@ -40,7 +40,9 @@ import de.lessvoid.nifty.screen.Screen;
 import de.lessvoid.nifty.screen.ScreenController;
 import de.lessvoid.nifty.tools.Color;
 import de.lessvoid.nifty.tools.SizeValue;
-import eu.opends.drivingTask.DrivingTask;
+import eu.opends.drivingTask.DrivingTaskDataQuery;
+import eu.opends.drivingTask.scene.ModelLoader;
+import eu.opends.drivingTask.scene.SceneLoader;
 import eu.opends.main.SimulationDefaults;
 import eu.opends.main.Simulator;
 import eu.opends.niftyGui.listBox.TextListBoxModel;
@@ -55,6 +57,7 @@ public class DrivingTaskSelectionGUIController implements ScreenController
 	private Nifty nifty;
 	private String currentPath = "./assets/DrivingTasks/Projects";
 	private Element errorPopup;
+	private ModelLoader modelLoader = null;
 	
 	public DrivingTaskSelectionGUIController(Simulator sim, Nifty nifty)
 	{
@@ -102,11 +105,26 @@ public class DrivingTaskSelectionGUIController implements ScreenController
 	
     public void clickStartButton() 
     {
+    	// models are already being loaded
+    	if(modelLoader != null)
+    		return;
+    	
     	String drivingTaskFileName = getTextFromTextfield("drivingTaskTextfield");
     	File drivingTaskFile = new File(drivingTaskFileName);
-    	if(drivingTaskFile.isFile() && DrivingTask.isValidDrivingTask(drivingTaskFile))
+    	DrivingTaskDataQuery dtData = null;
+    	if(drivingTaskFile.isFile())
+    		dtData = new DrivingTaskDataQuery(drivingTaskFile.getPath());
+    	
+    	if(dtData != null && dtData.isValidDrivingTask())
     	{
-    		sim.closeDrivingTaskSelectionGUI();
+    		// start loading all models of the scene in parallel; this screen 
+    		// will be closed (and the driving task set up) when loading has finished
+    		modelLoader = new ModelLoader(sim.getAssetManager(), dtData.getCache());
+    		modelLoader.load(SceneLoader.getModelKeys(dtData));
+    		sim.setModelLoader(modelLoader);
+    		
+    		nifty.getCurrentScreen().findNiftyControl("startButton", Button.class).setEnabled(false);
+    		update();
     	}
     	else
     	{
@@ -117,6 +135,24 @@ public class DrivingTaskSelectionGUIController implements ScreenController
     }
     
 
+    /**
+     * Reports the progress of loading models and closes this screen when 
+     * all models have been loaded. Will be called once per frame.
+     */
+    public void update()
+    {
+    	if(modelLoader != null)
+    	{
+    		Button startButton = nifty.getCurrentScreen().findNiftyControl("startButton", Button.class);
+    		startButton.setText("Loading " + modelLoader.getNumberOfLoadedModels() + "/" + 
+    				modelLoader.getNumberOfModels());
+    		
+    		if(modelLoader.isDone())
+    			sim.closeDrivingTaskSelectionGUI();
+    	}
+    }
+    
+
 	public void clickQuitButton()
     {
     	sim.stop();
@@ -244,7 +280,7 @@ public class DrivingTaskSelectionGUIController implements ScreenController
 		Button startButton = nifty.getCurrentScreen().findNiftyControl("startButton", Button.class);
 
 		File file = new File(event.getText());
-		if(file.isFile())
+		if(file.isFile() && modelLoader == null)
 			startButton.setEnabled(true);
 		else
 			startButton.setEnabled(false);
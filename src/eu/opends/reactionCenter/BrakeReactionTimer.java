@@ -26,6 +26,7 @@ import com.jme3.math.Vector3f;
 
 import eu.opends.audio.AudioCenter;
 import eu.opends.environment.LaneLimit;
+import eu.opends.input.InputEvent;
 import eu.opends.jasperReport.ReactionLogger;
 import eu.opends.main.Simulator;
 
@@ -40,6 +41,7 @@ public class BrakeReactionTimer extends ReactionTimer
 	private float targetSpeed; 
 	private boolean mustPressBrakePedal;
 	private boolean hasPressedBrakepedal;
+	// System.nanoTime() of stimulus onset
 	private long startTime;
 	private float taskCompletionTime;
 	private Vector3f startPosition;
@@ -71,7 +73,7 @@ public class BrakeReactionTimer extends ReactionTimer
 			
 			this.targetSpeed = targetSpeed;
 			this.mustPressBrakePedal = mustPressBrakePedal;
-			this.startTime = System.currentTimeMillis();
+			this.startTime = stimulusNanoTime;
 			this.taskCompletionTime = taskCompletionTime;
 			this.startPosition = sim.getCar().getPosition();
 			this.taskCompletionDistance = taskCompletionDistance;
@@ -92,7 +94,7 @@ public class BrakeReactionTimer extends ReactionTimer
 			System.err.println("Not above start speed " + startSpeed + "! Currently: " + sim.getCar().getCurrentSpeedKmh());
 			
 			// play sound when time/distance has been passed
-			this.startTime = System.currentTimeMillis();
+			this.startTime = System.nanoTime();
 			this.taskCompletionTime = taskCompletionTime;
 			this.startPosition = sim.getCar().getPosition();
 			this.taskCompletionDistance = taskCompletionDistance;
@@ -113,6 +115,37 @@ public class BrakeReactionTimer extends ReactionTimer
 	}
 	
 
+	public void handleInputEvent(InputEvent event)
+	{
+		if(isReaction(event))
+		{
+			// pedal reactions at capture time (only the first one will be logged)
+			int reactionTime = (int) getReactionTime(event.getTime());
+			
+			switch(event.getType())
+			{
+				case GAS_PEDAL :
+					if(event.getValue() == 0)
+						trialLogger.setBrakeRT_noGas(reactionTime);
+					break;
+					
+				case BRAKE_PEDAL :
+					if(event.getValue() > 0)
+					{
+						hasPressedBrakepedal = true;
+						trialLogger.setBrakeRT_StartBrake(reactionTime);
+					}
+					if(event.getValue() >= 0.8f)
+						trialLogger.setBrakeRT_80pcBrake(reactionTime);
+					break;
+					
+				default:
+					break;
+			}
+		}
+	}
+	
+
 	public void update()
 	{
 		//super.update();
@@ -122,19 +155,21 @@ public class BrakeReactionTimer extends ReactionTimer
 			// monitor whether brake pedal has been pressed
 			hasPressedBrakepedal = (hasPressedBrakepedal || (sim.getCar().getBrakePedalPressIntensity() > 0));
 			
-			long currentTime = System.currentTimeMillis();
+			long currentTime = System.nanoTime();
 			
 			if(hasChangedLanes())
 				trialLogger.setAdditional_reaction(1);
 			
+			// pedal states without input event (e.g. already pressed at stimulus 
+			// onset) will be logged at frame time
 			if(sim.getCar().getGasPedalPressIntensity() == 0)
-				trialLogger.setBrakeRT_noGas((int)(currentTime - startTime));
+				trialLogger.setBrakeRT_noGas((int) getReactionTime(currentTime));
 			
 			if(sim.getCar().getBrakePedalPressIntensity() > 0)
-				trialLogger.setBrakeRT_StartBrake((int)(currentTime - startTime));
+				trialLogger.setBrakeRT_StartBrake((int) getReactionTime(currentTime));
 			
 			if(sim.getCar().getBrakePedalPressIntensity() >= 0.8f)
-				trialLogger.setBrakeRT_80pcBrake((int)(currentTime - startTime));
+				trialLogger.setBrakeRT_80pcBrake((int) getReactionTime(currentTime));
 			
 			if(timeExceeded() || distanceExceeded())
 			{
@@ -148,12 +183,12 @@ public class BrakeReactionTimer extends ReactionTimer
 			{
 				if(!timerSet)
 				{
-					timer = System.currentTimeMillis();
+					timer = currentTime;
 					timerSet = true;
 				}
 				
 				//System.err.println("-----------------------hold speed: " + (currentTime-timer));
-				if((currentTime-timer >= holdSpeedFor))
+				if((currentTime-timer >= holdSpeedFor*1000000L))
 				{
 					if(mustPressBrakePedal)
 					{
@@ -170,12 +205,12 @@ public class BrakeReactionTimer extends ReactionTimer
 			}
 			
 			
-			long relativeStartTime = startTime - experimentStartTime;
+			long relativeStartTime = stimulusTime - experimentStartTime;
 			
 			long holdSpeedOffset = 0l;
 			if(timerSet)
 				holdSpeedOffset = currentTime-timer;
-			long reactionTime = currentTime - startTime - holdSpeedOffset;
+			long reactionTime = getReactionTime(currentTime - holdSpeedOffset);
 			
 			if(correctReactionReported)
 			{
@@ -183,9 +218,8 @@ public class BrakeReactionTimer extends ReactionTimer
 				
 				trialLogger.setBrakeRT_success((int)reactionTime);
 				
-				reactionLogger.add(reactionGroupID, 1, reactionTime, startTime, relativeStartTime, comment);
+				reactionLogger.add(reactionGroupID, 1, reactionTime, stimulusTime, relativeStartTime, comment);
 				
-				reactionTimer = null;
 				comment = "";
 				
 				trialLogger.setReaction(1);
@@ -200,9 +234,8 @@ public class BrakeReactionTimer extends ReactionTimer
 			{
 				//System.err.println("FAILED");
 				
-				reactionLogger.add(reactionGroupID, -1, reactionTime, startTime, relativeStartTime, comment);
+				reactionLogger.add(reactionGroupID, -1, reactionTime, stimulusTime, relativeStartTime, comment);
 
-				reactionTimer = null;
 				comment = "";
 				
 				trialLogger.setReaction(0);
@@ -265,9 +298,9 @@ public class BrakeReactionTimer extends ReactionTimer
 			return false;
 		else
 		{
-			long currentTime = System.currentTimeMillis();
+			long currentTime = System.nanoTime();
 			//System.err.println("Time: " + (currentTime-startTime));
-			return (currentTime-startTime > taskCompletionTime);
+			return (currentTime-startTime > taskCompletionTime*1000000L);
 		}
 	}
 
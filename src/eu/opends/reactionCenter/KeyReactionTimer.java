@@ -26,6 +26,8 @@ import com.jme3.input.controls.JoyButtonTrigger;
 import com.jme3.input.controls.KeyTrigger;
 import com.jme3.input.controls.Trigger;
 
+import eu.opends.input.InputEvent;
+import eu.opends.input.InputEvent.Type;
 import eu.opends.jasperReport.ReactionLogger;
 import eu.opends.main.Simulator;
 
@@ -71,6 +73,24 @@ public class KeyReactionTimer extends ReactionTimer
 	}
 	
 
+	public void handleInputEvent(InputEvent event)
+	{
+		if(isReaction(event) && event.getType() == Type.KEY && event.isPressed())
+		{
+			if(event.getBinding().equals("reaction_group_" + index))
+			{
+				reportCorrectReaction(event.getTime());
+				System.out.println("Key: reaction_group_" + index);
+			}
+			else if(event.getBinding().equals("failure_group_" + index))
+			{
+				reportFailureReaction(event.getTime());
+				System.out.println("Key: failure_group_" + index);
+			}
+		}
+	}
+	
+
 	public void update()
 	{		
 		super.update();
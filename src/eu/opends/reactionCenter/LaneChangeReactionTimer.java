@@ -27,6 +27,8 @@ import com.jme3.math.Vector3f;
 
 import eu.opends.audio.AudioCenter;
 import eu.opends.environment.LaneLimit;
+import eu.opends.input.InputEvent;
+import eu.opends.input.InputEvent.Type;
 import eu.opends.jasperReport.ReactionLogger;
 import eu.opends.main.Simulator;
 
@@ -43,6 +45,7 @@ public class LaneChangeReactionTimer extends ReactionTimer
 	private String targetLane; 
 	private float minSteeringAngle;
 	private float steeringAngle;
+	// System.nanoTime() of stimulus onset
 	private long startTime;
 	private float taskCompletionTime;
 	private Vector3f startPosition;
@@ -73,7 +76,7 @@ public class LaneChangeReactionTimer extends ReactionTimer
 			
 			this.targetLane = targetLane;
 			this.minSteeringAngle = minSteeringAngle;
-			this.startTime = System.currentTimeMillis();
+			this.startTime = stimulusNanoTime;
 			this.taskCompletionTime = taskCompletionTime;
 			this.startPosition = sim.getCar().getPosition();
 			this.taskCompletionDistance = taskCompletionDistance;
@@ -96,7 +99,7 @@ public class LaneChangeReactionTimer extends ReactionTimer
 			System.err.println("Not in start lane " + startLane + "! Currently: " + getCurrentLane());
 			
 			// play sound when time/distance has been passed
-			this.startTime = System.currentTimeMillis();
+			this.startTime = System.nanoTime();
 			this.taskCompletionTime = taskCompletionTime;
 			this.startPosition = sim.getCar().getPosition();
 			this.taskCompletionDistance = taskCompletionDistance;
@@ -117,13 +120,30 @@ public class LaneChangeReactionTimer extends ReactionTimer
 	}
 	
 
+	public void handleInputEvent(InputEvent event)
+	{
+		if(isReaction(event) && event.getType() == Type.STEERING)
+		{
+			float eventSteeringAngle = FastMath.abs(event.getValue());
+			steeringAngle = Math.max(steeringAngle, eventSteeringAngle);
+			
+			// steering reactions at capture time (only the first one will be logged)
+			if(eventSteeringAngle >= 0.004444f)
+				trialLogger.setLaneChangeRT_2angle((int) getReactionTime(event.getTime()));
+			
+			if(eventSteeringAngle >= 0.006666f)
+				trialLogger.setLaneChangeRT_3angle((int) getReactionTime(event.getTime()));
+		}
+	}
+	
+
 	public void update()
 	{		
 		//super.update();
 		
 		if(timerIsActive)
 		{
-			long currentTime = System.currentTimeMillis();
+			long currentTime = System.nanoTime();
 			
 			float currentSteeringAngle = FastMath.abs(sim.getCar().getSteeringWheelState());
 			steeringAngle = Math.max(steeringAngle, currentSteeringAngle);
@@ -132,14 +152,16 @@ public class LaneChangeReactionTimer extends ReactionTimer
 			if(isBraking())
 				trialLogger.setAdditional_reaction(1);
 			
+			// steering without input event (e.g. already steering at stimulus 
+			// onset) will be logged at frame time
 			if(currentSteeringAngle >= 0.004444f)
-				trialLogger.setLaneChangeRT_2angle((int)(currentTime - startTime));
+				trialLogger.setLaneChangeRT_2angle((int) getReactionTime(currentTime));
 			
 			if(currentSteeringAngle >= 0.006666f)
-				trialLogger.setLaneChangeRT_3angle((int)(currentTime - startTime));
+				trialLogger.setLaneChangeRT_3angle((int) getReactionTime(currentTime));
 			
 			if(enteringTargetLane())
-				trialLogger.setLaneChangeRT_enterLane((int)(currentTime - startTime));
+				trialLogger.setLaneChangeRT_enterLane((int) getReactionTime(currentTime));
 			
 			if(timeExceeded() || distanceExceeded())
 			{
@@ -153,12 +175,12 @@ public class LaneChangeReactionTimer extends ReactionTimer
 			{
 				if(!timerSet)
 				{
-					timer = System.currentTimeMillis();
+					timer = currentTime;
 					timerSet = true;
 				}
 				
 				//System.err.println("-----------------------hold lane: " + (currentTime-timer));
-				if((currentTime-timer >= holdLaneFor) && (steeringAngle >= minSteeringAngle))
+				if((currentTime-timer >= holdLaneFor*1000000L) && (steeringAngle >= minSteeringAngle))
 				{
 					reportCorrectReaction();
 				}
@@ -168,12 +190,12 @@ public class LaneChangeReactionTimer extends ReactionTimer
 				timerSet = false;
 			}
 			
-			long relativeStartTime = startTime - experimentStartTime;
+			long relativeStartTime = stimulusTime - experimentStartTime;
 			
 			long holdLaneOffset = 0l;
 			if(timerSet)
 				holdLaneOffset = currentTime-timer;
-			long reactionTime = currentTime - startTime - holdLaneOffset;
+			long reactionTime = getReactionTime(currentTime - holdLaneOffset);
 			
 			if(correctReactionReported)
 			{
@@ -181,9 +203,8 @@ public class LaneChangeReactionTimer extends ReactionTimer
 				
 				trialLogger.setLaneChangeRT_success((int)reactionTime);
 				
-				reactionLogger.add(reactionGroupID, 1, reactionTime, startTime, relativeStartTime, comment);
+				reactionLogger.add(reactionGroupID, 1, reactionTime, stimulusTime, relativeStartTime, comment);
 				
-				reactionTimer = null;
 				comment = "";
 				
 				trialLogger.setReaction(1);
@@ -198,9 +219,8 @@ public class LaneChangeReactionTimer extends ReactionTimer
 			{
 				//System.err.println("FAILED");
 				
-				reactionLogger.add(reactionGroupID, -1, reactionTime, startTime, relativeStartTime, comment);
+				reactionLogger.add(reactionGroupID, -1, reactionTime, stimulusTime, relativeStartTime, comment);
 
-				reactionTimer = null;
 				comment = "";
 				
 				trialLogger.setReaction(0);
@@ -260,9 +280,9 @@ public class LaneChangeReactionTimer extends ReactionTimer
 			return false;
 		else
 		{
-			long currentTime = System.currentTimeMillis();
+			long currentTime = System.nanoTime();
 			//System.err.println("Time: " + (currentTime-startTime));
-			return (currentTime-startTime > taskCompletionTime);
+			return (currentTime-startTime > taskCompletionTime*1000000L);
 		}
 	}
 
@@ -21,9 +21,12 @@ package eu.opends.reactionCenter;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.Queue;
 
 import com.jme3.input.InputManager;
 
+import eu.opends.input.InputEvent;
+import eu.opends.input.InputEventCenter;
 import eu.opends.jasperReport.ReactionLogger;
 import eu.opends.main.Simulator;
 
@@ -36,6 +39,7 @@ public class ReactionCenter
 	private Simulator sim;
 	private InputManager inputManager;
 	private ReactionListener reactionListener;
+	private Queue<InputEvent> inputEventQueue;
 	private ReactionLogger reactionLogger = new ReactionLogger();
 	private long experimentStartTime;
 	
@@ -54,7 +58,8 @@ public class ReactionCenter
 	{
 		if(!isRunning)
 		{			
-			reactionListener = new ReactionListener(this);
+			reactionListener = new ReactionListener();
+			inputEventQueue = InputEventCenter.createQueue();
 			
 			experimentStartTime = new GregorianCalendar().getTimeInMillis();
 			isRunning = true;
@@ -207,6 +212,14 @@ public class ReactionCenter
 	{		
 		if(isRunning)
 		{
+			// forward input of the driver (captured since last frame) to all timers
+			InputEvent event;
+			while((event = inputEventQueue.poll()) != null)
+			{
+				for(ReactionTimer reactionTimer : reactionTimerList)
+					reactionTimer.handleInputEvent(event);
+			}
+			
 			for(ReactionTimer reactionTimer : reactionTimerList)
 				reactionTimer.update();
 		}
@@ -263,6 +276,8 @@ public class ReactionCenter
 		{
 			for(ReactionTimer reactionTimer : reactionTimerList)
 				reactionTimer.close();
+			
+			InputEventCenter.releaseQueue(inputEventQueue);
 		}
 		
 		isRunning = false;
@@ -20,49 +20,19 @@ package eu.opends.reactionCenter;
 
 import com.jme3.input.controls.ActionListener;
 
+import eu.opends.input.InputEventCenter;
+
 /**
+ * Stamps reaction keys with the time they have been captured and forwards 
+ * them to the reaction timers (via InputEventCenter).
  * 
  * @author Rafael Math
  */
 public class ReactionListener implements ActionListener
 {
-	private ReactionCenter reactionCenter;
-	
-	
-    public ReactionListener(ReactionCenter reactionCenter) 
-    {
-    	this.reactionCenter = reactionCenter;
-	}
-
-
 	public void onAction(String binding, boolean value, float tpf) 
 	{
-		try {
-			
-			String[] reactionGroupArray = binding.split("_");
-			
-			if(reactionGroupArray.length == 3 && reactionGroupArray[0].equalsIgnoreCase("reaction") && 
-					reactionGroupArray[1].equalsIgnoreCase("group") && value)
-			{
-				int index = Integer.parseInt(reactionGroupArray[2]);
-				reactionCenter.reportCorrectReaction(index);
-				System.out.println("Key: reaction_group_" + index);
-			}
-			
-			else if (reactionGroupArray.length == 3 && reactionGroupArray[0].equalsIgnoreCase("failure") && 
-					reactionGroupArray[1].equalsIgnoreCase("group") && value) 
-			{
-				int index = Integer.parseInt(reactionGroupArray[2]);
-				reactionCenter.reportFailureReaction(index);
-				System.out.println("Key: failure_group_" + index);
-			}
-			
-		} catch(Exception e) {
-			
-			e.printStackTrace();
-		}
-		
+		InputEventCenter.reportKey(binding, value);
 	}
 
 }
-
@@ -18,13 +18,15 @@
 
 package eu.opends.reactionCenter;
 
-import java.util.Calendar;
-import java.util.GregorianCalendar;
-
+import eu.opends.input.InputEvent;
 import eu.opends.jasperReport.ReactionLogger;
 import eu.opends.main.Simulator;
 
 /**
+ * Base class of all reaction timers. Stimulus onset and reactions are 
+ * measured with System.nanoTime(); reactions of the driver are taken from 
+ * the capture time of the input events (see InputEventCenter), hence, 
+ * reaction times are not quantized to frames.
  * 
  * @author Rafael Math
  */
@@ -38,7 +40,10 @@ public abstract class ReactionTimer
 	protected String timerID;
 	protected int index;
 	
-	protected Calendar reactionTimer = null;
+	// stimulus onset: wall clock time (ms) for the report and System.nanoTime() for measuring
+	protected long stimulusTime;
+	protected long stimulusNanoTime;
+	protected long reactionNanoTime;
 	protected String comment;
 	protected String reactionGroupID;
 	protected boolean correctReactionReported = false;
@@ -79,14 +84,12 @@ public abstract class ReactionTimer
 		if(timerIsActive)
 		{
 			// report previous reaction as missing
-			long reactionStartTime = reactionTimer.getTimeInMillis();
-			long relativeStartTime = reactionStartTime - experimentStartTime;
-			reactionLogger.add(reactionGroupID, -2, 10000L, reactionStartTime, relativeStartTime, comment);
+			long relativeStartTime = stimulusTime - experimentStartTime;
+			reactionLogger.add(reactionGroupID, -2, 10000L, stimulusTime, relativeStartTime, comment);
 			
 			trialLogger.setReaction(0);
 			trialLogger.writeLog();
 			
-			reactionTimer = null;
 			timerIsActive = false;
 		}
 	}
@@ -96,17 +99,14 @@ public abstract class ReactionTimer
 	{
 		if(timerIsActive)
 		{
-			long reactionStartTime = reactionTimer.getTimeInMillis();
-			long relativeStartTime = reactionStartTime - experimentStartTime;
-			long currentTime = new GregorianCalendar().getTimeInMillis();
-			long reactionTime = currentTime - reactionStartTime;
+			long relativeStartTime = stimulusTime - experimentStartTime;
+			long reactionTime = getReactionTime(reactionNanoTime);
 			
 			if(correctReactionReported)
 			{		
 				// report correct reaction
-				reactionLogger.add(reactionGroupID, 1, reactionTime, reactionStartTime, relativeStartTime, comment);
+				reactionLogger.add(reactionGroupID, 1, reactionTime, stimulusTime, relativeStartTime, comment);
 
-				reactionTimer = null;
 				comment = "";
 				
 				System.err.println("Correct: " + reactionTime);
@@ -115,9 +115,8 @@ public abstract class ReactionTimer
 			else if(failureReactionReported)
 			{
 				// report failure reaction
-				reactionLogger.add(reactionGroupID, -1, reactionTime, reactionStartTime, relativeStartTime, comment);
+				reactionLogger.add(reactionGroupID, -1, reactionTime, stimulusTime, relativeStartTime, comment);
 
-				reactionTimer = null;
 				comment = "";
 				
 				System.err.println("Failure: " + reactionTime);
@@ -127,15 +126,92 @@ public abstract class ReactionTimer
 	}
 	
 	
+	/**
+	 * Handles an input event of the driver. Will be called for every event 
+	 * (before update()), even if the timer is not active.
+	 * 
+	 * @param event
+	 * 			Input event.
+	 */
+	public void handleInputEvent(InputEvent event)
+	{
+	}
+	
+	
 	public void reportCorrectReaction()
 	{
-		correctReactionReported = true;
+		reportCorrectReaction(System.nanoTime());
+	}
+	
+	
+	/**
+	 * Reports a correct reaction at the given time. Only the first reaction 
+	 * after stimulus onset will be taken into account.
+	 * 
+	 * @param nanoTime
+	 * 			Time of the reaction (System.nanoTime()).
+	 */
+	public void reportCorrectReaction(long nanoTime)
+	{
+		if(!correctReactionReported && !failureReactionReported)
+		{
+			reactionNanoTime = nanoTime;
+			correctReactionReported = true;
+		}
 	}
 	
 	
 	public void reportFailureReaction()
 	{
-		failureReactionReported = true;
+		reportFailureReaction(System.nanoTime());
+	}
+	
+	
+	/**
+	 * Reports a failure reaction at the given time. Only the first reaction 
+	 * after stimulus onset will be taken into account.
+	 * 
+	 * @param nanoTime
+	 * 			Time of the reaction (System.nanoTime()).
+	 */
+	public void reportFailureReaction(long nanoTime)
+	{
+		if(!correctReactionReported && !failureReactionReported)
+		{
+			reactionNanoTime = nanoTime;
+			failureReactionReported = true;
+		}
+	}
+	
+	
+	/**
+	 * Returns true, if the given event has been captured after stimulus onset
+	 * of the active timer.
+	 * 
+	 * @param event
+	 * 			Input event.
+	 * 
+	 * @return
+	 * 			true, if the event may be a reaction to the stimulus.
+	 */
+	protected boolean isReaction(InputEvent event)
+	{
+		return timerIsActive && (event.getTime() - stimulusNanoTime >= 0);
+	}
+	
+	
+	/**
+	 * Returns the time passed between stimulus onset and the given time.
+	 * 
+	 * @param nanoTime
+	 * 			Time of the reaction (System.nanoTime()).
+	 * 
+	 * @return
+	 * 			Reaction time in milliseconds (rounded).
+	 */
+	protected long getReactionTime(long nanoTime)
+	{
+		return (nanoTime - stimulusNanoTime + 500000L) / 1000000L;
 	}
 	
 	
@@ -160,7 +236,8 @@ public abstract class ReactionTimer
 	
 	private void resetTimer()
 	{
-		reactionTimer = new GregorianCalendar();
+		stimulusTime = System.currentTimeMillis();
+		stimulusNanoTime = System.nanoTime();
 		correctReactionReported = false;
 		failureReactionReported = false;
 	}
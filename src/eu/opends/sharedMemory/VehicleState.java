@@ -0,0 +1,204 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.sharedMemory;
+
+/**
+ * Consistent copy of the vehicle state block, filled by
+ * <code>VehicleStateReader.read()</code>. Instances are meant to be reused
+ * for every read.
+ *
+ * @author Rafael Math
+ */
+public class VehicleState
+{
+	long sequence;
+	long frameCounter;
+	long publishNanoTime;
+	long publishTime;
+	long simulationTime;
+	float[] position = new float[3];
+	float[] rotation = new float[4];
+	float[] velocity = new float[3];
+	float speed;
+	float steeringWheelPosition;
+	float gasPedalPosition;
+	float brakePedalPosition;
+	float rpm;
+	int gear;
+	int lightIntensity;
+	int flags;
+	float[] cameraPosition = new float[3];
+	float[] cameraRotation = new float[4];
+
+
+	public long getSequence()
+	{
+		return sequence;
+	}
+
+
+	public long getFrameCounter()
+	{
+		return frameCounter;
+	}
+
+
+	/**
+	 * System.nanoTime() of the simulator when the block was published.
+	 */
+	public long getPublishNanoTime()
+	{
+		return publishNanoTime;
+	}
+
+
+	/**
+	 * Time (ms since epoch) when the block was published.
+	 */
+	public long getPublishTime()
+	{
+		return publishTime;
+	}
+
+
+	/**
+	 * Simulation time (ns), excluding pauses.
+	 */
+	public long getSimulationTime()
+	{
+		return simulationTime;
+	}
+
+
+	/**
+	 * Position (x, y, z) of the car in model coordinates.
+	 */
+	public float[] getPosition()
+	{
+		return position;
+	}
+
+
+	/**
+	 * Rotation (quaternion x, y, z, w) of the car.
+	 */
+	public float[] getRotation()
+	{
+		return rotation;
+	}
+
+
+	/**
+	 * Linear velocity (x, y, z) of the car in m/s.
+	 */
+	public float[] getVelocity()
+	{
+		return velocity;
+	}
+
+
+	public float getSpeed()
+	{
+		return speed;
+	}
+
+
+	public float getSteeringWheelPosition()
+	{
+		return steeringWheelPosition;
+	}
+
+
+	public float getGasPedalPosition()
+	{
+		return gasPedalPosition;
+	}
+
+
+	public float getBrakePedalPosition()
+	{
+		return brakePedalPosition;
+	}
+
+
+	public float getRPM()
+	{
+		return rpm;
+	}
+
+
+	public int getGear()
+	{
+		return gear;
+	}
+
+
+	public int getLightIntensity()
+	{
+		return lightIntensity;
+	}
+
+
+	public boolean isEngineOn()
+	{
+		return (flags & VehicleStateLayout.FLAG_ENGINE_ON) != 0;
+	}
+
+
+	public boolean isBlinkerLeft()
+	{
+		return (flags & VehicleStateLayout.FLAG_BLINKER_LEFT) != 0;
+	}
+
+
+	public boolean isBlinkerRight()
+	{
+		return (flags & VehicleStateLayout.FLAG_BLINKER_RIGHT) != 0;
+	}
+
+
+	public boolean isBrakeLightOn()
+	{
+		return (flags & VehicleStateLayout.FLAG_BRAKE_LIGHT) != 0;
+	}
+
+
+	public boolean isPause()
+	{
+		return (flags & VehicleStateLayout.FLAG_PAUSE) != 0;
+	}
+
+
+	/**
+	 * Position (x, y, z) of the camera.
+	 */
+	public float[] getCameraPosition()
+	{
+		return cameraPosition;
+	}
+
+
+	/**
+	 * Rotation (quaternion x, y, z, w) of the camera.
+	 */
+	public float[] getCameraRotation()
+	{
+		return cameraRotation;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.sharedMemory;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the vehicle state block, a memory-mapped file the simulator
+ * publishes the state of the driving car and the camera to once per frame.
+ * Local consumers (e.g. motion platform, dashboard, eye-tracker) may map
+ * the same file and read it at any rate.
+ *
+ * <pre>
+ * offset  type      field
+ *   0     int       magic ("ODVS")
+ *   4     int       layout version
+ *   8     int       block size in bytes
+ *  12     int       (reserved)
+ *  16     long      sequence (odd while the block is being written)
+ *  24     long      frame counter
+ *  32     long      publish time (System.nanoTime() of the simulator)
+ *  40     long      publish time (ms since epoch)
+ *  48     long      simulation time, excluding pauses (ns)
+ *  56     float[3]  car position (model coordinates)
+ *  68     float[4]  car rotation (quaternion x, y, z, w)
+ *  84     float[3]  car linear velocity (m/s)
+ *  96     float     speed (km/h)
+ * 100     float     steering wheel position [-1,1]
+ * 104     float     gas pedal position [0,1]
+ * 108     float     brake pedal position [0,1]
+ * 112     float     engine speed (rpm)
+ * 116     int       gear
+ * 120     int       light intensity
+ * 124     int       flags (see FLAG_*)
+ * 128     float[3]  camera position
+ * 140     float[4]  camera rotation (quaternion x, y, z, w)
+ * 156     int       (reserved)
+ * </pre>
+ *
+ * All values are stored in little-endian byte order. A reader must read the
+ * sequence before and after copying the fields; the copy is consistent if
+ * both values are equal and even.
+ *
+ * @author Rafael Math
+ */
+public final class VehicleStateLayout
+{
+	public static final int MAGIC = 0x4F445653;
+	public static final int VERSION = 1;
+	public static final int BLOCK_SIZE = 160;
+
+	public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	public static final int MAGIC_OFFSET = 0;
+	public static final int VERSION_OFFSET = 4;
+	public static final int BLOCK_SIZE_OFFSET = 8;
+	public static final int SEQUENCE_OFFSET = 16;
+	public static final int FRAME_COUNTER_OFFSET = 24;
+	public static final int PUBLISH_NANO_TIME_OFFSET = 32;
+	public static final int PUBLISH_TIME_OFFSET = 40;
+	public static final int SIMULATION_TIME_OFFSET = 48;
+	public static final int POSITION_OFFSET = 56;
+	public static final int ROTATION_OFFSET = 68;
+	public static final int VELOCITY_OFFSET = 84;
+	public static final int SPEED_OFFSET = 96;
+	public static final int STEERING_WHEEL_OFFSET = 100;
+	public static final int GAS_PEDAL_OFFSET = 104;
+	public static final int BRAKE_PEDAL_OFFSET = 108;
+	public static final int RPM_OFFSET = 112;
+	public static final int GEAR_OFFSET = 116;
+	public static final int LIGHT_INTENSITY_OFFSET = 120;
+	public static final int FLAGS_OFFSET = 124;
+	public static final int CAMERA_POSITION_OFFSET = 128;
+	public static final int CAMERA_ROTATION_OFFSET = 140;
+
+	public static final int FLAG_ENGINE_ON = 0x01;
+	public static final int FLAG_BLINKER_LEFT = 0x02;
+	public static final int FLAG_BLINKER_RIGHT = 0x04;
+	public static final int FLAG_BRAKE_LIGHT = 0x08;
+	public static final int FLAG_PAUSE = 0x10;
+
+
+	private VehicleStateLayout()
+	{
+	}
+}
@@ -0,0 +1,186 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.sharedMemory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+
+import eu.opends.car.Car;
+import eu.opends.car.LightTexturesContainer.TurnSignalState;
+import eu.opends.car.Transmission;
+
+import static eu.opends.sharedMemory.VehicleStateLayout.*;
+
+/**
+ * Publishes the state of the driving car and the camera to a memory-mapped
+ * file (see <code>VehicleStateLayout</code>) once per frame. Writing is
+ * protected by a sequence lock, hence readers in other processes never see
+ * a partially written block. Publishing does not allocate any objects.
+ *
+ * @author Rafael Math
+ */
+public class VehicleStatePublisher
+{
+	private RandomAccessFile file;
+	private MappedByteBuffer buffer;
+	private long sequence = 0;
+	private long frameCounter = 0;
+	private long simulationTime = 0;
+	private Vector3f vector = new Vector3f();
+	private Quaternion quaternion = new Quaternion();
+
+	// volatile write followed by volatile read acts as a full memory fence
+	private volatile int fence;
+
+
+	/**
+	 * Maps the given file and initializes the block header.
+	 *
+	 * @param outFile
+	 * 			File to publish the vehicle state to (will be created if
+	 * 			not existing).
+	 */
+	public VehicleStatePublisher(File outFile) throws IOException
+	{
+		file = new RandomAccessFile(outFile, "rw");
+		if(file.length() < BLOCK_SIZE)
+			file.setLength(BLOCK_SIZE);
+
+		buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, BLOCK_SIZE);
+		buffer.order(BYTE_ORDER);
+
+		// continue sequence of a previous run (readers expect it to grow)
+		sequence = buffer.getLong(SEQUENCE_OFFSET) & ~1L;
+
+		buffer.putInt(MAGIC_OFFSET, MAGIC);
+		buffer.putInt(VERSION_OFFSET, VERSION);
+		buffer.putInt(BLOCK_SIZE_OFFSET, BLOCK_SIZE);
+	}
+
+
+	/**
+	 * Writes the current state of car and camera to the block. Must be
+	 * called once per frame on the render thread.
+	 *
+	 * @param car
+	 * 			Driving car.
+	 *
+	 * @param cam
+	 * 			Camera.
+	 *
+	 * @param isPause
+	 * 			true, if the simulation is paused.
+	 *
+	 * @param tpf
+	 * 			Time per frame (in seconds).
+	 */
+	public void publish(Car car, Camera cam, boolean isPause, float tpf)
+	{
+		if(!isPause)
+			simulationTime += Math.round(tpf * 1e9);
+		frameCounter++;
+
+		// mark block as being written
+		sequence++;
+		buffer.putLong(SEQUENCE_OFFSET, sequence);
+		fullFence();
+
+		buffer.putLong(FRAME_COUNTER_OFFSET, frameCounter);
+		buffer.putLong(PUBLISH_NANO_TIME_OFFSET, System.nanoTime());
+		buffer.putLong(PUBLISH_TIME_OFFSET, System.currentTimeMillis());
+		buffer.putLong(SIMULATION_TIME_OFFSET, simulationTime);
+
+		putVector(POSITION_OFFSET, car.getPosition(vector));
+		putQuaternion(ROTATION_OFFSET, car.getRotation(quaternion));
+		putVector(VELOCITY_OFFSET, car.getCarControl().getLinearVelocity(vector));
+
+		buffer.putFloat(SPEED_OFFSET, car.getCurrentSpeedKmh());
+		buffer.putFloat(STEERING_WHEEL_OFFSET, car.getSteeringWheelState());
+		buffer.putFloat(GAS_PEDAL_OFFSET, car.getGasPedalPressIntensity());
+		buffer.putFloat(BRAKE_PEDAL_OFFSET, car.getBrakePedalPressIntensity());
+
+		Transmission transmission = car.getTransmission();
+		buffer.putFloat(RPM_OFFSET, transmission != null ? transmission.getRPM() : 0);
+		buffer.putInt(GEAR_OFFSET, transmission != null ? transmission.getGear() : 0);
+		buffer.putInt(LIGHT_INTENSITY_OFFSET, car.getLightIntensity());
+
+		TurnSignalState turnSignal = car.getTurnSignal();
+		int flags = 0;
+		if(car.isEngineOn())
+			flags |= FLAG_ENGINE_ON;
+		if(turnSignal == TurnSignalState.LEFT || turnSignal == TurnSignalState.BOTH)
+			flags |= FLAG_BLINKER_LEFT;
+		if(turnSignal == TurnSignalState.RIGHT || turnSignal == TurnSignalState.BOTH)
+			flags |= FLAG_BLINKER_RIGHT;
+		if(car.isBrakeLightOn())
+			flags |= FLAG_BRAKE_LIGHT;
+		if(isPause)
+			flags |= FLAG_PAUSE;
+		buffer.putInt(FLAGS_OFFSET, flags);
+
+		putVector(CAMERA_POSITION_OFFSET, cam.getLocation());
+		putQuaternion(CAMERA_ROTATION_OFFSET, cam.getRotation());
+
+		// publish block
+		fullFence();
+		sequence++;
+		buffer.putLong(SEQUENCE_OFFSET, sequence);
+	}
+
+
+	private void putVector(int offset, Vector3f v)
+	{
+		buffer.putFloat(offset, v.x);
+		buffer.putFloat(offset + 4, v.y);
+		buffer.putFloat(offset + 8, v.z);
+	}
+
+
+	private void putQuaternion(int offset, Quaternion q)
+	{
+		buffer.putFloat(offset, q.getX());
+		buffer.putFloat(offset + 4, q.getY());
+		buffer.putFloat(offset + 8, q.getZ());
+		buffer.putFloat(offset + 12, q.getW());
+	}
+
+
+	private int fullFence()
+	{
+		fence = 0;
+		return fence;
+	}
+
+
+	public void close()
+	{
+		try {
+			file.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
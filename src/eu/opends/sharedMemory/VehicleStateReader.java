@@ -0,0 +1,235 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.sharedMemory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static eu.opends.sharedMemory.VehicleStateLayout.*;
+
+/**
+ * Reads the vehicle state block published by the simulator (see
+ * <code>VehicleStateLayout</code>). Reading does not allocate any objects
+ * and may be done at any rate, e.g. by a motion platform or dashboard
+ * running in a different process on the same machine.
+ *
+ * Usage:
+ * <pre>
+ * VehicleStateReader reader = new VehicleStateReader(new File("vehicleState.shm"));
+ * VehicleState state = new VehicleState();
+ * if(reader.read(state))
+ *     System.out.println(state.getSpeed());
+ * </pre>
+ *
+ * Running this class prints the latency between publishing and reading
+ * the block (time stamps are only comparable on the same machine).
+ *
+ * @author Rafael Math
+ */
+public class VehicleStateReader
+{
+	private static final int MAX_RETRIES = 100;
+
+	private RandomAccessFile file;
+	private MappedByteBuffer buffer;
+
+	// volatile write followed by volatile read acts as a full memory fence
+	private volatile int fence;
+
+
+	/**
+	 * Maps the given vehicle state file read-only.
+	 *
+	 * @param inFile
+	 * 			File the simulator publishes the vehicle state to.
+	 */
+	public VehicleStateReader(File inFile) throws IOException
+	{
+		file = new RandomAccessFile(inFile, "r");
+		if(file.length() < BLOCK_SIZE)
+		{
+			file.close();
+			throw new IOException("Not a vehicle state file: " + inFile);
+		}
+
+		buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, BLOCK_SIZE);
+		buffer.order(BYTE_ORDER);
+
+		if(buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION)
+		{
+			file.close();
+			throw new IOException("Unsupported vehicle state file: " + inFile);
+		}
+	}
+
+
+	/**
+	 * Returns the current sequence of the block without copying it. Can be
+	 * used to check whether a new state has been published.
+	 */
+	public long getSequence()
+	{
+		return buffer.getLong(SEQUENCE_OFFSET);
+	}
+
+
+	/**
+	 * Copies the current vehicle state to the given object.
+	 *
+	 * @param state
+	 * 			Object the vehicle state will be copied to.
+	 *
+	 * @return
+	 * 			false, if no consistent copy could be made (e.g. nothing has
+	 * 			been published yet or the publisher was writing all the time).
+	 */
+	public boolean read(VehicleState state)
+	{
+		for(int i = 0; i < MAX_RETRIES; i++)
+		{
+			long sequence = buffer.getLong(SEQUENCE_OFFSET);
+			if(sequence == 0 || (sequence & 1L) != 0)
+			{
+				// nothing published yet or block is being written
+				Thread.yield();
+				continue;
+			}
+			fullFence();
+
+			state.frameCounter = buffer.getLong(FRAME_COUNTER_OFFSET);
+			state.publishNanoTime = buffer.getLong(PUBLISH_NANO_TIME_OFFSET);
+			state.publishTime = buffer.getLong(PUBLISH_TIME_OFFSET);
+			state.simulationTime = buffer.getLong(SIMULATION_TIME_OFFSET);
+			getFloats(POSITION_OFFSET, state.position);
+			getFloats(ROTATION_OFFSET, state.rotation);
+			getFloats(VELOCITY_OFFSET, state.velocity);
+			state.speed = buffer.getFloat(SPEED_OFFSET);
+			state.steeringWheelPosition = buffer.getFloat(STEERING_WHEEL_OFFSET);
+			state.gasPedalPosition = buffer.getFloat(GAS_PEDAL_OFFSET);
+			state.brakePedalPosition = buffer.getFloat(BRAKE_PEDAL_OFFSET);
+			state.rpm = buffer.getFloat(RPM_OFFSET);
+			state.gear = buffer.getInt(GEAR_OFFSET);
+			state.lightIntensity = buffer.getInt(LIGHT_INTENSITY_OFFSET);
+			state.flags = buffer.getInt(FLAGS_OFFSET);
+			getFloats(CAMERA_POSITION_OFFSET, state.cameraPosition);
+			getFloats(CAMERA_ROTATION_OFFSET, state.cameraRotation);
+
+			fullFence();
+			if(buffer.getLong(SEQUENCE_OFFSET) == sequence)
+			{
+				state.sequence = sequence;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	private void getFloats(int offset, float[] values)
+	{
+		for(int i = 0; i < values.length; i++)
+			values[i] = buffer.getFloat(offset + 4*i);
+	}
+
+
+	private int fullFence()
+	{
+		fence = 0;
+		return fence;
+	}
+
+
+	public void close()
+	{
+		try {
+			file.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Measures the latency between publishing and reading the vehicle state
+	 * by polling the block for the given number of seconds.
+	 *
+	 * @param args
+	 * 			vehicle state file, duration in seconds (optional, default: 10)
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length < 1)
+		{
+			System.err.println("Usage: VehicleStateReader <vehicle state file> [seconds]");
+			return;
+		}
+
+		int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+
+		VehicleStateReader reader = new VehicleStateReader(new File(args[0]));
+		VehicleState state = new VehicleState();
+
+		long[] latencies = new long[1000000];
+		int count = 0;
+		long failedReads = 0;
+		long lastSequence = -1;
+		long end = System.nanoTime() + seconds * 1000000000L;
+
+		while(System.nanoTime() < end && count < latencies.length)
+		{
+			if(reader.getSequence() != lastSequence)
+			{
+				if(reader.read(state))
+				{
+					if(state.getSequence() != lastSequence)
+					{
+						latencies[count++] = System.nanoTime() - state.getPublishNanoTime();
+						lastSequence = state.getSequence();
+					}
+				}
+				else
+					failedReads++;
+			}
+		}
+
+		reader.close();
+
+		if(count == 0)
+		{
+			System.out.println("No vehicle state published within " + seconds + " seconds");
+			return;
+		}
+
+		Arrays.sort(latencies, 0, count);
+		long sum = 0;
+		for(int i = 0; i < count; i++)
+			sum += latencies[i];
+
+		System.out.println("States read:  " + count + " (failed reads: " + failedReads + ")");
+		System.out.println("Latency (us): avg " + (sum / count / 1000f) +
+				", median " + (latencies[count / 2] / 1000f) +
+				", 99% " + (latencies[(int) (count * 0.99)] / 1000f) +
+				", max " + (latencies[count - 1] / 1000f));
+	}
+}
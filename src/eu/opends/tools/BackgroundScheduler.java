@@ -0,0 +1,86 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.tools;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared executor for periodic and one-shot background work that may block,
+ * e.g. sending updates to external services. In contrast to TimerCenter,
+ * tasks are executed on background threads, not on the render thread.
+ *
+ * @author Rafael Math
+ */
+public class BackgroundScheduler
+{
+	private static final int NUMBER_OF_THREADS = 2;
+
+	private static ScheduledExecutorService executor = null;
+
+
+	/**
+	 * Returns the shared executor (will be created on first call).
+	 */
+	public static synchronized ScheduledExecutorService getExecutor()
+	{
+		if(executor == null || executor.isShutdown())
+		{
+			executor = new ScheduledThreadPoolExecutor(NUMBER_OF_THREADS, new ThreadFactory()
+			{
+				private int counter = 0;
+
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "BackgroundScheduler-" + (counter++));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return executor;
+	}
+
+
+	/**
+	 * Lets all submitted tasks finish (waiting at most the given time) and
+	 * stops the executor. Periodic tasks must have been cancelled before.
+	 *
+	 * @param timeout
+	 * 			Maximum time to wait (in milliseconds).
+	 */
+	public static synchronized void shutdown(long timeout)
+	{
+		if(executor != null)
+		{
+			executor.shutdown();
+			try {
+				if(!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS))
+					executor.shutdownNow();
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			executor = null;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.tools;
+
+import com.jme3.font.BitmapText;
+import com.jme3.math.ColorRGBA;
+
+/**
+ * Text element of the HUD which will only be updated if the displayed value
+ * changes. Each text is identified by a key (e.g. the displayed value at
+ * display precision), so checking for changes neither needs formatting nor
+ * allocating objects. Setting the text of a BitmapText rebuilds its glyph
+ * meshes, hence, this should be avoided whenever possible.
+ *
+ * @author Rafael Math
+ */
+public class HudText
+{
+	private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+	private BitmapText bitmapText;
+	private StringBuilder buffer = new StringBuilder(32);
+	private long displayedKey = 0;
+	private boolean isValid = false;
+	private ColorRGBA displayedColor = null;
+
+
+	public HudText(BitmapText bitmapText)
+	{
+		this.bitmapText = bitmapText;
+	}
+
+
+	public BitmapText getBitmapText()
+	{
+		return bitmapText;
+	}
+
+
+	/**
+	 * Returns true, if the given key differs from the key of the displayed text.
+	 *
+	 * @param key
+	 * 			Key of the text to display.
+	 *
+	 * @return
+	 * 			true, if the text has to be updated.
+	 */
+	public boolean isDirty(long key)
+	{
+		return !isValid || key != displayedKey;
+	}
+
+
+	/**
+	 * Forces an update of the text at the next call of a setter.
+	 */
+	public void invalidate()
+	{
+		isValid = false;
+	}
+
+
+	/**
+	 * Sets the given text, if the key differs from the key of the displayed text.
+	 *
+	 * @param key
+	 * 			Key of the text.
+	 *
+	 * @param text
+	 * 			Text to display.
+	 */
+	public void setText(long key, String text)
+	{
+		if(isDirty(key))
+		{
+			bitmapText.setText(text);
+			displayedKey = key;
+			isValid = true;
+		}
+	}
+
+
+	/**
+	 * Displays a fixed-point number followed by the given suffix, if the number
+	 * differs from the displayed one. E.g. value 1234 with 2 decimals and suffix
+	 * " km" will be displayed as "12.34 km".
+	 *
+	 * @param value
+	 * 			Number in units of the last decimal place.
+	 *
+	 * @param decimals
+	 * 			Number of decimal places (0 to 6).
+	 *
+	 * @param trimZeros
+	 * 			If true, trailing zeros will be removed (at least one decimal place remains).
+	 *
+	 * @param separator
+	 * 			Decimal separator.
+	 *
+	 * @param suffix
+	 * 			Text to append (e.g. unit).
+	 */
+	public void setFixedPoint(long value, int decimals, boolean trimZeros, char separator, String suffix)
+	{
+		setFixedPoint(value, value, decimals, trimZeros, separator, suffix);
+	}
+
+
+	/**
+	 * Displays a fixed-point number followed by the given suffix, if the given
+	 * key differs from the key of the displayed text. Can be used if the same
+	 * number might be displayed with different precisions or suffixes.
+	 *
+	 * @param key
+	 * 			Key of the text.
+	 *
+	 * @param value
+	 * 			Number in units of the last decimal place.
+	 *
+	 * @param decimals
+	 * 			Number of decimal places (0 to 6).
+	 *
+	 * @param trimZeros
+	 * 			If true, trailing zeros will be removed (at least one decimal place remains).
+	 *
+	 * @param separator
+	 * 			Decimal separator.
+	 *
+	 * @param suffix
+	 * 			Text to append (e.g. unit).
+	 */
+	public void setFixedPoint(long key, long value, int decimals, boolean trimZeros, char separator, String suffix)
+	{
+		if(isDirty(key))
+		{
+			buffer.setLength(0);
+			appendFixedPoint(buffer, value, decimals, trimZeros, separator);
+			buffer.append(suffix);
+
+			bitmapText.setText(buffer.toString());
+			displayedKey = key;
+			isValid = true;
+		}
+	}
+
+
+	/**
+	 * Sets the color of the text, if it differs from the current one.
+	 *
+	 * @param color
+	 * 			Color of the text.
+	 */
+	public void setColor(ColorRGBA color)
+	{
+		if(!color.equals(displayedColor))
+		{
+			bitmapText.setColor(color);
+			displayedColor = color;
+		}
+	}
+
+
+	/**
+	 * Appends a fixed-point number to the given buffer without creating any
+	 * objects.
+	 *
+	 * @param buffer
+	 * 			Buffer to append to.
+	 *
+	 * @param value
+	 * 			Number in units of the last decimal place.
+	 *
+	 * @param decimals
+	 * 			Number of decimal places (0 to 6).
+	 *
+	 * @param trimZeros
+	 * 			If true, trailing zeros will be removed (at least one decimal place remains).
+	 *
+	 * @param separator
+	 * 			Decimal separator.
+	 *
+	 * @return
+	 * 			The given buffer.
+	 */
+	public static StringBuilder appendFixedPoint(StringBuilder buffer, long value, int decimals,
+			boolean trimZeros, char separator)
+	{
+		long factor = POWERS_OF_TEN[decimals];
+		long absValue = Math.abs(value);
+
+		if(value < 0)
+			buffer.append('-');
+
+		buffer.append(absValue / factor);
+
+		if(decimals > 0)
+		{
+			int separatorPosition = buffer.length();
+			buffer.append(separator);
+
+			long fraction = absValue % factor;
+			for(long digit = factor/10; digit > 0; digit /= 10)
+				buffer.append((char) ('0' + (fraction / digit) % 10));
+
+			if(trimZeros)
+			{
+				while(buffer.length() > separatorPosition + 2 && buffer.charAt(buffer.length()-1) == '0')
+					buffer.setLength(buffer.length()-1);
+			}
+		}
+
+		return buffer;
+	}
+}
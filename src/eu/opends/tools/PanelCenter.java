@@ -18,7 +18,7 @@
 
 package eu.opends.tools;
 
-import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.util.TreeMap;
 import java.util.Map.Entry;
 
@@ -36,6 +36,7 @@ import com.jme3.ui.Picture;
 import eu.opends.car.Car;
 import eu.opends.drivingTask.settings.SettingsLoader;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
+import eu.opends.main.SimulationDefaults;
 import eu.opends.main.Simulator;
 import eu.opends.niftyGui.MessageBoxGUI;
 import eu.opends.niftyGui.KeyMappingGUI.GuiLayer;
@@ -61,6 +62,23 @@ public class PanelCenter
 	
 	private static boolean reportedExceeding = false;
 	
+	// texts will only be rebuilt if their values change at display precision
+	private static HudText speedHudText, mileageHudText, odometerHudText, engineSpeedHudText;
+	private static HudText litersPer100KmHudText, litersPerHourHudText, totalFuelConsumptionHudText;
+	private static char decimalSeparator = new DecimalFormatSymbols().getDecimalSeparator();
+	private static Integer displayedGear = null;
+	private static boolean displayedAutomaticTransmission = false;
+	
+	// reused for setting the rotation of the indicators
+	private static Quaternion speedIndicatorRotation = new Quaternion();
+	private static Quaternion RPMIndicatorRotation = new Quaternion();
+	private static float speedIndicatorRadians = Float.NaN;
+	private static float RPMIndicatorRadians = Float.NaN;
+	
+	// minimum time (in seconds) between two refreshes of the panel (0 = every frame)
+	private static float refreshInterval = 0;
+	private static float timeSinceRefresh = 0;
+	
 	private static TreeMap<String, Picture> pictureMap;
 	public static TreeMap<String, Picture> getPictureMap() 
 	{
@@ -111,6 +129,14 @@ public class PanelCenter
 		boolean showDigital = settingsLoader.getSetting(Setting.General_showDigitalIndicators, false);
 		boolean showFuel = settingsLoader.getSetting(Setting.General_showFuelConsumption, false);
 		
+		float refreshRate = settingsLoader.getSetting(Setting.General_panelRefreshRate, 
+				SimulationDefaults.General_panelRefreshRate);
+		refreshInterval = (refreshRate > 0) ? 1f/refreshRate : 0;
+		timeSinceRefresh = 0;
+		displayedGear = null;
+		speedIndicatorRadians = Float.NaN;
+		RPMIndicatorRadians = Float.NaN;
+		
 		CullHint showAnalogIndicators = (showAnalog ? CullHint.Dynamic : CullHint.Always);
 		CullHint showDigitalIndicators = (showDigital ? CullHint.Dynamic : CullHint.Always);
 		CullHint showFuelConsumption = (showFuel ? CullHint.Dynamic : CullHint.Always);
@@ -297,6 +323,14 @@ public class PanelCenter
         guiNode.attachChild(logo);
         
         
+        speedHudText = new HudText(speedText);
+        mileageHudText = new HudText(mileageText);
+        odometerHudText = new HudText(odometerText);
+        engineSpeedHudText = new HudText(engineSpeedText);
+        litersPer100KmHudText = new HudText(fuelConsumptionPer100KmText);
+        litersPerHourHudText = new HudText(fuelConsumptionPerHourText);
+        totalFuelConsumptionHudText = new HudText(totalFuelConsumptionText);
+        
         pictureMap = Simulator.getDrivingTask().getSceneLoader().getPictures();
         for(Entry<String,Picture> entry : pictureMap.entrySet())     	
         	guiNode.attachChild(entry.getValue());
@@ -369,21 +403,33 @@ public class PanelCenter
 	}
 	
 
-	public static void update() 
+	public static void update(float tpf) 
 	{
 		Car car = sim.getCar();
 		
-		updateSpeedText(car);
+		float carSpeed = getDisplayedSpeed(car);
 		
-		updateMilageText(car);
+		// speed limit will be checked every frame
+		checkSpeedLimit(carSpeed);
 		
 		// update message on screen
 		messageBoxGUI.update();
 		
-		if(fixRPM != 0)
-			setRPMIndicator(fixRPM);
-		else
-			setRPMIndicator(car.getTransmission().getRPM()); 
+		// refresh panel at the given rate (if any)
+		timeSinceRefresh += tpf;
+		if(timeSinceRefresh >= refreshInterval)
+		{
+			timeSinceRefresh = (refreshInterval > 0) ? timeSinceRefresh % refreshInterval : 0;
+			
+			updateSpeedText(carSpeed);
+			
+			updateMilageText(car);
+			
+			if(fixRPM != 0)
+				setRPMIndicator(fixRPM);
+			else
+				setRPMIndicator(car.getTransmission().getRPM()); 
+		}
 		
 		if(resolutionHasChanged && (++updateDelayCounter%2==0))
 		{
@@ -402,18 +448,18 @@ public class PanelCenter
 	private static void updateMilageText(Car car) 
 	{
 		float mileage = car.getMileage();
-		String mileageString;
 		
 		if(mileage < 1000)
-			mileageString = ((int)mileage) + " m";
+			mileageHudText.setFixedPoint((int)mileage, 0, false, '.', " m");
 		else
-			mileageString = ((int)(mileage/10f))/100f + " km";
-		
-		mileageText.setText(mileageString);
+		{
+			// negative key to distinguish km from values in m
+			int centiKilometers = (int)(mileage/10f);
+			mileageHudText.setFixedPoint(-1 - centiKilometers, centiKilometers, 2, true, '.', " km");
+		}
 		
-		float odometer = ((int)mileage)/1000f;
-		DecimalFormat df = new DecimalFormat("#0.000");
-		odometerText.setText(df.format(odometer) + " km");
+		// odometer shows full meters in km
+		odometerHudText.setFixedPoint((int)mileage, 3, false, decimalSeparator, " km");
 	}
 
 
@@ -429,9 +475,12 @@ public class PanelCenter
 		float radians = FastMath.PI/180f * degree;
 		
 		// set speed indicator's rotation
-		Quaternion rotation = new Quaternion();
-		rotation.fromAngles(0, 0, radians);
-		speedIndicator.setLocalRotation(rotation);		
+		if(radians != speedIndicatorRadians)
+		{
+			speedIndicatorRotation.fromAngles(0, 0, radians);
+			speedIndicator.setLocalRotation(speedIndicatorRotation);
+			speedIndicatorRadians = radians;
+		}
 	}
 
 	
@@ -447,9 +496,12 @@ public class PanelCenter
 		float radians = FastMath.PI/180f * degree;
 		
 		// set RPM indicator's rotation
-		Quaternion rotation = new Quaternion();
-		rotation.fromAngles(0, 0, radians);
-		RPMIndicator.setLocalRotation(rotation);
+		if(radians != RPMIndicatorRadians)
+		{
+			RPMIndicatorRotation.fromAngles(0, 0, radians);
+			RPMIndicator.setLocalRotation(RPMIndicatorRotation);
+			RPMIndicatorRadians = radians;
+		}
 	}
 	
 	
@@ -467,32 +519,38 @@ public class PanelCenter
 	}
 	
 	
-	private static void updateSpeedText(Car car) 
+	private static float getDisplayedSpeed(Car car)
 	{
-		float carSpeed;
-		
 		if(fixSpeed != 0)
-			carSpeed = fixSpeed;
+			return fixSpeed;
 		else
-			carSpeed = Math.round(car.getCurrentSpeedKmh() * 10)/10f;
-		
-		float currentSpeedLimit = SpeedControlCenter.getCurrentSpeedlimit();
-		float upcomingSpeedLimit = SpeedControlCenter.getUpcomingSpeedlimit();
-		
+			return Math.round(car.getCurrentSpeedKmh() * 10)/10f;
+	}
+	
+	
+	private static void updateSpeedText(float carSpeed) 
+	{
 		if(Math.abs(carSpeed) <= 0.7f)
 		{
-			speedText.setText("0.0 km/h");
+			speedHudText.setFixedPoint(0, 1, false, '.', " km/h");
 			setSpeedIndicator(0);		
 		}
 		else
 		{
-			speedText.setText("" + carSpeed + " km/h");
+			speedHudText.setFixedPoint(Math.round(carSpeed * 10), 1, false, '.', " km/h");
 			setSpeedIndicator(carSpeed);		
 		}
+	}
+	
+	
+	private static void checkSpeedLimit(float carSpeed) 
+	{
+		float currentSpeedLimit = SpeedControlCenter.getCurrentSpeedlimit();
+		float upcomingSpeedLimit = SpeedControlCenter.getUpcomingSpeedlimit();
 		
 		if((currentSpeedLimit != 0) && ((carSpeed > currentSpeedLimit+10) || (carSpeed < upcomingSpeedLimit-10)))
 		{
-			speedText.setColor(ColorRGBA.Red);
+			speedHudText.setColor(ColorRGBA.Red);
 			if(!reportedExceeding)
 			{
 				if(carSpeed > currentSpeedLimit+10)
@@ -509,13 +567,20 @@ public class PanelCenter
 				Simulator.getDrivingTaskLogger().reportSpeedNormal();
 				reportedExceeding = false;
 			}
-			speedText.setColor(ColorRGBA.LightGray);
+			speedHudText.setColor(ColorRGBA.LightGray);
 		}
 	}
 
 
 	public static void setGearIndicator(Integer gear, boolean isAutomaticTransmission) 
 	{
+		// will be called every frame --> only update on changes
+		if(gear.equals(displayedGear) && isAutomaticTransmission == displayedAutomaticTransmission)
+			return;
+		
+		displayedGear = gear;
+		displayedAutomaticTransmission = isAutomaticTransmission;
+		
 		if(isAutomaticTransmission)
 			gearText.setText("Gear: A" + gear);
 		else if (gear == 0)
@@ -557,15 +622,21 @@ public class PanelCenter
 	}
 
 
+	public static void setEngineSpeed(float engineSpeed)
+	{
+		engineSpeedHudText.setFixedPoint((int) engineSpeed, 0, false, '.', " rpm");
+	}
+	
+
 	public static void setLitersPer100Km(float litersPer100Km) 
 	{
 		if(litersPer100Km < 0)
-			fuelConsumptionPer100KmText.setText("-- L/100km");
+			litersPer100KmHudText.setText(-1, "-- L/100km");
 		else
 		{
 			// round fuel consumption value to 2 decimal places
-			DecimalFormat f = new DecimalFormat("#0.00");
-			fuelConsumptionPer100KmText.setText(f.format(litersPer100Km) + " L/100km");
+			litersPer100KmHudText.setFixedPoint(Math.round(litersPer100Km * 100), 2, false, 
+					decimalSeparator, " L/100km");
 		}
 	}
 
@@ -573,16 +644,16 @@ public class PanelCenter
 	public static void setLitersPerHour(float litersPerHour) 
 	{
 		// round fuel consumption per hour to 2 decimal places
-		DecimalFormat f = new DecimalFormat("#0.00");
-		fuelConsumptionPerHourText.setText(f.format(litersPerHour) + " L/h");
+		litersPerHourHudText.setFixedPoint(Math.round(litersPerHour * 100), 2, false, 
+				decimalSeparator, " L/h");
 	}
 	
 
 	public static void setTotoalFuelConsumption(float totalFuelConsumption) 
 	{
 		// round total fuel consumption per 100 Km to 3 decimal places
-		DecimalFormat f = new DecimalFormat("#0.000");
-		totalFuelConsumptionText.setText(f.format(totalFuelConsumption) + " L");
+		totalFuelConsumptionHudText.setFixedPoint(Math.round(totalFuelConsumption * 1000), 3, false, 
+				decimalSeparator, " L");
 	}
 	
 }
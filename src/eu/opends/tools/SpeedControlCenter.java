@@ -18,10 +18,12 @@
 
 package eu.opends.tools;
 
-import java.util.Calendar;
-import java.util.GregorianCalendar;
+import java.util.Queue;
 
 import eu.opends.car.Car;
+import eu.opends.input.InputEvent;
+import eu.opends.input.InputEvent.Type;
+import eu.opends.input.InputEventCenter;
 import eu.opends.main.Simulator;
 
 /**
@@ -35,11 +37,15 @@ public class SpeedControlCenter
 	private static int currentSpeedLimit = 0;
 	private static int upcomingSpeedLimit = 0;
 	private static String triggerNameBrakeTimer;
-	private static Calendar brakeTimer = null;
+	private static long brakeTimerStartTime;
+	private static long brakeTimerStartNanoTime;
+	private static Queue<InputEvent> brakeTimerQueue = null;
 	private static String triggerNameSpeedChangeTimer;
 	private static int speedChangeValue;
 	private static float initialSpeedValue;
-	private static Calendar speedChangeTimer = null;
+	private static long speedChangeTimerStartTime;
+	private static long speedChangeTimerStartNanoTime;
+	private static boolean speedChangeTimerIsActive = false;
 	
 	
 	public static void init (Simulator sim)
@@ -54,6 +60,7 @@ public class SpeedControlCenter
 		Car car = sim.getCar();
 
 		speedDifferenceComputer.update(car.getCurrentSpeedKmh());
+		stopBrakeTimer();
 		stopSpeedChangeTimer(car);
 	}
 	
@@ -98,16 +105,35 @@ public class SpeedControlCenter
 	public static void startBrakeTimer(String triggerName) 
 	{
 		triggerNameBrakeTimer = triggerName;
-		brakeTimer = new GregorianCalendar();
+		brakeTimerStartTime = System.currentTimeMillis();
+		brakeTimerStartNanoTime = System.nanoTime();
+		
+		// brake pedal input will be captured from now on
+		if(brakeTimerQueue == null)
+			brakeTimerQueue = InputEventCenter.createQueue();
 	}
 	
 	
-	public static void stopBrakeTimer() 
+	private static void stopBrakeTimer() 
 	{
-		if(brakeTimer != null)
+		if(brakeTimerQueue != null)
 		{
-			Simulator.getDrivingTaskLogger().reportReactionTime(triggerNameBrakeTimer, brakeTimer);
-			brakeTimer = null;
+			InputEvent event;
+			while((event = brakeTimerQueue.poll()) != null)
+			{
+				// report first brake pedal press after start of timer
+				if(event.getType() == Type.BRAKE_PEDAL && event.getValue() > 0 && 
+						event.getTime() - brakeTimerStartNanoTime >= 0)
+				{
+					long reactionTime = (event.getTime() - brakeTimerStartNanoTime + 500000L) / 1000000L;
+					Simulator.getDrivingTaskLogger().reportReactionTime(triggerNameBrakeTimer, 
+							brakeTimerStartTime, reactionTime);
+					
+					InputEventCenter.releaseQueue(brakeTimerQueue);
+					brakeTimerQueue = null;
+					break;
+				}
+			}
 		}
 	}
 
@@ -117,21 +143,26 @@ public class SpeedControlCenter
 		triggerNameSpeedChangeTimer = triggerName;
 		speedChangeValue = speedChange;
 		initialSpeedValue = car.getCurrentSpeedKmh();
-		speedChangeTimer = new GregorianCalendar();
+		speedChangeTimerStartTime = System.currentTimeMillis();
+		speedChangeTimerStartNanoTime = System.nanoTime();
+		speedChangeTimerIsActive = true;
 	}
 	
 	
 	public static void stopSpeedChangeTimer(Car car)
 	{
-		if(speedChangeTimer != null)
+		if(speedChangeTimerIsActive)
 		{
 			float currentSpeedValue = car.getCurrentSpeedKmh();
 			if(((speedChangeValue >= 0) &&  (currentSpeedValue > initialSpeedValue+speedChangeValue))
 				||
 			   ((speedChangeValue < 0) &&  (currentSpeedValue < initialSpeedValue+speedChangeValue)))
 			{
-				Simulator.getDrivingTaskLogger().reportReactionTime(triggerNameSpeedChangeTimer, speedChangeTimer);
-				speedChangeTimer = null;
+				// speed is computed once per frame --> time of current frame
+				long reactionTime = (System.nanoTime() - speedChangeTimerStartNanoTime + 500000L) / 1000000L;
+				Simulator.getDrivingTaskLogger().reportReactionTime(triggerNameSpeedChangeTimer, 
+						speedChangeTimerStartTime, reactionTime);
+				speedChangeTimerIsActive = false;
 			}
 		}
 	}
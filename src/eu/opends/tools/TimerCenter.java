@@ -0,0 +1,109 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.tools;
+
+import eu.opends.tools.TimerWheel.Timeout;
+
+/**
+ * Central scheduling service for delayed actions (trigger delays, trigger
+ * debouncing, delayed sounds, etc.). Instead of starting a thread per
+ * action, tasks are put into timer wheels which are advanced once per
+ * frame by the simulator. Hence, all tasks will be executed on the render
+ * thread.
+ *
+ * Tasks scheduled in simulation time will not proceed while the simulation
+ * is paused, whereas tasks scheduled in real time will.
+ *
+ * @author Rafael Math
+ */
+public class TimerCenter
+{
+	// resolution (in seconds) and number of slots of the timer wheels
+	private static final float TICK_DURATION = 0.01f;
+	private static final int WHEEL_SIZE = 512;
+
+	private static TimerWheel simulationTimeWheel = new TimerWheel(TICK_DURATION, WHEEL_SIZE);
+	private static TimerWheel realTimeWheel = new TimerWheel(TICK_DURATION, WHEEL_SIZE);
+
+
+	/**
+	 * Removes all tasks left over from a previous simulation run.
+	 */
+	public static void init()
+	{
+		simulationTimeWheel.clear();
+		realTimeWheel.clear();
+	}
+
+
+	/**
+	 * Schedules a task to be executed after the given amount of simulation
+	 * time (pauses will not be counted).
+	 *
+	 * @param task
+	 * 			Task to execute on the render thread.
+	 *
+	 * @param seconds
+	 * 			Delay in seconds.
+	 *
+	 * @return
+	 * 			Handle to cancel the task.
+	 */
+	public static Timeout schedule(Runnable task, float seconds)
+	{
+		return simulationTimeWheel.schedule(task, seconds);
+	}
+
+
+	/**
+	 * Schedules a task to be executed after the given amount of real time
+	 * (the delay proceeds while the simulation is paused).
+	 *
+	 * @param task
+	 * 			Task to execute on the render thread.
+	 *
+	 * @param seconds
+	 * 			Delay in seconds.
+	 *
+	 * @return
+	 * 			Handle to cancel the task.
+	 */
+	public static Timeout scheduleRealTime(Runnable task, float seconds)
+	{
+		return realTimeWheel.schedule(task, seconds);
+	}
+
+
+	/**
+	 * Executes all tasks that became due. Must be called once per frame.
+	 *
+	 * @param tpf
+	 * 			Time per frame (in seconds).
+	 *
+	 * @param isPause
+	 * 			true, if the simulation is paused.
+	 */
+	public static void update(float tpf, boolean isPause)
+	{
+		realTimeWheel.advance(tpf);
+
+		if(!isPause)
+			simulationTimeWheel.advance(tpf);
+	}
+}
@@ -0,0 +1,211 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timer wheel executing delayed tasks. The wheel does not own a
+ * thread: time is advanced explicitly by calling <code>advance()</code>,
+ * which runs all due tasks on the calling thread. Tasks may be scheduled
+ * from any thread; they will be placed into their slot on the next advance.
+ *
+ * @author Rafael Math
+ */
+public class TimerWheel
+{
+	/**
+	 * Handle of a scheduled task, which can be used to cancel the task.
+	 */
+	public static class Timeout
+	{
+		private Runnable task;
+		private long delayTicks;
+		private long deadline;
+		private volatile boolean isCancelled = false;
+
+
+		private Timeout(Runnable task, long delayTicks)
+		{
+			this.task = task;
+			this.delayTicks = delayTicks;
+		}
+
+
+		/**
+		 * Prevents the task from being executed, if it has not been executed yet.
+		 */
+		public void cancel()
+		{
+			isCancelled = true;
+		}
+
+
+		public boolean isCancelled()
+		{
+			return isCancelled;
+		}
+	}
+
+
+	private float tickDuration;
+	private int mask;
+	private List<List<Timeout>> wheel;
+	private ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+	private long currentTick = 0;
+	private float elapsedTime = 0;
+	private int scheduledTasks = 0;
+
+
+	/**
+	 * Creates a new timer wheel.
+	 *
+	 * @param tickDuration
+	 * 			Resolution of the wheel (in seconds).
+	 *
+	 * @param wheelSize
+	 * 			Minimum number of slots. Will be rounded up to the next power of two.
+	 */
+	public TimerWheel(float tickDuration, int wheelSize)
+	{
+		int size = 1;
+		while(size < wheelSize)
+			size <<= 1;
+
+		this.tickDuration = tickDuration;
+		this.mask = size - 1;
+
+		wheel = new ArrayList<List<Timeout>>(size);
+		for(int i = 0; i < size; i++)
+			wheel.add(new ArrayList<Timeout>(2));
+	}
+
+
+	/**
+	 * Schedules a task to be executed after the given delay. Tasks will be
+	 * executed on the thread advancing the wheel, not earlier than the next
+	 * tick. This method may be called from any thread.
+	 *
+	 * @param task
+	 * 			Task to execute.
+	 *
+	 * @param delay
+	 * 			Delay (in seconds).
+	 *
+	 * @return
+	 * 			Handle to cancel the task.
+	 */
+	public Timeout schedule(Runnable task, float delay)
+	{
+		long delayTicks = Math.max(1, (long) Math.ceil(delay / tickDuration));
+		Timeout timeout = new Timeout(task, delayTicks);
+		pendingTimeouts.add(timeout);
+		return timeout;
+	}
+
+
+	/**
+	 * Advances the wheel by the given time and executes all tasks that
+	 * became due. Must always be called by the same thread.
+	 *
+	 * @param seconds
+	 * 			Time elapsed since the last call (in seconds).
+	 */
+	public void advance(float seconds)
+	{
+		elapsedTime += seconds;
+
+		while(elapsedTime >= tickDuration)
+		{
+			elapsedTime -= tickDuration;
+			currentTick++;
+
+			transferPendingTimeouts();
+
+			if(scheduledTasks > 0)
+				expireTimeouts(wheel.get((int) (currentTick & mask)));
+		}
+	}
+
+
+	/**
+	 * Returns the number of tasks waiting for execution.
+	 */
+	public int getScheduledTasks()
+	{
+		return scheduledTasks + pendingTimeouts.size();
+	}
+
+
+	/**
+	 * Removes all scheduled tasks without executing them.
+	 */
+	public void clear()
+	{
+		pendingTimeouts.clear();
+		for(List<Timeout> slot : wheel)
+			slot.clear();
+		scheduledTasks = 0;
+	}
+
+
+	private void transferPendingTimeouts()
+	{
+		Timeout timeout;
+		while((timeout = pendingTimeouts.poll()) != null)
+		{
+			if(timeout.isCancelled)
+				continue;
+
+			// tasks scheduled during the current tick will be due in the next tick at the earliest
+			timeout.deadline = currentTick + timeout.delayTicks - 1;
+			wheel.get((int) (timeout.deadline & mask)).add(timeout);
+			scheduledTasks++;
+		}
+	}
+
+
+	private void expireTimeouts(List<Timeout> slot)
+	{
+		// traverse backwards, as due timeouts are removed from the slot
+		for(int i = slot.size() - 1; i >= 0; i--)
+		{
+			Timeout timeout = slot.get(i);
+			if(timeout.isCancelled || timeout.deadline <= currentTick)
+			{
+				// swap with last element to remove in constant time
+				int last = slot.size() - 1;
+				slot.set(i, slot.get(last));
+				slot.remove(last);
+				scheduledTasks--;
+
+				if(!timeout.isCancelled)
+				{
+					try {
+						timeout.task.run();
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.tools;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Shared executor for CPU-bound work that can be done in parallel, e.g.
+ * loading models and building collision shapes at startup. In contrast to
+ * BackgroundScheduler, the number of threads equals the number of available
+ * processors. Tasks must not modify the scene graph or the physics space,
+ * as these may only be accessed from the render thread.
+ *
+ * @author Rafael Math
+ */
+public class WorkerPool
+{
+	private static ExecutorService executor = null;
+
+
+	/**
+	 * Returns the shared executor (will be created on first call).
+	 */
+	public static synchronized ExecutorService getExecutor()
+	{
+		if(executor == null || executor.isShutdown())
+		{
+			int numberOfThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+			executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory()
+			{
+				private int counter = 0;
+
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "WorkerPool-" + (counter++));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return executor;
+	}
+
+
+	/**
+	 * Stops the executor. Submitted tasks that have not been started yet
+	 * will be discarded.
+	 */
+	public static synchronized void shutdown()
+	{
+		if(executor != null)
+		{
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+}
@@ -19,28 +19,81 @@
 package eu.opends.traffic;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.jme3.math.Vector3f;
 
 import eu.opends.main.Simulator;
 
 /**
+ * Updates all physical traffic cars once per frame in three phases:
+ * 
+ * 1. snapshot: positions, speeds, follow boxes and traffic light states of 
+ *    all vehicles are captured and a spatial hash of the positions is built 
+ *    (render thread).
+ * 2. sense/decide: every vehicle computes steering and pedal positions from
+ *    the snapshot, only looking at vehicles within its safety distance 
+ *    (worker threads, if there are enough vehicles).
+ * 3. apply: forces are applied to the vehicles (render thread, as physics
+ *    will be stepped there).
  * 
  * @author Rafael Math
  */
-public class PhysicalTraffic extends Thread
+public class PhysicalTraffic
 {
+	// vehicles per decision task; with fewer vehicles decisions will be made on the render thread
+	private static final int MIN_VEHICLES_PER_TASK = 32;
+	
+	// edge length (in meters) of a cell of the traffic grid
+	private static final float GRID_CELL_SIZE = 25f;
+	
 	private static ArrayList<TrafficCarData> vehicleDataList = new ArrayList<TrafficCarData>();
     private ArrayList<TrafficCar> vehicleList = new ArrayList<TrafficCar>();
-	private boolean isRunning = true;
-	private int updateIntervalMsec = 20;
-	private long lastUpdate = 0;
+    private Simulator sim;
+    private TrafficGrid trafficGrid = new TrafficGrid(GRID_CELL_SIZE);
+    private Vector3f drivingCarPosition = new Vector3f();
+    private ExecutorService executor = null;
+    private List<Callable<Object>> decisionTaskList = new ArrayList<Callable<Object>>();
 
        
 	public PhysicalTraffic(Simulator sim)
 	{
+		this.sim = sim;
+		
 		for(TrafficCarData vehicleData : vehicleDataList)
 		{
 			// build and add traffic car
-			vehicleList.add(new TrafficCar(sim, vehicleData));
+			TrafficCar vehicle = new TrafficCar(sim, vehicleData);
+			vehicle.setIndex(vehicleList.size());
+			vehicleList.add(vehicle);
+		}
+		
+		// split decision phase into tasks, if there are enough vehicles
+		int numberOfThreads = Math.min(Runtime.getRuntime().availableProcessors(), 
+				vehicleList.size() / MIN_VEHICLES_PER_TASK);
+		if(numberOfThreads > 1)
+		{
+			int vehiclesPerTask = (vehicleList.size() + numberOfThreads - 1) / numberOfThreads;
+			for(int from = 0; from < vehicleList.size(); from += vehiclesPerTask)
+				decisionTaskList.add(new DecisionTask(from, Math.min(from + vehiclesPerTask, vehicleList.size())));
+			
+			executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory()
+			{
+				private int counter = 0;
+				
+				public Thread newThread(Runnable runnable) 
+				{
+					Thread thread = new Thread(runnable, "PhysicalTraffic-" + (counter++));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
 		}
 	}
 	
@@ -63,53 +116,96 @@ public class PhysicalTraffic extends Thread
 	}
 	
 	
-	public void run()
+	/**
+	 * Updates all traffic cars. Must be called on the render thread.
+	 */
+	public void update()
 	{
-		if(vehicleList.size() >= 1)
+		if(!sim.isPause())
 		{
-			/*
-			for(TrafficCar vehicle : vehicleList)
-				vehicle.showInfo();
-			*/
+			// snapshot phase
+			sim.getCar().getPosition(drivingCarPosition);
 			
-			while (isRunning) 
+			trafficGrid.reset(vehicleList.size());
+			for(int i = 0; i < vehicleList.size(); i++)
 			{
-				long elapsedTime = System.currentTimeMillis() - lastUpdate;
+				TrafficCar vehicle = vehicleList.get(i);
+				vehicle.takeSnapshot();
 				
-				if (elapsedTime > updateIntervalMsec) 
-				{
-					lastUpdate = System.currentTimeMillis();
-					
-					// update every vehicle
-					for(TrafficCar vehicle : vehicleList)
-						vehicle.update(vehicleList);
-				}
-				else
-				{
-					// sleep until update interval has elapsed
-					try {
-						Thread.sleep(updateIntervalMsec - elapsedTime);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
+				Vector3f position = vehicle.getSnapshotPosition();
+				trafficGrid.setPosition(i, position.getX(), position.getZ());
 			}
-			//System.out.println("PhysicalTraffic closed");
+			trafficGrid.build();
+			
+			// sense/decide phase
+			if(executor != null)
+				decideParallel();
+			else
+				decide(0, vehicleList.size());
+			
+			// apply phase
+			for(TrafficCar vehicle : vehicleList)
+				vehicle.apply();
 		}
+		
+		// follow boxes need to be updated even in pause
+		for(TrafficCar vehicle : vehicleList)
+			vehicle.updateFollowBox();
 	}
 	
 	
-	// TODO use thread instead
-	public void update()
+	private void decide(int from, int to)
 	{
-		for(TrafficCar vehicle : vehicleList)
-			vehicle.update(vehicleList);	
+		for(int i = from; i < to; i++)
+			vehicleList.get(i).decide(trafficGrid, vehicleList, drivingCarPosition);
+	}
+	
+	
+	private void decideParallel()
+	{
+		try {
+			
+			// wait for all tasks to complete
+			List<Future<Object>> futureList = executor.invokeAll(decisionTaskList);
+			for(Future<Object> future : futureList)
+				future.get();
+			
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	
+	/**
+	 * Makes the decisions of a range of vehicles.
+	 */
+	private class DecisionTask implements Callable<Object>
+	{
+		private int from;
+		private int to;
+		
+		
+		public DecisionTask(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+		
+		
+		public Object call() 
+		{
+			decide(from, to);
+			return null;
+		}
 	}
 
 
 	public synchronized void close() 
 	{
-		isRunning = false;
+		if(executor != null)
+			executor.shutdownNow();
 		
 		// close all traffic cars
 		for(TrafficCar vehicle : vehicleList)
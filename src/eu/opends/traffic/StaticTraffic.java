@@ -45,8 +45,12 @@ import eu.opends.main.Simulator;
  */
 public class StaticTraffic 
 {
+	private static final float GRID_CELL_SIZE = 25f;
+	
 	private Simulator sim;
     private ArrayList<TrafficCar> vehicleList = new ArrayList<TrafficCar>();
+    private TrafficGrid trafficGrid = new TrafficGrid(GRID_CELL_SIZE);
+    private Vector3f drivingCarPosition = new Vector3f();
     private float steer = 0;
     private Spatial teapot;
     private MotionTrack motionControl;
@@ -196,13 +200,38 @@ boolean playing = true;
 	
 	public void update(float tpf) 
 	{
+		boolean isPaused = sim.isPause();
+		
+		// snapshot phase (see PhysicalTraffic)
+		if(!isPaused)
+		{
+			sim.getCar().getPosition(drivingCarPosition);
+			
+			trafficGrid.reset(vehicleList.size());
+			for(int i = 0; i < vehicleList.size(); i++)
+			{
+				TrafficCar vehicle = vehicleList.get(i);
+				vehicle.takeSnapshot();
+				
+				Vector3f position = vehicle.getSnapshotPosition();
+				trafficGrid.setPosition(i, position.getX(), position.getZ());
+			}
+			trafficGrid.build();
+		}
+		
 		for(TrafficCar vehicle : vehicleList)
 		{
 			controlSpeed(vehicle);
 			
 			controlSteering(vehicle);
 			
-			vehicle.update(vehicleList);
+			if(!isPaused)
+			{
+				vehicle.decide(trafficGrid, vehicleList, drivingCarPosition);
+				vehicle.apply();
+			}
+			
+			vehicle.updateFollowBox();
 		}
 			System.out.println(getSpeed());
 	}
@@ -19,8 +19,9 @@
 package eu.opends.traffic;
 
 import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
-import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
@@ -52,6 +53,32 @@ public class TrafficCar extends Car
 	private float minLateralSafetyDistance = 2;
 	private float overwriteSpeed = -1;
 	private float overwriteReducedSpeed = 0;
+	private int index = -1;
+	
+	// snapshot taken by the physical traffic before the (parallel) decision phase
+	private Vector3f snapshotPosition = new Vector3f();
+	private Vector3f frontPosition = new Vector3f();
+	private Vector3f centerPosition = new Vector3f();
+	private Vector3f followBoxPosition = new Vector3f();
+	private Vector3f nextWayPointPosition = new Vector3f();
+	private boolean hasNextWayPoint = false;
+	private boolean redTrafficLightAhead = false;
+	private float currentSpeedKmh = 0;
+	private float regularSpeed = 0;
+	private float reducedSpeed = 0;
+	
+	// decisions to be applied after the decision phase
+	private float steeringValue = 0;
+	private float gasPedalValue = 0;
+	private float brakePedalValue = 0;
+	
+	// temporary variables of the decision phase
+	private Vector3f tempVector1 = new Vector3f();
+	private Vector3f tempVector2 = new Vector3f();
+	private ObstacleVisitor obstacleVisitor = new ObstacleVisitor();
+	
+	// traffic light related to a way point (resolved on first use; value may be null)
+	private Map<Waypoint, TrafficLight> trafficLightCache = new IdentityHashMap<Waypoint, TrafficLight>();
 
 	
 	public TrafficCar(Simulator sim, TrafficCarData trafficCarData)
@@ -154,22 +181,113 @@ public class TrafficCar extends Car
 	}
 
 
-	public void update(ArrayList<TrafficCar> vehicleList) 
+	/**
+	 * Sets the index of this vehicle in the vehicle list of the physical 
+	 * traffic (needed to identify oneself in grid queries).
+	 */
+	void setIndex(int index)
+	{
+		this.index = index;
+	}
+	
+	
+	Vector3f getSnapshotPosition()
 	{
-		if(!sim.isPause())
+		return snapshotPosition;
+	}
+	
+	
+	/**
+	 * Takes a snapshot of all values needed by <code>decide()</code>. Must be 
+	 * called on the render thread, as physics, scene graph, follow box and
+	 * traffic lights will be accessed.
+	 */
+	void takeSnapshot()
+	{
+		getPosition(snapshotPosition);
+		frontPosition.set(frontGeometry.getWorldTranslation());
+		centerPosition.set(centerGeometry.getWorldTranslation());
+		followBoxPosition.set(followBox.getPosition());
+		currentSpeedKmh = getCurrentSpeedKmh();
+		
+		// maximum speed for current way point segment
+		if(overwriteSpeed >= 0)
+			regularSpeed = overwriteSpeed;
+		else
+			regularSpeed = followBox.getSpeed();
+		
+		// reduced speed to reach next speed limit in time
+		reducedSpeed = followBox.getReducedSpeed();
+		
+		Waypoint nextWayPoint = followBox.getNextWayPoint();
+		hasNextWayPoint = (nextWayPoint != null);
+		if(hasNextWayPoint)
 		{
-			// update steering
-			Vector3f wayPoint = followBox.getPosition();
-			steerTowardsPosition(wayPoint);
-			
-			// update speed
-			updateSpeed(vehicleList);
-			
-			// update lights
-			updateLightState();
+			nextWayPointPosition.set(nextWayPoint.getPosition());
+			redTrafficLightAhead = hasRedTrafficLight(nextWayPoint);
 		}
+		else
+			redTrafficLightAhead = false;
+	}
+	
+	
+	/**
+	 * Computes steering and pedal positions from the snapshot. Only reads 
+	 * snapshot values (of this and other vehicles) and writes fields of this 
+	 * vehicle, hence it may be called for several vehicles in parallel.
+	 * 
+	 * @param grid
+	 * 			Spatial hash of the snapshot positions of all traffic cars.
+	 * 
+	 * @param vehicleList
+	 * 			List of all traffic cars (indexed like the grid).
+	 * 
+	 * @param drivingCarPosition
+	 * 			Snapshot position of the user-controlled car.
+	 */
+	void decide(TrafficGrid grid, List<TrafficCar> vehicleList, Vector3f drivingCarPosition)
+	{
+		// update steering
+		steerTowardsPosition(followBoxPosition);
 		
-		// update movement of follow box according to vehicle's position
+		// update speed
+		updateSpeed(grid, vehicleList, drivingCarPosition);
+	}
+	
+	
+	/**
+	 * Applies the decisions of <code>decide()</code> to the vehicle. Must be
+	 * called on the render thread.
+	 */
+	void apply()
+	{
+		steer(steeringValue);
+		
+		setGasPedalIntensity(gasPedalValue);
+		setBrakePedalPressIntensity(brakePedalValue);
+		
+		// accelerate
+		if(engineOn)
+			carControl.accelerate(gasPedalPressIntensity * accelerationForce);
+		else
+			carControl.accelerate(0);
+		
+		// brake	
+		float appliedBrakeForce = brakePedalPressIntensity * maxBrakeForce;
+		float currentFriction = 0.2f * maxFreeWheelBrakeForce;
+		carControl.brake(appliedBrakeForce + currentFriction);
+		
+		// update lights
+		updateLightState();
+	}
+	
+	
+	/**
+	 * Updates movement of follow box according to vehicle's position. Must be 
+	 * called on the render thread (even in pause).
+	 */
+	void updateFollowBox()
+	{
 		Vector3f vehicleCenterPos = centerGeometry.getWorldTranslation();
 		followBox.update(vehicleCenterPos);
 	}
@@ -185,7 +303,7 @@ public class TrafficCar extends Car
 		
 		// get angle between driving direction and way point direction --> steering intensity
 		// only consider 2D space (projection of WPs to xz-plane)
-		float steeringAngle = getAngleBetweenDirections(frontGeometry.getWorldTranslation(), wayPoint, true);
+		float steeringAngle = getAngleBetweenDirections(frontPosition, wayPoint, true);
 		
 		// compute steering intensity in percent
 		//  0  degree =   0%
@@ -194,61 +312,31 @@ public class TrafficCar extends Car
 		// >90 degree = 100%
 		float steeringIntensity = Math.max(Math.min(2*steeringAngle/FastMath.PI,1f),0f);
 		
-		// apply steering instruction
-		steer(steeringDirection*steeringIntensity);
-		
-		//System.out.println(steeringDirection*steeringIntensity);
+		// steering instruction will be applied in apply()
+		steeringValue = steeringDirection*steeringIntensity;
 	}
 
 	
 	private int getRelativePosition(Vector3f wayPoint)
 	{
-		// get vehicles center point and point in driving direction
-		Vector3f frontPosition = frontGeometry.getWorldTranslation();
-		Vector3f centerPosition = centerGeometry.getWorldTranslation();
-		
-		// convert Vector3f to Point2D.Float, as needed for Line2D.Float
-		Point2D.Float centerPoint = new Point2D.Float(centerPosition.getX(),centerPosition.getZ());
-		Point2D.Float frontPoint = new Point2D.Float(frontPosition.getX(),frontPosition.getZ());
-		
-		// line in direction of driving
-		Line2D.Float line = new Line2D.Float(centerPoint,frontPoint);
-		
-		// convert Vector3f to Point2D.Float
-		Point2D point = new Point2D.Float(wayPoint.getX(),wayPoint.getZ());
-
-		// check way point's relative position to the line
-		if(line.relativeCCW(point) == -1)
-		{
-			// point on the left --> return -1
-			return -1;
-		}
-		else if(line.relativeCCW(point) == 1)
-		{
-			// point on the right --> return 1
-			return 1;
-		}
-		else
-		{
-			// point on line --> return 0
-			return 0;
-		}
+		// check way point's relative position to the line from vehicle's center point 
+		// to point in driving direction (only consider xz-plane)
+		// -1: point on the left, 1: point on the right, 0: point on line
+		return Line2D.relativeCCW(centerPosition.getX(), centerPosition.getZ(), 
+				frontPosition.getX(), frontPosition.getZ(), wayPoint.getX(), wayPoint.getZ());
 	}
 	
 
 	private float getAngleBetweenDirections(Vector3f position1, Vector3f position2, boolean is2DSpace) 
 	{
-		// get vehicle's center
-		Vector3f carCenterPos = centerGeometry.getWorldTranslation();
-		
 		// vector pointing from vehicle's center towards position 1
-		Vector3f frontLine = position1.subtract(carCenterPos);
+		Vector3f frontLine = position1.subtract(centerPosition, tempVector1);
 		if(is2DSpace)
 			frontLine.setY(0);
 		frontLine.normalizeLocal();
 		
 		// vector pointing from vehicle's center towards position 2
-		Vector3f wayPointLine = position2.subtract(carCenterPos);
+		Vector3f wayPointLine = position2.subtract(centerPosition, tempVector2);
 		if(is2DSpace)
 			wayPointLine.setY(0);
 		wayPointLine.normalizeLocal();
@@ -258,38 +346,24 @@ public class TrafficCar extends Car
 	}
 	
 	
-	private void updateSpeed(ArrayList<TrafficCar> vehicleList) 
+	private void updateSpeed(TrafficGrid grid, List<TrafficCar> vehicleList, Vector3f drivingCarPosition) 
 	{
-		float regularSpeed;
-		// maximum speed for current way point segment
-		if(overwriteSpeed >= 0){
-		regularSpeed = overwriteSpeed;
-		}
-		else{
-			regularSpeed = followBox.getSpeed();
-		}
-		// reduced speed to reach next speed limit in time
-		float reducedSpeed = followBox.getReducedSpeed();
+		float reducedSpeed = this.reducedSpeed;
 		
 		// stop car in order to avoid collision with other traffic objects and driving car
 		// also for red traffic lights
-		if(obstaclesInTheWay(vehicleList))
+		if(obstaclesInTheWay(grid, vehicleList, drivingCarPosition))
 			reducedSpeed = Math.min(overwriteReducedSpeed , reducedSpeed);
 		
 		float targetSpeed = Math.max(Math.min(regularSpeed, reducedSpeed),0);
-		float currentSpeed = getCurrentSpeedKmh();
+		float currentSpeed = currentSpeedKmh;
 		
-		//System.out.print(name + ": " + targetSpeed + " *** " + currentSpeed);
-		
-		
-		// set pedal positions
+		// set pedal positions (will be applied in apply())
 		if(currentSpeed < targetSpeed)
 		{
 			// too slow --> accelerate
-			setGasPedalIntensity(-1);
-			setBrakePedalPressIntensity(0);
-			//System.out.println("gas");
-			//System.out.print(" *** gas");
+			gasPedalValue = -1;
+			brakePedalValue = 0;
 		}
 		else if(currentSpeed > targetSpeed+1)
 		{
@@ -304,79 +378,74 @@ public class TrafficCar extends Car
 			// TODO
 			brakeIntensity = 1.0f;
 			
-			setBrakePedalPressIntensity(brakeIntensity);
-			setGasPedalIntensity(0);
-			//System.out.println("brake: " + brakeIntensity);
-			//System.out.print(" *** brake");
+			brakePedalValue = brakeIntensity;
+			gasPedalValue = 0;
 		}
 		else
 		{
 			// else release pedals
-			setGasPedalIntensity(0);
-			setBrakePedalPressIntensity(0);
-			//System.out.print(" *** free");
+			gasPedalValue = 0;
+			brakePedalValue = 0;
 		}
-		
-		
-		
-		// accelerate
-		if(engineOn)
-			carControl.accelerate(gasPedalPressIntensity * accelerationForce);
-		else
-			carControl.accelerate(0);
-		//System.out.print(" *** " + gasPedalPressIntensity * accelerationForce);
-		
-		// brake	
-		float appliedBrakeForce = brakePedalPressIntensity * maxBrakeForce;
-		float currentFriction = 0.2f * maxFreeWheelBrakeForce;
-		carControl.brake(appliedBrakeForce + currentFriction);
-		
-		//System.out.print(" *** " + appliedBrakeForce + currentFriction);
-		//System.out.println("");
 	}
 
 
-	private boolean obstaclesInTheWay(ArrayList<TrafficCar> vehicleList)
+	private boolean obstaclesInTheWay(TrafficGrid grid, List<TrafficCar> vehicleList, 
+			Vector3f drivingCarPosition)
 	{
 		// check distance from driving car
-		if(obstacleTooClose(sim.getCar().getPosition()))
+		if(obstacleTooClose(drivingCarPosition))
 			return true;
 		
-		// check distance from other traffic (except oneself)
-		for(TrafficCar vehicle : vehicleList)
-		{
-			if(!vehicle.getName().equals(name))		
-				if(obstacleTooClose(vehicle.getPosition()))
-					return true;
-		}
+		// check distance from other traffic (except oneself) --> only vehicles 
+		// within the safety distance around the car have to be looked at
+		float radius = getForwardSafetyDistance() + minLateralSafetyDistance;
+		obstacleVisitor.vehicleList = vehicleList;
+		if(grid.query(snapshotPosition.getX(), snapshotPosition.getZ(), radius, obstacleVisitor))
+			return true;
 		
 		// check if red traffic light ahead
-		Waypoint nextWayPoint = followBox.getNextWayPoint();
-		if(hasRedTrafficLight(nextWayPoint))
-			if(obstacleTooClose(nextWayPoint.getPosition()))
+		if(redTrafficLightAhead)
+			if(obstacleTooClose(nextWayPointPosition))
 				return true;
 		
 		return false;
 	}
+	
+	
+	/**
+	 * Checks vehicles found in the traffic grid for being too close.
+	 */
+	private class ObstacleVisitor implements TrafficGrid.Visitor
+	{
+		private List<TrafficCar> vehicleList;
+		
+		public boolean visit(int vehicleIndex) 
+		{
+			if(vehicleIndex == index)
+				return false;
+			
+			return obstacleTooClose(vehicleList.get(vehicleIndex).getSnapshotPosition());
+		}
+	}
 
 
 	private boolean obstacleTooClose(Vector3f obstaclePos)
 	{
-		float distanceToObstacle = obstaclePos.distance(getPosition());
+		float distanceToObstacle = obstaclePos.distance(snapshotPosition);
 		
 		// angle between driving direction of traffic car and direction towards obstacle
 		// (consider 3D space, because obstacle could be located on a bridge above traffic car)
-		float angle = getAngleBetweenDirections(frontGeometry.getWorldTranslation(), obstaclePos, false);
+		float angle = getAngleBetweenDirections(frontPosition, obstaclePos, false);
 		if(belowSafetyDistance(angle, distanceToObstacle))
 			return true;
 
 		// considering direction towards next way point (if available)
-		Waypoint nextWP = followBox.getNextWayPoint();
-		if(nextWP != null)
+		if(hasNextWayPoint)
 		{
 			// angle between direction towards next WP and direction towards obstacle
 			// (consider 3D space, because obstacle could be located on a bridge above traffic car)
-			angle = getAngleBetweenDirections(nextWP.getPosition(), obstaclePos, false);
+			angle = getAngleBetweenDirections(nextWayPointPosition, obstaclePos, false);
 			if(belowSafetyDistance(angle, distanceToObstacle))
 				return true;
 		}
@@ -389,22 +458,23 @@ public class TrafficCar extends Car
 		float lateralDistance = distance * FastMath.sin(angle);
 		float forwardDistance = distance * FastMath.cos(angle);
 		
-		//if(name.equals("car1"))
-		//	System.out.println(lateralDist + " *** " + forwardDist);
-		
 		if((lateralDistance < minLateralSafetyDistance) && (forwardDistance > 0) && 
-				(forwardDistance < Math.max(0.5f * getCurrentSpeedKmh(), minForwardSafetyDistance)))
+				(forwardDistance < getForwardSafetyDistance()))
 			return true;
 		
 		return false;
 	}
+	
+	
+	private float getForwardSafetyDistance()
+	{
+		return Math.max(0.5f * currentSpeedKmh, minForwardSafetyDistance);
+	}
 
 	
 	private boolean hasRedTrafficLight(Waypoint wayPoint)
 	{
-		String trafficLightID = wayPoint.getTrafficLightID();
-		
-		TrafficLight trafficLight = TrafficLightCenter.getTrafficLightByID(trafficLightID);
+		TrafficLight trafficLight = getTrafficLight(wayPoint);
 		if(trafficLight != null &&
 			 (
 				trafficLight.getState() == TrafficLightState.RED ||
@@ -418,6 +488,17 @@ public class TrafficCar extends Car
 	}
 
 
+	private TrafficLight getTrafficLight(Waypoint wayPoint)
+	{
+		if(trafficLightCache.containsKey(wayPoint))
+			return trafficLightCache.get(wayPoint);
+		
+		TrafficLight trafficLight = TrafficLightCenter.getTrafficLightByID(wayPoint.getTrafficLightID());
+		trafficLightCache.put(wayPoint, trafficLight);
+		return trafficLight;
+	}
+
+
 	private void updateLightState() 
 	{
 		leftHeadLight.setColor(ColorRGBA.White.mult(lightIntensity));
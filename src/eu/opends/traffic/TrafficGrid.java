@@ -0,0 +1,188 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.traffic;
+
+import java.util.Arrays;
+
+/**
+ * Spatial hash of vehicle positions over the x/z-plane. The grid will be
+ * rebuilt from a snapshot of all positions once per update; afterwards it
+ * is read-only and may be queried by several threads at the same time.
+ *
+ * Grid cells are hashed into a table of buckets and the vehicles are sorted
+ * into the buckets by counting sort, hence rebuilding the grid does not
+ * allocate any objects (unless the number of vehicles grows). As different
+ * cells may share a bucket, queries return a superset of the vehicles
+ * located in the requested area.
+ *
+ * @author Rafael Math
+ */
+public class TrafficGrid
+{
+	private float cellSize;
+	private int mask;
+	private int[] bucketStart = new int[0];
+	private int[] bucketCount = new int[0];
+	private int[] items = new int[0];
+	private float[] xpos = new float[0];
+	private float[] zpos = new float[0];
+	private int size = 0;
+
+
+	/**
+	 * Creates a new empty grid.
+	 *
+	 * @param cellSize
+	 * 			Edge length (in meters) of a grid cell.
+	 */
+	public TrafficGrid(float cellSize)
+	{
+		this.cellSize = cellSize;
+	}
+
+
+	/**
+	 * Resets the grid to hold the given number of vehicles. Positions must
+	 * be set by <code>setPosition()</code> before calling <code>build()</code>.
+	 */
+	public void reset(int numberOfVehicles)
+	{
+		size = numberOfVehicles;
+
+		if(xpos.length < size)
+		{
+			xpos = new float[size];
+			zpos = new float[size];
+			items = new int[size];
+
+			int tableSize = 1;
+			while(tableSize < 2*size)
+				tableSize <<= 1;
+
+			bucketStart = new int[tableSize];
+			bucketCount = new int[tableSize];
+			mask = tableSize - 1;
+		}
+	}
+
+
+	public void setPosition(int index, float x, float z)
+	{
+		xpos[index] = x;
+		zpos[index] = z;
+	}
+
+
+	/**
+	 * Sorts all vehicles into their buckets.
+	 */
+	public void build()
+	{
+		Arrays.fill(bucketCount, 0);
+
+		for(int i = 0; i < size; i++)
+			bucketCount[getBucket(toCell(xpos[i]), toCell(zpos[i]))]++;
+
+		int start = 0;
+		for(int b = 0; b < bucketStart.length; b++)
+		{
+			bucketStart[b] = start;
+			start += bucketCount[b];
+			bucketCount[b] = 0;
+		}
+
+		for(int i = 0; i < size; i++)
+		{
+			int bucket = getBucket(toCell(xpos[i]), toCell(zpos[i]));
+			items[bucketStart[bucket] + bucketCount[bucket]] = i;
+			bucketCount[bucket]++;
+		}
+	}
+
+
+	/**
+	 * Looks up all vehicles located in the square with the given center and
+	 * half edge length. A vehicle might be reported more than once.
+	 *
+	 * @param x
+	 * 			x-coordinate of the center.
+	 *
+	 * @param z
+	 * 			z-coordinate of the center.
+	 *
+	 * @param radius
+	 * 			Half edge length of the square (in meters).
+	 *
+	 * @param visitor
+	 * 			Will be called for every vehicle found. If it returns true,
+	 * 			the query will be aborted.
+	 *
+	 * @return
+	 * 			true, if the query has been aborted by the visitor.
+	 */
+	public boolean query(float x, float z, float radius, Visitor visitor)
+	{
+		if(size == 0)
+			return false;
+		
+		int minX = toCell(x - radius);
+		int maxX = toCell(x + radius);
+		int minZ = toCell(z - radius);
+		int maxZ = toCell(z + radius);
+
+		for(int cx = minX; cx <= maxX; cx++)
+		{
+			for(int cz = minZ; cz <= maxZ; cz++)
+			{
+				int bucket = getBucket(cx, cz);
+				int end = bucketStart[bucket] + bucketCount[bucket];
+				for(int i = bucketStart[bucket]; i < end; i++)
+				{
+					int index = items[i];
+					if(Math.abs(xpos[index] - x) <= radius && Math.abs(zpos[index] - z) <= radius)
+						if(visitor.visit(index))
+							return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Callback for grid queries.
+	 */
+	public interface Visitor
+	{
+		public boolean visit(int index);
+	}
+
+
+	private int toCell(float coordinate)
+	{
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+
+	private int getBucket(int cellX, int cellZ)
+	{
+		return ((cellX * 73856093) ^ (cellZ * 19349663)) & mask;
+	}
+}
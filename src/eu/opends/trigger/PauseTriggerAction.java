@@ -19,6 +19,7 @@
 package eu.opends.trigger;
 
 import eu.opends.basics.SimulationBasics;
+import eu.opends.tools.TimerCenter;
 
 /**
  * 
@@ -53,11 +54,9 @@ public class PauseTriggerAction extends TriggerAction
 			{
 				sim.setPause(true);
 				
+				// pause will be stopped after the given duration of real time
 				if(duration > 0)
-				{
-					StopPauseThread st = new StopPauseThread(duration);
-					st.start();
-				}
+					TimerCenter.scheduleRealTime(new StopPauseTask(), duration);
 				
 				updateCounter();
 			}
@@ -65,20 +64,10 @@ public class PauseTriggerAction extends TriggerAction
 	}
 	
 	
-	class StopPauseThread extends Thread 
+	class StopPauseTask implements Runnable 
 	{
-        int duration;
-        
-        StopPauseThread(int duration) 
-        {
-            this.duration = duration;
-        }
-
         public void run() 
         {
-        	try {Thread.sleep(1000*duration);} 
-        	catch (InterruptedException e){}
-
     		sim.setPause(false);
         }
     }
@@ -18,6 +18,7 @@
 
 package eu.opends.trigger;
 
+import eu.opends.tools.TimerCenter;
 
 /**
  * This abstract class represents a trigger action, which will be 
@@ -49,11 +50,17 @@ public abstract class TriggerAction
 	
 	/**
 	 * Method will be called on trigger collision, await delay and perform some action.
+	 * The delay is measured in simulation time, hence it will not proceed in pause.
 	 */
 	public void performAction()
 	{
-		TriggerActionDelayThread triggerActionDelayThread = new TriggerActionDelayThread(this, delay);
-		triggerActionDelayThread.start();
+		TimerCenter.schedule(new Runnable()
+		{
+			public void run() 
+			{
+				execute();
+			}
+		}, delay);
 	}
 	
 	
@@ -19,24 +19,29 @@
 package eu.opends.trigger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.jme3.bounding.BoundingVolume;
 import com.jme3.collision.CollisionResults;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 
 import eu.opends.audio.AudioCenter;
+import eu.opends.audio.VoicePool.Priority;
 import eu.opends.basics.MapObject;
 import eu.opends.basics.SimulationBasics;
 import eu.opends.car.Car;
 import eu.opends.environment.TrafficLight;
 import eu.opends.environment.TrafficLightCenter;
 import eu.opends.main.Simulator;
+import eu.opends.tools.TimerCenter;
 
 
 /**
@@ -46,28 +51,35 @@ import eu.opends.main.Simulator;
  */
 public class TriggerCenter 
 {
+	// edge length (in meters) of a cell of the trigger grid
+	private static final float GRID_CELL_SIZE = 20f;
+	
 	private CollisionResults resultCollision;
 
 	private Simulator sim;
 
-	private String triggerName;
-	private String[] triggerID;
-
-	private LinkedList<Spatial> triggerListTrafficLight,triggerListRoadObjects;
-	public static ArrayList<String> triggerReportList = new ArrayList<String>(5);
+	private TriggerGrid triggerGrid;
+	private List<TriggerGrid.Entry> candidateList = new ArrayList<TriggerGrid.Entry>();
+	private List<TriggerGrid.Entry> insideList = new ArrayList<TriggerGrid.Entry>();
+	
+	// triggers hit within the last seconds (may be accessed by other threads, e.g. key actions)
+	public static Set<String> triggerReportSet = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
 
 	public TriggerCenter(Simulator sim) 
 	{
 		this.sim = sim;
-
-		triggerListTrafficLight = new LinkedList<Spatial>();
-		triggerListRoadObjects = new LinkedList<Spatial>();
 	}
 
 	
+	/**
+	 * Adds all traffic light triggers and road object triggers to a spatial 
+	 * grid, so every frame only the triggers close to the car need to be 
+	 * checked.
+	 */
 	public void setup() 
 	{
 		resultCollision = new CollisionResults();
+		triggerGrid = new TriggerGrid(GRID_CELL_SIZE);
 
 		Spatial tempSpatial;
 
@@ -81,109 +93,95 @@ public class TriggerCenter
 
 			tempSpatialName = tempSpatial.getName();
 			
-			if (tempSpatialName.startsWith("TrafficLightTrigger") 
-					|| tempSpatialName.startsWith("TrafficLightPhaseTrigger")) 
-			{
-				triggerListTrafficLight.add(tempSpatial);
-			}
+			boolean isTrafficLightTrigger = tempSpatialName.startsWith("TrafficLightTrigger") 
+					|| tempSpatialName.startsWith("TrafficLightPhaseTrigger");
 			
-			if (SimulationBasics.getTriggerActionListMap().containsKey(tempSpatialName))
+			boolean isRoadObjectTrigger = SimulationBasics.getTriggerActionListMap().containsKey(tempSpatialName);
+			
+			if(isTrafficLightTrigger || isRoadObjectTrigger)
 			{
-				triggerListRoadObjects.add(tempSpatial);
+				TriggerGrid.Entry entry = triggerGrid.add(tempSpatial);
+				entry.setRoadObjectTrigger(isRoadObjectTrigger);
+				
+				if(isTrafficLightTrigger)
+				{
+					String[] triggerID = tempSpatialName.split(":");
+					
+					// convert "TrafficLight.01_05.R" to "TrafficLight.01_05"
+					String trafficLightName = TrafficLight.parseName(triggerID[1]);
+					
+					entry.setTrafficLight(trafficLightName, triggerID[0]);
+				}
 			}
-
 		}
 	}
 
 	
-	public void doTriggerChecks() 
-	{
-		handleTrafficLightCollision(triggerListTrafficLight);
-		handleRoadObjectsCollision(triggerListRoadObjects);
-		//computeContactWithCar();
-	}
-
-	
 	/**
-	 * This method handles a collision of the car with a traffic light trigger. There
-	 * are two possible triggers: 
+	 * Checks the triggers close to the car for collisions. A road object 
+	 * trigger will be performed when the car enters it, whereas a collision 
+	 * with a traffic light trigger will be reported to the traffic light 
+	 * center as long as the car is inside the trigger. There are two 
+	 * possible traffic light triggers: 
 	 * <p>1. the TrafficLightTrigger which recognizes cars located close to a traffic 
 	 * light (up to 40 meters) and requests green light</p>
 	 * <p>1. the TrafficLightPhaseTrigger, a long range trigger (up to 150 meters), 
 	 * which controls the SIM-TD traffic light phase assistant</p>
-	 * A collision will be forwarded to the traffic light center.
-	 * 
-	 * @param triggerList
-	 * 			list of all traffic light triggers in order to monitor approximation 
-	 * 			to traffic lights
 	 */
-	private void handleTrafficLightCollision(LinkedList<Spatial> triggerList)
+	public void doTriggerChecks() 
 	{
-		for (Spatial trigger : triggerList)
+		Car car = sim.getCar();
+		Node carNode = car.getCarNode();
+		BoundingVolume carBound = carNode.getWorldBound();
+		
+		// look up triggers in the grid cells overlapped by the car
+		triggerGrid.query(carBound, candidateList);
+		
+		for (int i = 0; i < candidateList.size(); i++)
 		{
-			resultCollision.clear();
-			triggerName = trigger.getName();
+			TriggerGrid.Entry entry = candidateList.get(i);
 			
-			// calculate collision of the car with a road object trigger
-			//TODO use trigger node
-			Spatial triggerObject = sim.getRootNode().getChild(triggerName);
-			sim.getCar().getCarNode().collideWith(triggerObject.getWorldBound(), resultCollision);
-			
-			if (
-					(resultCollision.size() > 0) 
-					&& 
-					(
-						(triggerName.startsWith("TrafficLightTrigger"))          ||
-						(triggerName.startsWith("TrafficLightPhaseTrigger"))
-					)
-				)
+			if(!entry.isInside())
 			{
-				triggerID = triggerName.split(":");
+				BoundingVolume triggerBound = entry.getSpatial().getWorldBound();
 				
-				// convert "TrafficLight.01_05.R" to "TrafficLight.01_05"
-				String trafficLightName = TrafficLight.parseName(triggerID[1]);
-
-				TrafficLightCenter.reportCollision(trafficLightName,triggerID[0]);
+				// cheap bound test first, exact collision of the car with the trigger afterwards
+				if(carBound.intersects(triggerBound))
+				{
+					resultCollision.clear();
+					carNode.collideWith(triggerBound, resultCollision);
+					
+					if(resultCollision.size() > 0)
+					{
+						entry.setInside(true);
+						insideList.add(entry);
+						
+						// if car has entered a road object trigger --> report trigger to HMI Center
+						if(entry.isRoadObjectTrigger())
+							TriggerCenter.performTriggerAction(entry.getName(), car);
+					}
+				}
 			}
 		}
-	}
-	
-	
-	/**
-	 * This method handles a collision of the car with a road object trigger. This can be:
-	 * SpeedLimitTrigger, CautionSignTrigger or BlindTrigger. A collision will be forwarded 
-	 * to the HMI center.
-	 * 
-	 * @param triggerList
-	 * 			list of all road object triggers in order to monitor approximation 
-	 * 			to such an object
-	 */
-	private void handleRoadObjectsCollision(LinkedList<Spatial> triggerList)
-	{
-		Car car = sim.getCar();
 		
-		for (Spatial trigger : triggerList) 
-		{	
-			// TODO: caution! trigger center may be farther away than 10 meters when hitting
-			if(trigger.getWorldTranslation().distance(car.getCarNode().getWorldTranslation()) < 10)
+		// check whether the car has left any trigger
+		for (Iterator<TriggerGrid.Entry> it = insideList.iterator(); it.hasNext();) 
+		{
+			TriggerGrid.Entry entry = it.next();
+			
+			if(!carBound.intersects(entry.getSpatial().getWorldBound()))
 			{
-				resultCollision.clear();
-				String triggerName = trigger.getName();
-					
-				// calculate collision of the car with a road object trigger
-				
-				//TODO: use trigger node
-				Spatial triggerObject = sim.getRootNode().getChild(triggerName);
-				car.getCarNode().collideWith(triggerObject.getWorldBound(), resultCollision);
-				
-				// if car has collided with a trigger --> report trigger to HMI Center
-				if(resultCollision.size() > 0)
-				{
-					if(SimulationBasics.getTriggerActionListMap().containsKey(triggerName))
-						TriggerCenter.performTriggerAction(triggerName, car);
-				}
+				entry.setInside(false);
+				it.remove();
+			}
+			else if(entry.getTrafficLightTriggerType() != null)
+			{
+				TrafficLightCenter.reportCollision(entry.getTrafficLightName(), 
+						entry.getTrafficLightTriggerType());
 			}
 		}
+		
+		//computeContactWithCar();
 	}
 
 
@@ -228,7 +226,7 @@ public class TriggerCenter
     	{
 			float currentSuspensionForce = car.getCarControl().getWheel(i).getWheelInfo().wheelsSuspensionForce;
 			if(suspensionForce[i] - currentSuspensionForce > 2000)
-				AudioCenter.playSound("potHole");
+				AudioCenter.playSound("potHole", Priority.LOW);
 			suspensionForce[i] = currentSuspensionForce;
     	}
 	}
@@ -257,7 +255,7 @@ public class TriggerCenter
 						String soundFile = "collision";
 						if((currentMapObject != null) && (!currentMapObject.getCollisionSound().isEmpty()))
 							soundFile = currentMapObject.getCollisionSound();
-						AudioCenter.playSound(soundFile);
+						AudioCenter.playSound(soundFile, Priority.HIGH);
 					}
 				}							
 			}
@@ -306,46 +304,43 @@ public class TriggerCenter
 	 * @param car
 	 * 			user-controlled car of simulator 
 	 */
-	public static void performTriggerAction(String triggerID, Car car) 
+	public static void performTriggerAction(final String triggerID, Car car) 
 	{
-		if(!triggerReportList.contains(triggerID))
+		// add trigger to report set (returns false if already reported)
+		if(triggerReportSet.add(triggerID))
 		{
 			System.err.println("Trigger hit: " + triggerID);
-			// add trigger to report list
-			triggerReportList.add(triggerID);
-			
-			// remove trigger from report list after 2 seconds
-			int seconds = 2;
 		
 			List<TriggerAction> triggerActionList = SimulationBasics.getTriggerActionListMap().get(triggerID);
 			for(TriggerAction triggerAction : triggerActionList)
-			{
 				triggerAction.performAction();
-				
-				// extend two seconds by time of pause duration, if pause trigger was contained in list
-				if(triggerAction instanceof PauseTriggerAction)
-					seconds += ((PauseTriggerAction)triggerAction).getDuration();
-			}
 			
-			RemoveFromReportListThread removeThread = new RemoveFromReportListThread(triggerID, seconds);
-			removeThread.start();
+			// remove trigger from report set after 2 seconds of simulation time
+			// (time of a pause caused by a pause trigger will not be counted)
+			TimerCenter.schedule(new Runnable()
+			{
+				public void run() 
+				{
+					removeTriggerReport(triggerID);
+				}
+			}, 2);
 		}
 	}
 	
 	
 	/**
 	 * Every time a trigger is reported it will be added to trigger report 
-	 * list in order to avoid multiple instances of the event (e.g. if car 
+	 * set in order to avoid multiple instances of the event (e.g. if car 
 	 * still hits the trigger after 10 milliseconds). This method removes 
-	 * the given trigger from this list again.
+	 * the given trigger from this set again.
 	 *  
 	 * @param objectID
-	 * 			ID of the trigger to be removed from the report list
+	 * 			ID of the trigger to be removed from the report set
 	 */
 	public static void removeTriggerReport(String objectID)
 	{
-		if(!triggerReportList.remove(objectID))
-			System.err.println("Could not remove '" + objectID + "' from trigger report list!");
+		if(!triggerReportSet.remove(objectID))
+			System.err.println("Could not remove '" + objectID + "' from trigger report set!");
 	}
 
 }
@@ -0,0 +1,267 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2026 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.trigger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+/**
+ * Uniform grid over the x/z-plane containing all triggers. Every trigger
+ * is registered in each cell its world bound overlaps, so a query only has
+ * to look at the cells overlapped by the car's bounding volume. The grid
+ * is sparse (cells are created on demand), hence scenes of any size can be
+ * indexed. Triggers are expected not to move after the grid has been built.
+ *
+ * @author Rafael Math
+ */
+public class TriggerGrid
+{
+	/**
+	 * A trigger registered in the grid, holding a direct reference to its
+	 * spatial and its enter/exit state.
+	 */
+	public static class Entry
+	{
+		private Spatial spatial;
+		private String name;
+		private boolean isInside = false;
+		private int lastQuery = -1;
+		private boolean isRoadObjectTrigger = false;
+		private String trafficLightName = null;
+		private String trafficLightTriggerType = null;
+
+
+		private Entry(Spatial spatial)
+		{
+			this.spatial = spatial;
+			this.name = spatial.getName();
+		}
+
+
+		public Spatial getSpatial()
+		{
+			return spatial;
+		}
+
+
+		public String getName()
+		{
+			return name;
+		}
+
+
+		public boolean isInside()
+		{
+			return isInside;
+		}
+
+
+		public void setInside(boolean isInside)
+		{
+			this.isInside = isInside;
+		}
+
+
+		public boolean isRoadObjectTrigger()
+		{
+			return isRoadObjectTrigger;
+		}
+
+
+		public void setRoadObjectTrigger(boolean isRoadObjectTrigger)
+		{
+			this.isRoadObjectTrigger = isRoadObjectTrigger;
+		}
+
+
+		/**
+		 * Name of the traffic light this trigger belongs to or null, if it is
+		 * not a traffic light trigger.
+		 */
+		public String getTrafficLightName()
+		{
+			return trafficLightName;
+		}
+
+
+		/**
+		 * Type of the traffic light trigger ("TrafficLightTrigger" or
+		 * "TrafficLightPhaseTrigger") or null, if it is not a traffic light
+		 * trigger.
+		 */
+		public String getTrafficLightTriggerType()
+		{
+			return trafficLightTriggerType;
+		}
+
+
+		public void setTrafficLight(String trafficLightName, String trafficLightTriggerType)
+		{
+			this.trafficLightName = trafficLightName;
+			this.trafficLightTriggerType = trafficLightTriggerType;
+		}
+	}
+
+
+	private float cellSize;
+	private Map<Long,List<Entry>> cellMap = new HashMap<Long,List<Entry>>();
+	private int queryCounter = 0;
+
+
+	/**
+	 * Creates a new empty grid.
+	 *
+	 * @param cellSize
+	 * 			Edge length (in meters) of a grid cell.
+	 */
+	public TriggerGrid(float cellSize)
+	{
+		this.cellSize = cellSize;
+	}
+
+
+	/**
+	 * Adds a trigger to all cells overlapped by its world bound.
+	 *
+	 * @param trigger
+	 * 			Spatial of the trigger.
+	 *
+	 * @return
+	 * 			Grid entry of the trigger.
+	 */
+	public Entry add(Spatial trigger)
+	{
+		Entry entry = new Entry(trigger);
+
+		BoundingVolume bound = trigger.getWorldBound();
+		Vector3f center = bound.getCenter();
+		float xExtent = getXExtent(bound);
+		float zExtent = getZExtent(bound);
+
+		int minX = toCell(center.x - xExtent);
+		int maxX = toCell(center.x + xExtent);
+		int minZ = toCell(center.z - zExtent);
+		int maxZ = toCell(center.z + zExtent);
+
+		for(int x = minX; x <= maxX; x++)
+		{
+			for(int z = minZ; z <= maxZ; z++)
+			{
+				Long key = toKey(x, z);
+				List<Entry> cell = cellMap.get(key);
+				if(cell == null)
+				{
+					cell = new ArrayList<Entry>(2);
+					cellMap.put(key, cell);
+				}
+				cell.add(entry);
+			}
+		}
+
+		return entry;
+	}
+
+
+	/**
+	 * Looks up all triggers sharing a grid cell with the given bounding
+	 * volume. Every trigger will be added to the result list at most once.
+	 *
+	 * @param bound
+	 * 			Bounding volume to look up (e.g. world bound of the car).
+	 *
+	 * @param result
+	 * 			List the triggers will be added to (will be cleared first).
+	 */
+	public void query(BoundingVolume bound, List<Entry> result)
+	{
+		result.clear();
+		queryCounter++;
+
+		Vector3f center = bound.getCenter();
+		float xExtent = getXExtent(bound);
+		float zExtent = getZExtent(bound);
+
+		int minX = toCell(center.x - xExtent);
+		int maxX = toCell(center.x + xExtent);
+		int minZ = toCell(center.z - zExtent);
+		int maxZ = toCell(center.z + zExtent);
+
+		for(int x = minX; x <= maxX; x++)
+		{
+			for(int z = minZ; z <= maxZ; z++)
+			{
+				List<Entry> cell = cellMap.get(toKey(x, z));
+				if(cell != null)
+				{
+					for(int i = 0; i < cell.size(); i++)
+					{
+						Entry entry = cell.get(i);
+						if(entry.lastQuery != queryCounter)
+						{
+							entry.lastQuery = queryCounter;
+							result.add(entry);
+						}
+					}
+				}
+			}
+		}
+	}
+
+
+	private int toCell(float coordinate)
+	{
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+
+	private static Long toKey(int x, int z)
+	{
+		return Long.valueOf(((long) x << 32) | (z & 0xFFFFFFFFL));
+	}
+
+
+	private static float getXExtent(BoundingVolume bound)
+	{
+		if(bound instanceof BoundingBox)
+			return ((BoundingBox) bound).getXExtent();
+		else if(bound instanceof BoundingSphere)
+			return ((BoundingSphere) bound).getRadius();
+		else
+			return 0;
+	}
+
+
+	private static float getZExtent(BoundingVolume bound)
+	{
+		if(bound instanceof BoundingBox)
+			return ((BoundingBox) bound).getZExtent();
+		else if(bound instanceof BoundingSphere)
+			return ((BoundingSphere) bound).getRadius();
+		else
+			return 0;
+	}
+}